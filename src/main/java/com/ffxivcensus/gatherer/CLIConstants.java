@@ -9,7 +9,7 @@ import org.apache.commons.cli.Options;
  * @author matthew.hillier
  */
 public class CLIConstants {
-    public static final String CLI_USAGE = "java -jar XIVStats-Gatherer-Java.jar [-i] -s startid [-f finishid] [-a autostop-id] [-g autostop-gap] [-d database-name] [-u database-user] [-p database-user-password] [-U database-url] [-t threads]";
+    public static final String CLI_USAGE = "java -jar XIVStats-Gatherer-Java.jar [-i] -s startid [-f finishid] [-a autostop-id] [-g autostop-gap] [-d database-name] [-u database-user] [-p database-user-password] [-U database-url] [-t threads] [-x snapshot-file] [-r] [-v] [-b refresh-budget] [-l lease-run] [-c sample-rate] [-w lane-weights] [--resume] [--sparse] [--gap-fill [stale-days]]";
 
     /**
      * Private constructor as this should never me initiated.
@@ -45,9 +45,37 @@ public class CLIConstants {
         Option optPassword = Option.builder("p").longOpt("password").argName("database-user-password").hasArg().numberOfArgs(1)
                                    .desc("database user password").build();
         Option optThreads = Option.builder("t").longOpt("threads").argName("no-threads").hasArg().numberOfArgs(1)
-                                  .desc("number of gatherer threads to run").build();
+                                  .desc("most gatherer threads to run at once").build();
         Option optIgnoreSSLVerify = Option.builder("i").longOpt("ignore-ssl-verification")
                                           .desc("Supress/ignore MySQL SSL verification warnings").build();
+        Option optExport = Option.builder("x").longOpt("export").argName("snapshot-file").hasArg().numberOfArgs(1)
+                                 .desc("export the stored characters from start to finish id to a snapshot file, instead of gathering")
+                                 .build();
+        Option optRebuild = Option.builder("r").longOpt("rebuild")
+                                  .desc("gather into staging tables, and swap them in for the live character tables once finished").build();
+        Option optVirtualThreads = Option.builder("v").longOpt("virtual-threads")
+                                         .desc("gather each character on its own virtual thread (requires Java 21 or later)").build();
+        Option optRefreshBudget = Option.builder("b").longOpt("refresh-budget").argName("refresh-budget").hasArg().numberOfArgs(1)
+                                        .desc("refresh only this many stored characters, choosing those most likely to have changed")
+                                        .build();
+        Option optLeaseRun = Option.builder("l").longOpt("lease").argName("lease-run").hasArg().numberOfArgs(1)
+                                   .desc("share the range with the other gatherer nodes in the named run, by leasing blocks of ids")
+                                   .build();
+        Option optSampleRate = Option.builder("c").longOpt("sample-rate").argName("sample-rate").hasArg().numberOfArgs(1)
+                                     .desc("gather this fraction of each block of ids, and estimate the census from the sample").build();
+        Option optLaneWeights = Option.builder("w").longOpt("lanes").argName("lane-weights").hasArg().numberOfArgs(1)
+                                      .desc("serve the named lanes of work at once, weighted as given e.g. frontier=4,refresh=1,retry=1")
+                                      .build();
+        Option optResume = Option.builder().longOpt("resume")
+                                 .desc("resume the interrupted sweep from the same start id, skipping the ids it had already gathered")
+                                 .build();
+        Option optSparse = Option.builder().longOpt("sparse")
+                                 .desc("probe only every 16th id where almost every character has been deleted, and around any found")
+                                 .build();
+        Option optGapFill = Option.builder().longOpt("gap-fill").argName("stale-days").hasArg().optionalArg(true).numberOfArgs(1)
+                                  .desc("gather only the ids missing from the database or that failed, and optionally those stored "
+                                        + "characters not crawled for the given number of days")
+                                  .build();
 
         // Add each option to the options object
         options.addOption(optStart);
@@ -61,6 +89,16 @@ public class CLIConstants {
         options.addOption(optURL);
         options.addOption(optHelp);
         options.addOption(optIgnoreSSLVerify);
+        options.addOption(optExport);
+        options.addOption(optRebuild);
+        options.addOption(optVirtualThreads);
+        options.addOption(optRefreshBudget);
+        options.addOption(optLeaseRun);
+        options.addOption(optSampleRate);
+        options.addOption(optLaneWeights);
+        options.addOption(optResume);
+        options.addOption(optSparse);
+        options.addOption(optGapFill);
 
         return options;
     }
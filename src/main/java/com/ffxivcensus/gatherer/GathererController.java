@@ -1,9 +1,12 @@
 package com.ffxivcensus.gatherer;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.ParseException;
@@ -13,14 +16,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.config.RunMode;
+import com.ffxivcensus.gatherer.export.SnapshotExporter;
+import com.ffxivcensus.gatherer.feed.ChangeFeedWriter;
+import com.ffxivcensus.gatherer.gapfill.GapFillPlan;
+import com.ffxivcensus.gatherer.lane.WorkLane;
+import com.ffxivcensus.gatherer.lease.LeaseCoordinator;
 import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.DeletedCharacterStore;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
 import com.ffxivcensus.gatherer.player.PlayerBean;
 import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
 import com.ffxivcensus.gatherer.player.PlayerBuilder;
+import com.ffxivcensus.gatherer.rebuild.StagingTableRebuild;
+import com.ffxivcensus.gatherer.refresh.RefreshQueue;
+import com.ffxivcensus.gatherer.sample.CensusEstimate;
+import com.ffxivcensus.gatherer.sample.CensusEstimator;
+import com.ffxivcensus.gatherer.sample.StratifiedSample;
+import com.ffxivcensus.gatherer.task.AdaptiveConcurrencyLimit;
+import com.ffxivcensus.gatherer.task.Checkpoint;
+import com.ffxivcensus.gatherer.task.CheckpointStore;
+import com.ffxivcensus.gatherer.task.ChunkedIdAllocator;
+import com.ffxivcensus.gatherer.task.FrontierSearch;
 import com.ffxivcensus.gatherer.task.GathererTask;
 import com.ffxivcensus.gatherer.task.GatheringLimiterTask;
-import com.ffxivcensus.gatherer.task.LevemeteTask;
+import com.ffxivcensus.gatherer.task.GatheringPipeline;
+import com.ffxivcensus.gatherer.task.IdAllocator;
 import com.ffxivcensus.gatherer.task.TaskFactory;
+import com.ffxivcensus.gatherer.task.VirtualThreads;
 
 /**
  * GathererController class of character gathering program. This class makes calls to fetch records from the lodestone, and then
@@ -38,6 +61,19 @@ public class GathererController {
     private final TaskFactory taskFactory;
     private final GatheringStatus gatheringStatus;
     private final PlayerBeanRepository playerRepository;
+    private final DeletedCharacterStore deletedStore;
+    private final IdBlockSummary idBlockSummary;
+    private final SnapshotExporter snapshotExporter;
+    private final ChangeFeedWriter changeFeed;
+    private final StagingTableRebuild stagingRebuild;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final FrontierSearch frontierSearch;
+    private final LeaseCoordinator leaseCoordinator;
+    private final CheckpointStore checkpointStore;
+    private final CensusEstimator censusEstimator;
+    private final IdAllocatorFactory idAllocatorFactory;
+    /** Kind of run being gathered, as resolved when checking the configuration. */
+    private RunMode runMode;
 
     /**
      * Constructs a new {@link GathererController} and configures with the provided {@link ApplicationConfig}.
@@ -45,43 +81,84 @@ public class GathererController {
      * @param config Configuration Bean
      */
     public GathererController(@Autowired final ApplicationConfig config, @Autowired final TaskFactory taskFactory,
-                              @Autowired final PlayerBeanRepository playerRepository, @Autowired GatheringStatus gatheringStatus) {
+                              @Autowired final PlayerBeanRepository playerRepository, @Autowired GatheringStatus gatheringStatus,
+                              @Autowired final DeletedCharacterStore deletedStore, @Autowired final IdBlockSummary idBlockSummary,
+                              @Autowired final SnapshotExporter snapshotExporter, @Autowired final ChangeFeedWriter changeFeed,
+                              @Autowired final StagingTableRebuild stagingRebuild,
+                              @Autowired final AdaptiveConcurrencyLimit concurrencyLimit,
+                              @Autowired final FrontierSearch frontierSearch, @Autowired final LeaseCoordinator leaseCoordinator,
+                              @Autowired final CheckpointStore checkpointStore, @Autowired final CensusEstimator censusEstimator,
+                              @Autowired final IdAllocatorFactory idAllocatorFactory) {
         this.appConfig = config;
         this.taskFactory = taskFactory;
         this.gatheringStatus = gatheringStatus;
         this.playerRepository = playerRepository;
+        this.deletedStore = deletedStore;
+        this.idBlockSummary = idBlockSummary;
+        this.snapshotExporter = snapshotExporter;
+        this.changeFeed = changeFeed;
+        this.stagingRebuild = stagingRebuild;
+        this.concurrencyLimit = concurrencyLimit;
+        this.frontierSearch = frontierSearch;
+        this.leaseCoordinator = leaseCoordinator;
+        this.checkpointStore = checkpointStore;
+        this.censusEstimator = censusEstimator;
+        this.idAllocatorFactory = idAllocatorFactory;
     }
 
     /**
      * Start the gatherer controller instance up.
      * 
      * @throws ParseException
+     * @throws IOException Exception thrown if a snapshot export fails, or the change feed cannot be written.
+     * @throws InterruptedException Exception thrown if interrupted while exporting a snapshot.
+     * @throws SQLException Exception thrown if a rebuild cannot create, write or swap in its staging tables.
      * @throws Exception Exception thrown if system is incorrectly configured.
      */
-    public void run() throws ParseException {
+    public void run() throws ParseException, IOException, InterruptedException, SQLException {
         // Store start time
         long startTime = System.currentTimeMillis();
 
-        // If user attempts to exceed the maximum no. of threads - overwrite their input and set to MAX_THREADS
-        if(appConfig.getThreadLimit() > ApplicationConfig.MAX_THREADS) {
-            appConfig.setThreadLimit(ApplicationConfig.MAX_THREADS);
+        if(appConfig.isVirtualThreads() && !VirtualThreads.isAvailable()) {
+            LOG.warn("Virtual threads are not supported on Java {}, so gathering on platform threads", System.getProperty("java.version"));
+            appConfig.setVirtualThreads(false);
+        }
+        // If user attempts to exceed the maximum no. of threads - overwrite their input and set to the maximum
+        if(appConfig.getThreadLimit() > appConfig.getMaxThreads()) {
+            appConfig.setThreadLimit(appConfig.getMaxThreads());
         }
 
         if(!isConfigured()) { // If not configured
             throw new ParseException("Gathering ranges not (correctly) configured");
+        } else if(appConfig.getExportFile() != null) { // Export, rather than gather
+            snapshotExporter.export(new File(appConfig.getExportFile()), appConfig.getStartId(), appConfig.getEndId());
         } else { // Else configured correctly
-            LOG.info("Starting parse of range " + appConfig.getStartId() + " to " + appConfig.getEndId() + " using "
+            LOG.info("Starting parse of range " + appConfig.getStartId() + " to " + appConfig.getEndId() + " using up to "
                      + appConfig.getThreadLimit() + " threads");
-            gatherCharacters(appConfig.getStartId(), appConfig.getEndId());
+            changeFeed.open();
+            if(runMode == RunMode.REBUILD) {
+                stagingRebuild.begin(appConfig.getStartId(), appConfig.getEndId());
+            }
+            try {
+                gatherCharacters(appConfig.getStartId(), appConfig.getEndId());
+            } finally {
+                changeFeed.close();
+            }
+            if(runMode == RunMode.REBUILD) {
+                if(Thread.currentThread().isInterrupted()) {
+                    LOG.warn("Gathering was interrupted, so the staging tables have not been swapped in");
+                } else {
+                    stagingRebuild.finish();
+                }
+            }
             // Get current time
             long endTime = System.currentTimeMillis();
             long seconds = (endTime - startTime) / 1000;
             long minutes = seconds / 60;
             long hours = minutes / 60;
             long days = hours / 24;
-            PlayerBean highestGathered = playerRepository.findTopByOrderByIdDesc();
-            int finalId = appConfig.getEndId() == Integer.MAX_VALUE && highestGathered != null ? highestGathered.getId()
-                                                                                               : appConfig.getEndId();
+            int highestGathered = idBlockSummary.getHighestCrawledId();
+            int finalId = appConfig.getEndId() == Integer.MAX_VALUE && highestGathered > 0 ? highestGathered : appConfig.getEndId();
             LOG.info("Run completed, gathered from Character #{} to Character #{} in {} Days, {} Hours, {} Minutes, {} Seconds (using {} threads)",
                      appConfig.getStartId(),
                      finalId,
@@ -91,7 +168,7 @@ public class GathererController {
     }
 
     /**
-     * Determine whether the instance is correctly configured.
+     * Determine whether the instance is correctly configured, resolving the kind of run it is configured for.
      *
      * @return string containing warnings/errors in configuration.
      */
@@ -109,51 +186,154 @@ public class GathererController {
             LOG.error("Error: The finish id argument needs to be greater than the start id argument");
             configured = false;
         }
+        if(appConfig.getRefreshBudget() < 0) {
+            LOG.error("Refresh budget must be configured to a positive numerical value, or left blank.");
+            configured = false;
+        }
+        runMode = null;
+        try {
+            runMode = RunMode.resolve(appConfig);
+        } catch(IllegalArgumentException e) {
+            LOG.error("Error: " + e.getMessage());
+            configured = false;
+        }
+        if(runMode == RunMode.LEASE && appConfig.getEndId() == Integer.MAX_VALUE) {
+            // Each node would otherwise search for the top of the ID space itself, and could lease over a different range
+            LOG.error("Error: Every node sharing a run must lease over the same range, so leasing needs a finish ID");
+            configured = false;
+        }
+        if(appConfig.getSampleRate() < 0 || appConfig.getSampleRate() > 1) {
+            LOG.error("Sample rate must be a fraction greater than 0 and at most 1, or left blank.");
+            configured = false;
+        }
+        if(appConfig.getStaleAfterDays() < 0) {
+            LOG.error("Stale days must be configured to a positive numerical value, or left blank.");
+            configured = false;
+        }
+        if(appConfig.getLaneWeights() != null) {
+            try {
+                Map<WorkLane, Integer> weights = WorkLane.parseWeights(appConfig.getLaneWeights());
+                if(weights.containsKey(WorkLane.REFRESH) != appConfig.getRefreshBudget() > 0) {
+                    LOG.error("Error: The refresh lane needs a refresh budget, and only the refresh lane can spend one");
+                    configured = false;
+                }
+            } catch(IllegalArgumentException e) {
+                LOG.error("Error: " + e.getMessage());
+                configured = false;
+            }
+        }
         return configured;
     }
 
     /**
      * Method to gather data for characters in specified range.
      */
-    private void gatherCharacters(final int startId, final int finishId) {
+    private void gatherCharacters(final int startId, int finishId) {
+        // Convert any deleted characters still stored as full rows into deleted ranges
+        deletedStore.migrateLegacyRows();
+        idBlockSummary.load();
+
         // Firstly, clean the top-end of the database
         LOG.debug("Cleaning top-end characters from the database");
         PlayerBean highestValid = playerRepository.findTopByCharacterStatusNotOrderByIdDesc(CharacterStatus.DELETED);
-        // Delete everything higher than last known good player
-        playerRepository.deleteByIdGreaterThan(highestValid != null ? highestValid.getId() : 0);
+        int lastKnownId = highestValid != null ? highestValid.getId() : 0;
+        // Delete everything higher than last known good player (a rebuild only stages characters up to the end of the crawl anyway, and
+        // other nodes sharing leases may have stored characters, deleted ranges and block summaries above it since the summary was loaded)
+        if(runMode != RunMode.REBUILD && runMode != RunMode.LEASE) {
+            playerRepository.deleteByIdGreaterThan(lastKnownId);
+        }
+        if(runMode != RunMode.LEASE) {
+            deletedStore.trimAbove(lastKnownId);
+            idBlockSummary.trimAbove(lastKnownId);
+        }
+
+        // When resuming, carry on with the interrupted sweep, including its finish ID unless another has been given
+        Checkpoint resumeFrom = runMode == RunMode.RESUME ? loadCheckpoint(startId) : null;
+        if(resumeFrom != null && finishId == Integer.MAX_VALUE) {
+            finishId = resumeFrom.getFinishId();
+            appConfig.setEndId(finishId);
+        }
+
+        // Without a finish ID, sweep up to the top of the valid ID space rather than relying on auto-stop alone
+        boolean sweeping = runMode == RunMode.LANES ? WorkLane.parseWeights(appConfig.getLaneWeights()).containsKey(WorkLane.FRONTIER)
+                                                    : runMode.isSweeping();
+        if(finishId == Integer.MAX_VALUE && sweeping) {
+            finishId = findEndId(startId);
+        }
+        if(finishId == Integer.MAX_VALUE && runMode == RunMode.SAMPLE) {
+            // A sample is drawn up front, so cannot rely on auto-stop to find the end of the range
+            LOG.warn("Sampling up to the highest valid character already stored, Character #{}", lastKnownId);
+            finishId = lastKnownId;
+            appConfig.setEndId(finishId);
+        }
+        if(finishId == Integer.MAX_VALUE && runMode == RunMode.GAP_FILL) {
+            // Everything above the highest valid character is missing, and finding new characters there is the job of a sweep
+            finishId = lastKnownId;
+            appConfig.setEndId(finishId);
+        }
 
         // Setup the gathering parameters
         gatheringStatus.setStartId(startId);
         gatheringStatus.setFinishId(finishId);
 
+        // Allocate the IDs the kind of run gathers
+        IdAllocator idAllocator = idAllocatorFactory.create(runMode, startId, finishId, lastKnownId, resumeFrom);
+
         // Now setup the ExecutorServices
-        // gatheringExecutor runs only the gathering tasks
-        ThreadPoolExecutor gathererExecutor = new ThreadPoolExecutor(appConfig.getThreadLimit(),
-                                                                     appConfig.getThreadLimit(),
-                                                                     60,
-                                                                     TimeUnit.SECONDS,
-                                                                     new ArrayBlockingQueue<>(1000));
+        ExecutorService gathererExecutor;
+        ExecutorService dispatcherExecutor = null;
+        Runnable progressReport;
+        if(appConfig.isVirtualThreads()) {
+            // gatheringExecutor runs each character on its own virtual thread, as dispatched within the concurrency limit
+            gathererExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            dispatcherExecutor = Executors.newSingleThreadExecutor();
+            dispatcherExecutor.execute(taskFactory.createDispatcher(idAllocator.newCursor(), gathererExecutor));
+            progressReport = () -> LOG.info("Gathering {} characters at once (limit {} of {})",
+                                            concurrencyLimit.getInFlight(), concurrencyLimit.getLimit(), appConfig.getThreadLimit());
+        } else {
+            // gatheringExecutor runs the fetch, parse and persist stages of the pipeline, each leasing chunks of IDs until the range is
+            // exhausted
+            GatheringPipeline pipeline = taskFactory.createPipeline(idAllocator,
+                                                                    appConfig.getThreadLimit(),
+                                                                    Runtime.getRuntime().availableProcessors());
+            gathererExecutor = Executors.newFixedThreadPool(pipeline.getThreadCount());
+            pipeline.start(gathererExecutor);
+            progressReport = () -> LOG.info("Gathering pipeline: {}", pipeline.describe());
+        }
         // managementExecutor runs all life-cycle management tasks
         ScheduledExecutorService managementExecutor = Executors.newScheduledThreadPool(1);
-        // Executes the levemete task once every 10 seconds, starting immediately.
-        managementExecutor.scheduleAtFixedRate(new LevemeteTask(gathererExecutor,
-                                                                taskFactory,
-                                                                gatheringStatus),
-                                               0,
-                                               5,
-                                               TimeUnit.SECONDS);
-        // Executes the limiter tasks once every 30 seconds, starting in 30 seconds time.
-        managementExecutor.scheduleAtFixedRate(new GatheringLimiterTask(appConfig,
-                                                                        gathererExecutor,
-                                                                        playerRepository),
-                                               30,
-                                               30,
-                                               TimeUnit.SECONDS);
+        // Executes the limiter tasks once every 30 seconds, starting in 30 seconds time. A refresh only revisits stored characters, and a
+        // gap fill stops at the highest one, so neither runs past the frontier.
+        if(!(idAllocator instanceof RefreshQueue || idAllocator instanceof GapFillPlan)) {
+            managementExecutor.scheduleAtFixedRate(new GatheringLimiterTask(appConfig,
+                                                                            gathererExecutor,
+                                                                            idBlockSummary),
+                                                   30,
+                                                   30,
+                                                   TimeUnit.SECONDS);
+        }
+        // Writes changes to the ID block summary once every 30 seconds.
+        managementExecutor.scheduleAtFixedRate(idBlockSummary::flush, 30, 30, TimeUnit.SECONDS);
+        // Reports how gathering is progressing every 30 seconds, as the concurrency limit adapts.
+        managementExecutor.scheduleAtFixedRate(progressReport, 30, 30, TimeUnit.SECONDS);
+        // Makes changes visible to change feed consumers once every second.
+        managementExecutor.scheduleAtFixedRate(changeFeed::flush, 1, 1, TimeUnit.SECONDS);
+        // Saves a checkpoint of the sweep every 10 seconds, so that it can be resumed with little work repeated.
+        if(idAllocator instanceof ChunkedIdAllocator) {
+            ChunkedIdAllocator sweep = (ChunkedIdAllocator) idAllocator;
+            managementExecutor.scheduleAtFixedRate(() -> saveCheckpoint(sweep), 10, 10, TimeUnit.SECONDS);
+        }
+        // Renews this node's leases well before they expire.
+        if(runMode == RunMode.LEASE) {
+            managementExecutor.scheduleAtFixedRate(leaseCoordinator::heartbeat, LeaseCoordinator.HEARTBEAT_SECONDS,
+                                                   LeaseCoordinator.HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        }
 
         // This is the main idle loop of the application and will continue until the gathering has finished.
         while(!gathererExecutor.isTerminated()) {
             try {
                 gathererExecutor.awaitTermination(5, TimeUnit.SECONDS);
+                logProgress(idAllocator, false);
             } catch(InterruptedException ie) {
                 gathererExecutor.shutdownNow();
                 // Remember to re-propogate the interrupt now that we've handled our needs
@@ -161,6 +341,97 @@ public class GathererController {
             }
         }
 
+        if(dispatcherExecutor != null) {
+            dispatcherExecutor.shutdownNow();
+        }
         managementExecutor.shutdownNow();
+        if(idAllocator instanceof ChunkedIdAllocator) {
+            saveCheckpoint((ChunkedIdAllocator) idAllocator);
+        } else {
+            idBlockSummary.flush();
+        }
+        if(runMode == RunMode.LEASE) {
+            // Anything still leased was cut short, so let other nodes take it over straight away
+            leaseCoordinator.releaseAll();
+        }
+        logProgress(idAllocator, true);
+        if(idAllocator instanceof StratifiedSample) {
+            CensusEstimate estimate = censusEstimator.estimate((StratifiedSample) idAllocator);
+            for(String line : estimate.describe()) {
+                LOG.info(line);
+            }
+        }
+    }
+
+    /**
+     * Saves a checkpoint of the sweep once the ID block summary has been written, so that no character the checkpoint counts as gathered
+     * is missing from the stored summary. The checkpoint is skipped if the summary cannot be written.
+     *
+     * @param sweep Sweep to checkpoint.
+     */
+    private void saveCheckpoint(final ChunkedIdAllocator sweep) {
+        Checkpoint checkpoint = sweep.checkpoint();
+        try {
+            idBlockSummary.flush();
+        } catch(Exception e) {
+            LOG.warn("Unable to write the ID block summary, so not saving a checkpoint: " + e.getMessage(), e);
+            return;
+        }
+        checkpointStore.save(checkpoint);
+    }
+
+    /**
+     * Loads the checkpoint of the interrupted sweep from the given start ID.
+     *
+     * @param startId ID the sweep started from.
+     * @return Checkpoint, or null if the sweep must start from the beginning.
+     */
+    private Checkpoint loadCheckpoint(final int startId) {
+        try {
+            Checkpoint checkpoint = checkpointStore.load(startId);
+            if(checkpoint == null) {
+                LOG.warn("No checkpoint found for a sweep from Character #{}, so starting from the beginning", startId);
+            } else {
+                LOG.info("Resuming the sweep from Character #{}, which had gathered every character below #{} and {} more above it",
+                         startId, checkpoint.getWatermark(), checkpoint.getCompletedAboveCount());
+            }
+            return checkpoint;
+        } catch(IOException e) {
+            LOG.warn("Unable to load checkpoint, so starting from the beginning: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the end ID of a sweep from the top of the valid ID space, falling back to auto-stop if the Lodestone cannot be probed.
+     *
+     * @param startId ID the sweep starts from.
+     * @return End ID of the sweep.
+     */
+    private int findEndId(final int startId) {
+        try {
+            int endId = frontierSearch.findEndId(startId, Integer.MAX_VALUE);
+            appConfig.setEndId(endId);
+            return endId;
+        } catch(IOException e) {
+            LOG.warn("Unable to find the top of the valid ID space, so relying on auto-stop: " + e.getMessage(), e);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Logs how far gathering has got.
+     *
+     * @param idAllocator Allocator of the Character IDs being gathered.
+     * @param finished Whether gathering has finished, in which case progress is logged at info level.
+     */
+    private void logProgress(final IdAllocator idAllocator, final boolean finished) {
+        if(finished) {
+            LOG.info(idAllocator.describeProgress());
+        } else {
+            LOG.debug(idAllocator.describeProgress());
+        }
     }
 }
@@ -1,13 +1,17 @@
 package com.ffxivcensus.gatherer;
 
-public class GatheringStatus {
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class GatheringStatus implements IdSource {
 
     /** Initial starting ID number. */
     private int startId;
     /** Finishing ending ID number. */
     private int finishId = Integer.MAX_VALUE;
     /** Current ID number. */
-    private int currentId;
+    private final AtomicInteger currentId = new AtomicInteger();
 
     /**
      * Fetches the Starting ID number.
@@ -26,7 +30,7 @@ public class GatheringStatus {
      */
     public void setStartId(final int startId) {
         this.startId = startId;
-        this.currentId = startId - 1;
+        this.currentId.set(startId - 1);
     }
 
     /**
@@ -53,20 +57,34 @@ public class GatheringStatus {
      * @return the currentId
      */
     public int getCurrentId() {
-        return currentId;
+        return currentId.get();
     }
 
     /**
      * Issues the next available ID number and increments the current ID number to match.
-     * This method is synchronous to mitigate issues where multiple threads may try to hit this at the same time and, therefore, end up with
-     * the same ID number issued twice.
+     * The increment is atomic, so that multiple threads hitting this at the same time never end up with the same ID number issued twice.
      * 
      * @return Next available ID number.
      */
-    public synchronized int getNextId() {
-        int nextId = currentId + 1;
-        currentId = nextId;
-        return nextId;
+    public int getNextId() {
+        return currentId.incrementAndGet();
+    }
+
+    /**
+     * Issues the next ID number to gather, until the Finishing ID number has been issued.
+     * 
+     * @return Next ID number, or {@link IdSource#EXHAUSTED} once the Finishing ID number has been passed.
+     */
+    @Override
+    public int nextId() {
+        int current = currentId.get();
+        while(current < finishId) {
+            if(currentId.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+            current = currentId.get();
+        }
+        return EXHAUSTED;
     }
 
 }
@@ -0,0 +1,128 @@
+package com.ffxivcensus.gatherer;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.config.RunMode;
+import com.ffxivcensus.gatherer.failure.FailureLedger;
+import com.ffxivcensus.gatherer.gapfill.GapFillPlanner;
+import com.ffxivcensus.gatherer.lane.LaneScheduler;
+import com.ffxivcensus.gatherer.lane.RetryQueue;
+import com.ffxivcensus.gatherer.lane.WorkLane;
+import com.ffxivcensus.gatherer.lease.LeaseCoordinator;
+import com.ffxivcensus.gatherer.lease.LeasedIdAllocator;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.refresh.RefreshScheduler;
+import com.ffxivcensus.gatherer.sample.StratifiedSample;
+import com.ffxivcensus.gatherer.task.Checkpoint;
+import com.ffxivcensus.gatherer.task.ChunkedIdAllocator;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.SparseProbeAllocator;
+
+/**
+ * Factory class to create the {@link IdAllocator} of the Character IDs each kind of run gathers.
+ *
+ * @author fahy
+ * @see RunMode
+ */
+@Service
+public class IdAllocatorFactory {
+    private static final Logger LOG = LoggerFactory.getLogger(IdAllocatorFactory.class);
+    private final ApplicationConfig appConfig;
+    private final RefreshScheduler refreshScheduler;
+    private final GapFillPlanner gapFillPlanner;
+    private final LeaseCoordinator leaseCoordinator;
+    private final IdBlockSummary idBlockSummary;
+    private final FailureLedger failureLedger;
+
+    /**
+     * Constructs a new {@link IdAllocatorFactory}, creating allocators from the planners and coordinators managed by the IoC container.
+     *
+     * @param appConfig Configuration Bean
+     */
+    public IdAllocatorFactory(@Autowired final ApplicationConfig appConfig, @Autowired final RefreshScheduler refreshScheduler,
+                              @Autowired final GapFillPlanner gapFillPlanner, @Autowired final LeaseCoordinator leaseCoordinator,
+                              @Autowired final IdBlockSummary idBlockSummary, @Autowired final FailureLedger failureLedger) {
+        this.appConfig = appConfig;
+        this.refreshScheduler = refreshScheduler;
+        this.gapFillPlanner = gapFillPlanner;
+        this.leaseCoordinator = leaseCoordinator;
+        this.idBlockSummary = idBlockSummary;
+        this.failureLedger = failureLedger;
+    }
+
+    /**
+     * Creates the allocator of the Character IDs a run gathers.
+     *
+     * @param mode Kind of run.
+     * @param startId First ID of the range.
+     * @param finishId Last ID of the range.
+     * @param highestValidId Highest valid character already stored, above which the frontier lane finds new characters.
+     * @param resumeFrom Checkpoint of the sweep being resumed, or null to start it from the beginning.
+     * @return New allocator.
+     */
+    public IdAllocator create(final RunMode mode, final int startId, final int finishId, final int highestValidId,
+                              final Checkpoint resumeFrom) {
+        switch (mode) {
+            case LANES:
+                return createLanes(WorkLane.parseWeights(appConfig.getLaneWeights()), startId, finishId, highestValidId);
+            case SAMPLE:
+                StratifiedSample sample = new StratifiedSample(startId, finishId, appConfig.getSampleRate(), new Random());
+                LOG.info("Sampling {} characters, {} of each ID block", sample.size(), appConfig.getSampleRate());
+                return sample;
+            case REFRESH:
+                return refreshScheduler.schedule(startId, finishId, appConfig.getRefreshBudget());
+            case GAP_FILL:
+                return gapFillPlanner.plan(startId, finishId, appConfig.getStaleAfterDays());
+            case LEASE:
+                LOG.info("Leasing ID blocks in run '{}' as node {}", appConfig.getLeaseRun(), leaseCoordinator.getNodeId());
+                return new LeasedIdAllocator(leaseCoordinator, startId, finishId);
+            case SPARSE:
+                return new SparseProbeAllocator(startId, finishId, idBlockSummary);
+            case RESUME:
+                return new ChunkedIdAllocator(startId, finishId, resumeFrom);
+            default:
+                return new ChunkedIdAllocator(startId, finishId);
+        }
+    }
+
+    /**
+     * Creates the lanes of work to serve at once.
+     *
+     * @param weights Weight of each lane to serve.
+     * @param startId First ID of the range.
+     * @param finishId Last ID of the range.
+     * @param highestValidId Highest valid character already stored, above which the frontier lane finds new characters.
+     * @return Scheduler serving the lanes.
+     */
+    private LaneScheduler createLanes(final Map<WorkLane, Integer> weights, final int startId, final int finishId,
+                                      final int highestValidId) {
+        LaneScheduler lanes = new LaneScheduler();
+        for(Map.Entry<WorkLane, Integer> lane : weights.entrySet()) {
+            switch (lane.getKey()) {
+                case FRONTIER:
+                    lanes.addLane(WorkLane.FRONTIER, new ChunkedIdAllocator(Math.max(startId, highestValidId + 1), finishId),
+                                  lane.getValue());
+                    break;
+                case REFRESH:
+                    lanes.addLane(WorkLane.REFRESH,
+                                  refreshScheduler.schedule(startId, Math.min(finishId, highestValidId), appConfig.getRefreshBudget()),
+                                  lane.getValue());
+                    break;
+                case RETRY:
+                    lanes.addLane(WorkLane.RETRY, new RetryQueue(failureLedger), lane.getValue());
+                    break;
+                default:
+                    break;
+            }
+        }
+        LOG.info("Serving lanes weighted {}", appConfig.getLaneWeights());
+        return lanes;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ffxivcensus.gatherer.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity for which {@link RowBinderProcessor} generates a JDBC row binder at build time.
+ * The binder is generated into the entity's package, named after the entity with a <code>RowBinder</code> suffix.
+ *
+ * @author fahy
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateRowBinder {
+
+    /**
+     * Names of the fields left out when the binder compares the content of two entities, such as bookkeeping fields.
+     *
+     * @return Field names.
+     */
+    String[] ignoreInContent() default {};
+}
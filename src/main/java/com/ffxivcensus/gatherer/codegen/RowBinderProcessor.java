@@ -0,0 +1,585 @@
+package com.ffxivcensus.gatherer.codegen;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.PrimaryKeyJoinColumn;
+import javax.persistence.SecondaryTable;
+import javax.persistence.SecondaryTables;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.tools.Diagnostic;
+
+/**
+ * Annotation processor generating a JDBC row binder for each entity marked with {@link GenerateRowBinder}.
+ * <p>
+ * The binder is built from the entity's JPA mapping annotations, and maps columns the same way as Hibernate does under Spring Boot's
+ * naming strategy. It provides the column names of each table the entity is stored in, binds an entity's values for a table to the
+ * parameters of a {@link java.sql.PreparedStatement}, and reads an entity from a {@link java.sql.ResultSet}, all through the entity's
+ * accessors and without reflection. It also compares the content of two entities field by field, leaving out the fields named by
+ * {@link GenerateRowBinder#ignoreInContent()}, with dates compared by day and a missing list treated as an empty one. As it is
+ * regenerated on every build, it cannot drift from the entity.
+ * <p>
+ * Supported field types are <code>int</code>, <code>long</code>, <code>double</code>, <code>boolean</code>, {@link String},
+ * {@link java.util.Date}, enums (stored by name or ordinal, as given by {@link Enumerated}) and fields with a {@link Convert} converter
+ * to {@link String}. Any other field type is reported as a compilation error.
+ *
+ * @author fahy
+ */
+@SupportedAnnotationTypes("com.ffxivcensus.gatherer.codegen.GenerateRowBinder")
+public class RowBinderProcessor extends AbstractProcessor {
+
+    /** Suffix of the generated binder class names. */
+    public static final String BINDER_SUFFIX = "RowBinder";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for(Element element : roundEnv.getElementsAnnotatedWith(GenerateRowBinder.class)) {
+            TypeElement entity = (TypeElement) element;
+            try {
+                generate(entity, readMapping(entity));
+            } catch(MappingException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch(IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write row binder: " + e.getMessage(), entity);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the columns of each table an entity is stored in, with the primary table first.
+     */
+    private Map<String, List<MappedColumn>> readMapping(final TypeElement entity) throws MappingException {
+        Table table = entity.getAnnotation(Table.class);
+        String primaryTable = table != null && !table.name().isEmpty() ? table.name() : entity.getSimpleName().toString();
+        Map<String, List<MappedColumn>> tables = new LinkedHashMap<>();
+        tables.put(primaryTable, new ArrayList<>());
+
+        MappedColumn idColumn = null;
+        List<ExecutableElement> methods = ElementFilter.methodsIn(entity.getEnclosedElements());
+        for(VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+            if(field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)
+               || field.getAnnotation(Transient.class) != null) {
+                continue;
+            }
+            Column column = field.getAnnotation(Column.class);
+            String tableName = column != null && !column.table().isEmpty() ? column.table() : primaryTable;
+            String columnName = column != null && !column.name().isEmpty() ? column.name() : toColumnName(field.getSimpleName().toString());
+            MappedColumn mapped = new MappedColumn(field, columnName, readKind(field), findAccessor(field, methods, false),
+                                                   findAccessor(field, methods, true));
+            if(mapped.kind == Kind.CONVERTED) {
+                mapped.converter = converterOf(field);
+            }
+            if(!tables.containsKey(tableName)) {
+                tables.put(tableName, new ArrayList<>());
+            }
+            tables.get(tableName).add(mapped);
+            if(field.getAnnotation(Id.class) != null) {
+                idColumn = mapped;
+            }
+        }
+
+        // Secondary tables share the entity's id, under the name of their primary key join column
+        for(Map.Entry<String, List<MappedColumn>> mapped : tables.entrySet()) {
+            if(!mapped.getKey().equals(primaryTable)) {
+                if(idColumn == null) {
+                    throw new MappingException("Entities stored in several tables need an @Id field", entity);
+                }
+                MappedColumn joinColumn = new MappedColumn(idColumn.field, joinColumnName(entity, mapped.getKey(), idColumn.name), idColumn.kind,
+                                                           idColumn.getter, idColumn.setter);
+                mapped.getValue().add(0, joinColumn);
+            }
+        }
+        return tables;
+    }
+
+    private Kind readKind(final VariableElement field) throws MappingException {
+        TypeMirror type = field.asType();
+        if(field.getAnnotation(Convert.class) != null) {
+            return Kind.CONVERTED;
+        }
+        switch(type.getKind()) {
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case DOUBLE:
+                return Kind.DOUBLE;
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case DECLARED:
+                Element typeElement = ((DeclaredType) type).asElement();
+                String typeName = ((TypeElement) typeElement).getQualifiedName().toString();
+                if(String.class.getName().equals(typeName)) {
+                    return Kind.STRING;
+                } else if(java.util.Date.class.getName().equals(typeName)) {
+                    return Kind.DATE;
+                } else if(typeElement.getKind() == ElementKind.ENUM) {
+                    Enumerated enumerated = field.getAnnotation(Enumerated.class);
+                    return enumerated != null && enumerated.value() == EnumType.STRING ? Kind.ENUM_NAME : Kind.ENUM_ORDINAL;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new MappingException("Row binders do not support fields of type " + type, field);
+    }
+
+    private static String converterOf(final VariableElement field) {
+        try {
+            return field.getAnnotation(Convert.class).converter().getName();
+        } catch(MirroredTypeException e) {
+            // Classes being compiled can only be reached through their type mirror
+            return e.getTypeMirror().toString();
+        }
+    }
+
+    private static String joinColumnName(final TypeElement entity, final String table, final String idColumnName) {
+        for(SecondaryTable secondary : secondaryTables(entity)) {
+            PrimaryKeyJoinColumn[] joinColumns = secondary.pkJoinColumns();
+            if(secondary.name().equals(table) && joinColumns.length > 0 && !joinColumns[0].name().isEmpty()) {
+                return joinColumns[0].name();
+            }
+        }
+        return idColumnName;
+    }
+
+    private static List<SecondaryTable> secondaryTables(final TypeElement entity) {
+        List<SecondaryTable> tables = new ArrayList<>();
+        if(entity.getAnnotation(SecondaryTable.class) != null) {
+            tables.add(entity.getAnnotation(SecondaryTable.class));
+        }
+        SecondaryTables several = entity.getAnnotation(SecondaryTables.class);
+        if(several != null) {
+            for(SecondaryTable secondary : several.value()) {
+                tables.add(secondary);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Finds the JavaBeans getter or setter of a field. Boolean fields named <code>isXxx</code> use <code>isXxx()</code> and
+     * <code>setXxx()</code>.
+     */
+    private static String findAccessor(final VariableElement field, final List<ExecutableElement> methods, final boolean setter)
+            throws MappingException {
+        String name = field.getSimpleName().toString();
+        String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        boolean isBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+        List<String> candidates = new ArrayList<>();
+        if(isBoolean && name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))) {
+            candidates.add(setter ? "set" + name.substring(2) : name);
+        }
+        candidates.add((setter ? "set" : isBoolean ? "is" : "get") + property);
+        for(String candidate : candidates) {
+            for(ExecutableElement method : methods) {
+                if(method.getSimpleName().contentEquals(candidate) && method.getModifiers().contains(Modifier.PUBLIC)
+                   && method.getParameters().size() == (setter ? 1 : 0)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new MappingException("No public " + (setter ? "setter" : "getter") + " found for " + name + ", expected " + candidates, field);
+    }
+
+    /**
+     * Names a column as Spring Boot's physical naming strategy does, by inserting underscores between lower and upper case letters.
+     */
+    static String toColumnName(final String fieldName) {
+        StringBuilder name = new StringBuilder(fieldName);
+        for(int i = 1; i < name.length() - 1; i++) {
+            if(Character.isLowerCase(name.charAt(i - 1)) && Character.isUpperCase(name.charAt(i))
+               && Character.isLowerCase(name.charAt(i + 1))) {
+                name.insert(i++, '_');
+            }
+        }
+        return name.toString().toLowerCase();
+    }
+
+    private void generate(final TypeElement entity, final Map<String, List<MappedColumn>> tables) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(entity);
+        String entityName = entity.getSimpleName().toString();
+        String binderName = entityName + BINDER_SUFFIX;
+        String qualifiedName = pkg.isUnnamed() ? binderName : pkg.getQualifiedName() + "." + binderName;
+
+        try(PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, entity).openWriter())) {
+            if(!pkg.isUnnamed()) {
+                out.println("package " + pkg.getQualifiedName() + ";");
+                out.println();
+            }
+            out.println("import java.sql.PreparedStatement;");
+            out.println("import java.sql.ResultSet;");
+            out.println("import java.sql.SQLException;");
+            out.println("import java.sql.Timestamp;");
+            out.println("import java.time.Instant;");
+            out.println("import java.time.ZoneId;");
+            out.println("import java.util.Arrays;");
+            out.println("import java.util.Collections;");
+            out.println("import java.util.Date;");
+            out.println("import java.util.LinkedHashMap;");
+            out.println("import java.util.List;");
+            out.println("import java.util.Map;");
+            out.println("import java.util.Objects;");
+            out.println();
+            out.println("/**");
+            out.println(" * Binds {@link " + entityName + "} to JDBC statements, and reads it from result sets, without reflection.");
+            out.println(" * Generated by {@link " + RowBinderProcessor.class.getName() + "} from the entity's mapping annotations; do not edit.");
+            out.println(" */");
+            out.println("public final class " + binderName + " {");
+            out.println();
+            out.println("    private static final List<String> TABLES = Collections.unmodifiableList(Arrays.asList(" + quoteAll(tables.keySet()) + "));");
+            int tableIndex = 0;
+            for(List<MappedColumn> columns : tables.values()) {
+                List<String> names = new ArrayList<>();
+                for(MappedColumn column : columns) {
+                    names.add(column.name);
+                }
+                out.println("    private static final List<String> COLUMNS_" + tableIndex++ + " = Collections.unmodifiableList(Arrays.asList("
+                            + quoteAll(names) + "));");
+            }
+            Map<String, String> converters = new LinkedHashMap<>();
+            for(List<MappedColumn> columns : tables.values()) {
+                for(MappedColumn column : columns) {
+                    if(column.converter != null && !converters.containsKey(column.converter)) {
+                        String constant = "CONVERTER_" + converters.size();
+                        converters.put(column.converter, constant);
+                        out.println("    private static final " + column.converter + " " + constant + " = new " + column.converter + "();");
+                    }
+                }
+            }
+            out.println();
+            out.println("    private " + binderName + "() {");
+            out.println("    }");
+            out.println();
+
+            out.println("    /**");
+            out.println("     * Fetches the tables the entity is stored in, primary table first.");
+            out.println("     *");
+            out.println("     * @return Table names.");
+            out.println("     */");
+            out.println("    public static List<String> getTables() {");
+            out.println("        return TABLES;");
+            out.println("    }");
+            out.println();
+
+            out.println("    /**");
+            out.println("     * Fetches the names of the columns of a table, in the order they are bound.");
+            out.println("     *");
+            out.println("     * @param table Table name.");
+            out.println("     * @return Column names.");
+            out.println("     */");
+            out.println("    public static List<String> getColumnNames(final String table) {");
+            out.println("        switch(table) {");
+            tableIndex = 0;
+            for(String table : tables.keySet()) {
+                out.println("            case \"" + table + "\":");
+                out.println("                return COLUMNS_" + tableIndex++ + ";");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"" + entityName + " is not stored in table \" + table);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    /**");
+            out.println("     * Binds an entity's values for a table to the parameters of a statement, starting from the first parameter.");
+            out.println("     *");
+            out.println("     * @param statement Statement to bind to, with one parameter per column in the order of {@link #getColumnNames(String)}.");
+            out.println("     * @param table Table name.");
+            out.println("     * @param entity Entity to bind.");
+            out.println("     * @throws SQLException if a parameter cannot be set.");
+            out.println("     */");
+            out.println("    public static void bind(final PreparedStatement statement, final String table, final " + entityName
+                        + " entity) throws SQLException {");
+            out.println("        switch(table) {");
+            tableIndex = 0;
+            for(Map.Entry<String, List<MappedColumn>> table : tables.entrySet()) {
+                out.println("            case \"" + table.getKey() + "\":");
+                int parameter = 1;
+                for(MappedColumn column : table.getValue()) {
+                    out.println("                " + bindStatement(column, parameter++, converters));
+                }
+                out.println("                return;");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"" + entityName + " is not stored in table \" + table);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    /**");
+            out.println("     * Reads an entity from the current row of a result set, by column label.");
+            out.println("     * The result set must hold every column of every table, as returned when joining the tables on their ids.");
+            out.println("     *");
+            out.println("     * @param results Result set positioned on a row.");
+            out.println("     * @return Entity read from the row.");
+            out.println("     * @throws SQLException if a column cannot be read.");
+            out.println("     */");
+            out.println("    public static " + entityName + " read(final ResultSet results) throws SQLException {");
+            out.println("        " + entityName + " entity = new " + entityName + "();");
+            for(List<MappedColumn> columns : tables.values()) {
+                for(MappedColumn column : columns) {
+                    // Join columns repeat the id, which has already been read from the primary table
+                    if(column == columns.get(0) && columns != tables.values().iterator().next()) {
+                        continue;
+                    }
+                    out.println("        " + readStatement(column, converters));
+                }
+            }
+            out.println("        return entity;");
+            out.println("    }");
+            out.println();
+
+            List<MappedColumn> contentColumns = contentColumns(entity, tables);
+            out.println("    /**");
+            out.println("     * Determines whether two entities hold the same content, stopping at the first field that differs.");
+            out.println("     *");
+            out.println("     * @param entity Entity to compare.");
+            out.println("     * @param other Entity to compare against.");
+            out.println("     * @return true if every content field matches.");
+            out.println("     */");
+            out.println("    public static boolean hasSameContent(final " + entityName + " entity, final " + entityName + " other) {");
+            for(MappedColumn column : contentColumns) {
+                out.println("        if(" + differs(column) + ") {");
+                out.println("            return false;");
+                out.println("        }");
+            }
+            out.println("        return true;");
+            out.println("    }");
+            out.println();
+
+            out.println("    /**");
+            out.println("     * Fetches the content fields of an entity that differ from another.");
+            out.println("     *");
+            out.println("     * @param entity Entity to compare.");
+            out.println("     * @param other Entity to compare against.");
+            out.println("     * @return Map of field name to the entity's value for each field that differs, in declaration order.");
+            out.println("     */");
+            out.println("    public static Map<String, Object> getContentChanges(final " + entityName + " entity, final " + entityName
+                        + " other) {");
+            out.println("        Map<String, Object> changes = new LinkedHashMap<>();");
+            for(MappedColumn column : contentColumns) {
+                out.println("        if(" + differs(column) + ") {");
+                out.println("            changes.put(\"" + column.field.getSimpleName() + "\", entity." + column.getter + "());");
+                out.println("        }");
+            }
+            out.println("        return changes;");
+            out.println("    }");
+            out.println();
+
+            out.println("    private static boolean sameDay(final Date date, final Date other) {");
+            out.println("        if(date == null || other == null) {");
+            out.println("            return date == other;");
+            out.println("        }");
+            out.println("        // Read via the epoch millis, as java.sql.Date does not support toInstant()");
+            out.println("        ZoneId zone = ZoneId.systemDefault();");
+            out.println("        return Instant.ofEpochMilli(date.getTime()).atZone(zone).toLocalDate()");
+            out.println("                      .equals(Instant.ofEpochMilli(other.getTime()).atZone(zone).toLocalDate());");
+            out.println("    }");
+            out.println();
+            out.println("    private static boolean sameList(final List<?> list, final List<?> other) {");
+            out.println("        return Objects.equals(list != null ? list : Collections.emptyList(), other != null ? other : Collections.emptyList());");
+            out.println("    }");
+            out.println();
+            out.println("    private static Timestamp toTimestamp(final Date date) {");
+            out.println("        return date == null ? null : new Timestamp(date.getTime());");
+            out.println("    }");
+            out.println();
+            out.println("    private static Date toDate(final Timestamp timestamp) {");
+            out.println("        return timestamp == null ? null : new Date(timestamp.getTime());");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * Finds the fields compared as content, in declaration order, leaving out join columns and the fields the entity ignores.
+     */
+    private static List<MappedColumn> contentColumns(final TypeElement entity, final Map<String, List<MappedColumn>> tables) {
+        List<String> ignored = Arrays.asList(entity.getAnnotation(GenerateRowBinder.class).ignoreInContent());
+        List<VariableElement> declared = ElementFilter.fieldsIn(entity.getEnclosedElements());
+        List<MappedColumn> columns = new ArrayList<>();
+        for(List<MappedColumn> tableColumns : tables.values()) {
+            for(MappedColumn column : tableColumns) {
+                boolean joinColumn = column == tableColumns.get(0) && tableColumns != tables.values().iterator().next();
+                if(!joinColumn && !ignored.contains(column.field.getSimpleName().toString())) {
+                    columns.add(column);
+                }
+            }
+        }
+        columns.sort(Comparator.comparingInt(column -> declared.indexOf(column.field)));
+        return columns;
+    }
+
+    /**
+     * Builds the condition that a field of <code>entity</code> differs from the same field of <code>other</code>.
+     */
+    private static String differs(final MappedColumn column) {
+        String value = "entity." + column.getter + "()";
+        String otherValue = "other." + column.getter + "()";
+        switch(column.kind) {
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return value + " != " + otherValue;
+            case DOUBLE:
+                return "Double.compare(" + value + ", " + otherValue + ") != 0";
+            case DATE:
+                return "!sameDay(" + value + ", " + otherValue + ")";
+            case CONVERTED:
+                if(column.field.asType().toString().startsWith(List.class.getName())) {
+                    return "!sameList(" + value + ", " + otherValue + ")";
+                }
+                return "!Objects.equals(" + value + ", " + otherValue + ")";
+            default:
+                return "!Objects.equals(" + value + ", " + otherValue + ")";
+        }
+    }
+
+    private static String bindStatement(final MappedColumn column, final int parameter, final Map<String, String> converters) {
+        String value = "entity." + column.getter + "()";
+        switch(column.kind) {
+            case INT:
+                return "statement.setInt(" + parameter + ", " + value + ");";
+            case LONG:
+                return "statement.setLong(" + parameter + ", " + value + ");";
+            case DOUBLE:
+                return "statement.setDouble(" + parameter + ", " + value + ");";
+            case BOOLEAN:
+                return "statement.setBoolean(" + parameter + ", " + value + ");";
+            case STRING:
+                return "statement.setString(" + parameter + ", " + value + ");";
+            case DATE:
+                return "statement.setTimestamp(" + parameter + ", toTimestamp(" + value + "));";
+            case ENUM_NAME:
+                return "statement.setString(" + parameter + ", " + value + " == null ? null : " + value + ".name());";
+            case ENUM_ORDINAL:
+                return "statement.setObject(" + parameter + ", " + value + " == null ? null : " + value + ".ordinal());";
+            case CONVERTED:
+            default:
+                return "statement.setString(" + parameter + ", " + converters.get(column.converter) + ".convertToDatabaseColumn(" + value + "));";
+        }
+    }
+
+    private static String readStatement(final MappedColumn column, final Map<String, String> converters) {
+        String label = "\"" + column.name + "\"";
+        String type = column.field.asType().toString();
+        String value;
+        switch(column.kind) {
+            case INT:
+                value = "results.getInt(" + label + ")";
+                break;
+            case LONG:
+                value = "results.getLong(" + label + ")";
+                break;
+            case DOUBLE:
+                value = "results.getDouble(" + label + ")";
+                break;
+            case BOOLEAN:
+                value = "results.getBoolean(" + label + ")";
+                break;
+            case STRING:
+                value = "results.getString(" + label + ")";
+                break;
+            case DATE:
+                value = "toDate(results.getTimestamp(" + label + "))";
+                break;
+            case ENUM_NAME:
+                value = "results.getString(" + label + ") == null ? null : " + type + ".valueOf(results.getString(" + label + "))";
+                break;
+            case ENUM_ORDINAL:
+                value = "results.getObject(" + label + ") == null ? null : " + type + ".values()[results.getInt(" + label + ")]";
+                break;
+            case CONVERTED:
+            default:
+                value = converters.get(column.converter) + ".convertToEntityAttribute(results.getString(" + label + "))";
+                break;
+        }
+        return "entity." + column.setter + "(" + value + ");";
+    }
+
+    private static String quoteAll(final Iterable<String> values) {
+        StringBuilder quoted = new StringBuilder();
+        for(String value : values) {
+            quoted.append(quoted.length() > 0 ? ", " : "").append('"').append(value).append('"');
+        }
+        return quoted.toString();
+    }
+
+    /**
+     * How a field's value is carried in JDBC.
+     */
+    private enum Kind {
+        INT, LONG, DOUBLE, BOOLEAN, STRING, DATE, ENUM_NAME, ENUM_ORDINAL, CONVERTED
+    }
+
+    /**
+     * A field mapped to a column of a table.
+     */
+    private static class MappedColumn {
+
+        private final VariableElement field;
+        private final String name;
+        private final Kind kind;
+        private final String getter;
+        private final String setter;
+        private String converter;
+
+        MappedColumn(final VariableElement field, final String name, final Kind kind, final String getter, final String setter) {
+            this.field = field;
+            this.name = name;
+            this.kind = kind;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * Thrown when an entity cannot be mapped, and reported against the offending element.
+     */
+    private static class MappingException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+        private final transient Element element;
+
+        MappingException(final String message, final Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
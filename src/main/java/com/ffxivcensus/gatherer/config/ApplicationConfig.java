@@ -1,5 +1,8 @@
 package com.ffxivcensus.gatherer.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Application configuration bean encapsulating all of the configuration options available for configuration.
  * By default, the following sensible defaults are set:
@@ -23,11 +26,18 @@ public class ApplicationConfig {
     public static final String DEFAULT_DATABASE_NAME = "dbplayers";
     public static final String DEFAULT_TABLE_NAME = "tblplayers";
     public static final int DEFAULT_AUTOSTOP_GAP = 50000;
+    public static final String DEFAULT_CHANGE_FEED_DIRECTORY = System.getProperty("user.home") + "/.ffxivcensus/changefeed";
+    public static final long DEFAULT_CHANGE_FEED_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final String DEFAULT_CHECKPOINT_DIRECTORY = System.getProperty("user.home") + "/.ffxivcensus/checkpoints";
 
     /**
      * Safety limit for thread count - user cannot exceed this limit.
      */
     public static final int MAX_THREADS = 64;
+    /**
+     * Safety limit for thread count when gathering on virtual threads, which cost far less than platform threads.
+     */
+    public static final int MAX_VIRTUAL_THREADS = 4096;
 
     /////////////////////////
     // Database Configuration
@@ -53,6 +63,10 @@ public class ApplicationConfig {
      * Whether to ignore database SSL verification warnings
      */
     private boolean dbIgnoreSSLWarn = true;
+    /**
+     * Database shards, each owning a range of character IDs. When empty, the single database above owns every ID.
+     */
+    private List<ShardConfig> shards = new ArrayList<>();
 
     ////////////////////////
     // Process Configuration
@@ -62,6 +76,63 @@ public class ApplicationConfig {
      * User-defined limit for thread count.
      */
     private int threadLimit = MAX_THREADS;
+    /**
+     * File to export a snapshot of the stored characters to, instead of gathering. Null when gathering.
+     */
+    private String exportFile;
+    /**
+     * Whether to gather into staging tables and swap them in for the live character tables at the end of the run.
+     */
+    private boolean rebuild;
+    /**
+     * Whether to gather each character on its own virtual thread, rather than on a pool of platform threads.
+     */
+    private boolean virtualThreads;
+    /**
+     * Most stored characters to refresh, choosing those most likely to have changed, instead of sweeping the whole range. 0 when sweeping.
+     */
+    private int refreshBudget;
+    /**
+     * Name of the run to lease ID blocks within, shared with other gatherer nodes. Null when gathering the whole range on this node.
+     */
+    private String leaseRun;
+    /**
+     * Whether to probe only a fraction of the IDs in regions where almost every character has been deleted, rather than every ID.
+     */
+    private boolean sparseProbing;
+    /**
+     * Fraction of each ID block to sample, estimating a census from the sample instead of sweeping the whole range. 0 when sweeping.
+     */
+    private double sampleRate;
+    /**
+     * Weight of each lane to serve at once, such as {@code frontier=4,refresh=1}. Null when gathering a single lane of work.
+     */
+    private String laneWeights;
+    /**
+     * Whether to resume the sweep from the start ID where it was interrupted, from its checkpoint.
+     */
+    private boolean resume;
+    /**
+     * Whether to gather only the IDs in the range that are missing from the database, failed when last crawled, or are stale, instead of
+     * sweeping the whole range.
+     */
+    private boolean gapFill;
+    /**
+     * Days since a stored character was last crawled after which a gap fill counts it as stale. 0 when staleness is not considered.
+     */
+    private int staleAfterDays;
+    /**
+     * Directory to save the checkpoint of each sweep to.
+     */
+    private String checkpointDirectory = DEFAULT_CHECKPOINT_DIRECTORY;
+    /**
+     * Directory to write the change feed to. Null when the change feed is disabled.
+     */
+    private String changeFeedDirectory;
+    /**
+     * Size in bytes at which the change feed moves on to a new segment file.
+     */
+    private long changeFeedSegmentSize = DEFAULT_CHANGE_FEED_SEGMENT_SIZE;
 
     //////////////////////////
     // Gathering Configuration
@@ -130,6 +201,36 @@ public class ApplicationConfig {
         this.dbIgnoreSSLWarn = dbIgnoreSSLWarn;
     }
 
+    public List<ShardConfig> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<ShardConfig> shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Fetches the database shards to connect to, with any unset connection settings filled in from the main database configuration.
+     * When no shards have been configured, a single shard owning every ID is returned for the main database.
+     *
+     * @return List of shards to connect to.
+     */
+    public List<ShardConfig> getEffectiveShards() {
+        List<ShardConfig> effective = new ArrayList<>();
+        if(shards.isEmpty()) {
+            effective.add(new ShardConfig());
+        } else {
+            effective.addAll(shards);
+        }
+        for(ShardConfig shard : effective) {
+            shard.setDbUrl(shard.getDbUrl() != null ? shard.getDbUrl() : dbUrl);
+            shard.setDbName(shard.getDbName() != null ? shard.getDbName() : dbName);
+            shard.setDbUser(shard.getDbUser() != null ? shard.getDbUser() : dbUser);
+            shard.setDbPassword(shard.getDbPassword() != null ? shard.getDbPassword() : dbPassword);
+        }
+        return effective;
+    }
+
     ////////////////////////
     // Process Configuration
     ////////////////////////
@@ -142,6 +243,127 @@ public class ApplicationConfig {
         this.threadLimit = threadLimit;
     }
 
+    public String getExportFile() {
+        return exportFile;
+    }
+
+    public void setExportFile(String exportFile) {
+        this.exportFile = exportFile;
+    }
+
+    public boolean isRebuild() {
+        return rebuild;
+    }
+
+    public void setRebuild(boolean rebuild) {
+        this.rebuild = rebuild;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getRefreshBudget() {
+        return refreshBudget;
+    }
+
+    public void setRefreshBudget(int refreshBudget) {
+        this.refreshBudget = refreshBudget;
+    }
+
+    public String getLeaseRun() {
+        return leaseRun;
+    }
+
+    public void setLeaseRun(String leaseRun) {
+        this.leaseRun = leaseRun;
+    }
+
+    public boolean isSparseProbing() {
+        return sparseProbing;
+    }
+
+    public void setSparseProbing(boolean sparseProbing) {
+        this.sparseProbing = sparseProbing;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public String getLaneWeights() {
+        return laneWeights;
+    }
+
+    public void setLaneWeights(String laneWeights) {
+        this.laneWeights = laneWeights;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public boolean isGapFill() {
+        return gapFill;
+    }
+
+    public void setGapFill(boolean gapFill) {
+        this.gapFill = gapFill;
+    }
+
+    public int getStaleAfterDays() {
+        return staleAfterDays;
+    }
+
+    public void setStaleAfterDays(int staleAfterDays) {
+        this.staleAfterDays = staleAfterDays;
+    }
+
+    public String getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    public void setCheckpointDirectory(String checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    /**
+     * Fetches the safety limit for the thread count, which is higher when gathering on virtual threads.
+     * 
+     * @return {@link #MAX_VIRTUAL_THREADS} when gathering on virtual threads, otherwise {@link #MAX_THREADS}.
+     */
+    public int getMaxThreads() {
+        return virtualThreads ? MAX_VIRTUAL_THREADS : MAX_THREADS;
+    }
+
+    public String getChangeFeedDirectory() {
+        return changeFeedDirectory;
+    }
+
+    public void setChangeFeedDirectory(String changeFeedDirectory) {
+        this.changeFeedDirectory = changeFeedDirectory;
+    }
+
+    public long getChangeFeedSegmentSize() {
+        return changeFeedSegmentSize;
+    }
+
+    public void setChangeFeedSegmentSize(long changeFeedSegmentSize) {
+        this.changeFeedSegmentSize = changeFeedSegmentSize;
+    }
+
     //////////////////////////
     // Gathering Configuration
     //////////////////////////
@@ -107,6 +107,12 @@ public class ConfigurationBuilder {
             configuration.setDbUser(elementJDBC.getElementsByTagName("username").item(0).getTextContent());
             configuration.setDbPassword(elementJDBC.getElementsByTagName("password").item(0).getTextContent());
 
+            // Read out any database shards
+            NodeList nodesShard = doc.getElementsByTagName("shard");
+            for(int i = 0; i < nodesShard.getLength(); i++) {
+                configuration.getShards().add(readShard((Element) nodesShard.item(i)));
+            }
+
             // Read out execution config
             NodeList nodesExecConf = doc.getElementsByTagName("execution");
             Element elementExecConf = (Element) nodesExecConf.item(0);
@@ -115,6 +121,18 @@ public class ConfigurationBuilder {
                 configuration.setAutoStopLowerLimitId(Integer.parseInt(elementExecConf.getElementsByTagName("autoStopLowerLimit").item(0)
                                                                                       .getTextContent()));
             }
+
+            // Read out change feed config, which is only enabled when present
+            NodeList nodesChangeFeed = doc.getElementsByTagName("changefeed");
+            if(nodesChangeFeed.getLength() > 0) {
+                Element elementChangeFeed = (Element) nodesChangeFeed.item(0);
+                String directory = readOptionalElement(elementChangeFeed, "directory");
+                configuration.setChangeFeedDirectory(directory != null ? directory : ApplicationConfig.DEFAULT_CHANGE_FEED_DIRECTORY);
+                String segmentSize = readOptionalElement(elementChangeFeed, "segmentSize");
+                if(segmentSize != null) {
+                    configuration.setChangeFeedSegmentSize(Long.parseLong(segmentSize));
+                }
+            }
         } else {
             LOG.error("Configuration: No config.xml file found. Failing over to defaults.");
         }
@@ -122,6 +140,36 @@ public class ConfigurationBuilder {
         return new ConfigurationBuilder(configuration);
     }
 
+    /**
+     * Reads the configuration of a single database shard.
+     * The <code>from</code> attribute is mandatory, while the <code>to</code> attribute and all connection settings are optional.
+     *
+     * @param elementShard XML element describing the shard.
+     * @return Shard configuration.
+     */
+    private ShardConfig readShard(final Element elementShard) {
+        ShardConfig shard = new ShardConfig();
+        shard.setFromId(Integer.parseInt(elementShard.getAttribute("from")));
+        if(elementShard.hasAttribute("to")) {
+            shard.setToId(Integer.parseInt(elementShard.getAttribute("to")));
+        }
+        shard.setDbUrl(readOptionalElement(elementShard, "url"));
+        shard.setDbName(readOptionalElement(elementShard, "database"));
+        shard.setDbUser(readOptionalElement(elementShard, "username"));
+        shard.setDbPassword(readOptionalElement(elementShard, "password"));
+        return shard;
+    }
+
+    /**
+     * Reads the text content of an optional child element.
+     *
+     * @return Text content of the element, or null if it is not present.
+     */
+    private String readOptionalElement(final Element parent, final String tagName) {
+        NodeList nodes = parent.getElementsByTagName(tagName);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent() : null;
+    }
+
     /**
      * Sets configuration based on the input from the Command Line.
      * 
@@ -178,6 +226,51 @@ public class ConfigurationBuilder {
             if(cmd.hasOption("t")) {
                 configuration.setThreadLimit(Integer.parseInt(cmd.getOptionValue("t")));
             }
+
+            // Snapshot export file
+            if(cmd.hasOption("x")) {
+                configuration.setExportFile(cmd.getOptionValue("x"));
+            }
+
+            // Rebuild through staging tables
+            configuration.setRebuild(cmd.hasOption("r"));
+
+            // Gather on virtual threads
+            configuration.setVirtualThreads(cmd.hasOption("v"));
+
+            // Refresh the characters most likely to have changed
+            if(cmd.hasOption("b")) {
+                configuration.setRefreshBudget(Integer.parseInt(cmd.getOptionValue("b")));
+            }
+
+            // Share the range with other nodes through leases
+            if(cmd.hasOption("l")) {
+                configuration.setLeaseRun(cmd.getOptionValue("l"));
+            }
+
+            // Estimate a census from a sample of the range
+            if(cmd.hasOption("c")) {
+                configuration.setSampleRate(Double.parseDouble(cmd.getOptionValue("c")));
+            }
+
+            // Serve several lanes of work at once
+            if(cmd.hasOption("w")) {
+                configuration.setLaneWeights(cmd.getOptionValue("w"));
+            }
+
+            // Resume an interrupted sweep from its checkpoint
+            configuration.setResume(cmd.hasOption("resume"));
+
+            // Probe sparsely where almost every character has been deleted
+            configuration.setSparseProbing(cmd.hasOption("sparse"));
+
+            // Gather only the gaps in what is stored, optionally counting characters not crawled for the given days as gaps
+            if(cmd.hasOption("gap-fill")) {
+                configuration.setGapFill(true);
+                if(cmd.getOptionValue("gap-fill") != null) {
+                    configuration.setStaleAfterDays(Integer.parseInt(cmd.getOptionValue("gap-fill")));
+                }
+            }
         }
         return new ConfigurationBuilder(configuration);
     }
@@ -0,0 +1,102 @@
+package com.ffxivcensus.gatherer.config;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Kinds of run a gatherer can be asked for, each gathering its own choice of Character IDs. A run is only ever one of them, so every
+ * option asking for a kind of run other than a plain sweep excludes all of the others.
+ *
+ * @author fahy
+ * @see ApplicationConfig
+ */
+public enum RunMode {
+    /** Every character in the range. */
+    SWEEP(null, true),
+    /** Every character in the range, gathered into staging tables that are swapped in once finished. */
+    REBUILD("--rebuild", true),
+    /** The rest of the sweep interrupted from the same start ID, carrying on from its checkpoint. */
+    RESUME("--resume", true),
+    /** A sweep of the range shared with other nodes, by leasing blocks of IDs. */
+    LEASE("--lease", true),
+    /** A sweep of the range, probing only a few IDs of each block where almost every character has been deleted. */
+    SPARSE("--sparse", true),
+    /** A sample of each ID block of the range, from which the census is estimated. */
+    SAMPLE("--sample-rate", true),
+    /** The stored characters most likely to have changed, up to a budget. */
+    REFRESH("--refresh-budget", false),
+    /** Only the characters missing, failed or stale in the database. */
+    GAP_FILL("--gap-fill", false),
+    /** Several lanes of work at once, which may include a refresh spending the refresh budget. */
+    LANES("--lanes", false);
+
+    private final String option;
+    private final boolean sweeping;
+
+    RunMode(final String option, final boolean sweeping) {
+        this.option = option;
+        this.sweeping = sweeping;
+    }
+
+    /**
+     * Fetches the command line option asking for the kind of run.
+     *
+     * @return Long option, or null for a plain sweep.
+     */
+    public String getOption() {
+        return option;
+    }
+
+    /**
+     * Determines whether the run gathers up to the top of the valid ID space, and so needs to find it when no finish ID is given. Lanes
+     * only do so when they include the frontier lane.
+     *
+     * @return true if the run sweeps the range.
+     */
+    public boolean isSweeping() {
+        return sweeping;
+    }
+
+    /**
+     * Resolves the kind of run the configuration asks for.
+     *
+     * @param config Configuration of the run.
+     * @return Kind of run, which is a plain sweep unless another has been asked for.
+     * @throws IllegalArgumentException if more than one kind of run has been asked for.
+     */
+    public static RunMode resolve(final ApplicationConfig config) {
+        Set<RunMode> requested = EnumSet.noneOf(RunMode.class);
+        if(config.isRebuild()) {
+            requested.add(REBUILD);
+        }
+        if(config.isResume()) {
+            requested.add(RESUME);
+        }
+        if(config.getLeaseRun() != null) {
+            requested.add(LEASE);
+        }
+        if(config.isSparseProbing()) {
+            requested.add(SPARSE);
+        }
+        if(config.getSampleRate() > 0) {
+            requested.add(SAMPLE);
+        }
+        // Lanes spend the refresh budget on their refresh lane, rather than refreshing on their own
+        if(config.getRefreshBudget() > 0 && config.getLaneWeights() == null) {
+            requested.add(REFRESH);
+        }
+        if(config.isGapFill()) {
+            requested.add(GAP_FILL);
+        }
+        if(config.getLaneWeights() != null) {
+            requested.add(LANES);
+        }
+        if(requested.size() > 1) {
+            throw new IllegalArgumentException("Only one kind of run can be gathered at once, so "
+                                               + requested.stream().map(RunMode::getOption).collect(Collectors.joining(", "))
+                                               + " cannot be combined");
+        }
+        return requested.isEmpty() ? SWEEP : requested.iterator().next();
+    }
+}
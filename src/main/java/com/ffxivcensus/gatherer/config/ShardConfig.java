@@ -0,0 +1,98 @@
+package com.ffxivcensus.gatherer.config;
+
+/**
+ * Configuration bean for a single database shard, owning a contiguous, inclusive range of Character IDs.
+ * Any connection settings left unset are taken from the main database configuration in {@link ApplicationConfig}.
+ *
+ * @author fahy
+ */
+public class ShardConfig {
+
+    /**
+     * The first character ID owned by the shard.
+     */
+    private int fromId;
+    /**
+     * The last character ID owned by the shard.
+     */
+    private int toId = Integer.MAX_VALUE;
+    /**
+     * The JDBC URL of the shard's database server
+     */
+    private String dbUrl;
+    /**
+     * The Name of the Database to use
+     */
+    private String dbName;
+    /**
+     * The Username of user of the SQL server user to use.
+     */
+    private String dbUser;
+    /**
+     * The password for the user, to use.
+     */
+    private String dbPassword;
+
+    public int getFromId() {
+        return fromId;
+    }
+
+    public void setFromId(int fromId) {
+        this.fromId = fromId;
+    }
+
+    public int getToId() {
+        return toId;
+    }
+
+    public void setToId(int toId) {
+        this.toId = toId;
+    }
+
+    public String getDbUrl() {
+        return dbUrl;
+    }
+
+    public void setDbUrl(String dbUrl) {
+        this.dbUrl = dbUrl;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public void setDbName(String dbName) {
+        this.dbName = dbName;
+    }
+
+    public String getDbUser() {
+        return dbUser;
+    }
+
+    public void setDbUser(String dbUser) {
+        this.dbUser = dbUser;
+    }
+
+    public String getDbPassword() {
+        return dbPassword;
+    }
+
+    public void setDbPassword(String dbPassword) {
+        this.dbPassword = dbPassword;
+    }
+
+    /**
+     * Determines whether the given Character ID is owned by this shard.
+     *
+     * @param id Character ID to check.
+     * @return true if the ID is within the shard's range (inclusive).
+     */
+    public boolean owns(final int id) {
+        return id >= fromId && id <= toId;
+    }
+
+    @Override
+    public String toString() {
+        return fromId + "-" + toId + " (" + dbUrl + "/" + dbName + ")";
+    }
+}
@@ -0,0 +1,338 @@
+package com.ffxivcensus.gatherer.export;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes single column chunks, as laid out in {@link ColumnEncoding}.
+ * Chunks are handled uncompressed; compression is applied by the {@link SnapshotWriter}.
+ *
+ * @author fahy
+ */
+final class ColumnCodec {
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * Encodes the first <code>count</code> values of a column.
+     *
+     * @param encoding Encoding to apply.
+     * @param values Column values, of the type expected by the encoding.
+     * @param count Number of values to encode.
+     * @return Encoded chunk.
+     */
+    static byte[] encode(final ColumnEncoding encoding, final Object[] values, final int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        switch(encoding) {
+            case ID_DELTA:
+                long previous = 0;
+                for(int i = 0; i < count; i++) {
+                    long value = intValue(values[i]);
+                    writeZigZag(out, value - previous);
+                    previous = value;
+                }
+                break;
+            case BITPACKED:
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for(int i = 0; i < count; i++) {
+                    min = Math.min(min, intValue(values[i]));
+                    max = Math.max(max, intValue(values[i]));
+                }
+                min = count == 0 ? 0 : min;
+                int width = count == 0 ? 0 : bitWidth(max - min);
+                writeZigZag(out, min);
+                out.write(width);
+                BitWriter packed = new BitWriter(out);
+                for(int i = 0; i < count; i++) {
+                    packed.write(intValue(values[i]) - min, width);
+                }
+                packed.flush();
+                break;
+            case BITMAP:
+                writeBitmap(out, values, count);
+                break;
+            case DICTIONARY:
+                Map<String, Integer> dictionary = buildDictionary(values, count, false);
+                writeDictionary(out, dictionary);
+                int codeWidth = bitWidth(dictionary.size());
+                out.write(codeWidth);
+                BitWriter codes = new BitWriter(out);
+                for(int i = 0; i < count; i++) {
+                    codes.write(values[i] == null ? 0 : dictionary.get(values[i].toString()), codeWidth);
+                }
+                codes.flush();
+                break;
+            case STRING_LIST:
+                Map<String, Integer> items = buildDictionary(values, count, true);
+                writeDictionary(out, items);
+                for(int i = 0; i < count; i++) {
+                    List<?> list = (List<?>) values[i];
+                    writeVarInt(out, list == null ? 0 : list.size() + 1);
+                    if(list != null) {
+                        for(Object item : list) {
+                            writeVarInt(out, items.get(String.valueOf(item)));
+                        }
+                    }
+                }
+                break;
+            case TIMESTAMP:
+                writeBitmap(out, values, count);
+                long previousTime = 0;
+                for(int i = 0; i < count; i++) {
+                    if(values[i] != null) {
+                        long time = ((Date) values[i]).getTime();
+                        writeZigZag(out, time - previousTime);
+                        previousTime = time;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported column encoding " + encoding);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a column chunk.
+     *
+     * @param encoding Encoding the chunk was written with.
+     * @param data Encoded chunk.
+     * @param count Number of values in the chunk.
+     * @return Decoded values: {@link Integer}, {@link Boolean}, {@link String}, {@link List} of {@link String} or {@link Date} depending on
+     *         the encoding.
+     */
+    static Object[] decode(final ColumnEncoding encoding, final byte[] data, final int count) {
+        Object[] values = new Object[count];
+        ByteReader in = new ByteReader(data);
+        switch(encoding) {
+            case ID_DELTA:
+                long previous = 0;
+                for(int i = 0; i < count; i++) {
+                    previous += in.readZigZag();
+                    values[i] = (int) previous;
+                }
+                break;
+            case BITPACKED:
+                long min = in.readZigZag();
+                int width = in.readByte();
+                for(int i = 0; i < count; i++) {
+                    values[i] = (int) (min + in.readBits(width));
+                }
+                break;
+            case BITMAP:
+                boolean[] bits = in.readBitmap(count);
+                for(int i = 0; i < count; i++) {
+                    values[i] = bits[i];
+                }
+                break;
+            case DICTIONARY:
+                String[] dictionary = in.readDictionary();
+                int codeWidth = in.readByte();
+                for(int i = 0; i < count; i++) {
+                    int code = (int) in.readBits(codeWidth);
+                    values[i] = code == 0 ? null : dictionary[code - 1];
+                }
+                break;
+            case STRING_LIST:
+                String[] items = in.readDictionary();
+                for(int i = 0; i < count; i++) {
+                    int size = (int) in.readVarInt() - 1;
+                    if(size >= 0) {
+                        List<String> list = new ArrayList<>(size);
+                        for(int j = 0; j < size; j++) {
+                            list.add(items[(int) in.readVarInt() - 1]);
+                        }
+                        values[i] = list;
+                    }
+                }
+                break;
+            case TIMESTAMP:
+                boolean[] present = in.readBitmap(count);
+                long previousTime = 0;
+                for(int i = 0; i < count; i++) {
+                    if(present[i]) {
+                        previousTime += in.readZigZag();
+                        values[i] = new Date(previousTime);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported column encoding " + encoding);
+        }
+        return values;
+    }
+
+    private static long intValue(final Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static int bitWidth(final long maxValue) {
+        return 64 - Long.numberOfLeadingZeros(maxValue);
+    }
+
+    /**
+     * Builds a dictionary of distinct values, mapping each to its code (starting from 1, as 0 represents a missing value).
+     */
+    private static Map<String, Integer> buildDictionary(final Object[] values, final int count, final boolean lists) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for(int i = 0; i < count; i++) {
+            if(values[i] != null) {
+                if(lists) {
+                    for(Object item : (List<?>) values[i]) {
+                        dictionary.putIfAbsent(String.valueOf(item), dictionary.size() + 1);
+                    }
+                } else {
+                    dictionary.putIfAbsent(values[i].toString(), dictionary.size() + 1);
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    private static void writeDictionary(final ByteArrayOutputStream out, final Map<String, Integer> dictionary) {
+        writeVarInt(out, dictionary.size());
+        for(String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeBitmap(final ByteArrayOutputStream out, final Object[] values, final int count) {
+        BitWriter bits = new BitWriter(out);
+        for(int i = 0; i < count; i++) {
+            boolean set = values[i] instanceof Boolean ? (Boolean) values[i] : values[i] != null;
+            bits.write(set ? 1 : 0, 1);
+        }
+        bits.flush();
+    }
+
+    private static void writeZigZag(final ByteArrayOutputStream out, final long value) {
+        writeVarInt(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeVarInt(final ByteArrayOutputStream out, final long value) {
+        long remaining = value;
+        while((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    /**
+     * Packs values of up to 57 bits into a byte stream, least significant bit first.
+     */
+    private static class BitWriter {
+
+        private final ByteArrayOutputStream out;
+        private long buffer;
+        private int buffered;
+
+        BitWriter(final ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        void write(final long value, final int width) {
+            buffer |= value << buffered;
+            buffered += width;
+            while(buffered >= 8) {
+                out.write((int) (buffer & 0xFF));
+                buffer >>>= 8;
+                buffered -= 8;
+            }
+        }
+
+        void flush() {
+            if(buffered > 0) {
+                out.write((int) (buffer & 0xFF));
+            }
+            buffer = 0;
+            buffered = 0;
+        }
+    }
+
+    /**
+     * Reads the values written by {@link ColumnCodec#encode(ColumnEncoding, Object[], int)} back out of a byte array.
+     */
+    private static class ByteReader {
+
+        private final byte[] data;
+        private int position;
+        private long buffer;
+        private int buffered;
+
+        ByteReader(final byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            return data[position++] & 0xFF;
+        }
+
+        long readVarInt() {
+            long value = 0;
+            int shift = 0;
+            int current;
+            do {
+                current = readByte();
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while((current & 0x80) != 0);
+            return value;
+        }
+
+        long readZigZag() {
+            long value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readBits(final int width) {
+            if(width == 0) {
+                return 0;
+            }
+            while(buffered < width) {
+                buffer |= (long) readByte() << buffered;
+                buffered += 8;
+            }
+            long value = buffer & (-1L >>> (64 - width));
+            buffer >>>= width;
+            buffered -= width;
+            return value;
+        }
+
+        boolean[] readBitmap(final int count) {
+            boolean[] bits = new boolean[count];
+            for(int i = 0; i < count; i++) {
+                bits[i] = readBits(1) == 1;
+            }
+            alignToByte();
+            return bits;
+        }
+
+        String[] readDictionary() {
+            String[] dictionary = new String[(int) readVarInt()];
+            for(int i = 0; i < dictionary.length; i++) {
+                int length = (int) readVarInt();
+                dictionary[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+            return dictionary;
+        }
+
+        /**
+         * Discards any bits left over from the last partially read byte.
+         */
+        private void alignToByte() {
+            buffer = 0;
+            buffered = 0;
+        }
+    }
+}
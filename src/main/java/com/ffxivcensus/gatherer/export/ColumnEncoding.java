@@ -0,0 +1,58 @@
+package com.ffxivcensus.gatherer.export;
+
+/**
+ * Encodings available for the columns of a snapshot file. Every column chunk is encoded as below, then compressed with Deflate.
+ * <ul>
+ * <li>{@link #ID_DELTA} - ascending integers, such as Character IDs. The first value, then the difference from each value to the next,
+ * as zig-zag variable-length integers.</li>
+ * <li>{@link #BITPACKED} - small integers, such as levels. The minimum value as a zig-zag variable-length integer and a single byte
+ * bit width, followed by each value less the minimum packed into that many bits. Missing values are stored as 0.</li>
+ * <li>{@link #BITMAP} - flags. One bit per row, least significant bit first. Missing values are stored as false.</li>
+ * <li>{@link #DICTIONARY} - repetitive text, such as realms and races. The number of distinct values as a variable-length integer and
+ * each distinct value as a length-prefixed UTF-8 string, then a single byte bit width and each row's code packed into that many bits.
+ * Code 0 is a missing value, and code <i>n</i> is the <i>n</i>th distinct value.</li>
+ * <li>{@link #STRING_LIST} - lists of text, such as mounts and minions. A dictionary of distinct items laid out as for
+ * {@link #DICTIONARY}, then for each row the number of items plus one (0 being a missing list) followed by each item's code, all as
+ * variable-length integers.</li>
+ * <li>{@link #TIMESTAMP} - dates and times. A presence bitmap laid out as for {@link #BITMAP}, then the epoch milliseconds of each
+ * present value as the zig-zag variable-length difference from the previous present value (or from 0 for the first).</li>
+ * </ul>
+ *
+ * @author fahy
+ * @see SnapshotWriter
+ */
+public enum ColumnEncoding {
+
+    ID_DELTA(1), BITPACKED(2), BITMAP(3), DICTIONARY(4), STRING_LIST(5), TIMESTAMP(6);
+
+    private final int code;
+
+    ColumnEncoding(final int code) {
+        this.code = code;
+    }
+
+    /**
+     * Fetches the code identifying this encoding in a snapshot file.
+     *
+     * @return Encoding code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Fetches the encoding identified by the given code.
+     *
+     * @param code Encoding code read from a snapshot file.
+     * @return Matching {@link ColumnEncoding}.
+     * @throws IllegalArgumentException if the code is not recognised.
+     */
+    public static ColumnEncoding fromCode(final int code) {
+        for(ColumnEncoding encoding : values()) {
+            if(encoding.code == code) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column encoding " + code);
+    }
+}
@@ -0,0 +1,41 @@
+package com.ffxivcensus.gatherer.export;
+
+/**
+ * Describes a single column of a snapshot file.
+ *
+ * @author fahy
+ */
+public class SnapshotColumn {
+
+    private final String name;
+    private final ColumnEncoding encoding;
+
+    public SnapshotColumn(final String name, final ColumnEncoding encoding) {
+        this.name = name;
+        this.encoding = encoding;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ColumnEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof SnapshotColumn && name.equals(((SnapshotColumn) other).name)
+               && encoding == ((SnapshotColumn) other).encoding;
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode() * 31 + encoding.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + encoding + ")";
+    }
+}
@@ -0,0 +1,261 @@
+package com.ffxivcensus.gatherer.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.config.ShardConfig;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.shard.ShardRouter;
+import com.ffxivcensus.gatherer.util.StringListConverter;
+
+/**
+ * Exports the stored characters to a columnar snapshot file, for analysis without querying the database.
+ * <p>
+ * The ID range is split into chunks of {@value #CHUNK_SIZE} IDs, never crossing a shard boundary, which are exported in parallel to
+ * temporary part files. Each chunk streams its rows from the database with a server-side cursor, so memory use is bounded by a single
+ * row group per thread. The parts are then concatenated, without re-encoding, into the final snapshot in ID order.
+ *
+ * @author fahy
+ * @see SnapshotWriter
+ */
+@Service
+public class SnapshotExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotExporter.class);
+    /** Number of Character IDs exported by each parallel task. */
+    private static final int CHUNK_SIZE = 1000000;
+    /** Number of rows to fetch at a time from databases that support cursor fetching. */
+    private static final int FETCH_SIZE = 1000;
+    /** Columns holding comma-separated lists, as converted by {@link StringListConverter}. */
+    private static final Set<String> LIST_COLUMNS = new HashSet<>(Arrays.asList("mounts", "minions"));
+    private static final String SELECT_PLAYERS = "SELECT * FROM " + PlayerBean.PLAYERS_TABLE + " p LEFT JOIN " + PlayerBean.COLLECTIBLES_TABLE
+                                                 + " c ON c.id = p.id WHERE p.id BETWEEN ? AND ? ORDER BY p.id";
+
+    private final ApplicationConfig appConfig;
+    private final DataSource dataSource;
+    private final ShardRouter shardRouter;
+    private final PlayerBeanRepository playerRepository;
+    private final StringListConverter listConverter = new StringListConverter();
+
+    public SnapshotExporter(@Autowired final ApplicationConfig appConfig, @Autowired final DataSource dataSource,
+                            @Autowired final ShardRouter shardRouter, @Autowired final PlayerBeanRepository playerRepository) {
+        this.appConfig = appConfig;
+        this.dataSource = dataSource;
+        this.shardRouter = shardRouter;
+        this.playerRepository = playerRepository;
+    }
+
+    /**
+     * Exports all characters within the given range to a snapshot file.
+     *
+     * @param target File to write the snapshot to.
+     * @param fromId First Character ID to export (inclusive).
+     * @param toId Last Character ID to export (inclusive).
+     * @return The number of characters exported.
+     * @throws IOException if the snapshot cannot be written, or a chunk fails to export.
+     * @throws InterruptedException if interrupted while waiting for the export to complete.
+     */
+    public long export(final File target, final int fromId, final int toId) throws IOException, InterruptedException {
+        PlayerBean highest = playerRepository.findTopByOrderByIdDesc();
+        int lastId = Math.min(toId, highest != null ? highest.getId() : fromId);
+
+        // Split the range into chunks, starting a new chunk at each shard boundary
+        List<int[]> chunks = new ArrayList<>();
+        for(ShardConfig shard : shardRouter.getShards()) {
+            long chunkFrom = Math.max(fromId, shard.getFromId());
+            long shardTo = Math.min(lastId, shard.getToId());
+            while(chunkFrom <= shardTo) {
+                long chunkTo = Math.min(shardTo, chunkFrom + CHUNK_SIZE - 1);
+                chunks.add(new int[] {(int) chunkFrom, (int) chunkTo});
+                chunkFrom = chunkTo + 1;
+            }
+        }
+        LOG.info("Exporting characters {} to {} in {} chunks to {}", fromId, lastId, chunks.size(), target);
+
+        File directory = target.getAbsoluteFile().getParentFile();
+        List<File> parts = new ArrayList<>();
+        // Exporting is bound by the database and CPU rather than the Lodestone, so more threads than cores will not help
+        int threads = Math.min(appConfig.getThreadLimit(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, chunks.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int[] chunk : chunks) {
+                File part = File.createTempFile("snapshot-" + chunk[0] + "-", ".part", directory);
+                parts.add(part);
+                int shard = shardRouter.shardFor(chunk[0]);
+                futures.add(executor.submit(() -> shardRouter.onShard(shard, () -> exportChunk(part, chunk[0], chunk[1]))));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+            return merge(target, parts);
+        } catch(ExecutionException e) {
+            throw new IOException("Failed to export snapshot: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for(File part : parts) {
+                if(!part.delete()) {
+                    part.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams a single chunk of characters from the current shard into a part file.
+     *
+     * @return The number of characters exported.
+     */
+    private long exportChunk(final File part, final int fromId, final int toId) throws SQLException, IOException {
+        long rows = 0;
+        try(Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // Cursor-based fetching requires the statement to run inside a transaction
+            connection.setAutoCommit(false);
+            try(PreparedStatement statement = connection.prepareStatement(SELECT_PLAYERS, ResultSet.TYPE_FORWARD_ONLY,
+                                                                          ResultSet.CONCUR_READ_ONLY)) {
+                // MySQL only streams results row-by-row when asked for a fetch size of Integer.MIN_VALUE
+                boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+                statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+                statement.setInt(1, fromId);
+                statement.setInt(2, toId);
+                try(ResultSet results = statement.executeQuery()) {
+                    List<SnapshotColumn> columns = new ArrayList<>();
+                    List<Integer> columnIndexes = new ArrayList<>();
+                    readColumns(results.getMetaData(), columns, columnIndexes);
+                    try(SnapshotWriter writer = new SnapshotWriter(part, columns)) {
+                        Object[] row = new Object[columns.size()];
+                        while(results.next()) {
+                            for(int i = 0; i < columns.size(); i++) {
+                                row[i] = readValue(results, columnIndexes.get(i), columns.get(i).getEncoding());
+                            }
+                            writer.writeRow(row);
+                            rows++;
+                        }
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        LOG.debug("Exported {} characters from {} to {}", rows, fromId, toId);
+        return rows;
+    }
+
+    /**
+     * Chooses the snapshot columns for a result set, skipping repeated column names such as the joined id.
+     */
+    private static void readColumns(final ResultSetMetaData metaData, final List<SnapshotColumn> columns, final List<Integer> columnIndexes)
+            throws SQLException {
+        Set<String> seen = new HashSet<>();
+        for(int i = 1; i <= metaData.getColumnCount(); i++) {
+            String name = metaData.getColumnLabel(i).toLowerCase();
+            if(seen.add(name)) {
+                columns.add(new SnapshotColumn(name, encodingFor(name, metaData.getColumnType(i))));
+                columnIndexes.add(i);
+            }
+        }
+    }
+
+    /**
+     * Chooses the encoding for a database column.
+     *
+     * @param name Column name.
+     * @param sqlType JDBC type of the column, from {@link Types}.
+     * @return Encoding to store the column with.
+     */
+    static ColumnEncoding encodingFor(final String name, final int sqlType) {
+        if(SnapshotWriter.ID_COLUMN.equals(name)) {
+            return ColumnEncoding.ID_DELTA;
+        } else if(LIST_COLUMNS.contains(name)) {
+            return ColumnEncoding.STRING_LIST;
+        }
+        switch(sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return ColumnEncoding.BITMAP;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return ColumnEncoding.BITPACKED;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return ColumnEncoding.TIMESTAMP;
+            default:
+                return ColumnEncoding.DICTIONARY;
+        }
+    }
+
+    private Object readValue(final ResultSet results, final int index, final ColumnEncoding encoding) throws SQLException {
+        switch(encoding) {
+            case ID_DELTA:
+            case BITPACKED:
+                return results.getInt(index);
+            case BITMAP:
+                return results.getBoolean(index);
+            case TIMESTAMP:
+                return results.getTimestamp(index);
+            case STRING_LIST:
+                return listConverter.convertToEntityAttribute(results.getString(index));
+            default:
+                return results.getString(index);
+        }
+    }
+
+    /**
+     * Concatenates the exported parts into the final snapshot, in ID order.
+     *
+     * @return The number of characters in the snapshot.
+     */
+    private long merge(final File target, final List<File> parts) throws IOException {
+        SnapshotWriter writer = null;
+        long rows = 0;
+        try {
+            for(File part : parts) {
+                try(SnapshotReader reader = new SnapshotReader(part)) {
+                    if(writer == null) {
+                        writer = new SnapshotWriter(target, reader.getColumns());
+                    }
+                    writer.append(reader);
+                    rows += reader.getRowCount();
+                }
+            }
+        } finally {
+            if(writer != null) {
+                writer.close();
+            } else {
+                // Nothing to export, so write an empty snapshot
+                new SnapshotWriter(target, Collections.<SnapshotColumn> emptyList()).close();
+            }
+        }
+        LOG.info("Exported {} characters to {}", rows, target);
+        return rows;
+    }
+}
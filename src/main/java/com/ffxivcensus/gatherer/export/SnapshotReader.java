@@ -0,0 +1,217 @@
+package com.ffxivcensus.gatherer.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a columnar snapshot file written by {@link SnapshotWriter}.
+ * Only the footer is read up front; row groups are read on demand, and single columns can be decoded without touching the others.
+ * Instances are not thread-safe.
+ *
+ * @author fahy
+ * @see SnapshotWriter
+ */
+public class SnapshotReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final List<SnapshotColumn> columns = new ArrayList<>();
+    private final List<SnapshotRowGroup> rowGroups = new ArrayList<>();
+    private long rowCount;
+
+    /**
+     * Opens a snapshot file and reads its footer.
+     *
+     * @param snapshot File to read.
+     * @throws IOException if the file cannot be read, or is not a snapshot file.
+     */
+    public SnapshotReader(final File snapshot) throws IOException {
+        this.file = new RandomAccessFile(snapshot, "r");
+        try {
+            readFooter();
+        } catch(IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches the columns held by each row.
+     *
+     * @return Unmodifiable list of columns.
+     */
+    public List<SnapshotColumn> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Fetches the total number of rows in the snapshot.
+     *
+     * @return Number of rows.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Fetches the number of row groups in the snapshot.
+     *
+     * @return Number of row groups.
+     */
+    public int getRowGroupCount() {
+        return rowGroups.size();
+    }
+
+    /**
+     * Decodes a single column of a row group.
+     *
+     * @param rowGroup Index of the row group.
+     * @param columnName Name of the column.
+     * @return Values of the column: Integers, Booleans, Strings, Lists of Strings or Dates, depending on the column's encoding.
+     * @throws IOException if the file cannot be read.
+     */
+    public Object[] readColumn(final int rowGroup, final String columnName) throws IOException {
+        int column = indexOf(columnName);
+        return readColumns(rowGroup, column)[column];
+    }
+
+    /**
+     * Decodes every row of the snapshot in turn.
+     *
+     * @param action Action to run for each row, given the value of each column in column order.
+     * @throws IOException if the file cannot be read.
+     */
+    public void forEachRow(final Consumer<Object[]> action) throws IOException {
+        for(int i = 0; i < rowGroups.size(); i++) {
+            Object[][] values = readColumns(i, -1);
+            for(int row = 0; row < rowGroups.get(i).getRowCount(); row++) {
+                Object[] rowValues = new Object[columns.size()];
+                for(int column = 0; column < columns.size(); column++) {
+                    rowValues[column] = values[column][row];
+                }
+                action.accept(rowValues);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Fetches the location and extent of a row group.
+     */
+    SnapshotRowGroup getRowGroup(final int rowGroup) {
+        return rowGroups.get(rowGroup);
+    }
+
+    /**
+     * Reads a row group without decoding it, for copying into another snapshot.
+     */
+    byte[] readRawRowGroup(final int rowGroup) throws IOException {
+        SnapshotRowGroup location = rowGroups.get(rowGroup);
+        byte[] raw = new byte[location.getLength()];
+        file.seek(location.getOffset());
+        file.readFully(raw);
+        return raw;
+    }
+
+    /**
+     * Decodes the given column of a row group, or every column if the column is negative.
+     */
+    private Object[][] readColumns(final int rowGroup, final int onlyColumn) throws IOException {
+        SnapshotRowGroup location = rowGroups.get(rowGroup);
+        Object[][] values = new Object[columns.size()][];
+        long offset = location.getOffset();
+        for(int column = 0; column < columns.size(); column++) {
+            file.seek(offset);
+            int compressedLength = file.readInt();
+            int length = file.readInt();
+            if(onlyColumn < 0 || onlyColumn == column) {
+                byte[] compressed = new byte[compressedLength];
+                file.readFully(compressed);
+                values[column] = ColumnCodec.decode(columns.get(column).getEncoding(), inflate(compressed, length), location.getRowCount());
+            }
+            offset += 8 + compressedLength;
+        }
+        return values;
+    }
+
+    private int indexOf(final String columnName) {
+        for(int i = 0; i < columns.size(); i++) {
+            if(columns.get(i).getName().equals(columnName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Snapshot has no column " + columnName);
+    }
+
+    private void readFooter() throws IOException {
+        byte[] magic = new byte[SnapshotWriter.MAGIC.length()];
+        file.seek(0);
+        file.readFully(magic);
+        checkMagic(magic);
+        file.seek(file.length() - magic.length - 4);
+        int footerLength = file.readInt();
+        file.readFully(magic);
+        checkMagic(magic);
+
+        byte[] footerBytes = new byte[footerLength];
+        file.seek(file.length() - magic.length - 4 - footerLength);
+        file.readFully(footerBytes);
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes));
+        int version = footer.readInt();
+        if(version != SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int columnCount = footer.readInt();
+        for(int i = 0; i < columnCount; i++) {
+            columns.add(new SnapshotColumn(footer.readUTF(), ColumnEncoding.fromCode(footer.readUnsignedByte())));
+        }
+        int rowGroupCount = footer.readInt();
+        for(int i = 0; i < rowGroupCount; i++) {
+            SnapshotRowGroup rowGroup = new SnapshotRowGroup(footer.readLong(), footer.readInt(), footer.readInt(), footer.readInt(),
+                                                             footer.readInt());
+            rowGroups.add(rowGroup);
+            rowCount += rowGroup.getRowCount();
+        }
+    }
+
+    private static void checkMagic(final byte[] magic) throws IOException {
+        if(!SnapshotWriter.MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))) {
+            throw new IOException("Not a snapshot file");
+        }
+    }
+
+    private static byte[] inflate(final byte[] compressed, final int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] data = new byte[length];
+            int read = 0;
+            while(read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(data, read, length - read);
+                if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated snapshot column");
+                }
+                read += inflated;
+            }
+            return data;
+        } catch(DataFormatException e) {
+            throw new IOException("Corrupt snapshot column", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
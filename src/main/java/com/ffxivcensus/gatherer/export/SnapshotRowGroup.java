@@ -0,0 +1,43 @@
+package com.ffxivcensus.gatherer.export;
+
+/**
+ * Location and extent of a single row group within a snapshot file, as recorded in the file footer.
+ *
+ * @author fahy
+ */
+class SnapshotRowGroup {
+
+    private final long offset;
+    private final int length;
+    private final int rowCount;
+    private final int firstId;
+    private final int lastId;
+
+    SnapshotRowGroup(final long offset, final int length, final int rowCount, final int firstId, final int lastId) {
+        this.offset = offset;
+        this.length = length;
+        this.rowCount = rowCount;
+        this.firstId = firstId;
+        this.lastId = lastId;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getFirstId() {
+        return firstId;
+    }
+
+    int getLastId() {
+        return lastId;
+    }
+}
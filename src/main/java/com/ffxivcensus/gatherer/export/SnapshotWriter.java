@@ -0,0 +1,196 @@
+package com.ffxivcensus.gatherer.export;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a columnar snapshot file. Rows are buffered into row groups of {@value #ROW_GROUP_SIZE} rows, and each column of a row group is
+ * encoded as described by its {@link ColumnEncoding} and compressed separately, so that readers can decode single columns.
+ * <p>
+ * The file is laid out as follows, with all fixed-width numbers big-endian:
+ * <ol>
+ * <li>The 8 byte magic {@value #MAGIC}.</li>
+ * <li>Each row group in turn. A row group holds, for each column, the compressed length and uncompressed length of the column chunk as
+ * 4 byte integers, followed by the Deflate-compressed chunk.</li>
+ * <li>The footer: the format version, the number of columns and, for each column, its name (modified UTF-8, as written by
+ * {@link DataOutputStream#writeUTF(String)}) and single byte {@link ColumnEncoding#getCode() encoding code}. Then the number of row groups
+ * and, for each row group, its 8 byte offset, its length, its row count and the first and last Character IDs it holds.</li>
+ * <li>The length of the footer as a 4 byte integer, followed by the magic again.</li>
+ * </ol>
+ * Rows must be written in ascending Character ID order.
+ *
+ * @author fahy
+ * @see SnapshotReader
+ */
+public class SnapshotWriter implements Closeable {
+
+    /** Magic bytes at the start and end of every snapshot file. */
+    public static final String MAGIC = "XIVSNAP1";
+    /** Version of the layout written to the footer. */
+    public static final int VERSION = 1;
+    /** Number of rows held in each row group. */
+    public static final int ROW_GROUP_SIZE = 16384;
+    /** Name of the column holding the Character ID, used to record the ID extent of each row group. */
+    public static final String ID_COLUMN = "id";
+
+    private final DataOutputStream out;
+    private final List<SnapshotColumn> columns;
+    private final int idColumn;
+    private final Object[][] buffer;
+    private final List<SnapshotRowGroup> rowGroups = new ArrayList<>();
+    private final Deflater deflater = new Deflater();
+    private int bufferedRows;
+    private long position;
+
+    /**
+     * Creates a new snapshot file, replacing any existing file.
+     *
+     * @param file File to write.
+     * @param columns Columns held by each row.
+     * @throws IOException if the file cannot be created.
+     */
+    public SnapshotWriter(final File file, final List<SnapshotColumn> columns) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        this.columns = new ArrayList<>(columns);
+        this.buffer = new Object[columns.size()][ROW_GROUP_SIZE];
+        int id = -1;
+        for(int i = 0; i < columns.size(); i++) {
+            if(ID_COLUMN.equals(columns.get(i).getName())) {
+                id = i;
+            }
+        }
+        this.idColumn = id;
+        out.writeBytes(MAGIC);
+        position = MAGIC.length();
+    }
+
+    /**
+     * Fetches the columns held by each row.
+     *
+     * @return List of columns.
+     */
+    public List<SnapshotColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Adds a row to the snapshot.
+     *
+     * @param row Value for each column, in column order.
+     * @throws IOException if a completed row group cannot be written.
+     */
+    public void writeRow(final Object[] row) throws IOException {
+        for(int i = 0; i < columns.size(); i++) {
+            buffer[i][bufferedRows] = row[i];
+        }
+        bufferedRows++;
+        if(bufferedRows == ROW_GROUP_SIZE) {
+            flushRowGroup();
+        }
+    }
+
+    /**
+     * Copies every row group of another snapshot into this one, without decoding it.
+     * Any rows buffered by this writer are written out first, so that row groups stay in order.
+     *
+     * @param part Snapshot to copy, which must hold the same columns as this one.
+     * @throws IOException if the snapshot cannot be read, or this one cannot be written.
+     */
+    public void append(final SnapshotReader part) throws IOException {
+        if(!columns.equals(part.getColumns())) {
+            throw new IllegalArgumentException("Snapshot columns " + part.getColumns() + " do not match " + columns);
+        }
+        flushRowGroup();
+        for(int i = 0; i < part.getRowGroupCount(); i++) {
+            SnapshotRowGroup rowGroup = part.getRowGroup(i);
+            out.write(part.readRawRowGroup(i));
+            rowGroups.add(new SnapshotRowGroup(position, rowGroup.getLength(), rowGroup.getRowCount(), rowGroup.getFirstId(),
+                                               rowGroup.getLastId()));
+            position += rowGroup.getLength();
+        }
+    }
+
+    /**
+     * Writes out any buffered rows and the footer, and closes the file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRowGroup();
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(VERSION);
+            footer.writeInt(columns.size());
+            for(SnapshotColumn column : columns) {
+                footer.writeUTF(column.getName());
+                footer.writeByte(column.getEncoding().getCode());
+            }
+            footer.writeInt(rowGroups.size());
+            for(SnapshotRowGroup rowGroup : rowGroups) {
+                footer.writeLong(rowGroup.getOffset());
+                footer.writeInt(rowGroup.getLength());
+                footer.writeInt(rowGroup.getRowCount());
+                footer.writeInt(rowGroup.getFirstId());
+                footer.writeInt(rowGroup.getLastId());
+            }
+            footer.flush();
+            footerBytes.writeTo(out);
+            out.writeInt(footerBytes.size());
+            out.writeBytes(MAGIC);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        if(bufferedRows == 0) {
+            return;
+        }
+        ByteArrayOutputStream rowGroup = new ByteArrayOutputStream();
+        DataOutputStream rowGroupOut = new DataOutputStream(rowGroup);
+        for(int i = 0; i < columns.size(); i++) {
+            byte[] encoded = ColumnCodec.encode(columns.get(i).getEncoding(), buffer[i], bufferedRows);
+            byte[] compressed = compress(encoded);
+            rowGroupOut.writeInt(compressed.length);
+            rowGroupOut.writeInt(encoded.length);
+            rowGroupOut.write(compressed);
+        }
+        rowGroupOut.flush();
+        rowGroup.writeTo(out);
+
+        int firstId = idColumn < 0 ? 0 : ((Number) buffer[idColumn][0]).intValue();
+        int lastId = idColumn < 0 ? 0 : ((Number) buffer[idColumn][bufferedRows - 1]).intValue();
+        rowGroups.add(new SnapshotRowGroup(position, rowGroup.size(), bufferedRows, firstId, lastId));
+        position += rowGroup.size();
+
+        for(Object[] column : buffer) {
+            Arrays.fill(column, 0, bufferedRows, null);
+        }
+        bufferedRows = 0;
+    }
+
+    private byte[] compress(final byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        byte[] chunk = new byte[8192];
+        while(!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            compressed.write(chunk, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+}
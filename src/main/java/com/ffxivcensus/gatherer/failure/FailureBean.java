@@ -0,0 +1,104 @@
+package com.ffxivcensus.gatherer.failure;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.ffxivcensus.gatherer.shard.ShardKeyed;
+
+/**
+ * Object class recording a character that could not be gathered, and when to try it again.
+ *
+ * @author fahy
+ * @see FailureLedger
+ */
+@Entity
+@Table(name = "tblfailures")
+public class FailureBean implements ShardKeyed {
+    @Id
+    private int id;
+    @Enumerated(EnumType.STRING)
+    private FailureClass errorClass;
+    private String lastError;
+    private int attempts;
+    private Date failedAt;
+    private Date nextRetryAt;
+    private String gathererVersion;
+
+    public FailureBean() {
+    }
+
+    public FailureBean(final int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(final int id) {
+        this.id = id;
+    }
+
+    public FailureClass getErrorClass() {
+        return errorClass;
+    }
+
+    public void setErrorClass(final FailureClass errorClass) {
+        this.errorClass = errorClass;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(final String lastError) {
+        this.lastError = lastError;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(final int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(final Date failedAt) {
+        this.failedAt = failedAt;
+    }
+
+    /**
+     * Fetches the time to try the character again.
+     *
+     * @return Time to retry, or null if the character is waiting for a fix or has been given up on.
+     */
+    public Date getNextRetryAt() {
+        return nextRetryAt;
+    }
+
+    public void setNextRetryAt(final Date nextRetryAt) {
+        this.nextRetryAt = nextRetryAt;
+    }
+
+    public String getGathererVersion() {
+        return gathererVersion;
+    }
+
+    public void setGathererVersion(final String gathererVersion) {
+        this.gathererVersion = gathererVersion;
+    }
+
+    @Override
+    public int getShardKey() {
+        return id;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ffxivcensus.gatherer.failure;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.HttpStatusException;
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Classes of error a character can fail with, each with its own policy for when to try the character again.
+ * <p>
+ * Errors that pass by themselves are retried after a delay that doubles with every attempt, up to a cap, and are given up on once the
+ * character has failed too many times. A parse error is not retried on a schedule, as the page will fail the same way until the parser
+ * is fixed, so it is only retried once a different version of the gatherer is running.
+ *
+ * @author fahy
+ * @see FailureLedger
+ */
+public enum FailureClass {
+    /** The Lodestone did not answer in time. Usually passes straight away, so retried soon. */
+    TIMEOUT(TimeUnit.SECONDS.toMillis(30), TimeUnit.HOURS.toMillis(1), 10),
+    /** The Lodestone could not be reached, or the connection was lost. */
+    NETWORK(TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(1), 10),
+    /** The Lodestone answered with a server error, or another unexpected HTTP status, so is backed off from for longer. */
+    SERVER_ERROR(TimeUnit.MINUTES.toMillis(5), TimeUnit.HOURS.toMillis(12), 10),
+    /** The character could not be read from or written to the database. */
+    STORAGE(TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(1), 10),
+    /** The page could not be parsed, or gathering failed some other way, which waits for the gatherer to be fixed. */
+    PARSE(0, 0, 0);
+
+    private final long firstDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+
+    FailureClass(final long firstDelayMillis, final long maxDelayMillis, final int maxAttempts) {
+        this.firstDelayMillis = firstDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Determines whether the class is only retried by a different version of the gatherer, rather than on a schedule.
+     *
+     * @return true for parse errors.
+     */
+    public boolean isWaitingForFix() {
+        return maxAttempts == 0;
+    }
+
+    /**
+     * Works out when to next try a character that has failed with an error of this class.
+     *
+     * @param attempts Number of times the character has failed, including this one.
+     * @param failedAt Time the character last failed.
+     * @return Time to try the character again, or null if it is waiting for a fix or has failed too many times to be retried.
+     */
+    public Date nextRetry(final int attempts, final Date failedAt) {
+        if(isWaitingForFix() || attempts >= maxAttempts) {
+            return null;
+        }
+        long delay = firstDelayMillis << Math.min(attempts - 1, 20);
+        return new Date(failedAt.getTime() + Math.min(delay, maxDelayMillis));
+    }
+
+    /**
+     * Classifies the error a character failed with, from the first recognised error in its chain of causes.
+     *
+     * @param failure Error the character failed with.
+     * @return Class of the error.
+     */
+    public static FailureClass classify(final Throwable failure) {
+        for(Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if(cause instanceof SocketTimeoutException) {
+                return TIMEOUT;
+            } else if(cause instanceof HttpStatusException) {
+                return SERVER_ERROR;
+            } else if(cause instanceof DataAccessException || cause instanceof SQLException) {
+                return STORAGE;
+            }
+        }
+        for(Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if(cause instanceof IOException) {
+                return NETWORK;
+            }
+        }
+        return PARSE;
+    }
+}
@@ -0,0 +1,120 @@
+package com.ffxivcensus.gatherer.failure;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Durable ledger of the characters that could not be gathered, so that every failure is tried again by the retry lane, in the same run
+ * or a later one, rather than being lost until the range is gathered again.
+ * <p>
+ * Each failure is classified by its error, and the {@link FailureClass} decides when the character is next due. A character that fails
+ * again has its attempts counted up and its retry pushed back, and its failure is removed once it has been gathered by the retry lane.
+ *
+ * @author fahy
+ * @see FailureBean
+ */
+@Service
+public class FailureLedger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FailureLedger.class);
+    /** Longest error message kept, to fit the column. */
+    private static final int MAX_ERROR_LENGTH = 255;
+    /** Version of the gatherer recording failures, so that parse errors are retried once it changes. */
+    static final String VERSION = currentVersion();
+
+    private final FailureRepository failureRepository;
+
+    public FailureLedger(@Autowired final FailureRepository failureRepository) {
+        this.failureRepository = failureRepository;
+    }
+
+    /**
+     * Records that a character could not be gathered, scheduling it to be tried again.
+     *
+     * @param id Character ID that failed.
+     * @param failure Error the character failed with.
+     */
+    public void record(final int id, final Throwable failure) {
+        try {
+            Date now = new Date();
+            FailureBean entry = failureRepository.findOne(id);
+            if(entry == null) {
+                entry = new FailureBean(id);
+            }
+            FailureClass errorClass = FailureClass.classify(failure);
+            entry.setErrorClass(errorClass);
+            entry.setLastError(describe(failure));
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setFailedAt(now);
+            entry.setNextRetryAt(errorClass.nextRetry(entry.getAttempts(), now));
+            entry.setGathererVersion(VERSION);
+            failureRepository.save(entry);
+            if(entry.getNextRetryAt() == null && !errorClass.isWaitingForFix()) {
+                LOG.warn("Giving up on Character #{} after {} failed attempts, last with {}", id, entry.getAttempts(), errorClass);
+            }
+        } catch(Exception e) {
+            LOG.warn("Unable to record failure for player ID {} in the ledger: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the failure recorded against a character that has since been gathered.
+     *
+     * @param id Character ID that has been gathered.
+     */
+    public void resolve(final int id) {
+        try {
+            failureRepository.resolve(id);
+        } catch(Exception e) {
+            LOG.warn("Unable to resolve failure for player ID {} in the ledger: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the failures recorded against a batch of characters that have since been gathered, in a single statement.
+     *
+     * @param ids Character IDs that have been gathered.
+     */
+    public void resolve(final Collection<Integer> ids) {
+        if(ids.isEmpty()) {
+            return;
+        }
+        try {
+            failureRepository.resolveAll(ids);
+        } catch(Exception e) {
+            LOG.warn("Unable to resolve failures for {} player IDs in the ledger: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Finds the failed characters due to be tried again.
+     *
+     * @param afterId ID to start after, so that the ledger can be paged through by ID.
+     * @param limit Most characters to find.
+     * @return Ascending list of Character IDs.
+     */
+    public List<Integer> findDue(final int afterId, final int limit) {
+        return failureRepository.findDueAfter(afterId, new Date(), VERSION, new PageRequest(0, limit));
+    }
+
+    private static String describe(final Throwable failure) {
+        if(failure == null) {
+            return null;
+        }
+        String description = failure.getMessage() != null ? failure.getClass().getSimpleName() + ": " + failure.getMessage()
+                                                           : failure.getClass().getSimpleName();
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+
+    private static String currentVersion() {
+        String version = FailureLedger.class.getPackage().getImplementationVersion();
+        return version != null ? version : "development";
+    }
+}
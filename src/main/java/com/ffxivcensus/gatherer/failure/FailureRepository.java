@@ -0,0 +1,54 @@
+package com.ffxivcensus.gatherer.failure;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ffxivcensus.gatherer.shard.ShardKey;
+import com.ffxivcensus.gatherer.shard.ShardedRepository;
+
+/**
+ * Repository for CRUD actions for a given FailureBean instance.
+ *
+ * @author fahy
+ */
+public interface FailureRepository extends CrudRepository<FailureBean, Integer>, ShardedRepository {
+
+    /**
+     * Finds the IDs of failed characters that are due to be tried again, in ascending order, starting after the given ID. A character
+     * is due once its retry time has passed, or if it is waiting for a fix and failed under a different version of the gatherer.
+     *
+     * @return Ascending list of Character IDs, limited by the given page.
+     */
+    @Query("SELECT f.id FROM FailureBean f WHERE f.id > :afterId AND (f.nextRetryAt <= :now OR (f.errorClass ="
+           + " com.ffxivcensus.gatherer.failure.FailureClass.PARSE AND f.gathererVersion <> :version)) ORDER BY f.id")
+    List<Integer> findDueAfter(@Param("afterId") final int afterId, @Param("now") final Date now, @Param("version") final String version,
+                               final Pageable page);
+
+    /**
+     * Removes the failure recorded against a character, if there is one.
+     *
+     * @return The number of failures removed.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FailureBean f WHERE f.id = :id")
+    int resolve(@ShardKey @Param("id") final int id);
+
+    /**
+     * Removes the failures recorded against a batch of characters, where there are any.
+     *
+     * @return The number of failures removed.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FailureBean f WHERE f.id IN (:ids)")
+    int resolveAll(@ShardKey @Param("ids") final Collection<Integer> ids);
+}
@@ -0,0 +1,53 @@
+package com.ffxivcensus.gatherer.feed;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the change feed written by {@link ChangeFeedWriter}. Consumers tail the feed by remembering the sequence number of the last
+ * record they processed, and asking for the records after it.
+ *
+ * @author fahy
+ */
+public class ChangeFeedReader {
+
+    private final File directory;
+
+    public ChangeFeedReader(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the records following the given sequence number, oldest first.
+     *
+     * @param afterSequence Sequence number of the last record already processed, or 0 to start from the beginning.
+     * @param maxRecords Maximum number of records to read.
+     * @return List of records, which is empty if no newer records have been written.
+     * @throws IOException if the feed cannot be read.
+     */
+    public List<ChangeRecord> readAfter(final long afterSequence, final int maxRecords) throws IOException {
+        List<ChangeRecord> records = new ArrayList<>();
+        List<File> segments = ChangeFeedSegments.listSegments(directory);
+        for(int i = 0; i < segments.size() && records.size() < maxRecords; i++) {
+            // Skip segments that are entirely older than the requested position
+            if(i + 1 < segments.size() && ChangeFeedSegments.firstSequenceOf(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segments.get(i))))) {
+                ChangeRecord record = ChangeFeedSegments.readFrame(in);
+                while(record != null && records.size() < maxRecords) {
+                    if(record.getSequence() > afterSequence) {
+                        records.add(record);
+                    }
+                    record = ChangeFeedSegments.readFrame(in);
+                }
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ffxivcensus.gatherer.feed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Naming and framing of change feed segment files.
+ * <p>
+ * Segments are named <code>changes-{first sequence}.seg</code>, with the sequence zero-padded to 20 digits so that segments sort by
+ * name. Each segment is a series of frames: the 4 byte length of an encoded {@link ChangeRecord}, the record itself and the 4 byte
+ * CRC-32 of the record. A frame that is cut short or fails its checksum marks the end of the readable segment.
+ *
+ * @author fahy
+ */
+final class ChangeFeedSegments {
+
+    private static final String PREFIX = "changes-";
+    private static final String SUFFIX = ".seg";
+    /** Size of the length and checksum wrapped around each record. */
+    static final int FRAME_OVERHEAD = 8;
+    /** Largest record that will be read back, to guard against reading garbage lengths. */
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private ChangeFeedSegments() {
+    }
+
+    /**
+     * Fetches the segment file starting at the given sequence number.
+     */
+    static File segmentFile(final File directory, final long firstSequence) {
+        return new File(directory, String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+    }
+
+    /**
+     * Fetches the first sequence number held by a segment, from its name.
+     */
+    static long firstSequenceOf(final File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Lists the segment files in a directory, oldest first.
+     */
+    static List<File> listSegments(final File directory) {
+        File[] segments = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if(segments == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(segments);
+        return new ArrayList<>(Arrays.asList(segments));
+    }
+
+    /**
+     * Writes a single framed record.
+     */
+    static int writeFrame(final DataOutputStream out, final ChangeRecord record) throws IOException {
+        byte[] bytes = record.toBytes();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeInt((int) crc.getValue());
+        return bytes.length + FRAME_OVERHEAD;
+    }
+
+    /**
+     * Reads a single framed record.
+     *
+     * @return The record, or null if the end of the readable segment has been reached.
+     */
+    static ChangeRecord readFrame(final DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if(length < 0 || length > MAX_RECORD_SIZE) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if(in.readInt() != (int) crc.getValue()) {
+                return null;
+            }
+            return ChangeRecord.fromBytes(bytes);
+        } catch(EOFException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.ffxivcensus.gatherer.feed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+
+/**
+ * Writes a feed of the changes made to characters as they are gathered, so that consumers can update incrementally rather than
+ * rebuilding from the whole database.
+ * <p>
+ * Records are appended to segment files in the configured directory, starting a new segment once the current one reaches the configured
+ * size. Every record carries a sequence number that increases by one per record, and carries on from the last readable record in the
+ * feed when the gatherer is restarted. Any partially written record left by an earlier crash is discarded on start-up.
+ * <p>
+ * Writes are buffered, and reach the segment files when {@link #flush()} is called. When no change feed directory is configured, every
+ * method does nothing.
+ *
+ * @author fahy
+ * @see ChangeFeedReader
+ */
+@Service
+public class ChangeFeedWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeFeedWriter.class);
+
+    private final ApplicationConfig appConfig;
+    private File directory;
+    private DataOutputStream out;
+    private long segmentSize;
+    private long lastSequence;
+
+    public ChangeFeedWriter(@Autowired final ApplicationConfig appConfig) {
+        this.appConfig = appConfig;
+    }
+
+    /**
+     * Determines whether the change feed has been enabled.
+     *
+     * @return true if a change feed directory is configured.
+     */
+    public boolean isEnabled() {
+        return appConfig.getChangeFeedDirectory() != null;
+    }
+
+    /**
+     * Opens the change feed, recovering the last sequence number written.
+     *
+     * @throws IOException if the feed directory cannot be created or read.
+     */
+    public synchronized void open() throws IOException {
+        if(!isEnabled() || out != null) {
+            return;
+        }
+        directory = new File(appConfig.getChangeFeedDirectory());
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create change feed directory " + directory);
+        }
+
+        List<File> segments = ChangeFeedSegments.listSegments(directory);
+        if(segments.isEmpty()) {
+            lastSequence = 0;
+        } else {
+            File segment = segments.get(segments.size() - 1);
+            lastSequence = ChangeFeedSegments.firstSequenceOf(segment) - 1;
+            long validLength = 0;
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+                ChangeRecord record = ChangeFeedSegments.readFrame(in);
+                while(record != null) {
+                    lastSequence = record.getSequence();
+                    validLength += record.toBytes().length + ChangeFeedSegments.FRAME_OVERHEAD;
+                    record = ChangeFeedSegments.readFrame(in);
+                }
+            }
+            if(validLength < segment.length()) {
+                LOG.warn("Discarding {} bytes of partially written changes from {}", segment.length() - validLength, segment);
+                try(RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+                    file.setLength(validLength);
+                }
+            }
+            openSegment(segment, validLength);
+        }
+        LOG.info("Change feed opened in {} at sequence {}", directory, lastSequence);
+    }
+
+    /**
+     * Records the outcome of gathering a character that still exists.
+     * Nothing is recorded if the character is unchanged.
+     *
+     * @param previous Character as previously stored, or null if it was not known.
+     * @param current Character as gathered.
+     * @throws IOException if the feed cannot be written.
+     */
+    public void recordCrawl(final PlayerBean previous, final PlayerBean current) throws IOException {
+        if(!isEnabled()) {
+            return;
+        }
+        if(previous == null) {
+            // New characters carry every field that differs from an empty character
+            append(current.getId(), ChangeType.NEW, null, current.getCharacterStatus(), current.getContentChanges(new PlayerBean()));
+        } else {
+            Map<String, Object> changes = current.getContentChanges(previous);
+            if(previous.getCharacterStatus() != current.getCharacterStatus()) {
+                append(current.getId(), ChangeType.STATUS_CHANGED, previous.getCharacterStatus(), current.getCharacterStatus(), changes);
+            } else if(!changes.isEmpty()) {
+                append(current.getId(), ChangeType.UPDATED, previous.getCharacterStatus(), current.getCharacterStatus(), changes);
+            }
+        }
+    }
+
+    /**
+     * Records the deletion of a previously stored character.
+     *
+     * @param id Character ID.
+     * @param previousStatus Status the character was stored with.
+     * @throws IOException if the feed cannot be written.
+     */
+    public void recordDeleted(final int id, final CharacterStatus previousStatus) throws IOException {
+        if(isEnabled()) {
+            append(id, ChangeType.DELETED, previousStatus, CharacterStatus.DELETED, Collections.<String, Object> emptyMap());
+        }
+    }
+
+    /**
+     * Writes any buffered records out to the segment files.
+     */
+    public synchronized void flush() {
+        if(out != null) {
+            try {
+                out.flush();
+            } catch(IOException e) {
+                LOG.error("Unable to flush change feed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes any buffered records out, and closes the change feed.
+     *
+     * @throws IOException if the feed cannot be written.
+     */
+    public synchronized void close() throws IOException {
+        if(out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * Fetches the sequence number of the last record written.
+     *
+     * @return Sequence number, or 0 if nothing has been written.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    private synchronized void append(final int id, final ChangeType type, final CharacterStatus previousStatus,
+                                     final CharacterStatus currentStatus, final Map<String, Object> changes) throws IOException {
+        if(directory == null) {
+            open();
+        }
+        if(out == null || segmentSize >= appConfig.getChangeFeedSegmentSize()) {
+            if(out != null) {
+                out.close();
+            }
+            openSegment(ChangeFeedSegments.segmentFile(directory, lastSequence + 1), 0);
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        for(Map.Entry<String, Object> change : changes.entrySet()) {
+            values.put(change.getKey(), toFeedValue(change.getValue()));
+        }
+        ChangeRecord record = new ChangeRecord(lastSequence + 1, System.currentTimeMillis(), id, type, previousStatus, currentStatus, values);
+        segmentSize += ChangeFeedSegments.writeFrame(out, record);
+        lastSequence = record.getSequence();
+    }
+
+    private void openSegment(final File segment, final long length) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment, true)));
+        segmentSize = length;
+    }
+
+    private static String toFeedValue(final Object value) {
+        if(value == null) {
+            return null;
+        } else if(value instanceof Date) {
+            return Long.toString(((Date) value).getTime());
+        } else if(value instanceof List) {
+            StringBuilder joined = new StringBuilder();
+            for(Object item : (List<?>) value) {
+                joined.append(joined.length() > 0 ? "," : "").append(item);
+            }
+            return joined.toString();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,152 @@
+package com.ffxivcensus.gatherer.feed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+
+/**
+ * A single entry in the change feed, describing how one character changed during a crawl.
+ * <p>
+ * Each record is encoded as: the 8 byte sequence number, the 8 byte epoch millisecond timestamp, the 4 byte Character ID, a single byte
+ * {@link ChangeType} ordinal, single bytes for the previous and current {@link CharacterStatus} (ordinal plus one, with 0 meaning none),
+ * then the 4 byte number of changed fields, each written as its name (as by {@link DataOutputStream#writeUTF(String)}), a presence byte
+ * and, if present, the 4 byte length and UTF-8 bytes of its new value. All numbers are big-endian.
+ *
+ * @author fahy
+ * @see ChangeFeedWriter
+ */
+public class ChangeRecord {
+
+    private final long sequence;
+    private final long timestamp;
+    private final int characterId;
+    private final ChangeType type;
+    private final CharacterStatus previousStatus;
+    private final CharacterStatus currentStatus;
+    private final Map<String, String> changes;
+
+    public ChangeRecord(final long sequence, final long timestamp, final int characterId, final ChangeType type,
+                        final CharacterStatus previousStatus, final CharacterStatus currentStatus, final Map<String, String> changes) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.characterId = characterId;
+        this.type = type;
+        this.previousStatus = previousStatus;
+        this.currentStatus = currentStatus;
+        this.changes = Collections.unmodifiableMap(new LinkedHashMap<>(changes));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getCharacterId() {
+        return characterId;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public CharacterStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public CharacterStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
+    /**
+     * Fetches the fields that changed, mapped to their new values.
+     * Dates are given as epoch milliseconds, and lists as comma-separated values. A null value means the field was cleared.
+     *
+     * @return Unmodifiable map of field name to new value.
+     */
+    public Map<String, String> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Encodes this record.
+     *
+     * @return Encoded record.
+     */
+    byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(sequence);
+            out.writeLong(timestamp);
+            out.writeInt(characterId);
+            out.writeByte(type.ordinal());
+            out.writeByte(previousStatus == null ? 0 : previousStatus.ordinal() + 1);
+            out.writeByte(currentStatus == null ? 0 : currentStatus.ordinal() + 1);
+            out.writeInt(changes.size());
+            for(Map.Entry<String, String> change : changes.entrySet()) {
+                out.writeUTF(change.getKey());
+                out.writeBoolean(change.getValue() != null);
+                if(change.getValue() != null) {
+                    byte[] value = change.getValue().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch(IOException e) {
+            // Writing to memory cannot fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes a record encoded by {@link #toBytes()}.
+     *
+     * @param bytes Encoded record.
+     * @return Decoded record.
+     * @throws IOException if the record is malformed.
+     */
+    static ChangeRecord fromBytes(final byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        int characterId = in.readInt();
+        ChangeType type = ChangeType.values()[in.readUnsignedByte()];
+        CharacterStatus previousStatus = statusOf(in.readUnsignedByte());
+        CharacterStatus currentStatus = statusOf(in.readUnsignedByte());
+        int changeCount = in.readInt();
+        Map<String, String> changes = new LinkedHashMap<>();
+        for(int i = 0; i < changeCount; i++) {
+            String field = in.readUTF();
+            String value = null;
+            if(in.readBoolean()) {
+                byte[] valueBytes = new byte[in.readInt()];
+                in.readFully(valueBytes);
+                value = new String(valueBytes, StandardCharsets.UTF_8);
+            }
+            changes.put(field, value);
+        }
+        return new ChangeRecord(sequence, timestamp, characterId, type, previousStatus, currentStatus, changes);
+    }
+
+    private static CharacterStatus statusOf(final int code) {
+        return code == 0 ? null : CharacterStatus.values()[code - 1];
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " #" + characterId + " " + previousStatus + " -> " + currentStatus + " " + changes.keySet();
+    }
+}
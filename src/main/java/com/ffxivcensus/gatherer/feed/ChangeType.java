@@ -0,0 +1,17 @@
+package com.ffxivcensus.gatherer.feed;
+
+/**
+ * Kinds of change recorded in the change feed.
+ *
+ * @author fahy
+ */
+public enum ChangeType {
+    /** A character stored for the first time. */
+    NEW,
+    /** A stored character whose Status has changed, for example from ACTIVE to INACTIVE. */
+    STATUS_CHANGED,
+    /** A stored character whose Status is unchanged, but whose other fields have changed. */
+    UPDATED,
+    /** A stored character that has since been deleted from the Lodestone, and removed from the database. */
+    DELETED
+}
@@ -0,0 +1,219 @@
+package com.ffxivcensus.gatherer.gapfill;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.domain.PageRequest;
+
+import com.ffxivcensus.gatherer.player.DeletedRangeBean;
+import com.ffxivcensus.gatherer.player.DeletedRangeRepository;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+/**
+ * The gaps in what is stored for a range of Character IDs, issued in ascending order as they are found. Built by the
+ * {@link GapFillPlanner}.
+ * <p>
+ * An ID is a gap if it is neither stored nor known to be deleted, if the stored character failed the last time it was crawled, or if the
+ * stored character was last crawled before the stale time, or has no crawl time at all, having been stored before crawl times were
+ * recorded. The stored characters and the deleted ranges are both read a page at a time in ascending order, and merged against the range
+ * as IDs are asked for, so the plan only ever holds a page of each, however large the range. Deleted ranges are stepped over whole,
+ * without looking at the IDs within them.
+ *
+ * @author fahy
+ */
+public class GapFillPlan implements IdAllocator {
+
+    /** Number of stored characters, or deleted ranges, read from the database at a time. */
+    static final int PAGE_SIZE = 10000;
+
+    private final PlayerBeanRepository playerRepository;
+    private final DeletedRangeRepository rangeRepository;
+    private final int startId;
+    private final int finishId;
+    private final Date staleBefore;
+    /** Rows of [character ID, last crawled at, failure count] read ahead, in ascending ID order. */
+    private final Deque<Object[]> stored = new ArrayDeque<>();
+    private final Deque<DeletedRangeBean> deleted = new ArrayDeque<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failedAgain = new AtomicLong();
+    private int storedAfter;
+    private int deletedAfter;
+    private boolean storedRead;
+    private boolean deletedRead;
+    private long next;
+    private long missing;
+    private long failed;
+    private long stale;
+
+    /**
+     * Creates a new plan for the IDs from the start ID to the finish ID, both inclusive.
+     *
+     * @param playerRepository Repository of the stored characters.
+     * @param rangeRepository Repository of the deleted ranges.
+     * @param startId First ID of the range.
+     * @param finishId Last ID of the range.
+     * @param staleBefore Time before which a stored character was last crawled for it to count as stale, or null to leave stored
+     *            characters that did not fail alone.
+     */
+    GapFillPlan(final PlayerBeanRepository playerRepository, final DeletedRangeRepository rangeRepository, final int startId,
+                final int finishId, final Date staleBefore) {
+        this.playerRepository = playerRepository;
+        this.rangeRepository = rangeRepository;
+        this.startId = startId;
+        this.finishId = finishId;
+        this.staleBefore = staleBefore;
+        this.storedAfter = startId - 1;
+        this.deletedAfter = startId - 1;
+        this.next = startId;
+        // Ranges are read by their first ID, so the one the range starts inside would otherwise be missed
+        DeletedRangeBean spanning = rangeRepository.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(startId);
+        if(spanning != null && spanning.getRangeFrom() < startId && spanning.contains(startId)) {
+            deleted.add(spanning);
+        }
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new IdSource() {
+            @Override
+            public int nextId() {
+                return GapFillPlan.this.nextId();
+            }
+
+            @Override
+            public void complete(final int id) {
+                GapFillPlan.this.complete(id);
+            }
+
+            @Override
+            public void fail(final int id) {
+                GapFillPlan.this.fail(id);
+            }
+        };
+    }
+
+    private synchronized int nextId() {
+        while(next <= finishId) {
+            int id = (int) next;
+            DeletedRangeBean range = deletedFrom(id);
+            if(range != null && range.getRangeFrom() <= id) {
+                next = range.getRangeTo() + 1L;
+                continue;
+            }
+            next++;
+            Object[] row = storedFrom(id);
+            if(row == null || ((Number) row[0]).intValue() != id) {
+                missing++;
+                return id;
+            }
+            if(((Number) row[2]).intValue() > 0) {
+                failed++;
+                return id;
+            }
+            Date lastCrawledAt = (Date) row[1];
+            // A character stored before crawl times were recorded is the stalest of all
+            if(staleBefore != null && (lastCrawledAt == null || lastCrawledAt.before(staleBefore))) {
+                stale++;
+                return id;
+            }
+        }
+        return IdSource.EXHAUSTED;
+    }
+
+    /**
+     * Fetches the first stored character from the given ID onwards, reading the next page when the last has been used up.
+     *
+     * @return Row of the stored character, or null if none is stored from the ID to the end of the range.
+     */
+    private Object[] storedFrom(final int id) {
+        while(true) {
+            while(!stored.isEmpty() && ((Number) stored.peek()[0]).intValue() < id) {
+                stored.poll();
+            }
+            if(!stored.isEmpty() || storedRead) {
+                return stored.peek();
+            }
+            List<Object[]> page = playerRepository.findGapCandidatesAfter(storedAfter, finishId, new PageRequest(0, PAGE_SIZE));
+            stored.addAll(page);
+            storedRead = page.size() < PAGE_SIZE;
+            if(!page.isEmpty()) {
+                storedAfter = ((Number) page.get(page.size() - 1)[0]).intValue();
+            }
+        }
+    }
+
+    /**
+     * Fetches the first deleted range that does not end before the given ID, reading the next page when the last has been used up.
+     *
+     * @return Deleted range, which may start after the ID, or null if no range is left in the range of the plan.
+     */
+    private DeletedRangeBean deletedFrom(final int id) {
+        while(true) {
+            while(!deleted.isEmpty() && deleted.peek().getRangeTo() < id) {
+                deleted.poll();
+            }
+            if(!deleted.isEmpty() || deletedRead) {
+                return deleted.peek();
+            }
+            List<DeletedRangeBean> page = rangeRepository.findByRangeFromBetweenOrderByRangeFromAsc(deletedAfter + 1, finishId,
+                                                                                                    new PageRequest(0, PAGE_SIZE));
+            deleted.addAll(page);
+            deletedRead = page.size() < PAGE_SIZE;
+            if(!page.isEmpty()) {
+                deletedAfter = page.get(page.size() - 1).getRangeFrom();
+            }
+        }
+    }
+
+    @Override
+    public void complete(final int id) {
+        completed.incrementAndGet();
+    }
+
+    @Override
+    public void fail(final int id) {
+        completed.incrementAndGet();
+        failedAgain.incrementAndGet();
+    }
+
+    @Override
+    public synchronized String describeProgress() {
+        return String.format("Filled %d of the %d gaps found up to Character #%d of #%d to #%d (%d missing, %d failed, %d stale), %d of "
+                             + "which failed again",
+                             completed.get(), missing + failed + stale, Math.min(next, finishId + 1L) - 1, startId, finishId, missing,
+                             failed, stale, failedAgain.get());
+    }
+
+    /**
+     * Fetches the number of IDs found so far that were neither stored nor known to be deleted.
+     *
+     * @return Number of missing IDs.
+     */
+    public synchronized long getMissing() {
+        return missing;
+    }
+
+    /**
+     * Fetches the number of stored characters found so far that failed the last time they were crawled.
+     *
+     * @return Number of failed characters.
+     */
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Fetches the number of stored characters found so far that were last crawled before the stale time, or have never had a crawl
+     * time recorded.
+     *
+     * @return Number of stale characters.
+     */
+    public synchronized long getStale() {
+        return stale;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ffxivcensus.gatherer.gapfill;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.player.DeletedRangeRepository;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+
+/**
+ * Plans a repair of a range of Character IDs after partial or failed runs, so that only the IDs the database has no up to date answer
+ * for are gathered, rather than the whole range again.
+ *
+ * @author fahy
+ * @see GapFillPlan
+ */
+@Service
+public class GapFillPlanner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GapFillPlanner.class);
+
+    private final PlayerBeanRepository playerRepository;
+    private final DeletedRangeRepository rangeRepository;
+
+    public GapFillPlanner(@Autowired final PlayerBeanRepository playerRepository, @Autowired final DeletedRangeRepository rangeRepository) {
+        this.playerRepository = playerRepository;
+        this.rangeRepository = rangeRepository;
+    }
+
+    /**
+     * Plans the gaps to fill within the given range. The gaps are found as they are asked for, so planning costs nothing up front.
+     *
+     * @param startId First Character ID to consider.
+     * @param finishId Last Character ID to consider.
+     * @param staleAfterDays Days since a stored character was last crawled after which it counts as a gap, or 0 to only fill the IDs that
+     *            are missing or failed.
+     * @return Gaps within the range, in ascending order.
+     */
+    public GapFillPlan plan(final int startId, final int finishId, final int staleAfterDays) {
+        Date staleBefore = null;
+        if(staleAfterDays > 0) {
+            staleBefore = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(staleAfterDays));
+            LOG.info("Filling the gaps from Character #{} to #{}, including characters last crawled before {}", startId, finishId,
+                     staleBefore);
+        } else {
+            LOG.info("Filling the gaps from Character #{} to #{}", startId, finishId);
+        }
+        return new GapFillPlan(playerRepository, rangeRepository, startId, finishId, staleBefore);
+    }
+}
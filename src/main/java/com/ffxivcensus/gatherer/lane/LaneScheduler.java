@@ -0,0 +1,242 @@
+package com.ffxivcensus.gatherer.lane;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ffxivcensus.gatherer.task.GatheringOutcome;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+/**
+ * Serves several {@link WorkLane}s at once from the same fetch threads, concurrency limit and rate limit, by weighted fair scheduling
+ * between their sources of IDs.
+ * <p>
+ * Each cursor takes a cursor of every lane, and schedules between them by stride: every lane has a pass, which advances by a stride
+ * inversely proportional to its weight each time it issues an ID, and the lane with the lowest pass issues the next ID. A lane with
+ * weight 4 therefore issues four IDs for every one issued by a lane with weight 1, and no lane with IDs left is ever starved, however
+ * many IDs another lane has. A lane that has no IDs at the moment is passed over without banking credit, so it cannot flood the
+ * others once it has some again.
+ * <p>
+ * Each ID is reported back to the lane that issued it. An ID that fails has already been recorded in the failure ledger, from which
+ * the {@link RetryQueue} of the retry lane takes it again once it is due. Cursors return {@link IdSource#PENDING} while the only lanes
+ * with IDs left are waiting on IDs still being gathered, so the run only finishes once every lane is exhausted and nothing is being
+ * gathered, other than failures the ledger is holding back until later.
+ *
+ * @author fahy
+ */
+public class LaneScheduler implements IdAllocator {
+
+    /** Pass a lane with weight 1 advances by for each ID it issues. */
+    private static final long STRIDE = 1 << 20;
+
+    private final List<Lane> lanes = new ArrayList<>();
+    /** Lane that issued each ID that is still being gathered. */
+    private final Map<Integer, Lane> issuedBy = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a lane to serve, which must be done before any cursor is created.
+     *
+     * @param lane Lane being added.
+     * @param allocator Allocator of the lane's IDs.
+     * @param weight Relative share of the IDs issued by the lane, of at least 1.
+     */
+    public void addLane(final WorkLane lane, final IdAllocator allocator, final int weight) {
+        lanes.add(new Lane(lane, allocator, weight));
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public void complete(final int id) {
+        finish(id, null);
+    }
+
+    @Override
+    public void fail(final int id) {
+        finish(id, GatheringOutcome.FAILED);
+    }
+
+    @Override
+    public void complete(final int id, final GatheringOutcome outcome) {
+        finish(id, outcome);
+    }
+
+    /**
+     * Reports an ID back to the lane that issued it.
+     *
+     * @param outcome Outcome of gathering the ID, or null if it has been gathered but its outcome is not known.
+     */
+    private void finish(final int id, final GatheringOutcome outcome) {
+        Lane lane = issuedBy.get(id);
+        if(lane == null) {
+            return;
+        }
+        if(outcome == null) {
+            lane.completed.incrementAndGet();
+            lane.allocator.complete(id);
+        } else {
+            (outcome == GatheringOutcome.FAILED ? lane.failed : lane.completed).incrementAndGet();
+            lane.allocator.complete(id, outcome);
+        }
+        issuedBy.remove(id);
+    }
+
+    @Override
+    public String describeProgress() {
+        StringBuilder progress = new StringBuilder();
+        for(Lane lane : lanes) {
+            if(progress.length() > 0) {
+                progress.append("; ");
+            }
+            progress.append(String.format("%s lane issued %d, gathered %d, failed %d (%s)", lane.lane.getLabel(), lane.issued.get(),
+                                          lane.completed.get(), lane.failed.get(), lane.allocator.describeProgress()));
+        }
+        return progress.toString();
+    }
+
+    /**
+     * Fetches the number of IDs issued so far by a lane.
+     *
+     * @param lane Lane to count.
+     * @return Number of IDs, or 0 if the lane is not being served.
+     */
+    public long getIssued(final WorkLane lane) {
+        for(Lane served : lanes) {
+            if(served.lane == lane) {
+                return served.issued.get();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records that an ID has been issued by a lane.
+     *
+     * @return false if the ID is already being gathered for another lane, in which case it has been completed in this lane instead.
+     */
+    private boolean issue(final Lane lane, final int id) {
+        if(issuedBy.putIfAbsent(id, lane) != null) {
+            lane.allocator.complete(id);
+            return false;
+        }
+        lane.issued.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * A lane being served, along with how much of it has been gathered.
+     */
+    private static class Lane {
+
+        private final WorkLane lane;
+        private final IdAllocator allocator;
+        private final long stride;
+        private final AtomicLong issued = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        Lane(final WorkLane lane, final IdAllocator allocator, final int weight) {
+            this.lane = lane;
+            this.allocator = allocator;
+            this.stride = STRIDE / Math.max(1, weight);
+        }
+    }
+
+    /**
+     * Source of IDs for a single thread, scheduling between its own cursor of every lane.
+     */
+    private class Cursor implements IdSource {
+
+        private final IdSource[] sources = new IdSource[lanes.size()];
+        private final long[] pass = new long[lanes.size()];
+        private final boolean[] exhausted = new boolean[lanes.size()];
+        private final boolean[] waiting = new boolean[lanes.size()];
+
+        Cursor() {
+            for(int i = 0; i < sources.length; i++) {
+                sources[i] = lanes.get(i).allocator.newCursor();
+            }
+        }
+
+        @Override
+        public int nextId() throws InterruptedException {
+            // Only finish if nothing was being gathered before looking, as anything being gathered may yet leave a waiting lane with more IDs
+            boolean idle = issuedBy.isEmpty();
+            Arrays.fill(waiting, false);
+            int index = lowestPass();
+            while(index >= 0) {
+                int id = sources[index].nextId();
+                if(id == EXHAUSTED) {
+                    exhausted[index] = true;
+                } else if(id == PENDING) {
+                    waiting[index] = true;
+                } else {
+                    catchUp(pass[index]);
+                    pass[index] += lanes.get(index).stride;
+                    if(issue(lanes.get(index), id)) {
+                        return id;
+                    }
+                }
+                index = lowestPass();
+            }
+            return idle || allExhausted() ? EXHAUSTED : PENDING;
+        }
+
+        @Override
+        public void complete(final int id) {
+            LaneScheduler.this.complete(id);
+        }
+
+        @Override
+        public void fail(final int id) {
+            LaneScheduler.this.fail(id);
+        }
+
+        @Override
+        public void complete(final int id, final GatheringOutcome outcome) {
+            LaneScheduler.this.complete(id, outcome);
+        }
+
+        /**
+         * Finds the lane with the lowest pass, among those that may have IDs to issue.
+         *
+         * @return Index of the lane, or -1 if there is none.
+         */
+        private int lowestPass() {
+            int lowest = -1;
+            for(int i = 0; i < sources.length; i++) {
+                if(!exhausted[i] && !waiting[i] && (lowest < 0 || pass[i] < pass[lowest])) {
+                    lowest = i;
+                }
+            }
+            return lowest;
+        }
+
+        /**
+         * Moves lanes that had no IDs up to the given pass, so that they have not banked credit while they were passed over.
+         */
+        private void catchUp(final long current) {
+            for(int i = 0; i < sources.length; i++) {
+                if(waiting[i] && pass[i] < current) {
+                    pass[i] = current;
+                }
+            }
+        }
+
+        private boolean allExhausted() {
+            for(boolean laneExhausted : exhausted) {
+                if(!laneExhausted) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
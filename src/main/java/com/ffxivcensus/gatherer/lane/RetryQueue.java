@@ -0,0 +1,148 @@
+package com.ffxivcensus.gatherer.lane;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ffxivcensus.gatherer.failure.FailureLedger;
+import com.ffxivcensus.gatherer.task.GatheringOutcome;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+/**
+ * Characters that could not be gathered, to be tried again in the retry lane.
+ * <p>
+ * Every failure has already been recorded in the {@link FailureLedger} along with when to try it again, so the queue is fed from the
+ * ledger, which is looked in every {@value #LEDGER_POLL_MILLIS}ms for the characters that have become due, whether they failed in this
+ * run or an earlier one. Its cursors return {@link IdSource#PENDING} rather than {@link IdSource#EXHAUSTED} while it is empty.
+ *
+ * @author fahy
+ */
+public class RetryQueue implements IdAllocator {
+
+    /** How long to wait between looking in the ledger for characters that have become due. */
+    static final long LEDGER_POLL_MILLIS = 10000;
+    /** Most due characters taken from the ledger at a time. */
+    static final int LEDGER_PAGE_SIZE = 1000;
+
+    private final FailureLedger ledger;
+    /** Characters taken from the ledger that have not been tried again yet, so that none is taken twice. */
+    private final Set<Integer> fromLedger = ConcurrentHashMap.newKeySet();
+
+    private final Queue<Integer> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger recovered = new AtomicInteger();
+    private final AtomicInteger drawn = new AtomicInteger();
+    private int ledgerAfter = -1;
+    private long nextLedgerPoll;
+
+    /**
+     * Creates a new queue, retrying the characters in the failure ledger as they become due.
+     *
+     * @param ledger Ledger of failed characters.
+     */
+    public RetryQueue(final FailureLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new IdSource() {
+            @Override
+            public int nextId() {
+                Integer id = queue.poll();
+                if(id == null) {
+                    pollLedger();
+                    id = queue.poll();
+                }
+                return id != null ? id : PENDING;
+            }
+
+            @Override
+            public void complete(final int id) {
+                RetryQueue.this.complete(id);
+            }
+
+            @Override
+            public void fail(final int id) {
+                RetryQueue.this.fail(id);
+            }
+        };
+    }
+
+    /**
+     * Queues the next page of due characters from the ledger, unless the ledger has been looked in too recently. The ledger is paged
+     * through by ID, starting again from the beginning once the end is reached.
+     */
+    private synchronized void pollLedger() {
+        long now = System.currentTimeMillis();
+        if(!queue.isEmpty() || now < nextLedgerPoll) {
+            return;
+        }
+        List<Integer> due = ledger.findDue(ledgerAfter, LEDGER_PAGE_SIZE);
+        for(int id : due) {
+            if(fromLedger.add(id)) {
+                drawn.incrementAndGet();
+                queue.add(id);
+            }
+        }
+        if(due.size() < LEDGER_PAGE_SIZE) {
+            ledgerAfter = -1;
+            nextLedgerPoll = now + LEDGER_POLL_MILLIS;
+        } else {
+            ledgerAfter = due.get(due.size() - 1);
+        }
+    }
+
+    @Override
+    public void complete(final int id) {
+        complete(id, null);
+    }
+
+    /**
+     * Records that a retry has been gathered. A character that has been stored or deleted has already had its failure resolved in the
+     * ledger along with the rest of its batch, so only a character skipped without being gathered has its failure resolved here.
+     *
+     * @param id Character ID that has been gathered.
+     * @param outcome Outcome of gathering the character, or null if it is not known.
+     */
+    @Override
+    public void complete(final int id, final GatheringOutcome outcome) {
+        if(outcome == GatheringOutcome.FAILED) {
+            fail(id);
+            return;
+        }
+        recovered.incrementAndGet();
+        if(outcome == GatheringOutcome.SKIPPED) {
+            ledger.resolve(id);
+        }
+        fromLedger.remove(id);
+    }
+
+    /**
+     * Records that a retry failed again. The character has already had its next retry pushed back in the ledger.
+     *
+     * @param id Character ID that failed.
+     */
+    @Override
+    public void fail(final int id) {
+        fromLedger.remove(id);
+    }
+
+    @Override
+    public String describeProgress() {
+        return String.format("Recovered %d of the %d failed characters due in the ledger, %d waiting to be tried again", recovered.get(),
+                             drawn.get(), queue.size());
+    }
+
+    /**
+     * Fetches the number of failed characters gathered on being tried again.
+     *
+     * @return Number of characters recovered.
+     */
+    public int getRecovered() {
+        return recovered.get();
+    }
+}
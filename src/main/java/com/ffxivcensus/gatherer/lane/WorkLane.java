@@ -0,0 +1,64 @@
+package com.ffxivcensus.gatherer.lane;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named lanes of work that a single gatherer can serve at once, each with its own source of Character IDs.
+ *
+ * @author fahy
+ * @see LaneScheduler
+ */
+public enum WorkLane {
+    /** New characters at the top of the ID space, above the highest valid character already stored. */
+    FRONTIER,
+    /** Stored characters most likely to have changed since they were last gathered. */
+    REFRESH,
+    /** Characters that could not be gathered, tried again. */
+    RETRY;
+
+    /**
+     * Fetches the name the lane is given on the command line.
+     *
+     * @return Lower case name of the lane.
+     */
+    public String getLabel() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parses the weight of each lane from a comma separated list of {@code lane=weight} pairs, such as {@code frontier=4,refresh=1}.
+     * Lanes left out of the list are not served.
+     *
+     * @param weights List of lane weights.
+     * @return Weight of each lane to serve, which is always at least 1.
+     * @throws IllegalArgumentException if a lane is not recognised, or its weight is not a positive number.
+     */
+    public static Map<WorkLane, Integer> parseWeights(final String weights) {
+        Map<WorkLane, Integer> parsed = new EnumMap<>(WorkLane.class);
+        for(String pair : weights.split(",")) {
+            String[] parts = pair.trim().split("=");
+            if(parts.length != 2) {
+                throw new IllegalArgumentException("Lane weights must be given as lane=weight, not '" + pair.trim() + "'");
+            }
+            WorkLane lane;
+            try {
+                lane = WorkLane.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            } catch(IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown lane '" + parts[0].trim() + "'", e);
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(parts[1].trim());
+            } catch(NumberFormatException e) {
+                throw new IllegalArgumentException("Weight of the " + lane.getLabel() + " lane must be a number", e);
+            }
+            if(weight < 1) {
+                throw new IllegalArgumentException("Weight of the " + lane.getLabel() + " lane must be at least 1");
+            }
+            parsed.put(lane, weight);
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,103 @@
+package com.ffxivcensus.gatherer.lease;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+/**
+ * Object class recording the lease of one block of the Character ID space to a gatherer node, within a named run.
+ * Blocks are the same size as the ID block summary's, see {@link com.ffxivcensus.gatherer.player.IdBlockSummary#BLOCK_SIZE}.
+ *
+ * @author fahy
+ * @see LeaseCoordinator
+ */
+@Entity
+@Table(name = "tblidleases")
+@IdClass(IdLeaseBean.Key.class)
+public class IdLeaseBean {
+    @Id
+    private String runName;
+    @Id
+    private int blockId;
+    private String owner;
+    private Date leaseExpiresAt;
+    private Date completedAt;
+
+    public String getRunName() {
+        return runName;
+    }
+
+    public void setRunName(final String runName) {
+        this.runName = runName;
+    }
+
+    public int getBlockId() {
+        return blockId;
+    }
+
+    public void setBlockId(final int blockId) {
+        this.blockId = blockId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(final String owner) {
+        this.owner = owner;
+    }
+
+    public Date getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(final Date leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(final Date completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * Primary key of a lease: the run name and block number.
+     */
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String runName;
+        private int blockId;
+
+        public Key() {
+        }
+
+        public Key(final String runName, final int blockId) {
+            this.runName = runName;
+            this.blockId = blockId;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if(!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return blockId == key.blockId && Objects.equals(runName, key.runName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(runName, blockId);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ffxivcensus.gatherer.lease;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository for the leases of ID blocks to gatherer nodes.
+ * Leases are shared by every node, and are always held on the first database shard, so this repository is not routed by ID.
+ * Every change to a lease is made by a single conditional statement, so that two nodes can never both believe they hold a block.
+ * Lease times are always taken from the database clock, so that nodes whose own clocks disagree still agree on when a lease expires.
+ *
+ * @author fahy
+ */
+public interface IdLeaseRepository extends CrudRepository<IdLeaseBean, IdLeaseBean.Key> {
+
+    /**
+     * Finds the blocks within the given bounds (inclusive) that are not complete, and are either unleased or whose lease has expired.
+     *
+     * @return Ascending list of block numbers, limited by the given page.
+     */
+    @Query("SELECT l.blockId FROM IdLeaseBean l WHERE l.runName = :runName AND l.blockId BETWEEN :fromBlock AND :toBlock"
+           + " AND l.completedAt IS NULL AND (l.owner IS NULL OR l.leaseExpiresAt < CURRENT_TIMESTAMP) ORDER BY l.blockId")
+    List<Integer> findClaimableBlocks(@Param("runName") final String runName, @Param("fromBlock") final int fromBlock,
+                                      @Param("toBlock") final int toBlock, final Pageable page);
+
+    /**
+     * Finds the highest block within the given bounds (inclusive) that has ever been leased.
+     *
+     * @return Block number, or null if no block in the bounds has been leased.
+     */
+    @Query("SELECT MAX(l.blockId) FROM IdLeaseBean l WHERE l.runName = :runName AND l.blockId BETWEEN :fromBlock AND :toBlock")
+    Integer findHighestBlock(@Param("runName") final String runName, @Param("fromBlock") final int fromBlock,
+                             @Param("toBlock") final int toBlock);
+
+    /**
+     * Counts the blocks within the given bounds (inclusive) that are not complete, and are leased to any node other than the given one.
+     *
+     * @return Number of blocks still being gathered by other nodes.
+     */
+    @Query("SELECT COUNT(l) FROM IdLeaseBean l WHERE l.runName = :runName AND l.blockId BETWEEN :fromBlock AND :toBlock"
+           + " AND l.completedAt IS NULL AND l.owner <> :owner")
+    long countLeasedToOthers(@Param("runName") final String runName, @Param("fromBlock") final int fromBlock,
+                             @Param("toBlock") final int toBlock, @Param("owner") final String owner);
+
+    /**
+     * Leases a block that has never been leased. Fails with a duplicate key if another node has leased it first.
+     *
+     * @return The number of leases created.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO tblidleases (run_name, block_id, owner, lease_expires_at)"
+                   + " VALUES (:runName, :blockId, :owner, TIMESTAMPADD(SECOND, :leaseSeconds, CURRENT_TIMESTAMP))", nativeQuery = true)
+    int insertLease(@Param("runName") final String runName, @Param("blockId") final int blockId, @Param("owner") final String owner,
+                    @Param("leaseSeconds") final long leaseSeconds);
+
+    /**
+     * Leases an incomplete block, provided it is unleased or its lease has expired.
+     *
+     * @return The number of leases taken, which is 0 if another node holds the block or has completed it.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE tblidleases SET owner = :owner, lease_expires_at = TIMESTAMPADD(SECOND, :leaseSeconds, CURRENT_TIMESTAMP)"
+                   + " WHERE run_name = :runName AND block_id = :blockId AND completed_at IS NULL"
+                   + " AND (owner IS NULL OR lease_expires_at < CURRENT_TIMESTAMP)", nativeQuery = true)
+    int claimLease(@Param("runName") final String runName, @Param("blockId") final int blockId, @Param("owner") final String owner,
+                   @Param("leaseSeconds") final long leaseSeconds);
+
+    /**
+     * Extends every incomplete lease held by the given node.
+     *
+     * @return The number of leases extended.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE tblidleases SET lease_expires_at = TIMESTAMPADD(SECOND, :leaseSeconds, CURRENT_TIMESTAMP)"
+                   + " WHERE run_name = :runName AND owner = :owner AND completed_at IS NULL", nativeQuery = true)
+    int renewLeases(@Param("runName") final String runName, @Param("owner") final String owner,
+                    @Param("leaseSeconds") final long leaseSeconds);
+
+    /**
+     * Marks a block held by the given node as complete.
+     *
+     * @return The number of blocks completed, which is 0 if the node no longer holds the block.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdLeaseBean l SET l.completedAt = CURRENT_TIMESTAMP, l.leaseExpiresAt = NULL WHERE l.runName = :runName"
+           + " AND l.blockId = :blockId AND l.owner = :owner")
+    int completeLease(@Param("runName") final String runName, @Param("blockId") final int blockId, @Param("owner") final String owner);
+
+    /**
+     * Gives up every incomplete lease held by the given node, so that other nodes can take them straight away.
+     *
+     * @return The number of leases given up.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdLeaseBean l SET l.owner = NULL, l.leaseExpiresAt = NULL WHERE l.runName = :runName AND l.owner = :owner"
+           + " AND l.completedAt IS NULL")
+    int releaseLeases(@Param("runName") final String runName, @Param("owner") final String owner);
+
+    /**
+     * Counts the blocks completed within the given run.
+     *
+     * @return Number of completed blocks.
+     */
+    long countByRunNameAndCompletedAtIsNotNull(final String runName);
+}
@@ -0,0 +1,187 @@
+package com.ffxivcensus.gatherer.lease;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+
+/**
+ * Shares the gathering of a range of Character IDs between any number of gatherer nodes, by leasing blocks of IDs to each node from a
+ * table in the shared database.
+ * <p>
+ * A node claims a block with a single conditional statement, so only one node can ever hold a block. Blocks whose lease has expired are
+ * claimed before new blocks, so the blocks of a node that has died are picked up by the others. Each node renews its leases every
+ * {@value #HEARTBEAT_SECONDS} seconds, and a lease that has not been renewed for {@value #LEASE_SECONDS} seconds expires. Expiry is
+ * always judged by the database clock, so a node whose own clock runs ahead never takes over a lease that is still being renewed. Once
+ * every ID in a block has been gathered, the block is marked complete and is never leased again within the same run.
+ * <p>
+ * A node runs out of blocks once every block in the range has been leased, but keeps looking while other nodes still hold incomplete
+ * blocks, so that it can take them over if their node dies. Nodes can therefore be added to or removed from a run at any time.
+ *
+ * @author fahy
+ * @see LeasedIdAllocator
+ */
+@Service
+public class LeaseCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeaseCoordinator.class);
+    /** How long a lease lasts without being renewed. */
+    static final long LEASE_SECONDS = 300;
+    /** How often each node renews the leases it holds. */
+    public static final long HEARTBEAT_SECONDS = 60;
+    /** How long to wait before looking again for blocks, while other nodes still hold incomplete blocks. */
+    static final long WAIT_MILLIS = 30_000;
+    /** Returned by {@link #claim(int, int)} while every block has been leased, but other nodes have not yet completed them. */
+    public static final int WAITING = -1;
+    /** Number of claimable blocks to look up at a time. */
+    private static final int CLAIM_PAGE_SIZE = 10;
+
+    private final ApplicationConfig appConfig;
+    private final IdLeaseRepository leaseRepository;
+    private final String nodeId;
+    private final Set<Integer> heldBlocks = ConcurrentHashMap.newKeySet();
+    /** Blocks this node has gathered but could not yet mark as complete, which are still held until they have been. */
+    private final Set<Integer> unmarkedBlocks = ConcurrentHashMap.newKeySet();
+
+    public LeaseCoordinator(@Autowired final ApplicationConfig appConfig, @Autowired final IdLeaseRepository leaseRepository) {
+        this.appConfig = appConfig;
+        this.leaseRepository = leaseRepository;
+        // Process ID and host name, which is unique to each gatherer node
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    /**
+     * Determines whether leasing has been enabled.
+     *
+     * @return true if a lease run name is configured.
+     */
+    public boolean isEnabled() {
+        return appConfig.getLeaseRun() != null;
+    }
+
+    /**
+     * Fetches the name this node holds leases under.
+     *
+     * @return Node ID.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Leases a block within the given bounds, preferring blocks whose lease has expired, and otherwise the lowest block that has never
+     * been leased. Never waits for other nodes, so that the caller can keep gathering whatever it already holds while they finish.
+     *
+     * @param fromBlock Lowest block to lease.
+     * @param toBlock Highest block to lease.
+     * @return Block number leased, {@link #WAITING} if every block has been leased but other nodes have not yet completed them, which
+     *         should be looked at again after {@link #WAIT_MILLIS}, or null once every block within the bounds is complete or leased to
+     *         this node.
+     */
+    public Integer claim(final int fromBlock, final int toBlock) {
+        String run = appConfig.getLeaseRun();
+        // Take over abandoned blocks first, so that a dead node's work is finished before moving on
+        List<Integer> claimable = leaseRepository.findClaimableBlocks(run, fromBlock, toBlock, new PageRequest(0, CLAIM_PAGE_SIZE));
+        while(!claimable.isEmpty()) {
+            for(Integer block : claimable) {
+                if(leaseRepository.claimLease(run, block, nodeId, LEASE_SECONDS) == 1) {
+                    LOG.info("Took over the lease of abandoned ID block {}", block);
+                    heldBlocks.add(block);
+                    return block;
+                }
+            }
+            claimable = leaseRepository.findClaimableBlocks(run, fromBlock, toBlock, new PageRequest(0, CLAIM_PAGE_SIZE));
+        }
+
+        Integer highest = leaseRepository.findHighestBlock(run, fromBlock, toBlock);
+        for(int block = highest == null ? fromBlock : highest + 1; block <= toBlock; block++) {
+            try {
+                leaseRepository.insertLease(run, block, nodeId, LEASE_SECONDS);
+                LOG.debug("Leased ID block {}", block);
+                heldBlocks.add(block);
+                return block;
+            } catch(DataIntegrityViolationException e) {
+                // Another node leased this block first, so try the next one
+            }
+        }
+
+        if(leaseRepository.countLeasedToOthers(run, fromBlock, toBlock, nodeId) == 0) {
+            return null;
+        }
+        LOG.debug("Every ID block has been leased, waiting in case another node abandons its blocks");
+        return WAITING;
+    }
+
+    /**
+     * Renews every lease held by this node, and marks as complete any block that could not be marked complete before.
+     */
+    public void heartbeat() {
+        if(heldBlocks.isEmpty()) {
+            return;
+        }
+        for(Integer block : unmarkedBlocks) {
+            complete(block);
+        }
+        try {
+            int renewed = leaseRepository.renewLeases(appConfig.getLeaseRun(), nodeId, LEASE_SECONDS);
+            if(renewed < heldBlocks.size()) {
+                LOG.warn("Only {} of the {} ID blocks leased to this node could be renewed, so others will be gathered again", renewed,
+                         heldBlocks.size());
+            }
+        } catch(Exception e) {
+            LOG.error("Unable to renew ID block leases: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marks a block leased to this node as complete. If the block cannot be marked, it stays held and is marked again by the next
+     * {@link #heartbeat()}, so that a database error never reaches the thread gathering the block.
+     *
+     * @param block Block number.
+     */
+    public void complete(final int block) {
+        try {
+            if(leaseRepository.completeLease(appConfig.getLeaseRun(), block, nodeId) == 0) {
+                LOG.warn("The lease of ID block {} expired before it was completed, so it may be gathered again", block);
+            }
+            heldBlocks.remove(block);
+            unmarkedBlocks.remove(block);
+        } catch(Exception e) {
+            LOG.error("Unable to mark ID block " + block + " as complete, trying again at the next heartbeat: " + e.getMessage(), e);
+            unmarkedBlocks.add(block);
+        }
+    }
+
+    /**
+     * Gives up every incomplete lease held by this node, so that other nodes can take them over without waiting for them to expire.
+     */
+    public void releaseAll() {
+        for(Integer block : unmarkedBlocks) {
+            complete(block);
+        }
+        if(!heldBlocks.isEmpty()) {
+            int released = leaseRepository.releaseLeases(appConfig.getLeaseRun(), nodeId);
+            LOG.info("Released {} incomplete ID block leases", released);
+            heldBlocks.clear();
+            unmarkedBlocks.clear();
+        }
+    }
+
+    /**
+     * Fetches the number of blocks completed within the run, by every node.
+     *
+     * @return Number of completed blocks.
+     */
+    public long getCompletedBlocks() {
+        return leaseRepository.countByRunNameAndCompletedAtIsNotNull(appConfig.getLeaseRun());
+    }
+}
@@ -0,0 +1,99 @@
+package com.ffxivcensus.gatherer.lease;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+/**
+ * Allocator of the Character IDs within the blocks leased to this node by the {@link LeaseCoordinator}.
+ * <p>
+ * Cursors share the block currently being issued, and a new block is leased once it has all been issued. Each block counts down the IDs
+ * still to be gathered, and is marked complete once they all have been. Leasing a block takes a few database round trips, once for
+ * every {@value IdBlockSummary#BLOCK_SIZE} IDs, so cursors simply take turns issuing IDs rather than dividing blocks between them.
+ * While other nodes hold every block left, IDs are {@link IdSource#PENDING pending}, and blocks are looked for again every
+ * {@value LeaseCoordinator#WAIT_MILLIS}ms.
+ *
+ * @author fahy
+ */
+public class LeasedIdAllocator implements IdAllocator {
+
+    private final LeaseCoordinator coordinator;
+    private final int startId;
+    private final int finishId;
+    private final Map<Integer, AtomicInteger> remaining = new ConcurrentHashMap<>();
+    private final AtomicInteger blocksCompleted = new AtomicInteger();
+    private long next;
+    private long blockEnd = -1;
+    private boolean exhausted;
+    /** Time before which no block is claimed, while other nodes hold every block left. */
+    private long claimAfterMillis;
+
+    /**
+     * Creates a new allocator over the given range, which should be the same on every node sharing the run.
+     *
+     * @param coordinator Coordinator to lease blocks from.
+     * @param startId First ID to issue.
+     * @param finishId Last ID to issue.
+     */
+    public LeasedIdAllocator(final LeaseCoordinator coordinator, final int startId, final int finishId) {
+        this.coordinator = coordinator;
+        this.startId = startId;
+        this.finishId = finishId;
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new IdSource() {
+            @Override
+            public int nextId() {
+                return LeasedIdAllocator.this.nextId();
+            }
+
+            @Override
+            public void complete(final int id) {
+                LeasedIdAllocator.this.complete(id);
+            }
+        };
+    }
+
+    private synchronized int nextId() {
+        while(next > blockEnd && !exhausted) {
+            if(System.currentTimeMillis() < claimAfterMillis) {
+                return IdSource.PENDING;
+            }
+            Integer block = coordinator.claim(IdBlockSummary.blockOf(startId), IdBlockSummary.blockOf(finishId));
+            if(block == null) {
+                exhausted = true;
+            } else if(block == LeaseCoordinator.WAITING) {
+                claimAfterMillis = System.currentTimeMillis() + LeaseCoordinator.WAIT_MILLIS;
+                return IdSource.PENDING;
+            } else {
+                next = Math.max(startId, (long) block * IdBlockSummary.BLOCK_SIZE);
+                blockEnd = Math.min(finishId, (long) (block + 1) * IdBlockSummary.BLOCK_SIZE - 1);
+                remaining.put(block, new AtomicInteger((int) (blockEnd - next + 1)));
+            }
+        }
+        return exhausted ? IdSource.EXHAUSTED : (int) next++;
+    }
+
+    @Override
+    public void complete(final int id) {
+        int block = IdBlockSummary.blockOf(id);
+        AtomicInteger count = remaining.get(block);
+        if(count != null && count.decrementAndGet() == 0) {
+            remaining.remove(block);
+            coordinator.complete(block);
+            blocksCompleted.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String describeProgress() {
+        return String.format("Completed %d ID blocks on this node, and %d across every node", blocksCompleted.get(),
+                             coordinator.getCompletedBlocks());
+    }
+}
@@ -22,4 +22,13 @@ public interface LodestonePageLoader {
      */
     Document getCharacterPage(final int characterId) throws IOException, InterruptedException, CharacterDeletedException;
 
+    /**
+     * Sets a listener to tell whenever a request is rate limited.
+     * Loaders whose source is never rate limited need not do anything.
+     * 
+     * @param rateLimitListener Listener to tell.
+     */
+    default void setRateLimitListener(final RateLimitListener rateLimitListener) {
+    }
+
 }
@@ -1,8 +1,6 @@
 package com.ffxivcensus.gatherer.lodestone;
 
 import java.io.IOException;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpStatus;
 import org.jsoup.HttpStatusException;
@@ -27,6 +25,10 @@ public class ProductionLodestonePageLoader implements LodestonePageLoader {
      */
     private String baseUrl = "http://eu.finalfantasyxiv.com/lodestone/character/%d/";
 
+    /** Listener told whenever a request is rate limited. */
+    private RateLimitListener rateLimitListener = () -> {
+    };
+
     /**
      * Fetches the given Character {@link Document} from the Lodestone.
      * 
@@ -35,10 +37,10 @@ public class ProductionLodestonePageLoader implements LodestonePageLoader {
      * @throws IOException
      * @throws InterruptedException
      * @throws CharacterDeletedException When the server returns a 404 response, a CharacterDeletedException will be thrown by this method.
+     * @throws RateLimitedException When the server returns a 429 response, so that the caller can back off without this thread waiting.
      */
     @Override
     public Document getCharacterPage(final int characterId) throws IOException, InterruptedException, CharacterDeletedException {
-        int attempt = 1;
         Document doc;
 
         // URL to connect to
@@ -49,16 +51,9 @@ public class ProductionLodestonePageLoader implements LodestonePageLoader {
         } catch(HttpStatusException httpe) {
             switch (httpe.getStatusCode()) {
                 case 429:
-                    // Generate random number 1->20*attempt no and sleep for it
-                    Random rand = new Random();
-                    int max = attempt * 20;
-                    int min = (attempt - 1) + 1;
-                    int randomNum = rand.nextInt(max - min + 1) + min;
-                    LOG.trace("Experiencing rate limiting (HTTP 429) while fetching id " + characterId + " (attempt " + attempt
-                              + "), waiting " + randomNum + "ms then retrying...");
-                    TimeUnit.MILLISECONDS.sleep(randomNum);
-                    doc = getCharacterPage(characterId);
-                    break;
+                    rateLimitListener.onRateLimited();
+                    LOG.trace("Experiencing rate limiting (HTTP 429) while fetching id {}", characterId);
+                    throw new RateLimitedException(characterId, httpe);
                 case HttpStatus.SC_NOT_FOUND:
                     LOG.info("Character {} does not exist. (404)", characterId);
                     throw new CharacterDeletedException();
@@ -70,4 +65,9 @@ public class ProductionLodestonePageLoader implements LodestonePageLoader {
         return doc;
     }
 
+    @Override
+    public void setRateLimitListener(final RateLimitListener rateLimitListener) {
+        this.rateLimitListener = rateLimitListener;
+    }
+
 }
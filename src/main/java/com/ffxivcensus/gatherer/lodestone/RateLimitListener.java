@@ -0,0 +1,15 @@
+package com.ffxivcensus.gatherer.lodestone;
+
+/**
+ * Listener told whenever the Lodestone rate limits a request (HTTP 429).
+ * 
+ * @author fahy
+ */
+public interface RateLimitListener {
+
+    /**
+     * Called each time a request is rate limited, before it is backed off from.
+     */
+    void onRateLimited();
+
+}
@@ -0,0 +1,19 @@
+package com.ffxivcensus.gatherer.lodestone;
+
+import java.io.IOException;
+
+/**
+ * Exception that identifies that the Lodestone has rate limited a request (HTTP 429), so that the caller can try the request again once
+ * it has backed off, without holding up the thread that made it.
+ *
+ * @author fahy
+ */
+public class RateLimitedException extends IOException {
+
+    private static final long serialVersionUID = 4127350867421942071L;
+
+    public RateLimitedException(final int characterId, final Throwable cause) {
+        super("Rate limited (HTTP 429) while fetching Character #" + characterId, cause);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.ffxivcensus.gatherer.player;
+
+import java.util.Date;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * Everything fetched from the Lodestone for a single character, ready to be parsed without any further network access.
+ *
+ * @author fahy
+ * @see PlayerBuilder#fetchPage(int)
+ * @see PlayerBuilder#parse(CharacterPage)
+ */
+public class CharacterPage {
+
+    private final int id;
+    private final Document document;
+    private final Date imageLastModified;
+
+    /**
+     * Constructs a page for a character that exists.
+     *
+     * @param id Character ID.
+     * @param document Character profile page.
+     * @param imageLastModified Last-modified date of the character's full body image.
+     */
+    public CharacterPage(final int id, final Document document, final Date imageLastModified) {
+        this.id = id;
+        this.document = document;
+        this.imageLastModified = imageLastModified;
+    }
+
+    /**
+     * Constructs a page for a character that has been deleted.
+     *
+     * @param id Character ID.
+     * @return Page without a profile.
+     */
+    public static CharacterPage deleted(final int id) {
+        return new CharacterPage(id, null, null);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    public Date getImageLastModified() {
+        return imageLastModified;
+    }
+
+    public boolean isDeleted() {
+        return document == null;
+    }
+}
@@ -0,0 +1,177 @@
+package com.ffxivcensus.gatherer.player;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ShardConfig;
+import com.ffxivcensus.gatherer.shard.ShardRouter;
+
+/**
+ * Compact store of deleted Character IDs, held as contiguous [from, to] ranges rather than as full {@link PlayerBean} rows.
+ * New deletions are merged into any adjacent or overlapping range as they arrive, so that long runs of deleted characters collapse into a
+ * single row.
+ * <p>
+ * Range merging is synchronized so that concurrent gatherer threads cannot produce overlapping ranges. Changes are ordered so that an
+ * interrupted merge can only ever leave a deleted ID covered twice, never uncovered. Ranges are never allowed to cross a database shard
+ * boundary, so that each range is stored alongside the characters it covers.
+ *
+ * @author fahy
+ * @see DeletedRangeBean
+ */
+@Service
+public class DeletedCharacterStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeletedCharacterStore.class);
+    /**
+     * Number of legacy DELETED player rows to read at a time when migrating them into ranges.
+     */
+    private static final int MIGRATION_PAGE_SIZE = 10000;
+
+    private final DeletedRangeRepository rangeRepository;
+    private final PlayerBeanRepository playerRepository;
+    private final ShardRouter shardRouter;
+
+    public DeletedCharacterStore(@Autowired final DeletedRangeRepository rangeRepository,
+                                 @Autowired final PlayerBeanRepository playerRepository, @Autowired final ShardRouter shardRouter) {
+        this.rangeRepository = rangeRepository;
+        this.playerRepository = playerRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Determines whether the given Character ID is known to be deleted.
+     *
+     * @param id Character ID to check.
+     * @return true if the ID falls within a stored deleted range.
+     */
+    public boolean isDeleted(final int id) {
+        DeletedRangeBean range = rangeRepository.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(id);
+        return range != null && range.contains(id);
+    }
+
+    /**
+     * Records a single Character ID as deleted.
+     *
+     * @param id Character ID that has been deleted.
+     */
+    public void markDeleted(final int id) {
+        addRange(id, id);
+    }
+
+    /**
+     * Records a range of Character IDs as deleted, merging with any adjacent or overlapping ranges already stored.
+     * Ranges spanning several database shards are split at the shard boundaries.
+     *
+     * @param from First deleted ID (inclusive).
+     * @param to Last deleted ID (inclusive).
+     */
+    public synchronized void addRange(final int from, final int to) {
+        for(ShardConfig shard : shardRouter.getShards()) {
+            int partFrom = Math.max(from, shard.getFromId());
+            int partTo = Math.min(to, shard.getToId());
+            if(partFrom <= partTo) {
+                addShardRange(partFrom, partTo, shard.getToId());
+            }
+        }
+    }
+
+    /**
+     * Records a range of Character IDs lying within a single shard as deleted.
+     *
+     * @param from First deleted ID (inclusive).
+     * @param to Last deleted ID (inclusive).
+     * @param shardTo Last ID owned by the shard, beyond which ranges may not be merged.
+     */
+    private void addShardRange(final int from, final int to, final int shardTo) {
+        DeletedRangeBean target;
+        DeletedRangeBean preceding = rangeRepository.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(from);
+        if(preceding != null && preceding.getRangeTo() >= from - 1) {
+            if(preceding.getRangeTo() >= to) {
+                // Already entirely covered, nothing to do
+                return;
+            }
+            target = preceding;
+        } else {
+            target = new DeletedRangeBean(from, to);
+        }
+
+        // Absorb any ranges that start inside, or immediately after, the new range
+        int mergedTo = to;
+        List<DeletedRangeBean> following = from == shardTo ? Collections.<DeletedRangeBean> emptyList()
+                                                           : rangeRepository.findByRangeFromBetween(from + 1, to == shardTo ? to : to + 1);
+        for(DeletedRangeBean range : following) {
+            mergedTo = Math.max(mergedTo, range.getRangeTo());
+        }
+        target.setRangeTo(Math.max(target.getRangeTo(), mergedTo));
+        rangeRepository.save(target);
+
+        // Only remove the absorbed ranges once the merged range covering them has been written
+        for(DeletedRangeBean range : following) {
+            rangeRepository.delete(range.getRangeFrom());
+        }
+    }
+
+    /**
+     * Fetches the highest Character ID known to be deleted.
+     *
+     * @return Highest deleted ID, or 0 if no deleted characters are known.
+     */
+    public int getHighestDeletedId() {
+        DeletedRangeBean highest = rangeRepository.findTopByOrderByRangeFromDesc();
+        return highest == null ? 0 : highest.getRangeTo();
+    }
+
+    /**
+     * Trims all deleted ranges above the given ID, so that IDs beyond the last known valid character are re-checked on the next run.
+     *
+     * @param lastKnownId Highest Character ID known to be valid.
+     */
+    public synchronized void trimAbove(final int lastKnownId) {
+        rangeRepository.deleteByRangeFromGreaterThan(lastKnownId);
+        DeletedRangeBean spanning = rangeRepository.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(lastKnownId);
+        if(spanning != null && spanning.getRangeTo() > lastKnownId) {
+            spanning.setRangeTo(lastKnownId);
+            rangeRepository.save(spanning);
+        }
+    }
+
+    /**
+     * Converts any full DELETED {@link PlayerBean} rows left over from earlier versions into deleted ranges, then removes the rows.
+     *
+     * @return The number of rows migrated.
+     */
+    public int migrateLegacyRows() {
+        int migrated = 0;
+        int lastId = -1;
+        List<Integer> ids = playerRepository.findIdsByCharacterStatusAfter(CharacterStatus.DELETED, lastId,
+                                                                           new PageRequest(0, MIGRATION_PAGE_SIZE));
+        while(!ids.isEmpty()) {
+            int from = ids.get(0);
+            int to = from;
+            for(int id : ids.subList(1, ids.size())) {
+                if(id != to + 1) {
+                    addRange(from, to);
+                    from = id;
+                }
+                to = id;
+            }
+            addRange(from, to);
+
+            migrated += ids.size();
+            lastId = to;
+            ids = playerRepository.findIdsByCharacterStatusAfter(CharacterStatus.DELETED, lastId, new PageRequest(0, MIGRATION_PAGE_SIZE));
+        }
+
+        if(migrated > 0) {
+            playerRepository.deleteByCharacterStatus(CharacterStatus.DELETED.name());
+            LOG.info("Migrated {} DELETED character rows into deleted ID ranges", migrated);
+        }
+        return migrated;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ffxivcensus.gatherer.player;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.ffxivcensus.gatherer.shard.ShardKeyed;
+
+/**
+ * Object class representing a contiguous, inclusive range of Character IDs that are known to be deleted from the Lodestone.
+ *
+ * @author fahy
+ * @see DeletedCharacterStore
+ */
+@Entity
+@Table(name = "tbldeletedranges")
+public class DeletedRangeBean implements ShardKeyed {
+    @Id
+    private int rangeFrom;
+    private int rangeTo;
+
+    public DeletedRangeBean() {
+    }
+
+    public DeletedRangeBean(final int rangeFrom, final int rangeTo) {
+        this.rangeFrom = rangeFrom;
+        this.rangeTo = rangeTo;
+    }
+
+    public int getRangeFrom() {
+        return rangeFrom;
+    }
+
+    public void setRangeFrom(final int rangeFrom) {
+        this.rangeFrom = rangeFrom;
+    }
+
+    public int getRangeTo() {
+        return rangeTo;
+    }
+
+    public void setRangeTo(final int rangeTo) {
+        this.rangeTo = rangeTo;
+    }
+
+    /**
+     * Determines whether the given ID falls within this range.
+     *
+     * @param id Character ID to check.
+     * @return true if the ID is within the range (inclusive).
+     */
+    public boolean contains(final int id) {
+        return id >= rangeFrom && id <= rangeTo;
+    }
+
+    @Override
+    public int getShardKey() {
+        return rangeFrom;
+    }
+}
@@ -0,0 +1,58 @@
+package com.ffxivcensus.gatherer.player;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ffxivcensus.gatherer.shard.ShardKey;
+import com.ffxivcensus.gatherer.shard.ShardedRepository;
+
+/**
+ * Repository for CRUD actions for a given DeletedRangeBean instance.
+ *
+ * @author fahy
+ */
+public interface DeletedRangeRepository extends CrudRepository<DeletedRangeBean, Integer>, ShardedRepository {
+
+    /**
+     * Finds the range starting closest to, but not above, the given ID.
+     * As ranges never overlap, this is the only range that could contain the ID. Ranges never span shards, so only the shard owning the
+     * ID is looked in.
+     *
+     * @param id Character ID to look up.
+     * @return Nearest preceding {@link DeletedRangeBean}, or null if there is none.
+     */
+    DeletedRangeBean findTopByRangeFromLessThanEqualOrderByRangeFromDesc(@ShardKey final Integer id);
+
+    /**
+     * Finds all ranges starting within the given bounds (inclusive). Only the shard owning the lower bound is looked in, so both bounds
+     * must lie within the same shard.
+     *
+     * @return Ranges starting between the two bounds.
+     */
+    List<DeletedRangeBean> findByRangeFromBetween(@ShardKey final Integer lowerBound, final Integer upperBound);
+
+    /**
+     * Finds the ranges starting within the given bounds (inclusive), in ascending order, limited by the given page.
+     *
+     * @return Ascending ranges starting between the two bounds.
+     */
+    List<DeletedRangeBean> findByRangeFromBetweenOrderByRangeFromAsc(final Integer lowerBound, final Integer upperBound, final Pageable page);
+
+    /**
+     * Finds the top-most deleted range.
+     *
+     * @return Top-most {@link DeletedRangeBean} object by ID.
+     */
+    DeletedRangeBean findTopByOrderByRangeFromDesc();
+
+    /**
+     * Method to trim all deleted ranges starting above the given ID.
+     */
+    @Modifying
+    @Transactional
+    void deleteByRangeFromGreaterThan(final Integer lastKnownId);
+}
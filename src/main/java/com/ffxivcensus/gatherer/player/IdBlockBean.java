@@ -0,0 +1,159 @@
+package com.ffxivcensus.gatherer.player;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Object class summarising a fixed-size block of the Character ID space, see {@link IdBlockSummary#BLOCK_SIZE}.
+ *
+ * @author fahy
+ * @see IdBlockSummary
+ */
+@Entity
+@Table(name = "tblidblocks")
+public class IdBlockBean {
+    @Id
+    private int blockId;
+    private int activeCount;
+    private int inactiveCount;
+    private int deletedCount;
+    private int maxValidId;
+    private int maxCrawledId;
+    private Date lastCrawledAt;
+
+    public IdBlockBean() {
+    }
+
+    public IdBlockBean(final int blockId) {
+        this.blockId = blockId;
+    }
+
+    /**
+     * Creates a copy of the given block, so that it can be persisted without holding a lock on the original.
+     *
+     * @param other Block to copy.
+     */
+    public IdBlockBean(final IdBlockBean other) {
+        this.blockId = other.blockId;
+        this.activeCount = other.activeCount;
+        this.inactiveCount = other.inactiveCount;
+        this.deletedCount = other.deletedCount;
+        this.maxValidId = other.maxValidId;
+        this.maxCrawledId = other.maxCrawledId;
+        this.lastCrawledAt = other.lastCrawledAt;
+    }
+
+    public int getBlockId() {
+        return blockId;
+    }
+
+    public void setBlockId(final int blockId) {
+        this.blockId = blockId;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public void setActiveCount(final int activeCount) {
+        this.activeCount = activeCount;
+    }
+
+    public int getInactiveCount() {
+        return inactiveCount;
+    }
+
+    public void setInactiveCount(final int inactiveCount) {
+        this.inactiveCount = inactiveCount;
+    }
+
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    public void setDeletedCount(final int deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+
+    public int getMaxValidId() {
+        return maxValidId;
+    }
+
+    public void setMaxValidId(final int maxValidId) {
+        this.maxValidId = maxValidId;
+    }
+
+    public int getMaxCrawledId() {
+        return maxCrawledId;
+    }
+
+    public void setMaxCrawledId(final int maxCrawledId) {
+        this.maxCrawledId = maxCrawledId;
+    }
+
+    public Date getLastCrawledAt() {
+        return lastCrawledAt;
+    }
+
+    public void setLastCrawledAt(final Date lastCrawledAt) {
+        this.lastCrawledAt = lastCrawledAt;
+    }
+
+    /**
+     * Fetches the number of characters in the given Status held within this block.
+     *
+     * @param status Character Status to count.
+     * @return Number of characters in the status.
+     */
+    public int getCount(final CharacterStatus status) {
+        switch (status) {
+            case ACTIVE:
+                return activeCount;
+            case INACTIVE:
+                return inactiveCount;
+            default:
+                return deletedCount;
+        }
+    }
+
+    /**
+     * Adjusts the number of characters in the given Status held within this block.
+     *
+     * @param status Character Status to adjust.
+     * @param delta Amount to adjust by.
+     */
+    public void adjustCount(final CharacterStatus status, final int delta) {
+        switch (status) {
+            case ACTIVE:
+                activeCount += delta;
+                break;
+            case INACTIVE:
+                inactiveCount += delta;
+                break;
+            default:
+                deletedCount += delta;
+                break;
+        }
+    }
+
+    /**
+     * Fetches the number of valid (non-deleted) characters held within this block.
+     *
+     * @return Number of valid characters.
+     */
+    public int getValidCount() {
+        return activeCount + inactiveCount;
+    }
+
+    /**
+     * Fetches the number of characters, in any Status, known within this block.
+     *
+     * @return Number of characters known.
+     */
+    public int getKnownCount() {
+        return activeCount + inactiveCount + deletedCount;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ffxivcensus.gatherer.player;
+
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * Repository for CRUD actions for a given IdBlockBean instance.
+ * The summary is small and is always held on the first database shard, so this repository is not routed by ID.
+ *
+ * @author fahy
+ */
+public interface IdBlockRepository extends CrudRepository<IdBlockBean, Integer> {
+
+}
@@ -0,0 +1,311 @@
+package com.ffxivcensus.gatherer.player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Summary of the Character ID space, held per fixed-size block of IDs.
+ * Each block records the number of characters in each {@link CharacterStatus}, the highest valid and highest crawled IDs and the last
+ * time it was crawled, which allows frontier, density and staleness questions to be answered without scanning {@link PlayerBean} rows.
+ * <p>
+ * The summary is held in memory and updated incrementally as characters are gathered, with changed blocks written back to the database by
+ * {@link #flush()}. If no summary has been stored yet, it is rebuilt from the existing character data on {@link #load()}, and otherwise
+ * the top of it is caught up with the character data, which stays authoritative.
+ *
+ * @author fahy
+ * @see IdBlockBean
+ */
+@Service
+public class IdBlockSummary {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdBlockSummary.class);
+    /**
+     * Number of Character IDs covered by each block.
+     */
+    public static final int BLOCK_SIZE = 10000;
+    /**
+     * Number of deleted ranges to read at a time when rebuilding.
+     */
+    private static final int REBUILD_PAGE_SIZE = 10000;
+
+    private final IdBlockRepository blockRepository;
+    private final PlayerBeanRepository playerRepository;
+    private final DeletedRangeRepository rangeRepository;
+    private final ConcurrentMap<Integer, IdBlockBean> blocks = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyBlocks = ConcurrentHashMap.newKeySet();
+
+    public IdBlockSummary(@Autowired final IdBlockRepository blockRepository, @Autowired final PlayerBeanRepository playerRepository,
+                          @Autowired final DeletedRangeRepository rangeRepository) {
+        this.blockRepository = blockRepository;
+        this.playerRepository = playerRepository;
+        this.rangeRepository = rangeRepository;
+    }
+
+    /**
+     * Fetches the block number containing the given Character ID.
+     *
+     * @param id Character ID.
+     * @return Block number.
+     */
+    public static int blockOf(final int id) {
+        return id / BLOCK_SIZE;
+    }
+
+    /**
+     * Fetches the first Character ID within the given block.
+     *
+     * @param blockId Block number.
+     * @return First ID in the block.
+     */
+    public static int firstIdOf(final int blockId) {
+        return blockId * BLOCK_SIZE;
+    }
+
+    /**
+     * Fetches the last Character ID within the given block.
+     *
+     * @param blockId Block number.
+     * @return Last ID in the block.
+     */
+    public static int lastIdOf(final int blockId) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) blockId * BLOCK_SIZE + BLOCK_SIZE - 1);
+    }
+
+    /**
+     * Loads the stored summary into memory, rebuilding it from the character data if nothing has been stored yet.
+     * Otherwise, the blocks from the highest valid ID stored upwards are rebuilt, as any characters gathered there since the summary was
+     * last written are lost with the summary if the gatherer did not stop cleanly.
+     */
+    public void load() {
+        blocks.clear();
+        dirtyBlocks.clear();
+        for(IdBlockBean block : blockRepository.findAll()) {
+            blocks.put(block.getBlockId(), block);
+        }
+        if(blocks.isEmpty()) {
+            LOG.info("No ID block summary found, rebuilding from existing character data");
+            rebuild(0, blockOf(Integer.MAX_VALUE));
+        } else {
+            rebuild(blockOf(getHighestValidId()), blockOf(Integer.MAX_VALUE));
+        }
+        flush();
+    }
+
+    /**
+     * Records the outcome of gathering a character against its block.
+     *
+     * @param id Character ID gathered.
+     * @param previous Status the character was previously stored with, or null if it was not known.
+     * @param current Status the character has been gathered with.
+     */
+    public void recordCrawl(final int id, final CharacterStatus previous, final CharacterStatus current) {
+        IdBlockBean block = blocks.computeIfAbsent(blockOf(id), IdBlockBean::new);
+        synchronized(block) {
+            if(previous != null) {
+                block.adjustCount(previous, -1);
+            }
+            block.adjustCount(current, 1);
+            if(!CharacterStatus.DELETED.equals(current)) {
+                block.setMaxValidId(Math.max(block.getMaxValidId(), id));
+            }
+            block.setMaxCrawledId(Math.max(block.getMaxCrawledId(), id));
+            block.setLastCrawledAt(new Date());
+        }
+        dirtyBlocks.add(block.getBlockId());
+    }
+
+    /**
+     * Writes all blocks changed since the last flush back to the database.
+     */
+    public void flush() {
+        List<IdBlockBean> changed = new ArrayList<>();
+        for(Integer blockId : dirtyBlocks) {
+            dirtyBlocks.remove(blockId);
+            IdBlockBean block = blocks.get(blockId);
+            if(block != null) {
+                synchronized(block) {
+                    changed.add(new IdBlockBean(block));
+                }
+            }
+        }
+        if(!changed.isEmpty()) {
+            LOG.debug("Writing {} changed ID block summaries", changed.size());
+            blockRepository.save(changed);
+        }
+    }
+
+    /**
+     * Removes all summary data above the given ID, to match the top-end cleanup of the character data.
+     * The block containing the given ID is rebuilt, as it may have been partially trimmed.
+     *
+     * @param lastKnownId Highest Character ID known to be valid.
+     */
+    public void trimAbove(final int lastKnownId) {
+        int lastBlock = blockOf(lastKnownId);
+        for(Integer blockId : new ArrayList<>(blocks.keySet())) {
+            if(blockId > lastBlock) {
+                blocks.remove(blockId);
+                dirtyBlocks.remove(blockId);
+                blockRepository.delete(blockId);
+            }
+        }
+        rebuild(lastBlock, lastBlock);
+        flush();
+    }
+
+    /**
+     * Fetches the highest valid Character ID known.
+     *
+     * @return Highest valid ID, or 0 if no valid characters are known.
+     */
+    public int getHighestValidId() {
+        int highest = 0;
+        for(IdBlockBean block : blocks.values()) {
+            highest = Math.max(highest, block.getMaxValidId());
+        }
+        return highest;
+    }
+
+    /**
+     * Fetches the highest Character ID that has been crawled, whether valid or not.
+     *
+     * @return Highest crawled ID, or 0 if nothing has been crawled.
+     */
+    public int getHighestCrawledId() {
+        int highest = 0;
+        for(IdBlockBean block : blocks.values()) {
+            highest = Math.max(highest, block.getMaxCrawledId());
+        }
+        return highest;
+    }
+
+    /**
+     * Fetches the proportion of known characters that are valid within the blocks covering the given range.
+     *
+     * @param fromId First Character ID of the range (inclusive).
+     * @param toId Last Character ID of the range (inclusive).
+     * @return Valid density between 0 and 1, or -1 if nothing is known within the range.
+     */
+    public double getValidDensity(final int fromId, final int toId) {
+        long valid = 0;
+        long known = 0;
+        for(int blockId = blockOf(fromId); blockId <= blockOf(toId); blockId++) {
+            IdBlockBean block = blocks.get(blockId);
+            if(block != null) {
+                valid += block.getValidCount();
+                known += block.getKnownCount();
+            }
+        }
+        return known == 0 ? -1 : (double) valid / known;
+    }
+
+    /**
+     * Fetches the numbers of all known blocks that have not been crawled since the given time, in ascending order.
+     *
+     * @param since Time the blocks must have been crawled since.
+     * @return Ascending list of block numbers.
+     */
+    public List<Integer> findBlocksNotCrawledSince(final Date since) {
+        List<Integer> stale = new ArrayList<>();
+        for(IdBlockBean block : blocks.values()) {
+            if(block.getLastCrawledAt() == null || block.getLastCrawledAt().before(since)) {
+                stale.add(block.getBlockId());
+            }
+        }
+        Collections.sort(stale);
+        return stale;
+    }
+
+    /**
+     * Fetches a copy of the summary for a given block.
+     *
+     * @param blockId Block number.
+     * @return Copy of the block summary, or null if nothing is known about the block.
+     */
+    public IdBlockBean getBlock(final int blockId) {
+        IdBlockBean block = blocks.get(blockId);
+        if(block == null) {
+            return null;
+        }
+        synchronized(block) {
+            return new IdBlockBean(block);
+        }
+    }
+
+    /**
+     * Recalculates the summary of the given blocks from the stored character data and deleted ranges.
+     *
+     * @param fromBlock First block to rebuild (inclusive).
+     * @param toBlock Last block to rebuild (inclusive).
+     */
+    void rebuild(final int fromBlock, final int toBlock) {
+        int fromId = firstIdOf(fromBlock);
+        int toId = lastIdOf(toBlock);
+        ConcurrentMap<Integer, IdBlockBean> rebuilt = new ConcurrentHashMap<>();
+
+        for(Object[] row : playerRepository.summariseBlocks(fromId, toId)) {
+            if(row[1] == null) {
+                continue;
+            }
+            IdBlockBean block = rebuilt.computeIfAbsent(((Number) row[0]).intValue(), IdBlockBean::new);
+            CharacterStatus status = CharacterStatus.valueOf(row[1].toString());
+            int maxId = ((Number) row[3]).intValue();
+            block.adjustCount(status, ((Number) row[2]).intValue());
+            if(!CharacterStatus.DELETED.equals(status)) {
+                block.setMaxValidId(Math.max(block.getMaxValidId(), maxId));
+            }
+            block.setMaxCrawledId(Math.max(block.getMaxCrawledId(), maxId));
+        }
+
+        DeletedRangeBean preceding = rangeRepository.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(fromId);
+        if(preceding != null && preceding.getRangeTo() >= fromId) {
+            addDeletedRange(rebuilt, fromId, Math.min(preceding.getRangeTo(), toId));
+        }
+        int nextFrom = fromId + 1;
+        List<DeletedRangeBean> ranges;
+        do {
+            ranges = rangeRepository.findByRangeFromBetweenOrderByRangeFromAsc(nextFrom, toId, new PageRequest(0, REBUILD_PAGE_SIZE));
+            for(DeletedRangeBean range : ranges) {
+                addDeletedRange(rebuilt, range.getRangeFrom(), Math.min(range.getRangeTo(), toId));
+                nextFrom = range.getRangeFrom() + 1;
+            }
+        } while(ranges.size() == REBUILD_PAGE_SIZE);
+
+        for(int blockId = fromBlock; blockId <= toBlock; blockId++) {
+            IdBlockBean previous = blocks.remove(blockId);
+            IdBlockBean block = rebuilt.get(blockId);
+            if(block != null) {
+                block.setLastCrawledAt(previous != null ? previous.getLastCrawledAt() : null);
+                blocks.put(blockId, block);
+                dirtyBlocks.add(blockId);
+            } else if(previous != null) {
+                dirtyBlocks.remove(blockId);
+                blockRepository.delete(blockId);
+            }
+        }
+    }
+
+    /**
+     * Adds a range of deleted IDs to the relevant blocks of the given summary.
+     */
+    private void addDeletedRange(final ConcurrentMap<Integer, IdBlockBean> summary, final int fromId, final int toId) {
+        for(int blockId = blockOf(fromId); blockId <= blockOf(toId); blockId++) {
+            int first = Math.max(fromId, firstIdOf(blockId));
+            int last = Math.min(toId, lastIdOf(blockId));
+            IdBlockBean block = summary.computeIfAbsent(blockId, IdBlockBean::new);
+            block.adjustCount(CharacterStatus.DELETED, last - first + 1);
+            block.setMaxCrawledId(Math.max(block.getMaxCrawledId(), last));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ffxivcensus.gatherer.player;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.Column;
 import javax.persistence.Convert;
@@ -9,24 +10,48 @@ import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.Id;
+import javax.persistence.PrimaryKeyJoinColumn;
+import javax.persistence.SecondaryTable;
 import javax.persistence.Table;
+
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.ffxivcensus.gatherer.codegen.GenerateRowBinder;
+import com.ffxivcensus.gatherer.shard.ShardKeyed;
 import com.ffxivcensus.gatherer.util.StringListConverter;
 
 /**
  * Object class to represent a Character/Player. This class specifies the attributes and behaviour of a player object.
+ * <p>
+ * Persistence is split vertically: the frequently-read status, profile and level data lives in {@value #PLAYERS_TABLE}, while the
+ * collectible data (mount/minion lists and the flags derived from them) lives in {@value #COLLECTIBLES_TABLE}, sharing the same id.
+ * Updates are issued dynamically, so a save that only changes hot fields will not touch the collectibles row.
+ * <p>
+ * Alongside the character data, each row records when it was last crawled, when its content last changed and how many consecutive
+ * crawls of it have failed, so that refreshes can target stale or recently changed characters.
+ * <p>
+ * {@link PlayerBeanRowBinder} is generated from the mapping annotations at build time, for bulk JDBC access without reflection.
  *
  * @author Matthew Hillier
  * @since v1.0
  * @see PlayerBuilder
  */
 @Entity
-@Table(name = "tblplayers")
-public class PlayerBean {
+@Table(name = PlayerBean.PLAYERS_TABLE)
+@SecondaryTable(name = PlayerBean.COLLECTIBLES_TABLE, pkJoinColumns = @PrimaryKeyJoinColumn(name = "id"))
+@DynamicUpdate
+@GenerateRowBinder(ignoreInContent = {"lastCrawledAt", "lastChangedAt", "failureCount", "crawlCount", "changeCount"})
+public class PlayerBean implements ShardKeyed {
+    /** Table holding the status, profile and level data. */
+    public static final String PLAYERS_TABLE = "tblplayers";
+    /** Table holding the mount/minion collectible data. */
+    public static final String COLLECTIBLES_TABLE = "tblplayers_collectibles";
     private static final String NOT_AVAILABLE = "N/A";
     @Id
     private int id;
     private String realm = NOT_AVAILABLE;
-    private String name = NOT_AVAILABLE;
+    @Column(name = "name")
+    private String playerName = NOT_AVAILABLE;
     private String race = NOT_AVAILABLE;
     private String gender = NOT_AVAILABLE;
     private String grandCompany = NOT_AVAILABLE;
@@ -59,100 +84,100 @@ public class PlayerBean {
     private int levelBotanist;
     private int levelFisher;
     private int levelEureka;
-    @Column(name = "p30days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p30days")
     private boolean has30DaysSub;
-    @Column(name = "p60days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p60days")
     private boolean has60DaysSub;
-    @Column(name = "p90days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p90days")
     private boolean has90DaysSub;
-    @Column(name = "p180days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p180days")
     private boolean has180DaysSub;
-    @Column(name = "p270days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p270days")
     private boolean has270DaysSub;
-    @Column(name = "p360days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p360days")
     private boolean has360DaysSub;
-    @Column(name = "p450days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p450days")
     private boolean has450DaysSub;
-    @Column(name = "p630days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p630days")
     private boolean has630DaysSub;
-    @Column(name = "p960days")
+    @Column(table = COLLECTIBLES_TABLE, name = "p960days")
     private boolean has960DaysSub;
-    @Column(name = "prearr")
+    @Column(table = COLLECTIBLES_TABLE, name = "prearr")
     private boolean hasPreOrderArr;
-    @Column(name = "prehw")
+    @Column(table = COLLECTIBLES_TABLE, name = "prehw")
     private boolean hasPreOrderHW;
-    @Column(name = "presb")
+    @Column(table = COLLECTIBLES_TABLE, name = "presb")
     private boolean hasPreOrderSB;
-    @Column(name = "preshb")
+    @Column(table = COLLECTIBLES_TABLE, name = "preshb")
     private boolean hasPreOrderShB;
-    @Column(name = "arrartbook")
+    @Column(table = COLLECTIBLES_TABLE, name = "arrartbook")
     private boolean hasARRArtbook;
-    @Column(name = "hwartbookone")
+    @Column(table = COLLECTIBLES_TABLE, name = "hwartbookone")
     private boolean hasHWArtbookOne;
-    @Column(name = "hwartbooktwo")
+    @Column(table = COLLECTIBLES_TABLE, name = "hwartbooktwo")
     private boolean hasHWArtbookTwo;
-    @Column(name = "sbartbook")
+    @Column(table = COLLECTIBLES_TABLE, name = "sbartbook")
     private boolean hasSBArtbook;
-    @Column(name = "sbartbooktwo")
+    @Column(table = COLLECTIBLES_TABLE, name = "sbartbooktwo")
     private boolean hasSBArtbookTwo;
-    @Column(name = "hasencyclopedia")
+    @Column(table = COLLECTIBLES_TABLE, name = "hasencyclopedia")
     private boolean hasEncyclopediaEorzea;
-    @Column(name = "beforemeteor")
+    @Column(table = COLLECTIBLES_TABLE, name = "beforemeteor")
     private boolean hasBeforeMeteor;
-    @Column(name = "beforethefall")
+    @Column(table = COLLECTIBLES_TABLE, name = "beforethefall")
     private boolean hasBeforeTheFall;
-    @Column(name = "soundtrack")
+    @Column(table = COLLECTIBLES_TABLE, name = "soundtrack")
     private boolean hasSoundtrack;
-    @Column(name = "saweternalbond")
+    @Column(table = COLLECTIBLES_TABLE, name = "saweternalbond")
     private boolean hasAttendedEternalBond;
-    @Column(name = "sightseeing")
+    @Column(table = COLLECTIBLES_TABLE, name = "sightseeing")
     private boolean hasCompletedHWSightseeing;
-    @Column(name = "arr_25_complete")
+    @Column(table = COLLECTIBLES_TABLE, name = "arr_25_complete")
     private boolean hasCompleted2pt5;
-    @Column(name = "comm50")
+    @Column(table = COLLECTIBLES_TABLE, name = "comm50")
     private boolean hasFiftyComms;
-    @Column(name = "moogleplush")
+    @Column(table = COLLECTIBLES_TABLE, name = "moogleplush")
     private boolean hasMooglePlush;
-    @Column(name = "topazcarubuncleplush")
+    @Column(table = COLLECTIBLES_TABLE, name = "topazcarubuncleplush")
     private boolean hasTopazCarbunclePlush;
-    @Column(name = "emeraldcarbuncleplush")
+    @Column(table = COLLECTIBLES_TABLE, name = "emeraldcarbuncleplush")
     private boolean hasEmeraldCarbunclePlush;
-    @Column(name = "hildibrand")
+    @Column(table = COLLECTIBLES_TABLE, name = "hildibrand")
     private boolean hasCompletedHildibrand;
-    @Column(name = "ps4collectors")
+    @Column(table = COLLECTIBLES_TABLE, name = "ps4collectors")
     private boolean hasPS4Collectors;
-    @Column(name = "dideternalbond")
+    @Column(table = COLLECTIBLES_TABLE, name = "dideternalbond")
     private boolean hasEternalBond;
-    @Column(name = "arrcollector")
+    @Column(table = COLLECTIBLES_TABLE, name = "arrcollector")
     private boolean hasARRCollectors;
-    @Column(name = "kobold")
+    @Column(table = COLLECTIBLES_TABLE, name = "kobold")
     private boolean hasKobold;
-    @Column(name = "sahagin")
+    @Column(table = COLLECTIBLES_TABLE, name = "sahagin")
     private boolean hasSahagin;
-    @Column(name = "amaljaa")
+    @Column(table = COLLECTIBLES_TABLE, name = "amaljaa")
     private boolean hasAmaljaa;
-    @Column(name = "sylph")
+    @Column(table = COLLECTIBLES_TABLE, name = "sylph")
     private boolean hasSylph;
-    @Column(name = "moogle")
+    @Column(table = COLLECTIBLES_TABLE, name = "moogle")
     private boolean hasMoogle;
-    @Column(name = "vanuvanu")
+    @Column(table = COLLECTIBLES_TABLE, name = "vanuvanu")
     private boolean hasVanuVanu;
-    @Column(name = "vath")
+    @Column(table = COLLECTIBLES_TABLE, name = "vath")
     private boolean hasVath;
-    @Column(name = "hw_complete")
+    @Column(table = COLLECTIBLES_TABLE, name = "hw_complete")
     private boolean hasCompletedHW;
-    @Column(name = "sb_complete")
+    @Column(table = COLLECTIBLES_TABLE, name = "sb_complete")
     private boolean hasCompletedSB;
-    @Column(name = "hw_31_complete")
+    @Column(table = COLLECTIBLES_TABLE, name = "hw_31_complete")
     private boolean hasCompleted3pt1;
-    @Column(name = "hw_33_complete")
+    @Column(table = COLLECTIBLES_TABLE, name = "hw_33_complete")
     private boolean hasCompleted3pt3;
-    @Column(name = "legacy_player")
+    @Column(table = COLLECTIBLES_TABLE, name = "legacy_player")
     private boolean isLegacyPlayer;
-    @Column(name = "minions")
+    @Column(table = COLLECTIBLES_TABLE, name = "minions")
     @Convert(converter = StringListConverter.class)
     private List<String> minions;
-    @Column(name = "mounts")
+    @Column(table = COLLECTIBLES_TABLE, name = "mounts")
     @Convert(converter = StringListConverter.class)
     private List<String> mounts;
     @Column(name = "date_active")
@@ -161,6 +186,11 @@ public class PlayerBean {
     private boolean isActive;
     @Enumerated(EnumType.STRING)
     private CharacterStatus characterStatus = CharacterStatus.ACTIVE;
+    private Date lastCrawledAt;
+    private Date lastChangedAt;
+    private int failureCount;
+    private int crawlCount;
+    private int changeCount;
 
     public PlayerBean() {
     }
@@ -169,6 +199,11 @@ public class PlayerBean {
         return id;
     }
 
+    @Override
+    public int getShardKey() {
+        return id;
+    }
+
     public void setId(final int id) {
         this.id = id;
     }
@@ -182,11 +217,11 @@ public class PlayerBean {
     }
 
     public String getPlayerName() {
-        return name;
+        return playerName;
     }
 
     public void setPlayerName(final String playerName) {
-        this.name = playerName;
+        this.playerName = playerName;
     }
 
     public String getRace() {
@@ -850,4 +885,66 @@ public class PlayerBean {
     public void setCharacterStatus(final CharacterStatus characterStatus) {
         this.characterStatus = characterStatus;
     }
-}
\ No newline at end of file
+
+    public Date getLastCrawledAt() {
+        return lastCrawledAt;
+    }
+
+    public void setLastCrawledAt(final Date lastCrawledAt) {
+        this.lastCrawledAt = lastCrawledAt;
+    }
+
+    public Date getLastChangedAt() {
+        return lastChangedAt;
+    }
+
+    public void setLastChangedAt(final Date lastChangedAt) {
+        this.lastChangedAt = lastChangedAt;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(final int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public int getCrawlCount() {
+        return crawlCount;
+    }
+
+    public void setCrawlCount(final int crawlCount) {
+        this.crawlCount = crawlCount;
+    }
+
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    public void setChangeCount(final int changeCount) {
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Determines whether this character holds the same content as another, ignoring crawl bookkeeping.
+     * Dates are compared by day, as that is the precision they are stored with, and a missing list is treated as an empty one.
+     *
+     * @param other Character to compare against.
+     * @return true if every content field matches.
+     */
+    public boolean hasSameContentAs(final PlayerBean other) {
+        return PlayerBeanRowBinder.hasSameContent(this, other);
+    }
+
+    /**
+     * Fetches the content fields of this character that differ from another, ignoring crawl bookkeeping.
+     * Fields are compared as described in {@link #hasSameContentAs(PlayerBean)}.
+     *
+     * @param other Character to compare against, typically the previously stored version of this character.
+     * @return Map of field name to this character's value for each field that differs, in declaration order.
+     */
+    public Map<String, Object> getContentChanges(final PlayerBean other) {
+        return PlayerBeanRowBinder.getContentChanges(this, other);
+    }
+}
@@ -1,15 +1,24 @@
 package com.ffxivcensus.gatherer.player;
 
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ffxivcensus.gatherer.shard.ShardKey;
+import com.ffxivcensus.gatherer.shard.ShardedRepository;
+
 /**
  * Repository for CRUD actions for a given PlayerBean instance.
  * 
  * @author matthew.hillier
  */
-public interface PlayerBeanRepository extends CrudRepository<PlayerBean, Integer> {
+public interface PlayerBeanRepository extends CrudRepository<PlayerBean, Integer>, ShardedRepository {
 
     /**
      * Finds the top-most character by ID.
@@ -33,4 +42,70 @@ public interface PlayerBeanRepository extends CrudRepository<PlayerBean, Integer
     @Modifying
     @Transactional
     void deleteByIdGreaterThan(final Integer lastKnownId);
+
+    /**
+     * Finds the IDs of characters in the given Status, in ascending order, starting after the given ID.
+     * Used to page through large sets of characters without loading the full rows.
+     *
+     * @return Ascending list of Character IDs, limited by the given page.
+     */
+    @Query("SELECT p.id FROM PlayerBean p WHERE p.characterStatus = :status AND p.id > :afterId ORDER BY p.id")
+    List<Integer> findIdsByCharacterStatusAfter(@Param("status") final CharacterStatus characterStatus,
+                                                @Param("afterId") final int afterId,
+                                                final Pageable page);
+
+    /**
+     * Method to remove all characters in the given Status in a single statement.
+     * Collectible rows are removed by the cascading foreign key.
+     *
+     * @return The number of characters removed.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM tblplayers WHERE character_status = :status", nativeQuery = true)
+    int deleteByCharacterStatus(@Param("status") final String characterStatus);
+
+    /**
+     * Records a failed attempt to crawl a stored character, without loading or otherwise changing the character.
+     *
+     * @return The number of characters updated, which is 0 if the character is not stored.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PlayerBean p SET p.failureCount = p.failureCount + 1, p.lastCrawledAt = :crawledAt WHERE p.id = :id")
+    int recordFailure(@ShardKey @Param("id") final int id, @Param("crawledAt") final Date crawledAt);
+
+    /**
+     * Finds what is needed to predict whether each stored character within the given ID range has changed, in ascending ID order,
+     * starting after the given ID. Deleted characters are not included.
+     *
+     * @return Rows of [character ID, character status, date last active, last crawled at, crawl count, change count], limited by the
+     *         given page.
+     * @see com.ffxivcensus.gatherer.refresh.ChangeLikelihood
+     */
+    @Query("SELECT p.id, p.characterStatus, p.dateImgLastModified, p.lastCrawledAt, p.crawlCount, p.changeCount FROM PlayerBean p"
+           + " WHERE p.id > :afterId AND p.id <= :toId AND p.characterStatus <> com.ffxivcensus.gatherer.player.CharacterStatus.DELETED"
+           + " ORDER BY p.id")
+    List<Object[]> findRefreshCandidatesAfter(@Param("afterId") final int afterId, @Param("toId") final int toId, final Pageable page);
+
+    /**
+     * Finds what is needed to tell whether each stored character within the given ID range needs gathering again, in ascending ID order,
+     * starting after the given ID.
+     *
+     * @return Rows of [character ID, last crawled at, failure count], limited by the given page.
+     * @see com.ffxivcensus.gatherer.gapfill.GapFillPlan
+     */
+    @Query("SELECT p.id, p.lastCrawledAt, p.failureCount FROM PlayerBean p WHERE p.id > :afterId AND p.id <= :toId ORDER BY p.id")
+    List<Object[]> findGapCandidatesAfter(@Param("afterId") final int afterId, @Param("toId") final int toId, final Pageable page);
+
+    /**
+     * Summarises the characters within the given ID range by ID block and Status.
+     *
+     * @return Rows of [block number, character status, character count, highest ID].
+     * @see IdBlockSummary
+     */
+    @Query(value = "SELECT FLOOR(id / " + IdBlockSummary.BLOCK_SIZE + "), character_status, COUNT(*), MAX(id) FROM tblplayers"
+                   + " WHERE id BETWEEN :fromId AND :toId GROUP BY FLOOR(id / " + IdBlockSummary.BLOCK_SIZE + "), character_status",
+           nativeQuery = true)
+    List<Object[]> summariseBlocks(@Param("fromId") final int fromId, @Param("toId") final int toId);
 }
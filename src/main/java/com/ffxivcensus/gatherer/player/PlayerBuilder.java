@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.jsoup.nodes.Document;
@@ -15,11 +16,14 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.ffxivcensus.gatherer.lodestone.CharacterDeletedException;
 import com.ffxivcensus.gatherer.lodestone.LodestonePageLoader;
 import com.ffxivcensus.gatherer.lodestone.ProductionLodestonePageLoader;
+import com.ffxivcensus.gatherer.lodestone.RateLimitListener;
+import com.ffxivcensus.gatherer.lodestone.RateLimitedException;
 import com.ffxivcensus.gatherer.task.GathererTask;
 import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
@@ -58,8 +62,13 @@ public class PlayerBuilder {
     private static final int ACTIVITY_RANGE_DAYS = 30;
 
     private static final long ONE_DAY_IN_MILLIS = 86400000;
+    /** Most attempts to check whether a player exists while the Lodestone is rate limiting. */
+    private static final int EXISTS_ATTEMPTS = 5;
+    /** Half the wait before the first retry of a rate limited check, doubling with every attempt. */
+    private static final long EXISTS_BACKOFF_MILLIS = 10;
 
     private LodestonePageLoader pageLoader = new ProductionLodestonePageLoader();
+    private RateLimitListener rateLimitListener;
 
     /**
      * Set player class levels.
@@ -145,12 +154,66 @@ public class PlayerBuilder {
      * @throws Exception exception thrown if more class levels returned than anticipated.
      */
     public PlayerBean getPlayer(final int playerID) throws IOException, InterruptedException {
-        // Initialize player object to return
-        PlayerBean player = new PlayerBean();
-        player.setId(playerID);
-        // Declare HTML document
+        return parse(fetchPage(playerID));
+    }
+
+    /**
+     * Fetches everything needed to build a player from the lodestone: the profile page, and the last-modified date of the full body image.
+     * This is the only part of building a player that makes network requests.
+     *
+     * @param playerID the ID of the player to fetch
+     * @return the fetched page, which is marked as deleted if the player does not exist.
+     * @throws IOException exception thrown if the profile page cannot be fetched.
+     * @throws InterruptedException exception thrown if interrupted while fetching.
+     */
+    public CharacterPage fetchPage(final int playerID) throws IOException, InterruptedException {
         try {
             Document doc = pageLoader.getCharacterPage(playerID);
+            return new CharacterPage(playerID, doc, getDateLastUpdatedFromPage(doc, playerID));
+        } catch(CharacterDeletedException cde) {
+            return CharacterPage.deleted(playerID);
+        }
+    }
+
+    /**
+     * Determines whether a player exists on the lodestone, with a single request for the profile page.
+     * Only the frontier search probes for players, one at a time, so a rate limited request is waited out and tried again here.
+     *
+     * @param playerID the ID of the player to look for
+     * @return true if the player exists, false if it has been deleted or never existed.
+     * @throws IOException exception thrown if the profile page cannot be fetched, or is still rate limited after every attempt.
+     * @throws InterruptedException exception thrown if interrupted while fetching.
+     */
+    public boolean exists(final int playerID) throws IOException, InterruptedException {
+        for(int attempt = 1;; attempt++) {
+            try {
+                pageLoader.getCharacterPage(playerID);
+                return true;
+            } catch(CharacterDeletedException cde) {
+                return false;
+            } catch(RateLimitedException rle) {
+                if(attempt >= EXISTS_ATTEMPTS) {
+                    throw rle;
+                }
+                TimeUnit.MILLISECONDS.sleep(EXISTS_BACKOFF_MILLIS << attempt);
+            }
+        }
+    }
+
+    /**
+     * Builds a player from a fetched page, without making any network requests.
+     *
+     * @param page the page fetched by {@link #fetchPage(int)}
+     * @return the player object matching the page.
+     */
+    public PlayerBean parse(final CharacterPage page) {
+        // Initialize player object to return
+        PlayerBean player = new PlayerBean();
+        player.setId(page.getId());
+        if(page.isDeleted()) {
+            player.setCharacterStatus(CharacterStatus.DELETED);
+        } else {
+            Document doc = page.getDocument();
 
             player.setPlayerName(getNameFromPage(doc));
             player.setRealm(getRealmFromPage(doc));
@@ -158,7 +221,7 @@ public class PlayerBuilder {
             player.setGender(getGenderFromPage(doc));
             player.setGrandCompany(getGrandCompanyFromPage(doc));
             player.setFreeCompany(getFreeCompanyFromPage(doc));
-            player.setDateImgLastModified(getDateLastUpdatedFromPage(doc, playerID));
+            player.setDateImgLastModified(page.getImageLastModified());
             setLevels(player, getLevelsFromPage(doc));
             player.setMounts(getMountsFromPage(doc));
             player.setMinions(getMinionsFromPage(doc));
@@ -212,8 +275,6 @@ public class PlayerBuilder {
             player.setLegacyPlayer(doesPlayerHaveMount(player, "Legacy Chocobo"));
             player.setActive(isPlayerActiveInDateRange(player));
             player.setCharacterStatus(player.isActive() ? CharacterStatus.ACTIVE : CharacterStatus.INACTIVE);
-        } catch(CharacterDeletedException cde) {
-            player.setCharacterStatus(CharacterStatus.DELETED);
         }
         return player;
     }
@@ -463,5 +524,19 @@ public class PlayerBuilder {
      */
     public void setPageLoader(final LodestonePageLoader pageLoader) {
         this.pageLoader = pageLoader;
+        if(rateLimitListener != null) {
+            pageLoader.setRateLimitListener(rateLimitListener);
+        }
+    }
+
+    /**
+     * Sets a listener to tell whenever the Lodestone rate limits a request.
+     * 
+     * @param rateLimitListener the rateLimitListener to set
+     */
+    @Autowired(required = false)
+    public void setRateLimitListener(final RateLimitListener rateLimitListener) {
+        this.rateLimitListener = rateLimitListener;
+        pageLoader.setRateLimitListener(rateLimitListener);
     }
 }
@@ -0,0 +1,371 @@
+package com.ffxivcensus.gatherer.rebuild;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+import com.ffxivcensus.gatherer.player.PlayerBeanRowBinder;
+import com.ffxivcensus.gatherer.shard.ShardRouter;
+
+/**
+ * Rebuilds the character tables from a full crawl, without writing to the live tables while the crawl runs.
+ * <p>
+ * {@link #begin(int, int)} creates empty staging copies of {@value PlayerBean#PLAYERS_TABLE} and {@value PlayerBean#COLLECTIBLES_TABLE}
+ * on every shard. They are created from the live tables, so carry the schema Liquibase has applied to them, and their secondary indexes
+ * are dropped so that loading only maintains the primary key. Stored characters outside the crawled range are copied across unchanged.
+ * Gathered characters are then buffered, and written to the staging tables in JDBC batches of {@value #BATCH_SIZE}.
+ * <p>
+ * {@link #finish()} builds the secondary indexes, then swaps the staging tables in for the live ones with a single RENAME TABLE, so
+ * readers see either the old tables or the new ones. The old tables are then dropped, and the foreign key between the tables restored.
+ * <p>
+ * Staging relies on MySQL's CREATE TABLE ... LIKE, REPLACE and multi-table RENAME TABLE, so is only available on MySQL databases.
+ *
+ * @author fahy
+ */
+@Service
+public class StagingTableRebuild {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StagingTableRebuild.class);
+    /** Number of characters written to the staging tables per batch. */
+    static final int BATCH_SIZE = 1000;
+    private static final String STAGING_SUFFIX = "_staging";
+    private static final String OLD_SUFFIX = "_old";
+    /** Character tables, in the order they are written. */
+    private static final List<String> TABLES = Arrays.asList(PlayerBean.PLAYERS_TABLE, PlayerBean.COLLECTIBLES_TABLE);
+
+    private final ApplicationConfig appConfig;
+    private final DataSource dataSource;
+    private final ShardRouter shardRouter;
+    private final List<List<PlayerBean>> buffers = new ArrayList<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public StagingTableRebuild(@Autowired final ApplicationConfig appConfig, @Autowired final DataSource dataSource,
+                               @Autowired final ShardRouter shardRouter) {
+        this.appConfig = appConfig;
+        this.dataSource = dataSource;
+        this.shardRouter = shardRouter;
+        for(int i = 0; i < shardRouter.getShardCount(); i++) {
+            buffers.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Determines whether gathered characters should be written to the staging tables, rather than the live ones.
+     *
+     * @return true if running a rebuild.
+     */
+    public boolean isEnabled() {
+        return appConfig.isRebuild();
+    }
+
+    /**
+     * Creates fresh staging tables on every shard, replacing any left behind by an earlier run.
+     *
+     * @param startId First Character ID that will be gathered.
+     * @param endId Last Character ID that will be gathered.
+     * @throws SQLException if the staging tables cannot be created.
+     */
+    public void begin(final int startId, final int endId) throws SQLException {
+        written.set(0);
+        failed.set(0);
+        onEachShard(connection -> createStagingTables(connection, startId, endId));
+        LOG.info("Created staging tables for rebuild of characters {} to {}", startId, endId);
+    }
+
+    /**
+     * Adds a gathered character to the staging tables.
+     * The character is buffered, and the buffer for its shard written out once it holds a full batch.
+     *
+     * @param player Character to write.
+     * @throws SQLException if a batch cannot be written.
+     */
+    public void write(final PlayerBean player) throws SQLException {
+        int shard = shardRouter.shardFor(player.getId());
+        List<PlayerBean> batch = null;
+        synchronized(buffers) {
+            List<PlayerBean> buffer = buffers.get(shard);
+            buffer.add(player);
+            if(buffer.size() >= BATCH_SIZE) {
+                batch = buffer;
+                buffers.set(shard, new ArrayList<>());
+            }
+        }
+        if(batch != null) {
+            writeBatch(shard, batch);
+        }
+    }
+
+    /**
+     * Writes out every buffered character.
+     *
+     * @throws SQLException if a batch cannot be written.
+     */
+    public void flush() throws SQLException {
+        for(int shard = 0; shard < buffers.size(); shard++) {
+            List<PlayerBean> batch;
+            synchronized(buffers) {
+                batch = buffers.get(shard);
+                buffers.set(shard, new ArrayList<>());
+            }
+            if(!batch.isEmpty()) {
+                writeBatch(shard, batch);
+            }
+        }
+    }
+
+    /**
+     * Writes out every buffered character, builds the indexes of the staging tables and swaps them in for the live tables.
+     *
+     * @throws SQLException if any character could not be written to the staging tables, in which case the live tables are left unchanged,
+     *             or if the tables cannot be swapped.
+     */
+    public void finish() throws SQLException {
+        flush();
+        if(failed.get() > 0) {
+            throw new SQLException(failed.get() + " characters could not be written to the staging tables, so the live tables have been left"
+                                   + " unchanged");
+        }
+        LOG.info("Building indexes for {} gathered characters", written.get());
+        onEachShard(this::swapTables);
+        LOG.info("Swapped the staging tables in for the live character tables");
+    }
+
+    private void createStagingTables(final Connection connection, final int startId, final int endId) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        if(!product.toLowerCase().contains("mysql")) {
+            throw new SQLException("Rebuilding through staging tables is only supported on MySQL, not " + product);
+        }
+        try(Statement statement = connection.createStatement()) {
+            // The collectibles tables reference the players tables, so are dropped first
+            statement.execute("DROP TABLE IF EXISTS " + staging(PlayerBean.COLLECTIBLES_TABLE) + ", " + staging(PlayerBean.PLAYERS_TABLE)
+                              + ", " + old(PlayerBean.COLLECTIBLES_TABLE) + ", " + old(PlayerBean.PLAYERS_TABLE));
+            for(String table : TABLES) {
+                statement.execute("CREATE TABLE " + staging(table) + " LIKE " + table);
+                List<String> drops = new ArrayList<>();
+                for(TableIndex index : readIndexes(connection, staging(table))) {
+                    drops.add("DROP INDEX " + index.getName());
+                }
+                if(!drops.isEmpty()) {
+                    statement.execute("ALTER TABLE " + staging(table) + " " + String.join(", ", drops));
+                }
+            }
+        }
+        for(String table : TABLES) {
+            try(PreparedStatement copy = connection.prepareStatement("INSERT INTO " + staging(table) + " SELECT * FROM " + table
+                                                                     + " WHERE id < ? OR id > ?")) {
+                copy.setInt(1, startId);
+                copy.setInt(2, endId);
+                int copied = copy.executeUpdate();
+                LOG.debug("Copied {} rows outside the crawled range into {}", copied, staging(table));
+            }
+        }
+    }
+
+    private void writeBatch(final int shard, final List<PlayerBean> batch) throws SQLException {
+        try {
+            onShard(shard, connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    for(String table : TABLES) {
+                        try(PreparedStatement statement = connection.prepareStatement(replaceInto(table))) {
+                            for(PlayerBean player : batch) {
+                                PlayerBeanRowBinder.bind(statement, table, player);
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                    connection.commit();
+                } catch(SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            });
+            written.addAndGet(batch.size());
+        } catch(SQLException e) {
+            failed.addAndGet(batch.size());
+            throw e;
+        }
+    }
+
+    private void swapTables(final Connection connection) throws SQLException {
+        List<String> foreignKeys = readForeignKeys(connection, PlayerBean.COLLECTIBLES_TABLE);
+        try(Statement statement = connection.createStatement()) {
+            for(String table : TABLES) {
+                List<String> adds = new ArrayList<>();
+                for(TableIndex index : readIndexes(connection, table)) {
+                    adds.add(index.toAddClause());
+                }
+                if(!adds.isEmpty()) {
+                    statement.execute("ALTER TABLE " + staging(table) + " " + String.join(", ", adds));
+                }
+            }
+
+            // A single RENAME TABLE swaps every table atomically
+            List<String> renames = new ArrayList<>();
+            for(String table : TABLES) {
+                renames.add(table + " TO " + old(table));
+                renames.add(staging(table) + " TO " + table);
+            }
+            statement.execute("RENAME TABLE " + String.join(", ", renames));
+            statement.execute("DROP TABLE " + old(PlayerBean.COLLECTIBLES_TABLE) + ", " + old(PlayerBean.PLAYERS_TABLE));
+
+            // The foreign key names are free again now the old tables are gone, and the staging rows need not be checked again
+            if(!foreignKeys.isEmpty()) {
+                statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+                try {
+                    statement.execute("ALTER TABLE " + PlayerBean.COLLECTIBLES_TABLE + " " + String.join(", ", foreignKeys));
+                } finally {
+                    statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the secondary indexes of a table.
+     */
+    private static List<TableIndex> readIndexes(final Connection connection, final String table) throws SQLException {
+        Map<String, TableIndex> indexes = new LinkedHashMap<>();
+        try(ResultSet results = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+            while(results.next()) {
+                String name = results.getString("INDEX_NAME");
+                if(name == null || "PRIMARY".equalsIgnoreCase(name) || results.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                TableIndex index = indexes.get(name);
+                if(index == null) {
+                    index = new TableIndex(name, !results.getBoolean("NON_UNIQUE"));
+                    indexes.put(name, index);
+                }
+                index.getColumns().add(results.getString("COLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(indexes.values());
+    }
+
+    /**
+     * Reads the foreign keys of a table, as clauses to add them back with ALTER TABLE.
+     */
+    private static List<String> readForeignKeys(final Connection connection, final String table) throws SQLException {
+        Map<String, String[]> keys = new LinkedHashMap<>();
+        try(ResultSet results = connection.getMetaData().getImportedKeys(connection.getCatalog(), null, table)) {
+            while(results.next()) {
+                String name = results.getString("FK_NAME");
+                String[] key = keys.get(name);
+                if(key == null) {
+                    String onDelete = results.getShort("DELETE_RULE") == DatabaseMetaData.importedKeyCascade ? " ON DELETE CASCADE" : "";
+                    key = new String[] {"", results.getString("PKTABLE_NAME"), "", onDelete};
+                    keys.put(name, key);
+                }
+                key[0] += (key[0].isEmpty() ? "" : ", ") + results.getString("FKCOLUMN_NAME");
+                key[2] += (key[2].isEmpty() ? "" : ", ") + results.getString("PKCOLUMN_NAME");
+            }
+        }
+        List<String> clauses = new ArrayList<>();
+        for(Map.Entry<String, String[]> key : keys.entrySet()) {
+            String[] parts = key.getValue();
+            clauses.add("ADD CONSTRAINT " + key.getKey() + " FOREIGN KEY (" + parts[0] + ") REFERENCES " + parts[1] + " (" + parts[2] + ")"
+                        + parts[3]);
+        }
+        return clauses;
+    }
+
+    /**
+     * Builds the statement writing a batch to the staging copy of a table.
+     * REPLACE makes writing a character that is already staged, such as one copied from outside the crawled range, overwrite it.
+     */
+    static String replaceInto(final String table) {
+        List<String> columns = PlayerBeanRowBinder.getColumnNames(table);
+        StringBuilder placeholders = new StringBuilder();
+        for(int i = 0; i < columns.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return "REPLACE INTO " + staging(table) + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+    }
+
+    static String staging(final String table) {
+        return table + STAGING_SUFFIX;
+    }
+
+    private static String old(final String table) {
+        return table + OLD_SUFFIX;
+    }
+
+    private void onEachShard(final ShardWork work) throws SQLException {
+        for(int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            onShard(shard, work);
+        }
+    }
+
+    private void onShard(final int shard, final ShardWork work) throws SQLException {
+        try {
+            shardRouter.onShard(shard, () -> {
+                try(Connection connection = dataSource.getConnection()) {
+                    work.run(connection);
+                }
+                return null;
+            });
+        } catch(SQLException | RuntimeException e) {
+            throw e;
+        } catch(Exception e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Work run against a connection to a single shard.
+     */
+    private interface ShardWork {
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * A secondary index of a table, with its columns in index order.
+     */
+    private static class TableIndex {
+
+        private final String name;
+        private final boolean unique;
+        private final List<String> columns = new ArrayList<>();
+
+        TableIndex(final String name, final boolean unique) {
+            this.name = name;
+            this.unique = unique;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        String toAddClause() {
+            return "ADD " + (unique ? "UNIQUE " : "") + "INDEX " + name + " (" + String.join(", ", columns) + ")";
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ffxivcensus.gatherer.refresh;
+
+import java.util.Date;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+
+/**
+ * Predicts how likely a stored character is to have changed since it was last crawled.
+ * <p>
+ * Each character starts from a prior chance of changing between crawls a {@value #REFERENCE_INTERVAL_DAYS} days apart, which depends on
+ * its status and decays with the time since it was last active, as a character that has not logged in for a long time rarely changes.
+ * The prior is then blended with the character's own change history: the share of its re-crawls that found it changed, with the prior
+ * counting as {@value #PRIOR_WEIGHT} re-crawls so that a short history does not outweigh it. Finally, treating changes as arriving at a
+ * steady rate, the chance is scaled to the time since the character was last crawled.
+ *
+ * @author fahy
+ */
+public final class ChangeLikelihood {
+
+    private static final double MILLIS_PER_DAY = 24d * 60 * 60 * 1000;
+    /** Days between crawls that the change chances are measured over. */
+    static final int REFERENCE_INTERVAL_DAYS = 30;
+    /** Chance of an active character that was active today changing between crawls. */
+    private static final double ACTIVE_PRIOR = 0.6;
+    /** Chance of an inactive character that was active today changing between crawls. */
+    private static final double INACTIVE_PRIOR = 0.15;
+    /** Chance of a character that has not been active for a long time changing between crawls. */
+    private static final double DORMANT_PRIOR = 0.02;
+    /** Days over which the prior decays towards {@link #DORMANT_PRIOR} since the character was last active. */
+    private static final double ACTIVITY_DECAY_DAYS = 60;
+    /** Number of re-crawls the prior counts as when blended with the observed change history. */
+    static final int PRIOR_WEIGHT = 4;
+    /** Days since a character was last crawled, beyond which it is not considered any staler. */
+    static final int MAX_STALENESS_DAYS = 365;
+    /** Highest chance of changing between crawls, so that the chance can still be scaled by staleness. */
+    private static final double MAX_CHANCE = 0.99;
+
+    private ChangeLikelihood() {
+    }
+
+    /**
+     * Predicts the chance of a character having changed since it was last crawled.
+     *
+     * @param status Stored status of the character.
+     * @param dateActive Date the character was last active, or null if not known.
+     * @param lastCrawledAt Time the character was last crawled, or null if it has not been crawled since crawls were recorded.
+     * @param crawlCount Number of times the character has been crawled.
+     * @param changeCount Number of re-crawls that found the character changed.
+     * @param now Current time, in milliseconds.
+     * @return Chance of the character having changed, between 0 and 1.
+     */
+    public static double estimate(final CharacterStatus status, final Date dateActive, final Date lastCrawledAt, final int crawlCount,
+                                  final int changeCount, final long now) {
+        if(status == CharacterStatus.DELETED) {
+            return 0;
+        }
+        double prior = prior(status, dateActive, now);
+        int recrawls = Math.max(0, crawlCount - 1);
+        double perInterval = Math.min(MAX_CHANCE, (Math.min(changeCount, recrawls) + prior * PRIOR_WEIGHT) / (recrawls + PRIOR_WEIGHT));
+        double staleDays = lastCrawledAt == null ? MAX_STALENESS_DAYS
+                                                 : Math.min(MAX_STALENESS_DAYS, Math.max(0, daysBetween(lastCrawledAt, now)));
+        return 1 - Math.pow(1 - perInterval, staleDays / REFERENCE_INTERVAL_DAYS);
+    }
+
+    /**
+     * Fetches the chance of a character changing between crawls, before taking its change history into account.
+     */
+    static double prior(final CharacterStatus status, final Date dateActive, final long now) {
+        double statusPrior = status == CharacterStatus.ACTIVE ? ACTIVE_PRIOR : INACTIVE_PRIOR;
+        if(dateActive == null) {
+            return DORMANT_PRIOR;
+        }
+        double recency = Math.exp(-Math.max(0, daysBetween(dateActive, now)) / ACTIVITY_DECAY_DAYS);
+        return DORMANT_PRIOR + (statusPrior - DORMANT_PRIOR) * recency;
+    }
+
+    private static double daysBetween(final Date date, final long now) {
+        return (now - date.getTime()) / MILLIS_PER_DAY;
+    }
+}
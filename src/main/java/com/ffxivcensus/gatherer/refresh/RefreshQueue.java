@@ -0,0 +1,93 @@
+package com.ffxivcensus.gatherer.refresh;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+/**
+ * Characters chosen for refreshing, issued most likely to have changed first.
+ * Built by the {@link RefreshScheduler}, and gathered by the same pipeline or dispatcher as a linear sweep.
+ *
+ * @author fahy
+ */
+public class RefreshQueue implements IdAllocator {
+
+    private final int[] ids;
+    private final double expectedChanges;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    /**
+     * Creates a new queue.
+     *
+     * @param ids Character IDs to refresh, most likely to have changed first.
+     * @param expectedChanges Number of the characters predicted to have changed.
+     */
+    public RefreshQueue(final int[] ids, final double expectedChanges) {
+        this.ids = ids;
+        this.expectedChanges = expectedChanges;
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new IdSource() {
+            @Override
+            public int nextId() {
+                return RefreshQueue.this.nextId();
+            }
+
+            @Override
+            public void complete(final int id) {
+                RefreshQueue.this.complete(id);
+            }
+        };
+    }
+
+    @Override
+    public void complete(final int id) {
+        completed.incrementAndGet();
+    }
+
+    @Override
+    public String describeProgress() {
+        return String.format("Refreshed %d of the %d characters most likely to have changed", completed.get(), ids.length);
+    }
+
+    private int nextId() {
+        int index = next.getAndIncrement();
+        if(index >= ids.length) {
+            // Keep the index from wrapping around, however many more times the queue is asked
+            next.set(ids.length);
+            return IdSource.EXHAUSTED;
+        }
+        return ids[index];
+    }
+
+    /**
+     * Fetches the number of characters in the queue.
+     *
+     * @return Number of characters chosen for refreshing.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Fetches the number of characters in the queue predicted to have changed, which is the sum of their chances of having changed.
+     *
+     * @return Expected number of changed characters.
+     */
+    public double getExpectedChanges() {
+        return expectedChanges;
+    }
+
+    /**
+     * Fetches the number of characters that have been refreshed so far.
+     *
+     * @return Number of characters refreshed.
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+}
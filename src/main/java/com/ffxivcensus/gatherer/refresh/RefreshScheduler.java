@@ -0,0 +1,103 @@
+package com.ffxivcensus.gatherer.refresh;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+
+/**
+ * Chooses which stored characters to refresh, when only a limited number of requests may be spent on the Lodestone.
+ * <p>
+ * Every stored character in the range is scored by its {@link ChangeLikelihood}, and a priority queue keeps the characters with the
+ * highest scores up to the request budget, so that scheduling reads through the characters once, in pages, while only ever holding the
+ * budget's worth of candidates. The chosen characters are then issued most likely to have changed first, so that if the run is cut short
+ * the requests already spent have found as many changes as possible.
+ *
+ * @author fahy
+ */
+@Service
+public class RefreshScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshScheduler.class);
+    /** Number of characters read from the database at a time. */
+    static final int PAGE_SIZE = 10000;
+
+    private final PlayerBeanRepository playerRepository;
+
+    public RefreshScheduler(@Autowired final PlayerBeanRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    /**
+     * Chooses the characters within the given range most likely to have changed.
+     *
+     * @param startId First Character ID to consider.
+     * @param finishId Last Character ID to consider.
+     * @param budget Most characters to choose.
+     * @return Chosen characters, most likely to have changed first.
+     */
+    public RefreshQueue schedule(final int startId, final int finishId, final int budget) {
+        long now = System.currentTimeMillis();
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Math.max(1, Math.min(budget, PAGE_SIZE)), Candidate.BY_LIKELIHOOD);
+        long considered = 0;
+        int afterId = startId - 1;
+        List<Object[]> rows = playerRepository.findRefreshCandidatesAfter(afterId, finishId, new PageRequest(0, PAGE_SIZE));
+        while(!rows.isEmpty() && budget > 0) {
+            for(Object[] row : rows) {
+                Candidate candidate = new Candidate(((Number) row[0]).intValue(),
+                                                    ChangeLikelihood.estimate((CharacterStatus) row[1], (Date) row[2], (Date) row[3],
+                                                                              ((Number) row[4]).intValue(), ((Number) row[5]).intValue(),
+                                                                              now));
+                if(best.size() < budget) {
+                    best.add(candidate);
+                } else if(Candidate.BY_LIKELIHOOD.compare(candidate, best.peek()) > 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+                afterId = candidate.id;
+            }
+            considered += rows.size();
+            rows = playerRepository.findRefreshCandidatesAfter(afterId, finishId, new PageRequest(0, PAGE_SIZE));
+        }
+
+        // Drain the least likely first, filling the queue from the back
+        int[] ids = new int[best.size()];
+        double expectedChanges = 0;
+        for(int i = ids.length - 1; i >= 0; i--) {
+            Candidate candidate = best.poll();
+            ids[i] = candidate.id;
+            expectedChanges += candidate.likelihood;
+        }
+        LOG.info("Scheduled {} of {} stored characters from #{} to #{} for refreshing, expecting {} to have changed",
+                 ids.length, considered, startId, finishId, Math.round(expectedChanges));
+        return new RefreshQueue(ids, expectedChanges);
+    }
+
+    /**
+     * Character considered for refreshing, with its chance of having changed.
+     */
+    private static class Candidate {
+
+        /** Orders candidates least likely to have changed first, breaking ties by preferring lower IDs. */
+        static final Comparator<Candidate> BY_LIKELIHOOD = Comparator.<Candidate> comparingDouble(c -> c.likelihood)
+                                                                     .thenComparing(Comparator.<Candidate> comparingInt(c -> c.id)
+                                                                                              .reversed());
+
+        final int id;
+        final double likelihood;
+
+        Candidate(final int id, final double likelihood) {
+            this.id = id;
+            this.likelihood = likelihood;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.ffxivcensus.gatherer.sample;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estimated population counts from a {@link StratifiedSample}, each with a 95% confidence interval.
+ * <p>
+ * Counts are grouped into dimensions, such as realm or race, and within each dimension into categories, such as each realm. For every
+ * category, the count in each stratum is estimated by scaling the fraction of sampled characters in the category up to the stratum's
+ * population, and the estimates of every stratum are summed. The variance of each stratum's estimate is that of a proportion sampled
+ * without replacement, and the variances are summed the same way.
+ * <p>
+ * A stratum in which no sampled character was gathered, such as one the run never reached, says nothing about its population, so the
+ * estimates only cover the strata with responses. The IDs left uncovered are reported separately, rather than being counted as having no
+ * characters.
+ *
+ * @author fahy
+ */
+public class CensusEstimate {
+
+    /** Normal quantile for a two-sided 95% confidence interval. */
+    static final double Z_95 = 1.959964;
+
+    private final Map<String, Map<String, Estimate>> dimensions = new LinkedHashMap<>();
+    private final long sampled;
+    private final long failed;
+    private final long population;
+    private final long uncovered;
+    private final int uncoveredStrata;
+
+    /**
+     * Creates a new estimate from the tallies of every stratum.
+     *
+     * @param tallies Tally of the sampled characters in each stratum, in the same order as the strata.
+     * @param strata Strata of the sample.
+     */
+    CensusEstimate(final List<Tally> tallies, final List<StratifiedSample.Stratum> strata) {
+        long sampledCount = 0;
+        long failedCount = 0;
+        long populationCount = 0;
+        long uncoveredCount = 0;
+        int uncoveredStrataCount = 0;
+        Map<String, Map<String, double[]>> sums = new LinkedHashMap<>();
+        for(int h = 0; h < strata.size(); h++) {
+            Tally tally = tallies.get(h);
+            int population = strata.get(h).getPopulation();
+            sampledCount += tally.getResponses();
+            failedCount += tally.getFailures();
+            int n = tally.getResponses();
+            if(n == 0) {
+                // Nothing is known about a stratum where no sampled character was gathered
+                uncoveredCount += population;
+                uncoveredStrataCount++;
+                continue;
+            }
+            populationCount += population;
+            double finiteCorrection = 1 - (double) n / population;
+            for(Map.Entry<String, Map<String, Integer>> dimension : tally.getCounts().entrySet()) {
+                Map<String, double[]> categories = sums.computeIfAbsent(dimension.getKey(), key -> new TreeMap<>());
+                for(Map.Entry<String, Integer> category : dimension.getValue().entrySet()) {
+                    double proportion = (double) category.getValue() / n;
+                    double[] sum = categories.computeIfAbsent(category.getKey(), key -> new double[2]);
+                    sum[0] += population * proportion;
+                    if(n > 1) {
+                        sum[1] += (double) population * population * finiteCorrection * proportion * (1 - proportion) / (n - 1);
+                    }
+                }
+            }
+        }
+        for(Map.Entry<String, Map<String, double[]>> dimension : sums.entrySet()) {
+            Map<String, Estimate> estimates = new LinkedHashMap<>();
+            for(Map.Entry<String, double[]> category : dimension.getValue().entrySet()) {
+                estimates.put(category.getKey(), new Estimate(category.getValue()[0], Math.sqrt(category.getValue()[1])));
+            }
+            dimensions.put(dimension.getKey(), estimates);
+        }
+        this.sampled = sampledCount;
+        this.failed = failedCount;
+        this.population = populationCount;
+        this.uncovered = uncoveredCount;
+        this.uncoveredStrata = uncoveredStrataCount;
+    }
+
+    /**
+     * Fetches the estimates of every category within a dimension.
+     *
+     * @param dimension Dimension, such as "realm".
+     * @return Estimates keyed by category, in alphabetical order, or an empty map if nothing in the sample fell in the dimension.
+     */
+    public Map<String, Estimate> getEstimates(final String dimension) {
+        Map<String, Estimate> estimates = dimensions.get(dimension);
+        return estimates != null ? Collections.unmodifiableMap(estimates) : Collections.emptyMap();
+    }
+
+    /**
+     * Fetches the number of sampled characters the estimates are based on.
+     *
+     * @return Number of characters gathered, leaving out those that failed.
+     */
+    public long getSampled() {
+        return sampled;
+    }
+
+    /**
+     * Fetches the number of IDs the estimates stand for.
+     *
+     * @return Number of IDs in the strata in which at least one sampled character was gathered.
+     */
+    public long getPopulation() {
+        return population;
+    }
+
+    /**
+     * Fetches the number of IDs the estimates do not cover, as no sampled character in their stratum was gathered.
+     *
+     * @return Number of IDs left out of the estimates.
+     */
+    public long getUncovered() {
+        return uncovered;
+    }
+
+    /**
+     * Describes every estimate, a line at a time, for logging.
+     *
+     * @return Lines of the report.
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Estimated from %d sampled characters (%d failed) standing for %d IDs", sampled, failed, population));
+        if(uncovered > 0) {
+            lines.add(String.format("Not covered: %d IDs in %d ID blocks with no gathered characters (%.1f%% of the range)", uncovered,
+                                    uncoveredStrata, 100.0 * uncovered / (population + uncovered)));
+        }
+        for(Map.Entry<String, Map<String, Estimate>> dimension : dimensions.entrySet()) {
+            for(Map.Entry<String, Estimate> category : dimension.getValue().entrySet()) {
+                Estimate estimate = category.getValue();
+                lines.add(String.format("%s %s: %.0f (95%% CI %.0f to %.0f)", dimension.getKey(), category.getKey(), estimate.getTotal(),
+                                        estimate.getLower(), estimate.getUpper()));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Estimated population count of a single category.
+     */
+    public static class Estimate {
+
+        private final double total;
+        private final double standardError;
+
+        Estimate(final double total, final double standardError) {
+            this.total = total;
+            this.standardError = standardError;
+        }
+
+        public double getTotal() {
+            return total;
+        }
+
+        public double getStandardError() {
+            return standardError;
+        }
+
+        /**
+         * Fetches the lower bound of the 95% confidence interval, which is never below 0.
+         *
+         * @return Lower bound.
+         */
+        public double getLower() {
+            return Math.max(0, total - Z_95 * standardError);
+        }
+
+        /**
+         * Fetches the upper bound of the 95% confidence interval.
+         *
+         * @return Upper bound.
+         */
+        public double getUpper() {
+            return total + Z_95 * standardError;
+        }
+    }
+
+    /**
+     * Counts of the sampled characters in each category of a single stratum.
+     */
+    static class Tally {
+
+        private final Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        private int responses;
+        private int failures;
+
+        void count(final String dimension, final String category) {
+            counts.computeIfAbsent(dimension, key -> new LinkedHashMap<>()).merge(category, 1, Integer::sum);
+        }
+
+        void respond() {
+            responses++;
+        }
+
+        void fail() {
+            failures++;
+        }
+
+        Map<String, Map<String, Integer>> getCounts() {
+            return counts;
+        }
+
+        int getResponses() {
+            return responses;
+        }
+
+        int getFailures() {
+            return failures;
+        }
+    }
+}
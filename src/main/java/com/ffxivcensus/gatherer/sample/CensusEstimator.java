@@ -0,0 +1,130 @@
+package com.ffxivcensus.gatherer.sample;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+
+/**
+ * Estimates a census of the whole range from the characters gathered by a {@link StratifiedSample}.
+ * <p>
+ * Once the sample has been gathered, the sampled characters are read back from the database a page at a time, and tallied by status,
+ * realm, race and each class they have levelled. A sampled ID that was gathered but is not stored belongs to a character that has been
+ * deleted, or was never created, so it counts towards the deleted status and nothing else. Sampled IDs that failed, or were never
+ * reached because the run was cut short, are left out, as nothing is known about them now.
+ *
+ * @author fahy
+ */
+@Service
+public class CensusEstimator {
+
+    /** Number of sampled characters read from the database at a time. */
+    static final int PAGE_SIZE = 1000;
+    static final String STATUS = "status";
+    static final String REALM = "realm";
+    static final String RACE = "race";
+    static final String CLASS = "class";
+
+    private static final Map<String, ToIntFunction<PlayerBean>> CLASS_LEVELS = classLevels();
+
+    private final PlayerBeanRepository playerRepository;
+
+    public CensusEstimator(@Autowired final PlayerBeanRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    /**
+     * Estimates the census from a gathered sample.
+     *
+     * @param sample Sample, once gathered.
+     * @return Estimated population counts.
+     */
+    public CensusEstimate estimate(final StratifiedSample sample) {
+        List<CensusEstimate.Tally> tallies = new ArrayList<>();
+        for(StratifiedSample.Stratum stratum : sample.getStrata()) {
+            CensusEstimate.Tally tally = new CensusEstimate.Tally();
+            int[] ids = stratum.getIds();
+            for(int from = 0; from < ids.length; from += PAGE_SIZE) {
+                List<Integer> page = new ArrayList<>();
+                for(int i = from; i < Math.min(ids.length, from + PAGE_SIZE); i++) {
+                    if(sample.isGathered(ids[i])) {
+                        page.add(ids[i]);
+                    } else if(sample.isFailed(ids[i])) {
+                        tally.fail();
+                    }
+                }
+                tallyPage(page, tally);
+            }
+            tallies.add(tally);
+        }
+        return new CensusEstimate(tallies, sample.getStrata());
+    }
+
+    private void tallyPage(final List<Integer> page, final CensusEstimate.Tally tally) {
+        if(page.isEmpty()) {
+            return;
+        }
+        Map<Integer, PlayerBean> stored = new HashMap<>();
+        for(PlayerBean player : playerRepository.findAll(page)) {
+            stored.put(player.getId(), player);
+        }
+        for(Integer id : page) {
+            tally.respond();
+            PlayerBean player = stored.get(id);
+            if(player == null || CharacterStatus.DELETED.equals(player.getCharacterStatus())) {
+                tally.count(STATUS, CharacterStatus.DELETED.name());
+                continue;
+            }
+            tally.count(STATUS, player.getCharacterStatus().name());
+            tally.count(REALM, player.getRealm());
+            tally.count(RACE, player.getRace());
+            for(Map.Entry<String, ToIntFunction<PlayerBean>> level : CLASS_LEVELS.entrySet()) {
+                if(level.getValue().applyAsInt(player) > 0) {
+                    tally.count(CLASS, level.getKey());
+                }
+            }
+        }
+    }
+
+    private static Map<String, ToIntFunction<PlayerBean>> classLevels() {
+        Map<String, ToIntFunction<PlayerBean>> levels = new LinkedHashMap<>();
+        levels.put("Gladiator", PlayerBean::getLevelGladiator);
+        levels.put("Pugilist", PlayerBean::getLevelPugilist);
+        levels.put("Marauder", PlayerBean::getLevelMarauder);
+        levels.put("Lancer", PlayerBean::getLevelLancer);
+        levels.put("Archer", PlayerBean::getLevelArcher);
+        levels.put("Rogue", PlayerBean::getLevelRogue);
+        levels.put("Conjurer", PlayerBean::getLevelConjurer);
+        levels.put("Thaumaturge", PlayerBean::getLevelThaumaturge);
+        levels.put("Arcanist", PlayerBean::getLevelArcanist);
+        levels.put("Dark Knight", PlayerBean::getLevelDarkknight);
+        levels.put("Machinist", PlayerBean::getLevelMachinist);
+        levels.put("Astrologian", PlayerBean::getLevelAstrologian);
+        levels.put("Scholar", PlayerBean::getLevelScholar);
+        levels.put("Red Mage", PlayerBean::getLevelRedmage);
+        levels.put("Samurai", PlayerBean::getLevelSamurai);
+        levels.put("Blue Mage", PlayerBean::getLevelBluemage);
+        levels.put("Carpenter", PlayerBean::getLevelCarpenter);
+        levels.put("Blacksmith", PlayerBean::getLevelBlacksmith);
+        levels.put("Armorer", PlayerBean::getLevelArmorer);
+        levels.put("Goldsmith", PlayerBean::getLevelGoldsmith);
+        levels.put("Leatherworker", PlayerBean::getLevelLeatherworker);
+        levels.put("Weaver", PlayerBean::getLevelWeaver);
+        levels.put("Alchemist", PlayerBean::getLevelAlchemist);
+        levels.put("Culinarian", PlayerBean::getLevelCulinarian);
+        levels.put("Miner", PlayerBean::getLevelMiner);
+        levels.put("Botanist", PlayerBean::getLevelBotanist);
+        levels.put("Fisher", PlayerBean::getLevelFisher);
+        levels.put("Eureka", PlayerBean::getLevelEureka);
+        return levels;
+    }
+}
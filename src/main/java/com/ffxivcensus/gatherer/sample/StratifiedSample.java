@@ -0,0 +1,236 @@
+package com.ffxivcensus.gatherer.sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+/**
+ * Stratified random sample of the Character IDs in a range, to estimate a census from without gathering every character.
+ * <p>
+ * IDs are handed out in order of creation, so the characters in one ID block were created at about the same time and tend to be
+ * alike. Each ID block is therefore a stratum, and the same fraction of every stratum is sampled, chosen at random without
+ * replacement. Estimating each stratum separately removes the differences between blocks from the sampling error, which makes the
+ * estimates much tighter than a simple random sample of the same size. At least {@value #MIN_PER_STRATUM} IDs are sampled from each
+ * stratum, so that every stratum has a variance.
+ * <p>
+ * The sampled IDs are issued in ascending order, and whether each has been gathered is recorded, so that IDs that failed or were never
+ * reached can be left out of the estimates rather than counted as characters that do not exist.
+ *
+ * @author fahy
+ * @see CensusEstimator
+ */
+public class StratifiedSample implements IdAllocator {
+
+    /** Fewest IDs sampled from each stratum. */
+    static final int MIN_PER_STRATUM = 2;
+    private static final int GATHERED = 1;
+    private static final int FAILED = 2;
+
+    private final double sampleRate;
+    private final List<Stratum> strata = new ArrayList<>();
+    private final int[] ids;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    /** Whether each sampled ID, in the same order, has been gathered or has failed. */
+    private final AtomicIntegerArray outcomes;
+
+    /**
+     * Draws a new sample of the IDs from the start ID to the finish ID, both inclusive.
+     *
+     * @param startId First ID of the range.
+     * @param finishId Last ID of the range.
+     * @param sampleRate Fraction of each stratum to sample, greater than 0 and at most 1.
+     * @param random Source of randomness to draw the sample with.
+     */
+    public StratifiedSample(final int startId, final int finishId, final double sampleRate, final Random random) {
+        this.sampleRate = sampleRate;
+        int total = 0;
+        for(int block = IdBlockSummary.blockOf(startId); startId <= finishId && block <= IdBlockSummary.blockOf(finishId); block++) {
+            int firstId = Math.max(startId, IdBlockSummary.firstIdOf(block));
+            int lastId = Math.min(finishId, IdBlockSummary.lastIdOf(block));
+            Stratum stratum = new Stratum(firstId, lastId, draw(firstId, lastId, random));
+            strata.add(stratum);
+            total += stratum.ids.length;
+        }
+        this.ids = new int[total];
+        int index = 0;
+        for(Stratum stratum : strata) {
+            System.arraycopy(stratum.ids, 0, ids, index, stratum.ids.length);
+            index += stratum.ids.length;
+        }
+        this.outcomes = new AtomicIntegerArray(total);
+    }
+
+    /**
+     * Draws the sampled IDs of a single stratum by Floyd's algorithm, which picks each ID with equal chance in as many steps as IDs
+     * are picked.
+     *
+     * @return Sampled IDs, in ascending order.
+     */
+    private int[] draw(final int firstId, final int lastId, final Random random) {
+        int size = lastId - firstId + 1;
+        int count = (int) Math.min(size, Math.max(MIN_PER_STRATUM, Math.round(sampleRate * size)));
+        Set<Integer> chosen = new HashSet<>(count * 2);
+        for(int candidate = size - count; candidate < size; candidate++) {
+            int offset = random.nextInt(candidate + 1);
+            chosen.add(chosen.contains(offset) ? candidate : offset);
+        }
+        int[] drawn = new int[count];
+        int index = 0;
+        for(int offset : chosen) {
+            drawn[index++] = firstId + offset;
+        }
+        Arrays.sort(drawn);
+        return drawn;
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new IdSource() {
+            @Override
+            public int nextId() {
+                return StratifiedSample.this.nextId();
+            }
+
+            @Override
+            public void complete(final int id) {
+                StratifiedSample.this.complete(id);
+            }
+
+            @Override
+            public void fail(final int id) {
+                StratifiedSample.this.fail(id);
+            }
+        };
+    }
+
+    private int nextId() {
+        int index = next.getAndIncrement();
+        if(index >= ids.length) {
+            // Keep the index from wrapping around, however many more times the sample is asked
+            next.set(ids.length);
+            return IdSource.EXHAUSTED;
+        }
+        return ids[index];
+    }
+
+    @Override
+    public void complete(final int id) {
+        record(id, GATHERED);
+    }
+
+    @Override
+    public void fail(final int id) {
+        if(record(id, FAILED)) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private boolean record(final int id, final int outcome) {
+        int index = Arrays.binarySearch(ids, id);
+        if(index >= 0 && outcomes.compareAndSet(index, 0, outcome)) {
+            completed.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String describeProgress() {
+        return String.format("Sampled %d of %d characters (%d failed) across %d ID blocks", completed.get(), ids.length, failed.get(),
+                             strata.size());
+    }
+
+    /**
+     * Fetches the strata of the sample, in ascending order of ID.
+     *
+     * @return Strata, one for each ID block the range covers.
+     */
+    public List<Stratum> getStrata() {
+        return Collections.unmodifiableList(strata);
+    }
+
+    /**
+     * Determines whether a sampled ID has been gathered, so that what is stored for it stands for the character now.
+     *
+     * @param id Sampled Character ID.
+     * @return true if the ID has been gathered, false if it failed or has not been reached.
+     */
+    public boolean isGathered(final int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 && outcomes.get(index) == GATHERED;
+    }
+
+    /**
+     * Determines whether a sampled ID could not be gathered.
+     *
+     * @param id Sampled Character ID.
+     * @return true if gathering the ID failed.
+     */
+    public boolean isFailed(final int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 && outcomes.get(index) == FAILED;
+    }
+
+    /**
+     * Fetches the number of IDs in the sample.
+     *
+     * @return Number of sampled IDs.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * The part of the range within a single ID block, along with the IDs sampled from it.
+     */
+    public static class Stratum {
+
+        private final int firstId;
+        private final int lastId;
+        private final int[] ids;
+
+        Stratum(final int firstId, final int lastId, final int[] ids) {
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.ids = ids;
+        }
+
+        public int getFirstId() {
+            return firstId;
+        }
+
+        public int getLastId() {
+            return lastId;
+        }
+
+        /**
+         * Fetches the number of IDs in the stratum, which is the population the sample of it stands for.
+         *
+         * @return Number of IDs.
+         */
+        public int getPopulation() {
+            return lastId - firstId + 1;
+        }
+
+        /**
+         * Fetches the IDs sampled from the stratum.
+         *
+         * @return Sampled IDs, in ascending order.
+         */
+        public int[] getIds() {
+            return ids;
+        }
+    }
+}
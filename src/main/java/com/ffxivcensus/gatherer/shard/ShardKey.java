@@ -0,0 +1,23 @@
+package com.ffxivcensus.gatherer.shard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter of a {@link ShardedRepository} method that a call is routed by, which must be a Character ID or
+ * {@link ShardKeyed} entity, or a collection of either. The call then only runs against the shards owning them. Calls on methods without
+ * a marked parameter run against every shard, other than the methods inherited from <code>CrudRepository</code>, which are always routed
+ * by their first parameter.
+ *
+ * @author fahy
+ * @see ShardRoutingAspect
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+
+}
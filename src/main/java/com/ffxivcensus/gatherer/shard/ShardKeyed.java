@@ -0,0 +1,18 @@
+package com.ffxivcensus.gatherer.shard;
+
+/**
+ * Interface for persisted objects that belong to the database shard owning a particular Character ID.
+ *
+ * @author fahy
+ * @see ShardRouter
+ */
+public interface ShardKeyed {
+
+    /**
+     * Fetches the Character ID used to decide which shard this object is stored on.
+     *
+     * @return Character ID.
+     */
+    int getShardKey();
+
+}
@@ -0,0 +1,137 @@
+package com.ffxivcensus.gatherer.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.ffxivcensus.gatherer.config.ShardConfig;
+
+/**
+ * Maps Character IDs onto the configured database shards, and tracks which shard the current thread is working against.
+ * The shard selected for the current thread is what the {@link ShardRoutingDataSource} hands out connections for.
+ *
+ * @author fahy
+ * @see ShardRoutingAspect
+ */
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+    private final List<ShardConfig> shards;
+
+    /**
+     * Creates a new {@link ShardRouter} over the given shards.
+     *
+     * @param shards Shard configuration, which must not contain overlapping ID ranges.
+     * @throws IllegalArgumentException if no shards are given, or shard ranges overlap.
+     */
+    public ShardRouter(final List<ShardConfig> shards) {
+        if(shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one database shard must be configured");
+        }
+        List<ShardConfig> sorted = new ArrayList<>(shards);
+        sorted.sort(Comparator.comparingInt(ShardConfig::getFromId));
+        for(int i = 1; i < sorted.size(); i++) {
+            if(sorted.get(i).getFromId() <= sorted.get(i - 1).getToId()) {
+                throw new IllegalArgumentException("Database shards " + sorted.get(i - 1) + " and " + sorted.get(i) + " overlap");
+            }
+        }
+        this.shards = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Fetches the configured shards, in ascending ID order.
+     *
+     * @return List of shards.
+     */
+    public List<ShardConfig> getShards() {
+        return shards;
+    }
+
+    /**
+     * Fetches the number of configured shards.
+     *
+     * @return Number of shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Fetches the index of the shard owning the given Character ID.
+     *
+     * @param id Character ID.
+     * @return Shard index.
+     * @throws IllegalArgumentException if no shard owns the ID.
+     */
+    public int shardFor(final int id) {
+        for(int i = 0; i < shards.size(); i++) {
+            if(shards.get(i).owns(id)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No database shard is configured for character #" + id);
+    }
+
+    /**
+     * Fetches the last Character ID owned by the same shard as the given ID.
+     *
+     * @param id Character ID.
+     * @return Last ID of the owning shard.
+     */
+    public int lastIdOfShardFor(final int id) {
+        return shards.get(shardFor(id)).getToId();
+    }
+
+    /**
+     * Fetches the shard the current thread is working against.
+     *
+     * @return Shard index, or null if the current thread has not selected a shard.
+     */
+    public Integer getCurrentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Runs the given work against the given shard, restoring the thread's previous shard afterwards.
+     *
+     * @param shard Shard index.
+     * @param work Work to run.
+     * @return Result of the work.
+     * @throws Exception Any exception thrown by the work.
+     */
+    public <T> T onShard(final int shard, final Callable<T> work) throws Exception {
+        Integer previous = enter(shard);
+        try {
+            return work.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Selects the given shard for the current thread.
+     *
+     * @param shard Shard index.
+     * @return The previously selected shard, to be passed to {@link #restore(Integer)}.
+     */
+    Integer enter(final int shard) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        return previous;
+    }
+
+    /**
+     * Restores the shard previously selected for the current thread.
+     *
+     * @param previous Shard returned from {@link #enter(int)}.
+     */
+    void restore(final Integer previous) {
+        if(previous == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(previous);
+        }
+    }
+}
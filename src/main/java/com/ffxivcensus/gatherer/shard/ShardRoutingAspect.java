@@ -0,0 +1,232 @@
+package com.ffxivcensus.gatherer.shard;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Routes calls on {@link ShardedRepository} instances to the database shards owning the Character IDs involved.
+ * <ul>
+ * <li>Calls whose {@link ShardKey} argument is a Character ID or {@link ShardKeyed} entity run against the shard owning it. The methods
+ * inherited from <code>CrudRepository</code> are routed by their first argument in the same way.</li>
+ * <li>Calls whose {@link ShardKey} argument is a collection of IDs or entities are split up, and each part is run against its own
+ * shard.</li>
+ * <li>All other calls, including those whose key is an ID outside of every shard, run against every shard in turn, with the results
+ * combined: counts are summed, lists are concatenated in shard order, and the single entity with the highest Character ID is kept.</li>
+ * </ul>
+ * As shards own ascending ID ranges, concatenating ascending results in shard order keeps them in ascending order. Paged queries are
+ * therefore supported on every shard, provided they page by key from the first page rather than by offset.
+ * <p>
+ * When only one shard is configured, every call is passed straight through.
+ *
+ * @author fahy
+ */
+@Aspect
+@Component
+public class ShardRoutingAspect {
+
+    private final ShardRouter router;
+    /** Index of the parameter each method is routed by, or -1 if it runs against every shard. */
+    private final Map<Method, Integer> keyIndexes = new ConcurrentHashMap<>();
+
+    public ShardRoutingAspect(@Autowired final ShardRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Routes a single repository call to the relevant shards.
+     *
+     * @param joinPoint Repository call.
+     * @return Result of the call, combined across shards where necessary.
+     * @throws Throwable Any exception thrown by the repository.
+     */
+    @Around("target(com.ffxivcensus.gatherer.shard.ShardedRepository)")
+    public Object route(final ProceedingJoinPoint joinPoint) throws Throwable {
+        if(router.getShardCount() == 1 || router.getCurrentShard() != null) {
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object[] args = joinPoint.getArgs();
+        int keyIndex = keyIndexes.computeIfAbsent(method, ShardRoutingAspect::findKeyIndex);
+        if(keyIndex >= 0) {
+            Integer shard = ownerOf(args[keyIndex]);
+            if(shard != null) {
+                return proceedOnShard(joinPoint, shard, args);
+            }
+            if(args[keyIndex] instanceof Iterable) {
+                Map<Integer, List<Object>> byShard = groupByShard((Iterable<?>) args[keyIndex]);
+                if(byShard != null) {
+                    List<Object> results = new ArrayList<>();
+                    for(Map.Entry<Integer, List<Object>> entry : byShard.entrySet()) {
+                        Object[] shardArgs = args.clone();
+                        shardArgs[keyIndex] = entry.getValue();
+                        results.add(proceedOnShard(joinPoint, entry.getKey(), shardArgs));
+                    }
+                    return combine(method, args, results);
+                }
+            }
+        }
+
+        List<Object> results = new ArrayList<>();
+        for(int shard = 0; shard < router.getShardCount(); shard++) {
+            results.add(proceedOnShard(joinPoint, shard, args));
+        }
+        return combine(method, args, results);
+    }
+
+    /**
+     * Finds the parameter a method is routed by, which is the one marked with {@link ShardKey}, or the first parameter of a method
+     * inherited from <code>CrudRepository</code>, as each of those takes an ID or entity first.
+     *
+     * @param method Repository method.
+     * @return Parameter index, or -1 if the method runs against every shard.
+     */
+    static int findKeyIndex(final Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for(int i = 0; i < annotations.length; i++) {
+            for(Annotation annotation : annotations[i]) {
+                if(annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        return CrudRepository.class.equals(method.getDeclaringClass()) && method.getParameterCount() > 0 ? 0 : -1;
+    }
+
+    /**
+     * Fetches the shard owning the given argument.
+     *
+     * @param arg Argument to route by.
+     * @return Shard index, or null if the argument is not a Character ID or entity, or is an ID outside of every shard.
+     * @throws IllegalArgumentException if the argument is an entity outside of every shard.
+     */
+    private Integer ownerOf(final Object arg) {
+        if(arg instanceof ShardKeyed) {
+            return router.shardFor(((ShardKeyed) arg).getShardKey());
+        } else if(arg instanceof Integer) {
+            int id = (Integer) arg;
+            for(int i = 0; i < router.getShardCount(); i++) {
+                if(router.getShards().get(i).owns(id)) {
+                    return i;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits a collection of Character IDs or entities by the shard owning each item.
+     *
+     * @return Items grouped by shard index, or null if any item could not be routed.
+     */
+    private Map<Integer, List<Object>> groupByShard(final Iterable<?> items) {
+        Map<Integer, List<Object>> byShard = new LinkedHashMap<>();
+        for(Object item : items) {
+            Integer shard = ownerOf(item);
+            if(shard == null) {
+                return null;
+            }
+            byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    private Object proceedOnShard(final ProceedingJoinPoint joinPoint, final int shard, final Object[] args) throws Throwable {
+        Integer previous = router.enter(shard);
+        try {
+            return joinPoint.proceed(args);
+        } finally {
+            router.restore(previous);
+        }
+    }
+
+    /**
+     * Combines the results of a call run against several shards.
+     *
+     * @param method Method called.
+     * @param args Arguments of the original call.
+     * @param results Result from each shard, in shard order.
+     * @return Combined result.
+     */
+    Object combine(final Method method, final Object[] args, final List<Object> results) {
+        Class<?> returnType = method.getReturnType();
+        if(Void.TYPE.equals(returnType)) {
+            return null;
+        } else if(Iterable.class.isAssignableFrom(returnType)) {
+            List<Object> combined = new ArrayList<>();
+            for(Object result : results) {
+                if(result != null) {
+                    ((Iterable<?>) result).forEach(combined::add);
+                }
+            }
+            Pageable page = pageOf(args);
+            if(page != null) {
+                if(page.getOffset() != 0) {
+                    throw new UnsupportedOperationException("Offset paging is not supported across database shards");
+                }
+                return combined.size() > page.getPageSize() ? new ArrayList<>(combined.subList(0, page.getPageSize())) : combined;
+            }
+            return combined;
+        } else if(isType(returnType, Long.class, Long.TYPE)) {
+            long total = 0;
+            for(Object result : results) {
+                total += result != null ? ((Number) result).longValue() : 0;
+            }
+            return total;
+        } else if(isType(returnType, Integer.class, Integer.TYPE)) {
+            int total = 0;
+            for(Object result : results) {
+                total += result != null ? ((Number) result).intValue() : 0;
+            }
+            return total;
+        } else if(isType(returnType, Boolean.class, Boolean.TYPE)) {
+            for(Object result : results) {
+                if(Boolean.TRUE.equals(result)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if(ShardKeyed.class.isAssignableFrom(returnType)) {
+            ShardKeyed highest = null;
+            for(Object result : results) {
+                if(result != null && (highest == null || ((ShardKeyed) result).getShardKey() > highest.getShardKey())) {
+                    highest = (ShardKeyed) result;
+                }
+            }
+            return highest;
+        }
+        for(Object result : results) {
+            if(result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isType(final Class<?> type, final Class<?> boxed, final Class<?> primitive) {
+        return boxed.equals(type) || primitive.equals(type);
+    }
+
+    private static Pageable pageOf(final Object[] args) {
+        for(Object arg : args) {
+            if(arg instanceof Pageable) {
+                return (Pageable) arg;
+            }
+        }
+        return null;
+    }
+}
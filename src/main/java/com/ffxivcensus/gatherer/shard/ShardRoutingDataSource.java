@@ -0,0 +1,58 @@
+package com.ffxivcensus.gatherer.shard;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * DataSource that hands out connections from the pool of the shard selected for the current thread by the {@link ShardRouter}.
+ * Threads that have not selected a shard are given connections to the first shard, which is also where start-up work such as dialect
+ * detection takes place.
+ *
+ * @author fahy
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final ShardRouter router;
+    private final List<HikariDataSource> shardDataSources;
+
+    public ShardRoutingDataSource(final ShardRouter router, final List<HikariDataSource> shardDataSources) {
+        this.router = router;
+        this.shardDataSources = shardDataSources;
+        Map<Object, Object> targets = new HashMap<>();
+        for(int i = 0; i < shardDataSources.size(); i++) {
+            targets.put(i, shardDataSources.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shardDataSources.get(0));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.getCurrentShard();
+    }
+
+    /**
+     * Fetches the connection pools of every shard, in shard order.
+     *
+     * @return List of shard connection pools.
+     */
+    public List<HikariDataSource> getShardDataSources() {
+        return shardDataSources;
+    }
+
+    /**
+     * Closes the connection pools of every shard.
+     */
+    @Override
+    public void close() {
+        for(HikariDataSource dataSource : shardDataSources) {
+            dataSource.close();
+        }
+    }
+}
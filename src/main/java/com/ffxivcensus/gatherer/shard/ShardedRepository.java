@@ -0,0 +1,10 @@
+package com.ffxivcensus.gatherer.shard;
+
+/**
+ * Marker interface for repositories whose calls are routed across the database shards by the {@link ShardRoutingAspect}.
+ *
+ * @author fahy
+ */
+public interface ShardedRepository {
+
+}
@@ -0,0 +1,30 @@
+package com.ffxivcensus.gatherer.spring;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Liquibase runner that applies the changelog to every database shard in turn, rather than to a single DataSource.
+ *
+ * @author fahy
+ */
+public class ShardedLiquibase extends SpringLiquibase {
+
+    private final List<? extends DataSource> shardDataSources;
+
+    public ShardedLiquibase(final List<? extends DataSource> shardDataSources) {
+        this.shardDataSources = shardDataSources;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        for(DataSource shardDataSource : shardDataSources) {
+            setDataSource(shardDataSource);
+            super.afterPropertiesSet();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ffxivcensus.gatherer.spring;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -8,7 +10,6 @@ import org.apache.commons.cli.ParseException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
-import org.springframework.context.annotation.Scope;
 import org.xml.sax.SAXException;
 
 import com.ffxivcensus.gatherer.CLIConstants;
@@ -16,10 +17,15 @@ import com.ffxivcensus.gatherer.Console;
 import com.ffxivcensus.gatherer.GatheringStatus;
 import com.ffxivcensus.gatherer.config.ApplicationConfig;
 import com.ffxivcensus.gatherer.config.ConfigurationBuilder;
+import com.ffxivcensus.gatherer.config.ShardConfig;
+import com.ffxivcensus.gatherer.shard.ShardRouter;
+import com.ffxivcensus.gatherer.shard.ShardRoutingDataSource;
 import com.ffxivcensus.gatherer.task.GathererTask;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import liquibase.integration.spring.SpringLiquibase;
+
 @Configuration
 public class SpringConfiguration {
 
@@ -32,27 +38,51 @@ public class SpringConfiguration {
     }
 
     @Bean
-    @Scope("prototype") // This is a prototype bean, as we want a new one every time
     public GathererTask gatherer() {
         return new GathererTask();
     }
 
+    @Bean
+    public ShardRouter shardRouter() throws ParserConfigurationException, IOException, SAXException, ParseException {
+        return new ShardRouter(applicationConfig().getEffectiveShards());
+    }
+
     @Bean(destroyMethod = "close") // Should happen anyway, but worth calling out
     @Primary
-    public HikariDataSource dataSource() throws ParserConfigurationException, IOException, SAXException, ParseException {
+    public ShardRoutingDataSource dataSource() throws ParserConfigurationException, IOException, SAXException, ParseException {
         ApplicationConfig appConfig = applicationConfig();
+        ShardRouter router = shardRouter();
 
-        HikariConfig hikariConfig = new HikariConfig();
-        hikariConfig.setJdbcUrl("jdbc:" + appConfig.getDbUrl() + "/" + appConfig.getDbName());
-        hikariConfig.setUsername(appConfig.getDbUser());
-        hikariConfig.setPassword(appConfig.getDbPassword());
-        hikariConfig.setMaximumPoolSize(appConfig.getThreadLimit());
-        hikariConfig.setInitializationFailTimeout(30000);
-        if(appConfig.isDbIgnoreSSLWarn()) {
-            hikariConfig.addDataSourceProperty("useSSL", false);
+        // Each shard gets its own connection pool
+        List<HikariDataSource> shardDataSources = new ArrayList<>();
+        for(ShardConfig shard : router.getShards()) {
+            HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setPoolName("shard-" + shardDataSources.size());
+            hikariConfig.setJdbcUrl("jdbc:" + shard.getDbUrl() + "/" + shard.getDbName());
+            hikariConfig.setUsername(shard.getDbUser());
+            hikariConfig.setPassword(shard.getDbPassword());
+            // Virtual threads may gather far more characters at once than the database should take connections
+            hikariConfig.setMaximumPoolSize(Math.min(appConfig.getThreadLimit(), ApplicationConfig.MAX_THREADS));
+            hikariConfig.setInitializationFailTimeout(30000);
+            if(shard.getDbUrl().startsWith("mysql")) {
+                // Lets MySQL send batched inserts as multi-row statements
+                hikariConfig.addDataSourceProperty("rewriteBatchedStatements", true);
+            }
+            if(appConfig.isDbIgnoreSSLWarn()) {
+                hikariConfig.addDataSourceProperty("useSSL", false);
+            }
+            shardDataSources.add(new HikariDataSource(hikariConfig));
         }
 
-        return new HikariDataSource(hikariConfig);
+        return new ShardRoutingDataSource(router, shardDataSources);
+    }
+
+    @Bean
+    public SpringLiquibase liquibase() throws ParserConfigurationException, IOException, SAXException, ParseException {
+        // Every shard holds the full schema, so the changelog is applied to each in turn
+        ShardedLiquibase liquibase = new ShardedLiquibase(dataSource().getShardDataSources());
+        liquibase.setChangeLog("classpath:/db/changelog/db.changelog-master.yaml");
+        return liquibase;
     }
 
     @Bean
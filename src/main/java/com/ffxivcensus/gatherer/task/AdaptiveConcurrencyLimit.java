@@ -0,0 +1,163 @@
+package com.ffxivcensus.gatherer.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.lodestone.RateLimitListener;
+
+/**
+ * Limits the number of characters being gathered at once, adjusting the limit from how the Lodestone and the database are coping.
+ * <p>
+ * The configured thread limit is the most characters that will ever be gathered at once. Within that, the limit follows a gradient: the
+ * latency of recent fetches and stores is compared with their long-term average, and the limit shrinks as recent requests slow down,
+ * and grows by a small allowance for queueing while they do not. Being rate limited by the Lodestone (HTTP 429) cuts the limit straight
+ * away, at most once for every limit's worth of samples so that a burst of rate limited requests counts once.
+ * <p>
+ * A permit is acquired from this limit before each character is fetched, and released afterwards.
+ *
+ * @author fahy
+ */
+@Service
+public class AdaptiveConcurrencyLimit implements RateLimitListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+    /** Fewest characters that will be gathered at once. */
+    static final int MIN_LIMIT = 1;
+    /** Most characters gathered at once when starting, before any latency has been measured. */
+    static final int INITIAL_LIMIT = 8;
+    /** Factor the limit is cut by when rate limited. */
+    private static final double BACKOFF = 0.75;
+    /** Weight of each new sample in the short-term latency average. */
+    private static final double SHORT_WEIGHT = 0.1;
+    /** Weight of each new sample in the long-term latency average. */
+    private static final double LONG_WEIGHT = 0.01;
+    /** Weight of each new estimate in the limit, so that the limit moves smoothly. */
+    private static final double LIMIT_WEIGHT = 0.2;
+    /** Lowest gradient, so that a single slow sample cannot more than halve the limit. */
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int maxLimit;
+    private final Latency fetchLatency = new Latency();
+    private final Latency storeLatency = new Latency();
+    private double limit;
+    private int inFlight;
+    private int samplesSinceBackoff = INITIAL_LIMIT;
+
+    public AdaptiveConcurrencyLimit(@Autowired final ApplicationConfig appConfig) {
+        this.maxLimit = Math.max(MIN_LIMIT, Math.min(appConfig.getThreadLimit(), appConfig.getMaxThreads()));
+        this.limit = Math.min(maxLimit, INITIAL_LIMIT);
+    }
+
+    /**
+     * Waits until another character may be gathered within the limit.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while(inFlight >= getLimit()) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Releases a permit acquired by {@link #acquire()}, once the character has been gathered.
+     */
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Records the time taken to fetch a character from the Lodestone.
+     *
+     * @param nanos Time taken, in nanoseconds.
+     */
+    public synchronized void onFetch(final long nanos) {
+        fetchLatency.record(nanos);
+        adjust();
+    }
+
+    /**
+     * Records the time taken to store a character, which grows as the database falls behind.
+     *
+     * @param nanos Time taken, in nanoseconds.
+     */
+    public synchronized void onStore(final long nanos) {
+        storeLatency.record(nanos);
+        adjust();
+    }
+
+    /**
+     * Records that the Lodestone rate limited a request.
+     */
+    @Override
+    public synchronized void onRateLimited() {
+        if(samplesSinceBackoff >= getLimit()) {
+            limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+            samplesSinceBackoff = 0;
+            LOG.debug("Rate limited by the Lodestone, cutting concurrency limit to {}", getLimit());
+        }
+    }
+
+    /**
+     * Fetches the current limit.
+     *
+     * @return Most characters that may currently be gathered at once.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Fetches the number of characters currently being gathered.
+     *
+     * @return Number of permits acquired, but not yet released.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void adjust() {
+        samplesSinceBackoff++;
+        double gradient = Math.min(fetchLatency.gradient(), storeLatency.gradient());
+        double estimate = limit * gradient + Math.sqrt(limit);
+        int previous = getLimit();
+        limit = Math.max(MIN_LIMIT, Math.min(maxLimit, limit * (1 - LIMIT_WEIGHT) + estimate * LIMIT_WEIGHT));
+        if(getLimit() > previous) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Short and long-term averages of the latency of one kind of request.
+     */
+    private static class Latency {
+
+        private double shortTerm;
+        private double longTerm;
+
+        void record(final long nanos) {
+            if(longTerm == 0) {
+                shortTerm = nanos;
+                longTerm = nanos;
+            } else {
+                shortTerm += (nanos - shortTerm) * SHORT_WEIGHT;
+                longTerm += (nanos - longTerm) * LONG_WEIGHT;
+            }
+        }
+
+        /**
+         * Ratio of long-term to short-term latency, which falls below 1 as recent requests slow down.
+         */
+        double gradient() {
+            if(shortTerm == 0) {
+                return 1;
+            }
+            return Math.max(MIN_GRADIENT, Math.min(1, longTerm / shortTerm));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.util.BitSet;
+
+/**
+ * Snapshot of how far a sweep has got, from which an interrupted sweep can be resumed.
+ * <p>
+ * Every ID below the watermark has been gathered. Above it, only the IDs that have been leased to a cursor can have been gathered, and
+ * cursors lease chunks of IDs close to the watermark, so the bitmap of which IDs above the watermark have been gathered stays small
+ * however large the range is.
+ *
+ * @author fahy
+ * @see ChunkedIdAllocator#checkpoint()
+ */
+public class Checkpoint {
+
+    private final int startId;
+    private final int finishId;
+    private final long watermark;
+    private final BitSet completedAbove;
+
+    /**
+     * Creates a new checkpoint.
+     *
+     * @param startId First ID of the sweep.
+     * @param finishId Last ID of the sweep.
+     * @param watermark Lowest ID that has not been gathered.
+     * @param completedAbove IDs gathered at or above the watermark, with bit 0 standing for the watermark itself.
+     */
+    public Checkpoint(final int startId, final int finishId, final long watermark, final BitSet completedAbove) {
+        this.startId = startId;
+        this.finishId = finishId;
+        this.watermark = watermark;
+        this.completedAbove = completedAbove;
+    }
+
+    public int getStartId() {
+        return startId;
+    }
+
+    public int getFinishId() {
+        return finishId;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Fetches the IDs gathered at or above the watermark.
+     *
+     * @return Bitmap, with bit 0 standing for the watermark itself.
+     */
+    public BitSet getCompletedAbove() {
+        return completedAbove;
+    }
+
+    /**
+     * Determines whether an ID had been gathered when the checkpoint was taken.
+     *
+     * @param id Character ID.
+     * @return true if the ID had been gathered.
+     */
+    public boolean isComplete(final int id) {
+        long offset = id - watermark;
+        return offset < 0 || offset < Integer.MAX_VALUE && completedAbove.get((int) offset);
+    }
+
+    /**
+     * Counts the IDs gathered above the watermark, which a resumed sweep will not gather again.
+     *
+     * @return Number of IDs.
+     */
+    public int getCompletedAboveCount() {
+        return completedAbove.cardinality();
+    }
+}
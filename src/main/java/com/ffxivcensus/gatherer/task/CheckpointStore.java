@@ -0,0 +1,124 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+
+/**
+ * Stores the {@link Checkpoint} of each sweep in a file in the configured checkpoint directory, named by the ID the sweep starts from.
+ * <p>
+ * Each file holds a magic number, the start and finish IDs, the watermark, the number of 64-bit words in the bitmap of IDs gathered
+ * above the watermark, the words themselves and a CRC-32 of everything before it. A checkpoint is written to a temporary file and then
+ * moved over the previous one, so a crash while saving leaves the previous checkpoint in place.
+ *
+ * @author fahy
+ */
+@Service
+public class CheckpointStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointStore.class);
+    /** Identifies a checkpoint file, and the version of its layout. */
+    private static final int MAGIC = 0x58435031;
+    /** Size of everything in a checkpoint file other than the bitmap words. */
+    private static final int FIXED_SIZE = 28;
+
+    private final ApplicationConfig appConfig;
+
+    public CheckpointStore(@Autowired final ApplicationConfig appConfig) {
+        this.appConfig = appConfig;
+    }
+
+    /**
+     * Saves the checkpoint of a sweep, replacing any earlier checkpoint of a sweep from the same start ID.
+     * Failures are logged rather than thrown, so that gathering carries on.
+     *
+     * @param checkpoint Checkpoint to save.
+     */
+    public void save(final Checkpoint checkpoint) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(checkpoint.getStartId());
+            out.writeInt(checkpoint.getFinishId());
+            out.writeLong(checkpoint.getWatermark());
+            long[] words = checkpoint.getCompletedAbove().toLongArray();
+            out.writeInt(words.length);
+            for(long word : words) {
+                out.writeLong(word);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+
+            File file = checkpointFile(checkpoint.getStartId());
+            File directory = file.getParentFile();
+            if(!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create checkpoint directory " + directory);
+            }
+            File temporary = new File(directory, file.getName() + ".tmp");
+            Files.write(temporary.toPath(), bytes.toByteArray());
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            LOG.error("Unable to save checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads the checkpoint of the sweep from the given start ID.
+     *
+     * @param startId ID the sweep started from.
+     * @return Checkpoint, or null if there is none.
+     * @throws IOException if the checkpoint cannot be read, or is corrupt.
+     */
+    public Checkpoint load(final int startId) throws IOException {
+        File file = checkpointFile(startId);
+        if(!file.isFile()) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if(bytes.length < FIXED_SIZE) {
+            throw new IOException("Checkpoint " + file + " is corrupt");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Checkpoint " + file + " is not a checkpoint file");
+            }
+            int checkpointStart = in.readInt();
+            int finishId = in.readInt();
+            long watermark = in.readLong();
+            int wordCount = in.readInt();
+            if(wordCount < 0 || (long) wordCount * 8 != bytes.length - FIXED_SIZE) {
+                throw new IOException("Checkpoint " + file + " is corrupt");
+            }
+            long[] words = new long[wordCount];
+            for(int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            if(in.readInt() != (int) crc.getValue()) {
+                throw new IOException("Checkpoint " + file + " is corrupt");
+            }
+            return new Checkpoint(checkpointStart, finishId, watermark, BitSet.valueOf(words));
+        }
+    }
+
+    private File checkpointFile(final int startId) {
+        return new File(appConfig.getCheckpointDirectory(), "checkpoint-" + startId + ".bin");
+    }
+}
@@ -0,0 +1,316 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free allocator of the Character IDs to gather, shared by every thread gathering them.
+ * <p>
+ * Each fetching thread takes its own {@link Cursor}, which leases a contiguous chunk of IDs from the range with a single atomic add, and then
+ * issues the IDs in that chunk without contending with any other thread. Once the whole range has been leased, a thread that runs out
+ * of IDs steals the unissued half of the tail of the busiest other chunk, so that a slow thread does not hold up the end of the run.
+ * <p>
+ * Each ID is reported once it has been gathered, from which the allocator keeps an exact completion watermark: every ID below the
+ * watermark has been gathered, whatever order the chunks and IDs were completed in. Together with the IDs gathered above the watermark,
+ * this is taken as a {@link Checkpoint}, from which an interrupted sweep can be resumed without gathering any of those IDs again.
+ *
+ * @author fahy
+ */
+public class ChunkedIdAllocator implements IdAllocator {
+
+    /** Default number of IDs leased by a cursor at a time. */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final int startId;
+    private final long span;
+    private final int chunkSize;
+    /** Offset from the start ID of the next chunk to lease. */
+    private final AtomicLong nextChunk = new AtomicLong();
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+    /** Completion of every chunk that has been leased, but not yet passed by the watermark, keyed by chunk number. */
+    private final ConcurrentHashMap<Integer, ChunkCompletion> inFlight = new ConcurrentHashMap<>();
+    /** Number of chunks, from the start of the range, that have been completely gathered. */
+    private final AtomicInteger completedChunks = new AtomicInteger();
+    /** Checkpoint of an earlier sweep being resumed, or null if starting afresh. */
+    private final Checkpoint resumeFrom;
+
+    /**
+     * Constructs a new allocator issuing the IDs from the start ID to the finish ID, both inclusive.
+     *
+     * @param startId First ID to issue.
+     * @param finishId Last ID to issue.
+     */
+    public ChunkedIdAllocator(final int startId, final int finishId) {
+        this(startId, finishId, DEFAULT_CHUNK_SIZE, null);
+    }
+
+    /**
+     * Constructs a new allocator resuming an interrupted sweep, which never issues the IDs the sweep had already gathered.
+     *
+     * @param startId First ID to issue.
+     * @param finishId Last ID to issue.
+     * @param resumeFrom Checkpoint of the interrupted sweep.
+     */
+    public ChunkedIdAllocator(final int startId, final int finishId, final Checkpoint resumeFrom) {
+        this(startId, finishId, DEFAULT_CHUNK_SIZE, resumeFrom);
+    }
+
+    ChunkedIdAllocator(final int startId, final int finishId, final int chunkSize) {
+        this(startId, finishId, chunkSize, null);
+    }
+
+    ChunkedIdAllocator(final int startId, final int finishId, final int chunkSize, final Checkpoint resumeFrom) {
+        this.startId = startId;
+        this.span = Math.max(0, (long) finishId - startId + 1);
+        this.chunkSize = chunkSize;
+        this.resumeFrom = resumeFrom;
+        if(resumeFrom != null) {
+            // Skip straight past every whole chunk below the watermark
+            int firstChunk = (int) (Math.max(0, Math.min(span, resumeFrom.getWatermark() - startId)) / chunkSize);
+            nextChunk.set((long) firstChunk * chunkSize);
+            completedChunks.set(firstChunk);
+        }
+    }
+
+    /**
+     * Creates a new cursor, which must only be used by a single thread.
+     *
+     * @return New cursor over the IDs in this allocator.
+     */
+    @Override
+    public Cursor newCursor() {
+        Cursor cursor = new Cursor();
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    /**
+     * Fetches the completion watermark, below which every ID has been gathered.
+     *
+     * @return Lowest ID that has not yet been gathered, or the ID after the finish ID if every ID has been gathered.
+     */
+    public long getCompletedWatermark() {
+        int chunk = completedChunks.get();
+        ChunkCompletion completion = inFlight.get(chunk);
+        // Move the watermark past every complete chunk, so that only chunks still being gathered are kept
+        while(completion != null && completion.isComplete()) {
+            if(completedChunks.compareAndSet(chunk, chunk + 1)) {
+                inFlight.remove(chunk);
+            }
+            chunk = completedChunks.get();
+            completion = inFlight.get(chunk);
+        }
+        long offset = Math.min(span, (long) chunk * chunkSize);
+        if(completion != null) {
+            offset += completion.firstIncomplete();
+        }
+        return startId + offset;
+    }
+
+    /**
+     * Takes a checkpoint of the sweep, which may be taken while IDs are still being gathered. An ID being completed as the checkpoint
+     * is taken may be left out, and so gathered again on resuming, but no ID is ever included before it has been gathered.
+     *
+     * @return Checkpoint of the IDs gathered so far.
+     */
+    public Checkpoint checkpoint() {
+        long watermark = getCompletedWatermark();
+        long watermarkOffset = watermark - startId;
+        BitSet completedAbove = new BitSet();
+        for(Map.Entry<Integer, ChunkCompletion> chunk : inFlight.entrySet()) {
+            chunk.getValue().copyTo(completedAbove, (long) chunk.getKey() * chunkSize - watermarkOffset);
+        }
+        return new Checkpoint(startId, (int) (startId + span - 1), watermark, completedAbove);
+    }
+
+    @Override
+    public String describeProgress() {
+        return String.format("Gathered every character from #%d up to #%d", startId, getCompletedWatermark() - 1);
+    }
+
+    /**
+     * Records that an ID has been gathered, whichever cursor issued it.
+     *
+     * @param id Character ID that has been gathered.
+     */
+    @Override
+    public void complete(final int id) {
+        long offset = (long) id - startId;
+        if(offset >= 0 && offset < span) {
+            ChunkCompletion completion = inFlight.get((int) (offset / chunkSize));
+            if(completion != null) {
+                completion.complete((int) (offset % chunkSize));
+            }
+        }
+    }
+
+    /**
+     * Leases the next chunk of the range.
+     *
+     * @return Packed range of offsets in the chunk, or -1 if the whole range has been leased.
+     */
+    private long leaseChunk() {
+        long from = nextChunk.getAndAdd(chunkSize);
+        if(from >= span) {
+            return -1;
+        }
+        int to = (int) Math.min(span, from + chunkSize);
+        // Register the chunk before issuing any of its IDs, so that none can complete unrecorded
+        inFlight.put((int) (from / chunkSize), new ChunkCompletion(to - (int) from));
+        return pack((int) from, to);
+    }
+
+    /**
+     * Steals the unissued half of the tail of the other cursor with the most IDs left.
+     *
+     * @param thief Cursor doing the stealing.
+     * @return Packed range of offsets stolen, or -1 if there is nothing worth stealing.
+     */
+    private long steal(final Cursor thief) {
+        while(true) {
+            Cursor victim = null;
+            long victimRange = 0;
+            int mostRemaining = 1;
+            for(Cursor cursor : cursors) {
+                long range = cursor.range.get();
+                if(cursor != thief && remaining(range) > mostRemaining) {
+                    victim = cursor;
+                    victimRange = range;
+                    mostRemaining = remaining(range);
+                }
+            }
+            if(victim == null) {
+                return -1;
+            }
+            int end = end(victimRange);
+            int split = end - mostRemaining / 2;
+            if(victim.range.compareAndSet(victimRange, pack(next(victimRange), split))) {
+                return pack(split, end);
+            }
+            // The victim has moved on since it was chosen, so look again
+        }
+    }
+
+    private static long pack(final int next, final int end) {
+        return ((long) next << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    private static int next(final long range) {
+        return (int) (range >>> 32);
+    }
+
+    private static int end(final long range) {
+        return (int) range;
+    }
+
+    private static int remaining(final long range) {
+        return end(range) - next(range);
+    }
+
+    /**
+     * Source of IDs for a single thread.
+     * The thread issues IDs from the front of its current chunk, while other threads may steal from the back of it.
+     */
+    public class Cursor implements IdSource {
+
+        /** Offsets of the next ID to issue, and the end (exclusive) of the chunk, packed together so both change atomically. */
+        private final AtomicLong range = new AtomicLong();
+
+        private Cursor() {
+        }
+
+        @Override
+        public int nextId() {
+            while(true) {
+                long current = range.get();
+                if(remaining(current) > 0) {
+                    if(range.compareAndSet(current, pack(next(current) + 1, end(current)))) {
+                        int id = startId + next(current);
+                        if(resumeFrom == null || !resumeFrom.isComplete(id)) {
+                            return id;
+                        }
+                        // Already gathered before the sweep was interrupted
+                        ChunkedIdAllocator.this.complete(id);
+                    }
+                } else {
+                    long refill = leaseChunk();
+                    if(refill < 0) {
+                        refill = steal(this);
+                    }
+                    if(refill < 0) {
+                        return EXHAUSTED;
+                    }
+                    range.set(refill);
+                }
+            }
+        }
+
+        @Override
+        public void complete(final int id) {
+            ChunkedIdAllocator.this.complete(id);
+        }
+    }
+
+    /**
+     * Tracks which of the IDs in a single chunk have been gathered.
+     */
+    private static class ChunkCompletion {
+
+        private final int size;
+        private final AtomicLongArray done;
+        private final AtomicInteger remaining;
+
+        ChunkCompletion(final int size) {
+            this.size = size;
+            this.done = new AtomicLongArray((size + 63) / 64);
+            this.remaining = new AtomicInteger(size);
+        }
+
+        void complete(final int index) {
+            long bit = 1L << (index % 64);
+            long previous;
+            do {
+                previous = done.get(index / 64);
+            } while((previous & bit) == 0 && !done.compareAndSet(index / 64, previous, previous | bit));
+            if((previous & bit) == 0) {
+                remaining.decrementAndGet();
+            }
+        }
+
+        boolean isComplete() {
+            return remaining.get() == 0;
+        }
+
+        /**
+         * Sets the bit for each gathered ID in the chunk, shifted by the given offset. Bits that would fall below 0 are left out.
+         */
+        void copyTo(final BitSet bits, final long shift) {
+            for(int word = 0; word < done.length(); word++) {
+                long remainingBits = done.get(word);
+                while(remainingBits != 0) {
+                    long position = shift + word * 64 + Long.numberOfTrailingZeros(remainingBits);
+                    if(position >= 0) {
+                        bits.set((int) position);
+                    }
+                    remainingBits &= remainingBits - 1;
+                }
+            }
+        }
+
+        int firstIncomplete() {
+            for(int word = 0; word < done.length(); word++) {
+                long bits = done.get(word);
+                if(bits != -1L) {
+                    return Math.min(size, word * 64 + Long.numberOfTrailingZeros(~bits));
+                }
+            }
+            return size;
+        }
+    }
+}
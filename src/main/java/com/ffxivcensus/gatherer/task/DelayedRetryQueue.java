@@ -0,0 +1,174 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parks characters that the Lodestone has rate limited, so that they are tried again once they have backed off, without the thread that
+ * fetched them sleeping through the wait.
+ * <p>
+ * Each parked character waits for a delay that doubles every time it is parked, with jitter so that characters rate limited together are
+ * not all tried again together. Every thread gathering from a {@link #cursor(IdSource)} of the queue takes any parked character that has
+ * finished waiting before the next ID from its source, and a cursor is only exhausted once its source is, and no character is still
+ * parked or being gathered that could yet be parked. While its source has IDs {@link IdSource#PENDING pending}, a cursor waits for a
+ * parked character instead, asking the source again every {@value #POLL_MILLIS}ms, so a source never has to wait on a parked character
+ * itself. A character rate limited more than {@value #MAX_PARKS} times is not parked again, and is gathered as having failed.
+ * <p>
+ * Characters taken from a cursor must each be either {@link #park(int) parked} or {@link #settle(int) settled} once they have been fetched.
+ *
+ * @author fahy
+ * @see GatheringPipeline
+ * @see VirtualThreadDispatcher
+ */
+public class DelayedRetryQueue {
+
+    /** Most times a single character is parked before it is given up on. */
+    static final int MAX_PARKS = 10;
+    /** Longest a character waits the first time it is parked, doubling every time it is parked again. */
+    static final long FIRST_DELAY_MILLIS = 20;
+    /** Longest a character waits while parked, however many times it has been parked. */
+    private static final long MAX_DELAY_MILLIS = 5000;
+    /** How long a cursor without IDs from its source waits for a parked character before looking again. */
+    private static final long POLL_MILLIS = 100;
+
+    private final DelayQueue<Parked> parked = new DelayQueue<>();
+    private final Map<Integer, Integer> parkCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong totalParked = new AtomicLong();
+
+    /**
+     * Creates a cursor that issues the parked characters due to be tried again before the IDs of the given source.
+     * Completions are passed on to the source.
+     *
+     * @param source Source of the IDs to gather.
+     * @return Cursor for a single thread.
+     */
+    public IdSource cursor(final IdSource source) {
+        return new IdSource() {
+            private boolean sourceExhausted;
+
+            @Override
+            public int nextId() throws InterruptedException {
+                while(true) {
+                    Parked due = parked.poll();
+                    if(due != null) {
+                        inFlight.incrementAndGet();
+                        return due.id;
+                    }
+                    if(!sourceExhausted) {
+                        // Counted before the ID is taken, so that another cursor never sees it as neither parked nor in flight
+                        inFlight.incrementAndGet();
+                        int id;
+                        try {
+                            id = source.nextId();
+                        } catch(InterruptedException e) {
+                            inFlight.decrementAndGet();
+                            throw e;
+                        }
+                        if(id != EXHAUSTED && id != PENDING) {
+                            return id;
+                        }
+                        inFlight.decrementAndGet();
+                        sourceExhausted = id == EXHAUSTED;
+                    }
+                    if(sourceExhausted && parked.isEmpty() && inFlight.get() == 0) {
+                        return EXHAUSTED;
+                    }
+                    due = parked.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if(due != null) {
+                        inFlight.incrementAndGet();
+                        return due.id;
+                    }
+                }
+            }
+
+            @Override
+            public void complete(final int id) {
+                source.complete(id);
+            }
+
+            @Override
+            public void fail(final int id) {
+                source.fail(id);
+            }
+
+            @Override
+            public void complete(final int id, final GatheringOutcome outcome) {
+                source.complete(id, outcome);
+            }
+        };
+    }
+
+    /**
+     * Parks a rate limited character to be tried again once it has backed off.
+     *
+     * @param id Character ID taken from a cursor of this queue.
+     * @return true if the character has been parked, or false if it has been rate limited too many times, and must be settled instead.
+     */
+    public boolean park(final int id) {
+        int parks = parkCounts.merge(id, 1, Integer::sum);
+        if(parks > MAX_PARKS) {
+            return false;
+        }
+        long delay = Math.min(FIRST_DELAY_MILLIS << (parks - 1), MAX_DELAY_MILLIS);
+        parked.add(new Parked(id, ThreadLocalRandom.current().nextLong(delay / 2, delay + 1)));
+        totalParked.incrementAndGet();
+        // Only no longer in flight once parked, so that no cursor can see the character as neither
+        inFlight.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records that a character taken from a cursor of this queue has been fetched, and will not be parked again.
+     *
+     * @param id Character ID taken from a cursor of this queue.
+     */
+    public void settle(final int id) {
+        parkCounts.remove(id);
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Fetches the number of characters parked at the moment.
+     *
+     * @return Number of characters waiting to be tried again.
+     */
+    public int getParked() {
+        return parked.size();
+    }
+
+    /**
+     * Fetches the number of times any character has been parked.
+     *
+     * @return Number of times characters have been parked.
+     */
+    public long getTotalParked() {
+        return totalParked.get();
+    }
+
+    private static final class Parked implements Delayed {
+        private final int id;
+        private final long dueNanos;
+
+        private Parked(final int id, final long delayMillis) {
+            this.id = id;
+            this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.player.PlayerBuilder;
+
+/**
+ * Finds the top of the valid Character ID space on the Lodestone, so that a crawl can be given an end ID up front rather than running on
+ * until it has seen a long enough gap of invalid IDs.
+ * <p>
+ * The search gallops upwards from the highest valid character already stored, doubling the distance of each probe until a probe finds
+ * nothing, and then binary searches between the last probe that found a character and the first that did not. As deleted characters
+ * leave gaps, each probe samples several IDs above its point, and finds a character if any of them exists. The end ID returned covers
+ * every sample of the lowest probe that found nothing, so any character the search could have missed is still crawled.
+ * <p>
+ * A search costs a few hundred requests, however far the frontier has moved since the last crawl.
+ *
+ * @author fahy
+ */
+@Service
+public class FrontierSearch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FrontierSearch.class);
+    /** Distance above the starting point of the first probe. */
+    static final int INITIAL_STEP = 1024;
+    /**
+     * Offsets above each probe point that are sampled: a few neighbouring IDs, in case the character at the point itself was deleted,
+     * and then IDs spreading further apart (at prime offsets, so they cannot all fall in step with any pattern of deletions) to step
+     * over longer gaps left by deleted characters.
+     */
+    static final int[] SAMPLE_OFFSETS = {0, 1, 2, 3, 257, 1031, 4099, 8191};
+    /** Distance between probes at which the binary search stops. */
+    static final int RESOLUTION = 64;
+
+    private final PlayerBuilder playerBuilder;
+    private final IdBlockSummary idBlockSummary;
+    private int probes;
+
+    public FrontierSearch(@Autowired final PlayerBuilder playerBuilder, @Autowired final IdBlockSummary idBlockSummary) {
+        this.playerBuilder = playerBuilder;
+        this.idBlockSummary = idBlockSummary;
+    }
+
+    /**
+     * Finds the end ID for a crawl, just above the highest valid character on the Lodestone.
+     * The ID block summary must already be loaded.
+     *
+     * @param startId ID the crawl starts from, which the search starts from if it is above every stored character.
+     * @param ceilingId Highest end ID to return.
+     * @return End ID for the crawl.
+     * @throws IOException if the Lodestone cannot be probed.
+     * @throws InterruptedException if interrupted while probing.
+     */
+    public synchronized int findEndId(final int startId, final int ceilingId) throws IOException, InterruptedException {
+        probes = 0;
+        long low = Math.max(startId, idBlockSummary.getHighestValidId());
+        long step = INITIAL_STEP;
+        long high = low + step;
+        // Gallop upwards until a probe finds nothing
+        while(high <= ceilingId && anyExist(high, ceilingId)) {
+            low = high;
+            step *= 2;
+            high = low + step;
+        }
+        if(high > ceilingId) {
+            LOG.info("Characters found up to the end of the range, after {} probes", probes);
+            return ceilingId;
+        }
+        // Binary search down to the boundary
+        while(high - low > RESOLUTION) {
+            long middle = (low + high) / 2;
+            if(anyExist(middle, ceilingId)) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        int endId = (int) Math.min(ceilingId, high + SAMPLE_OFFSETS[SAMPLE_OFFSETS.length - 1]);
+        LOG.info("Found the top of the valid ID space below Character #{}, after {} probes", endId, probes);
+        return endId;
+    }
+
+    /**
+     * Determines whether any of the sampled IDs above a probe point belong to a character.
+     */
+    private boolean anyExist(final long point, final int ceilingId) throws IOException, InterruptedException {
+        for(int offset : SAMPLE_OFFSETS) {
+            long id = point + offset;
+            if(id > ceilingId) {
+                break;
+            }
+            probes++;
+            if(playerBuilder.exists((int) id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetches the number of IDs requested from the Lodestone by the last search.
+     *
+     * @return Number of IDs probed.
+     */
+    public synchronized int getProbes() {
+        return probes;
+    }
+}
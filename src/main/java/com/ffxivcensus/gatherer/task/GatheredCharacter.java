@@ -0,0 +1,65 @@
+package com.ffxivcensus.gatherer.task;
+
+import com.ffxivcensus.gatherer.lodestone.RateLimitedException;
+import com.ffxivcensus.gatherer.player.CharacterPage;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+
+/**
+ * A single character passing through the stages of gathering: fetched, then parsed, then persisted.
+ * A character that fails at any stage carries the failure on to be recorded when it is persisted.
+ *
+ * @author fahy
+ * @see GatheringPipeline
+ */
+public class GatheredCharacter {
+
+    private final int id;
+    private CharacterPage page;
+    private PlayerBean player;
+    private Exception failure;
+
+    public GatheredCharacter(final int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public CharacterPage getPage() {
+        return page;
+    }
+
+    public void setPage(final CharacterPage page) {
+        this.page = page;
+    }
+
+    public PlayerBean getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(final PlayerBean player) {
+        this.player = player;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public void setFailure(final Exception failure) {
+        this.failure = failure;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Determines whether the character could not be fetched because the Lodestone rate limited it, so can be tried again later.
+     *
+     * @return true if the fetch was rate limited.
+     */
+    public boolean isRateLimited() {
+        return failure instanceof RateLimitedException;
+    }
+}
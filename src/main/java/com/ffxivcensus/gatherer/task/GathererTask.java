@@ -1,65 +1,346 @@
 package com.ffxivcensus.gatherer.task;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.ffxivcensus.gatherer.GathererController;
+import com.ffxivcensus.gatherer.failure.FailureLedger;
+import com.ffxivcensus.gatherer.feed.ChangeFeedWriter;
 import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.DeletedCharacterStore;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
 import com.ffxivcensus.gatherer.player.PlayerBean;
 import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
 import com.ffxivcensus.gatherer.player.PlayerBuilder;
+import com.ffxivcensus.gatherer.rebuild.StagingTableRebuild;
 
 /**
- * Gatherer worker class that implements Runnable class.
+ * Gatherer class that gathers characters.
  * <p>
- * A worker that executes parses and writes the corresponding player record to the DB.
+ * Gathering a character is split into stages, which can either be run one after the other by {@link #gather(int)}, or on separate
+ * threads by a {@link GatheringPipeline}:
+ * <ol>
+ * <li>{@link #fetch(int)} fetches the character from the Lodestone, which is bound by network I/O.</li>
+ * <li>{@link #parse(GatheredCharacter)} builds the character from the fetched page, which is bound by CPU.</li>
+ * <li>{@link #persist(List)} writes a batch of characters to the DB.</li>
+ * </ol>
+ * A single instance is shared by every thread, so it holds no state about the characters being gathered.
  *
  * @author Peter Reid
  * @since v1.0
  * @see PlayerBuilder
  * @see GathererController
- * @see java.lang.Runnable
+ * @see GatheringPipeline
  */
-public class GathererTask implements Runnable {
+public class GathererTask {
 
     private static final Logger LOG = LoggerFactory.getLogger(GathererTask.class);
     private static final Logger RESULT_LOG = LoggerFactory.getLogger(GathererTask.class.getName() + ".result");
 
-    private int playerId;
     private PlayerBuilder playerBuilder;
     private PlayerBeanRepository playerRepository;
+    private DeletedCharacterStore deletedStore;
+    private IdBlockSummary idBlockSummary;
+    private ChangeFeedWriter changeFeed;
+    private StagingTableRebuild stagingRebuild;
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private FailureLedger failureLedger;
+
+    /**
+     * Gathers a single character, running every stage in turn.
+     *
+     * @param playerId Character ID to gather.
+     * @return Outcome of gathering the character.
+     */
+    public GatheringOutcome gather(final int playerId) {
+        return gather(playerId, null);
+    }
 
     /**
-     * Run the Gatherer.
+     * Gathers a single character, running every stage in turn, unless it is rate limited and can be parked to be tried again later.
+     *
+     * @param playerId Character ID to gather.
+     * @param retries Queue to park the character in if it is rate limited, or null to record it as having failed.
+     * @return Outcome of gathering the character, which is {@link GatheringOutcome#DEFERRED} if it has been parked.
      */
-    @Override
-    public void run() {
+    public GatheringOutcome gather(final int playerId, final DelayedRetryQueue retries) {
         try {
-            LOG.debug("Starting evaluation of player ID: {}", getPlayerId());
-
-            // Check whether we already know about this character
-            PlayerBean player = playerRepository.findOne(getPlayerId());
-            if(player == null || !CharacterStatus.DELETED.equals(player.getCharacterStatus())) {
-                // Only update characters that have not been deleted
-                player = playerBuilder.getPlayer(getPlayerId());
-                getPlayerRepository().save(player);
-                RESULT_LOG.info("{} - {}", getPlayerId(), player.getCharacterStatus());
-            } else {
-                RESULT_LOG.info("{} - SKIPPED as they have been previously marked as DELETED", getPlayerId());
+            GatheredCharacter character = fetch(playerId);
+            if(character == null) {
+                return GatheringOutcome.SKIPPED;
+            }
+            if(character.isRateLimited() && retries != null && retries.park(playerId)) {
+                RESULT_LOG.debug("{} - DEFERRED as rate limited", playerId);
+                return GatheringOutcome.DEFERRED;
+            }
+            parse(character);
+            return persist(Collections.singletonList(character)).get(0);
+        } catch(InterruptedException e) {
+            // Workers are interrupted to stop gathering, so make sure the worker still sees it
+            Thread.currentThread().interrupt();
+            RESULT_LOG.debug("{} - FAILED", playerId);
+            return GatheringOutcome.FAILED;
+        }
+    }
+
+    /**
+     * Fetches a single character from the Lodestone, unless it is already known to have been deleted.
+     *
+     * @param playerId Character ID to fetch.
+     * @return The fetched character, which carries the failure if it could not be fetched, or null if the character was skipped.
+     * @throws InterruptedException if interrupted while fetching, in which case nothing is recorded against the character.
+     */
+    public GatheredCharacter fetch(final int playerId) throws InterruptedException {
+        LOG.debug("Starting evaluation of player ID: {}", playerId);
+        GatheredCharacter character = new GatheredCharacter(playerId);
+        try {
+            // Check whether we already know this character has been deleted
+            if(deletedStore.isDeleted(playerId)) {
+                RESULT_LOG.info("{} - SKIPPED as they have been previously marked as DELETED", playerId);
+                return null;
+            }
+            long fetchStart = System.nanoTime();
+            character.setPage(playerBuilder.fetchPage(playerId));
+            concurrencyLimit.onFetch(System.nanoTime() - fetchStart);
+        } catch(InterruptedException e) {
+            throw e;
+        } catch(Exception e) {
+            character.setFailure(e);
+        }
+        return character;
+    }
+
+    /**
+     * Builds a fetched character from its page.
+     * The page is released once parsed, as it is no longer needed.
+     *
+     * @param character Character fetched by {@link #fetch(int)}.
+     */
+    public void parse(final GatheredCharacter character) {
+        if(!character.isFailed()) {
+            try {
+                character.setPlayer(playerBuilder.parse(character.getPage()));
+            } catch(Exception e) {
+                character.setFailure(e);
+            }
+            character.setPage(null);
+        }
+    }
+
+    /**
+     * Writes a batch of parsed characters to the DB, along with the change feed and ID block summary, and resolves any failures recorded
+     * against them in the failure ledger. Characters that failed in an earlier stage have the failure recorded against them instead.
+     *
+     * @param characters Characters parsed by {@link #parse(GatheredCharacter)}.
+     * @return Outcome of gathering each character, in the same order.
+     */
+    public List<GatheringOutcome> persist(final List<GatheredCharacter> characters) {
+        Map<Integer, PlayerBean> previous = findPrevious(characters);
+        List<PlayerBean> toStore = new ArrayList<>();
+        GatheringOutcome[] outcomes = new GatheringOutcome[characters.size()];
+        for(int i = 0; i < characters.size(); i++) {
+            GatheredCharacter character = characters.get(i);
+            int playerId = character.getId();
+            PlayerBean stored = previous.get(playerId);
+            if(!character.isFailed()) {
+                try {
+                    PlayerBean player = character.getPlayer();
+                    if(CharacterStatus.DELETED.equals(player.getCharacterStatus())) {
+                        recordDeleted(playerId, stored);
+                        outcomes[i] = GatheringOutcome.DELETED;
+                    } else {
+                        recordSuccess(player, stored);
+                        toStore.add(player);
+                        outcomes[i] = GatheringOutcome.STORED;
+                    }
+                } catch(Exception e) {
+                    character.setFailure(e);
+                }
+            }
+            if(character.isFailed()) {
+                outcomes[i] = fail(character, stored);
+            }
+        }
+
+        Map<Integer, Exception> unstored = store(toStore);
+        List<Integer> gathered = new ArrayList<>();
+        for(int i = 0; i < characters.size(); i++) {
+            GatheredCharacter character = characters.get(i);
+            if(outcomes[i] == GatheringOutcome.STORED && unstored.containsKey(character.getId())) {
+                character.setFailure(unstored.get(character.getId()));
+                outcomes[i] = fail(character, previous.get(character.getId()));
+            } else if(outcomes[i] != GatheringOutcome.FAILED) {
+                PlayerBean player = character.getPlayer();
+                PlayerBean stored = previous.get(character.getId());
+                try {
+                    if(outcomes[i] == GatheringOutcome.STORED) {
+                        changeFeed.recordCrawl(stored, player);
+                    }
+                    idBlockSummary.recordCrawl(character.getId(), stored != null ? stored.getCharacterStatus() : null,
+                                               player.getCharacterStatus());
+                } catch(Exception e) {
+                    LOG.error(e.getMessage(), e);
+                }
+                RESULT_LOG.info("{} - {}", character.getId(), player.getCharacterStatus());
+                gathered.add(character.getId());
+            }
+        }
+        // Any failure recorded against the characters gathered is resolved for the whole batch at once
+        failureLedger.resolve(gathered);
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Finds the stored version of each character in a batch.
+     *
+     * @return Stored characters, keyed by Character ID.
+     */
+    private Map<Integer, PlayerBean> findPrevious(final List<GatheredCharacter> characters) {
+        List<Integer> ids = new ArrayList<>();
+        for(GatheredCharacter character : characters) {
+            ids.add(character.getId());
+        }
+        Map<Integer, PlayerBean> previous = new HashMap<>();
+        try {
+            for(PlayerBean player : getPlayerRepository().findAll(ids)) {
+                previous.put(player.getId(), player);
             }
         } catch(Exception e) {
-            LOG.error(e.getMessage(), e);
-            RESULT_LOG.debug("{} - FAILED", getPlayerId());
+            // Without the stored characters, nothing can be safely written
+            for(GatheredCharacter character : characters) {
+                if(!character.isFailed()) {
+                    character.setFailure(e);
+                }
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Records the deletion of a character, removing it from the DB if it was stored.
+     *
+     * @param playerId Character ID that has been deleted.
+     * @param previous Character as previously stored, or null if it was not known.
+     * @throws IOException if the deletion cannot be written to the change feed.
+     */
+    private void recordDeleted(final int playerId, final PlayerBean previous) throws IOException {
+        // Deleted characters are recorded as ranges, rather than as full rows
+        deletedStore.markDeleted(playerId);
+        if(previous != null) {
+            // A rebuild leaves deleted characters out of the staging tables, rather than deleting them from the live tables
+            if(!stagingRebuild.isEnabled()) {
+                getPlayerRepository().delete(playerId);
+            }
+            changeFeed.recordDeleted(playerId, previous.getCharacterStatus());
+        }
+    }
+
+    /**
+     * Stores a batch of gathered characters, in the staging tables if a rebuild is running.
+     * If the batch cannot be stored in one go, each character is stored on its own so that one bad character does not fail the rest.
+     *
+     * @param players Characters to store.
+     * @return Error each character that could not be stored failed with, keyed by Character ID.
+     */
+    private Map<Integer, Exception> store(final List<PlayerBean> players) {
+        Map<Integer, Exception> unstored = new HashMap<>();
+        if(players.isEmpty()) {
+            return unstored;
+        }
+        long storeStart = System.nanoTime();
+        try {
+            if(stagingRebuild.isEnabled()) {
+                for(PlayerBean player : players) {
+                    stagingRebuild.write(player);
+                }
+            } else {
+                getPlayerRepository().save(players);
+            }
+        } catch(Exception batchFailure) {
+            LOG.warn("Unable to store batch of {} characters, storing each in turn: {}", players.size(), batchFailure.getMessage());
+            for(PlayerBean player : players) {
+                try {
+                    if(stagingRebuild.isEnabled()) {
+                        stagingRebuild.write(player);
+                    } else {
+                        getPlayerRepository().save(player);
+                    }
+                } catch(Exception e) {
+                    LOG.error(e.getMessage(), e);
+                    unstored.put(player.getId(), e);
+                }
+            }
         }
+        concurrencyLimit.onStore((System.nanoTime() - storeStart) / players.size());
+        return unstored;
     }
 
-    public int getPlayerId() {
-        return playerId;
+    /**
+     * Updates the crawl bookkeeping of a successfully gathered character, carrying the last change time forward if nothing has changed.
+     * The crawl and change counts carry on from the stored character, and together give the character's observed change history.
+     *
+     * @param player Character that has been gathered.
+     * @param previous Character as previously stored, or null if it was not known.
+     */
+    private void recordSuccess(final PlayerBean player, final PlayerBean previous) {
+        Date now = new Date();
+        boolean changed = previous != null && !player.hasSameContentAs(previous);
+        player.setLastCrawledAt(now);
+        player.setFailureCount(0);
+        player.setCrawlCount(previous != null ? previous.getCrawlCount() + 1 : 1);
+        player.setChangeCount(previous != null ? previous.getChangeCount() + (changed ? 1 : 0) : 0);
+        if(previous == null || previous.getLastChangedAt() == null || changed) {
+            player.setLastChangedAt(now);
+        } else {
+            player.setLastChangedAt(previous.getLastChangedAt());
+        }
     }
 
-    public void setPlayerId(final int playerId) {
-        this.playerId = playerId;
+    /**
+     * Logs and records a character that could not be gathered.
+     *
+     * @return {@link GatheringOutcome#FAILED}
+     */
+    private GatheringOutcome fail(final GatheredCharacter character, final PlayerBean previous) {
+        if(character.getFailure() != null) {
+            LOG.error(character.getFailure().getMessage(), character.getFailure());
+        }
+        RESULT_LOG.debug("{} - FAILED", character.getId());
+        recordFailure(character.getId(), character.getFailure(), previous);
+        return GatheringOutcome.FAILED;
+    }
+
+    /**
+     * Records a failed crawl against the character, if it is already stored, and in the failure ledger so that it is tried again.
+     * During a rebuild, the stored character is carried into the staging tables so that it is not lost by the failure.
+     *
+     * @param playerId Character ID that failed.
+     * @param failure Error the character failed with.
+     * @param previous Character as previously stored, or null if it was not known.
+     */
+    private void recordFailure(final int playerId, final Exception failure, final PlayerBean previous) {
+        failureLedger.record(playerId, failure);
+        try {
+            if(!stagingRebuild.isEnabled()) {
+                getPlayerRepository().recordFailure(playerId, new Date());
+            } else if(previous != null) {
+                previous.setLastCrawledAt(new Date());
+                previous.setFailureCount(previous.getFailureCount() + 1);
+                stagingRebuild.write(previous);
+            }
+        } catch(Exception e) {
+            LOG.warn("Unable to record failure for player ID {}: {}", playerId, e.getMessage());
+        }
     }
 
     public PlayerBeanRepository getPlayerRepository() {
@@ -76,4 +357,34 @@ public class GathererTask implements Runnable {
         this.playerRepository = playerRepository;
     }
 
+    @Autowired
+    public void setDeletedStore(DeletedCharacterStore deletedStore) {
+        this.deletedStore = deletedStore;
+    }
+
+    @Autowired
+    public void setIdBlockSummary(IdBlockSummary idBlockSummary) {
+        this.idBlockSummary = idBlockSummary;
+    }
+
+    @Autowired
+    public void setChangeFeed(ChangeFeedWriter changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Autowired
+    public void setStagingRebuild(StagingTableRebuild stagingRebuild) {
+        this.stagingRebuild = stagingRebuild;
+    }
+
+    @Autowired
+    public void setConcurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Autowired
+    public void setFailureLedger(FailureLedger failureLedger) {
+        this.failureLedger = failureLedger;
+    }
+
 }
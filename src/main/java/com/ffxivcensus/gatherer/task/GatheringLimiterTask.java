@@ -1,14 +1,12 @@
 package com.ffxivcensus.gatherer.task;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ffxivcensus.gatherer.config.ApplicationConfig;
-import com.ffxivcensus.gatherer.player.CharacterStatus;
-import com.ffxivcensus.gatherer.player.PlayerBean;
-import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
 
 /**
  * Runnable task managing the shutdown criteria of the gathering process, by managing the {@see ExecutorService}.
@@ -19,28 +17,27 @@ public class GatheringLimiterTask implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(GatheringLimiterTask.class);
 
-    private ThreadPoolExecutor gathererExecutor;
-    private PlayerBeanRepository characterRepository;
+    private ExecutorService gathererExecutor;
+    private IdBlockSummary idBlockSummary;
     private ApplicationConfig config;
 
-    public GatheringLimiterTask(ApplicationConfig config, final ThreadPoolExecutor gathererExecutor, final PlayerBeanRepository playerBeanRepository) {
+    public GatheringLimiterTask(ApplicationConfig config, final ExecutorService gathererExecutor, final IdBlockSummary idBlockSummary) {
         this.config = config;
         this.gathererExecutor = gathererExecutor;
-        this.characterRepository = playerBeanRepository;
+        this.idBlockSummary = idBlockSummary;
     }
 
     @Override
     public void run() {
         LOG.debug("GATHERING CAPPING: Checking whether the gathering should stop...");
-        // Check the database for the highest valid character
-        PlayerBean highestGathered = characterRepository.findTopByOrderByIdDesc();
-        // Check the database for the highest gathered ID so far
-        PlayerBean highestValid = characterRepository.findTopByCharacterStatusNotOrderByIdDesc(CharacterStatus.DELETED);
+        // Check the ID block summary for the highest gathered ID so far, which may be either a valid or a deleted character
+        int highestGathered = idBlockSummary.getHighestCrawledId();
+        // Check the ID block summary for the highest valid character
+        int maxValidId = idBlockSummary.getHighestValidId();
         // if the gap between valid character and gathered ID is greater than the gap limit
         // then
         // - issue gathererService.shutdownNow()
-        int maxId = highestGathered == null ? Integer.MAX_VALUE : highestGathered.getId();
-        int maxValidId = highestValid == null ? 0 : highestValid.getId();
+        int maxId = highestGathered == 0 ? Integer.MAX_VALUE : highestGathered;
 
         if(maxId > config.getAutoStopLowerLimitId() && maxId > maxValidId + config.getAutoStopGap()) {
             LOG.info("GATHERING CAPPING: FINISHING - No valid characters found for at least {} ID's after Character #{}",
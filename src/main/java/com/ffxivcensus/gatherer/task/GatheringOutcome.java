@@ -0,0 +1,19 @@
+package com.ffxivcensus.gatherer.task;
+
+/**
+ * Outcome of gathering a single character.
+ *
+ * @author fahy
+ */
+public enum GatheringOutcome {
+    /** The character exists, and has been stored. */
+    STORED,
+    /** The character has been deleted from the Lodestone. */
+    DELETED,
+    /** The character was already known to be deleted, so was not fetched. */
+    SKIPPED,
+    /** The character could not be gathered. */
+    FAILED,
+    /** The character was rate limited, so has been parked to be gathered again later, and is not yet complete. */
+    DEFERRED
+}
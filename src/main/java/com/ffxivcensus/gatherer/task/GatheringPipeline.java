@@ -0,0 +1,233 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers characters in three stages, each on its own threads, connected by bounded queues:
+ * <ol>
+ * <li>Fetchers each take IDs from their own cursor of the {@link IdAllocator}, and fetch each character from the Lodestone. There
+ * is one fetcher per configured thread, and each acquires a permit from the {@link AdaptiveConcurrencyLimit} for every fetch.</li>
+ * <li>Parsers build each fetched character from its page. There is one parser per CPU core.</li>
+ * <li>A single writer persists the parsed characters in batches of up to {@value #BATCH_SIZE}.</li>
+ * </ol>
+ * When a stage falls behind, the queue in front of it fills up and the stage before it blocks, so no stage can run away from the others.
+ * A character the Lodestone rate limits is parked in a {@link DelayedRetryQueue} rather than the fetcher waiting for it, and is fetched
+ * again by whichever fetcher is free once it has backed off.
+ * Each ID is reported to the allocator once it has been persisted, along with the outcome of gathering it.
+ * <p>
+ * Once the fetchers have run out of IDs, the parsers and then the writer finish whatever is still queued before stopping. Interrupting the
+ * fetchers and parsers, such as by shutting the executor down with {@link ExecutorService#shutdownNow()}, stops gathering straight
+ * away, but the writer still persists every character that reached it.
+ *
+ * @author fahy
+ */
+public class GatheringPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GatheringPipeline.class);
+    /** Most characters persisted in a single batch. */
+    static final int BATCH_SIZE = 50;
+    /** Number of fetched characters queued for each parser. */
+    private static final int PARSE_QUEUE_PER_THREAD = 4;
+    /** How long stages wait for work before checking whether the stage before them has finished. */
+    private static final long POLL_MILLIS = 100;
+
+    private final GathererTask gatherer;
+    private final IdAllocator idAllocator;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final DelayedRetryQueue retries = new DelayedRetryQueue();
+    private final int fetchThreads;
+    private final int parseThreads;
+    private final BlockingQueue<GatheredCharacter> parseQueue;
+    private final BlockingQueue<GatheredCharacter> persistQueue;
+    private final AtomicInteger runningFetchers = new AtomicInteger();
+    private final AtomicInteger runningParsers = new AtomicInteger();
+    private final AtomicInteger parsing = new AtomicInteger();
+    private final AtomicLong batches = new AtomicLong();
+    private final Map<GatheringOutcome, AtomicLong> outcomes = new EnumMap<>(GatheringOutcome.class);
+
+    public GatheringPipeline(final GathererTask gatherer, final IdAllocator idAllocator,
+                             final AdaptiveConcurrencyLimit concurrencyLimit, final int fetchThreads, final int parseThreads) {
+        this.gatherer = gatherer;
+        this.idAllocator = idAllocator;
+        this.concurrencyLimit = concurrencyLimit;
+        this.fetchThreads = fetchThreads;
+        this.parseThreads = parseThreads;
+        this.parseQueue = new ArrayBlockingQueue<>(parseThreads * PARSE_QUEUE_PER_THREAD);
+        this.persistQueue = new ArrayBlockingQueue<>(BATCH_SIZE * 2);
+        for(GatheringOutcome outcome : GatheringOutcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    /**
+     * Fetches the number of threads the pipeline needs, which the executor it is started on must provide.
+     *
+     * @return Number of fetchers, parsers and writers.
+     */
+    public int getThreadCount() {
+        return fetchThreads + parseThreads + 1;
+    }
+
+    /**
+     * Starts every stage of the pipeline on the given executor, and then shuts the executor down so that it terminates once the pipeline
+     * has finished.
+     *
+     * @param executor Executor with at least {@link #getThreadCount()} threads.
+     */
+    public void start(final ExecutorService executor) {
+        runningFetchers.set(fetchThreads);
+        runningParsers.set(parseThreads);
+        for(int i = 0; i < fetchThreads; i++) {
+            executor.execute(this::fetchStage);
+        }
+        for(int i = 0; i < parseThreads; i++) {
+            executor.execute(this::parseStage);
+        }
+        executor.execute(this::persistStage);
+        executor.shutdown();
+    }
+
+    private void fetchStage() {
+        IdSource idSource = retries.cursor(idAllocator.newCursor());
+        try {
+            int id = idSource.nextId();
+            while(id != IdSource.EXHAUSTED && !Thread.currentThread().isInterrupted()) {
+                GatheredCharacter character;
+                concurrencyLimit.acquire();
+                try {
+                    character = gatherer.fetch(id);
+                } finally {
+                    concurrencyLimit.release();
+                }
+                if(character != null && character.isRateLimited() && retries.park(id)) {
+                    outcomes.get(GatheringOutcome.DEFERRED).incrementAndGet();
+                    id = idSource.nextId();
+                    continue;
+                }
+                retries.settle(id);
+                if(character == null) {
+                    outcomes.get(GatheringOutcome.SKIPPED).incrementAndGet();
+                    idSource.complete(id, GatheringOutcome.SKIPPED);
+                } else {
+                    parseQueue.put(character);
+                }
+                id = idSource.nextId();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningFetchers.decrementAndGet();
+        }
+    }
+
+    private void parseStage() {
+        try {
+            while(runningFetchers.get() > 0 || !parseQueue.isEmpty()) {
+                GatheredCharacter character = parseQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(character != null) {
+                    parsing.incrementAndGet();
+                    try {
+                        gatherer.parse(character);
+                    } finally {
+                        parsing.decrementAndGet();
+                    }
+                    persistQueue.put(character);
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningParsers.decrementAndGet();
+        }
+    }
+
+    private void persistStage() {
+        boolean interrupted = false;
+        List<GatheredCharacter> batch = new ArrayList<>(BATCH_SIZE);
+        while(runningParsers.get() > 0 || !persistQueue.isEmpty()) {
+            try {
+                GatheredCharacter first = persistQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch(InterruptedException e) {
+                // Keep going until the parsers have stopped, so that nothing already parsed is lost
+                interrupted = true;
+                continue;
+            }
+            persistQueue.drainTo(batch, BATCH_SIZE - 1);
+            persistBatch(batch);
+            batches.incrementAndGet();
+            batch.clear();
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.debug("Pipeline finished: {}", describe());
+    }
+
+    /**
+     * Persists a batch, and reports each character in it to the allocator. As there is only one writer, nothing thrown here may stop it
+     * while the stages before it are still feeding it, so a batch that cannot be persisted counts as failed, and a character that cannot
+     * be reported is only logged.
+     *
+     * @param batch Parsed characters to persist.
+     */
+    private void persistBatch(final List<GatheredCharacter> batch) {
+        List<GatheringOutcome> batchOutcomes;
+        try {
+            batchOutcomes = gatherer.persist(batch);
+        } catch(RuntimeException e) {
+            LOG.error("Unable to persist batch of " + batch.size() + " characters: " + e.getMessage(), e);
+            batchOutcomes = Collections.nCopies(batch.size(), GatheringOutcome.FAILED);
+        }
+        for(int i = 0; i < batch.size(); i++) {
+            int id = batch.get(i).getId();
+            outcomes.get(batchOutcomes.get(i)).incrementAndGet();
+            try {
+                idAllocator.complete(id, batchOutcomes.get(i));
+            } catch(RuntimeException e) {
+                LOG.error("Unable to report Character #" + id + " as gathered: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Fetches the number of characters gathered so far with the given outcome.
+     *
+     * @param outcome Outcome to count.
+     * @return Number of characters.
+     */
+    public long getCount(final GatheringOutcome outcome) {
+        return outcomes.get(outcome).get();
+    }
+
+    /**
+     * Describes how busy each stage is, and how full the queues between them are.
+     * A queue that stays full shows that the stage after it is the bottleneck.
+     *
+     * @return Description of the pipeline.
+     */
+    public String describe() {
+        return String.format("fetching %d (limit %d), %d parked, %d/%d awaiting parse, parsing %d, %d/%d awaiting write, %d batches written, %s",
+                             concurrencyLimit.getInFlight(), concurrencyLimit.getLimit(), retries.getParked(),
+                             parseQueue.size(), parseQueue.size() + parseQueue.remainingCapacity(),
+                             parsing.get(),
+                             persistQueue.size(), persistQueue.size() + persistQueue.remainingCapacity(),
+                             batches.get(), outcomes);
+    }
+}
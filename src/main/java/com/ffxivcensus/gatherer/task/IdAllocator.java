@@ -0,0 +1,56 @@
+package com.ffxivcensus.gatherer.task;
+
+/**
+ * Allocator of the Character IDs to gather, which hands a cursor to each thread taking IDs from it.
+ * Each ID is issued by exactly one cursor, and is reported back to the allocator once it has been gathered.
+ *
+ * @author fahy
+ * @see ChunkedIdAllocator
+ */
+public interface IdAllocator {
+
+    /**
+     * Creates a new cursor, which must only be used by a single thread.
+     *
+     * @return New cursor over the IDs in this allocator.
+     */
+    IdSource newCursor();
+
+    /**
+     * Records that an ID has been gathered, whichever cursor issued it.
+     *
+     * @param id Character ID that has been gathered.
+     */
+    void complete(int id);
+
+    /**
+     * Records that an ID could not be gathered, whichever cursor issued it. Unless overridden, a failed ID is simply complete.
+     *
+     * @param id Character ID that failed.
+     */
+    default void fail(final int id) {
+        complete(id);
+    }
+
+    /**
+     * Records the outcome of gathering an ID, whichever cursor issued it. Unless overridden, a failed ID is passed to
+     * {@link #fail(int)}, and any other to {@link #complete(int)}.
+     *
+     * @param id Character ID that has been gathered.
+     * @param outcome Outcome of gathering the character.
+     */
+    default void complete(final int id, final GatheringOutcome outcome) {
+        if(outcome == GatheringOutcome.FAILED) {
+            fail(id);
+        } else {
+            complete(id);
+        }
+    }
+
+    /**
+     * Describes how far gathering has got, for logging.
+     *
+     * @return Description of progress.
+     */
+    String describeProgress();
+}
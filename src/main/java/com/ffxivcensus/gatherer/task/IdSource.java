@@ -0,0 +1,60 @@
+package com.ffxivcensus.gatherer.task;
+
+/**
+ * Source of the Character IDs to gather, shared by every thread gathering them.
+ * Implementations must be safe to call from many threads at once.
+ *
+ * @author fahy
+ */
+public interface IdSource {
+
+    /** Returned by {@link #nextId()} once there are no more IDs to gather. */
+    int EXHAUSTED = -1;
+    /**
+     * Returned by {@link #nextId()} when there are no IDs to gather at the moment, but there may be more later, such as once IDs already
+     * issued have been gathered. Sources return it rather than waiting, as an ID they are waiting on may be parked in a
+     * {@link DelayedRetryQueue} until the thread asking for the next ID takes it from there. Cursors of the queue never pass it on.
+     */
+    int PENDING = -2;
+
+    /**
+     * Issues the next Character ID to gather. Each ID is issued once.
+     *
+     * @return Next Character ID, {@link #PENDING} if there are none at the moment, or {@link #EXHAUSTED} if there are no more.
+     * @throws InterruptedException if interrupted while waiting for an ID.
+     */
+    int nextId() throws InterruptedException;
+
+    /**
+     * Records that an ID issued by this source has been gathered, whatever the outcome.
+     * Sources that do not track completion need not do anything.
+     *
+     * @param id Character ID that has been gathered.
+     */
+    default void complete(final int id) {
+    }
+
+    /**
+     * Records that an ID issued by this source could not be gathered. Unless overridden, a failed ID is simply complete.
+     *
+     * @param id Character ID that failed.
+     */
+    default void fail(final int id) {
+        complete(id);
+    }
+
+    /**
+     * Records the outcome of gathering an ID issued by this source. Unless overridden, a failed ID is passed to {@link #fail(int)},
+     * and any other to {@link #complete(int)}.
+     *
+     * @param id Character ID that has been gathered.
+     * @param outcome Outcome of gathering the character.
+     */
+    default void complete(final int id, final GatheringOutcome outcome) {
+        if(outcome == GatheringOutcome.FAILED) {
+            fail(id);
+        } else {
+            complete(id);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+
+/**
+ * Allocator of the Character IDs in a range, which probes only every {@value #PROBE_STRIDE}th ID where almost every character has been
+ * deleted, rather than spending a request on every ID.
+ * <p>
+ * The range is issued in windows of {@value #WINDOW_SIZE} IDs. The recent valid density of each ID block is tracked as characters are
+ * gathered, starting from the density the {@link IdBlockSummary} holds from earlier runs, so regions already known to be deleted are
+ * probed sparsely from the start. A window in a block whose density is below {@value #SPARSE_BELOW} only has every
+ * {@value #PROBE_STRIDE}th ID issued. Whenever a probe finds a valid character, the IDs skipped on either side of it are queued and
+ * issued ahead of the rest of the range. Whenever one of those finds a valid character in turn, the IDs skipped beyond the probes on
+ * either side of it are queued too, so the scan keeps spreading for as long as it finds characters, and the characters clustered around
+ * a probe are gathered in full however wide their cluster is.
+ * <p>
+ * Isolated characters between probes are missed, which is the price of skipping the IDs around them. The range is only exhausted once
+ * every probe and scanned ID has been gathered, as any of them may yet find a character whose neighbours need gathering, and until
+ * then, IDs are {@link IdSource#PENDING pending} once the rest of the range has been issued.
+ *
+ * @author fahy
+ */
+public class SparseProbeAllocator implements IdAllocator {
+
+    /** Number of IDs whose density is judged together. */
+    static final int WINDOW_SIZE = 256;
+    /** Distance between probes in a sparse window, which must divide the window size. */
+    static final int PROBE_STRIDE = 16;
+    /** Valid density below which a window is probed sparsely. */
+    static final double SPARSE_BELOW = 0.02;
+    /** Weight of each gathered character in the recent density of its block. */
+    private static final double DENSITY_WEIGHT = 0.02;
+
+    private final int startId;
+    private final int finishId;
+    private final IdBlockSummary idBlockSummary;
+    /** Recent valid density of each block that has been reached, keyed by block number. */
+    private final Map<Integer, Double> densities = new HashMap<>();
+    /** Runs of consecutive sparse windows, keyed by their first ID, with probes every {@value #PROBE_STRIDE} IDs from the first. */
+    private final TreeMap<Integer, Integer> sparseRuns = new TreeMap<>();
+    /** IDs skipped next to a probe that found a character, to be issued before the rest of the range. */
+    private final Deque<Integer> scanQueue = new ArrayDeque<>();
+    /** First ID of every gap between probes that has been queued, so that no gap is queued twice. */
+    private final Set<Integer> scannedGaps = new HashSet<>();
+    /** Probes and scanned IDs issued but not yet gathered, any of which may yet need the IDs around it scanned. */
+    private final Set<Integer> sparseInFlight = new HashSet<>();
+    private long next;
+    private long windowEnd;
+    private boolean windowSparse;
+    private long probed;
+    private long skipped;
+    private long scanned;
+    private long hits;
+
+    /**
+     * Creates a new allocator issuing the IDs from the start ID to the finish ID, both inclusive, that are worth probing.
+     *
+     * @param startId First ID of the range.
+     * @param finishId Last ID of the range.
+     * @param idBlockSummary Summary of each ID block, which should be loaded, giving the densities found by earlier runs.
+     */
+    public SparseProbeAllocator(final int startId, final int finishId, final IdBlockSummary idBlockSummary) {
+        this.startId = startId;
+        this.finishId = finishId;
+        this.idBlockSummary = idBlockSummary;
+        this.next = startId;
+        this.windowEnd = startId - 1L;
+    }
+
+    @Override
+    public IdSource newCursor() {
+        return new IdSource() {
+            @Override
+            public int nextId() {
+                return SparseProbeAllocator.this.nextId();
+            }
+
+            @Override
+            public void complete(final int id) {
+                SparseProbeAllocator.this.complete(id);
+            }
+
+            @Override
+            public void fail(final int id) {
+                SparseProbeAllocator.this.fail(id);
+            }
+
+            @Override
+            public void complete(final int id, final GatheringOutcome outcome) {
+                SparseProbeAllocator.this.complete(id, outcome);
+            }
+        };
+    }
+
+    private synchronized int nextId() {
+        while(true) {
+            if(!scanQueue.isEmpty()) {
+                int id = scanQueue.poll();
+                sparseInFlight.add(id);
+                return id;
+            }
+            if(next <= finishId) {
+                if(next > windowEnd) {
+                    startWindow();
+                }
+                int id = (int) next;
+                if(windowSparse) {
+                    next = Math.min(next + PROBE_STRIDE, windowEnd + 1);
+                    skipped += next - id - 1;
+                    probed++;
+                    sparseInFlight.add(id);
+                } else {
+                    next++;
+                }
+                return id;
+            }
+            // Any of the last probes or scanned IDs may yet find characters whose neighbours need gathering
+            return sparseInFlight.isEmpty() ? IdSource.EXHAUSTED : IdSource.PENDING;
+        }
+    }
+
+    /**
+     * Starts the next window of the range, probing it sparsely if its block is recently almost all deleted.
+     */
+    private void startWindow() {
+        windowEnd = Math.min(finishId, next + WINDOW_SIZE - 1);
+        windowSparse = densityOf(IdBlockSummary.blockOf((int) next)) < SPARSE_BELOW;
+        if(windowSparse) {
+            // Extend the last run if this window follows straight on from it, so that gaps can be scanned across windows
+            Map.Entry<Integer, Integer> last = sparseRuns.lastEntry();
+            int runStart = last != null && last.getValue() == next - 1 ? last.getKey() : (int) next;
+            sparseRuns.put(runStart, (int) windowEnd);
+        }
+    }
+
+    @Override
+    public void complete(final int id) {
+        record(id, false, true);
+    }
+
+    @Override
+    public void fail(final int id) {
+        // Nothing is known about the character, so it does not count towards the density
+        record(id, false, false);
+    }
+
+    @Override
+    public void complete(final int id, final GatheringOutcome outcome) {
+        if(outcome == GatheringOutcome.FAILED) {
+            fail(id);
+        } else {
+            record(id, outcome == GatheringOutcome.STORED, true);
+        }
+    }
+
+    private synchronized void record(final int id, final boolean valid, final boolean known) {
+        if(known) {
+            int block = IdBlockSummary.blockOf(id);
+            double density = densityOf(block);
+            densities.put(block, density + ((valid ? 1 : 0) - density) * DENSITY_WEIGHT);
+        }
+        if(valid) {
+            hits++;
+        }
+        if(sparseInFlight.remove(id) && valid) {
+            scanAround(id);
+        }
+    }
+
+    /**
+     * Queues the IDs skipped around a probe or scanned ID that found a character. For a probe, these are the gaps on either side of it,
+     * and for a scanned ID, the gaps beyond the probes on either side of its own gap.
+     */
+    private void scanAround(final int id) {
+        Map.Entry<Integer, Integer> run = sparseRuns.floorEntry(id);
+        int probe = id - (id - run.getKey()) % PROBE_STRIDE;
+        queueGapAfter(run, probe - PROBE_STRIDE);
+        queueGapAfter(run, probe == id ? probe : probe + PROBE_STRIDE);
+    }
+
+    /**
+     * Queues the IDs skipped between the given probe and the next, within a run of sparse windows.
+     */
+    private void queueGapAfter(final Map.Entry<Integer, Integer> run, final int probe) {
+        int from = Math.max(run.getKey(), probe + 1);
+        int to = Math.min(run.getValue(), probe + PROBE_STRIDE - 1);
+        if(from <= to && scannedGaps.add(from)) {
+            for(int id = from; id <= to; id++) {
+                scanQueue.add(id);
+            }
+            scanned += to - from + 1;
+        }
+    }
+
+    /**
+     * Fetches the recent valid density of a block, starting from the density known from earlier runs. A block nothing is known about
+     * is assumed to be dense, so that it is gathered in full until shown otherwise.
+     */
+    private double densityOf(final int block) {
+        Double density = densities.get(block);
+        if(density == null) {
+            double known = idBlockSummary.getValidDensity(IdBlockSummary.firstIdOf(block), IdBlockSummary.lastIdOf(block));
+            density = known < 0 ? 1 : known;
+            densities.put(block, density);
+        }
+        return density;
+    }
+
+    @Override
+    public synchronized String describeProgress() {
+        return String.format("Reached Character #%d of #%d to #%d, probing %d IDs and skipping %d in sparse regions, and scanning %d "
+                             + "IDs around the characters found there (%d characters found in all)",
+                             Math.min(next, finishId + 1L) - 1, startId, finishId, probed, skipped - scanned, scanned, hits);
+    }
+
+    /**
+     * Fetches the number of IDs skipped in sparse regions, and never issued.
+     *
+     * @return Number of IDs skipped.
+     */
+    public synchronized long getSkipped() {
+        return skipped - scanned;
+    }
+}
@@ -1,11 +1,13 @@
 package com.ffxivcensus.gatherer.task;
 
+import java.util.concurrent.ExecutorService;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
 /**
- * Factory class to create new Gatherer beans which are still managed by the IoC container.
+ * Factory class to create new Gatherer pipelines and dispatchers, sharing the {@link GathererTask} and {@link AdaptiveConcurrencyLimit}
+ * managed by the IoC container.
  * 
  * @author matthew.hillier
  */
@@ -13,15 +15,31 @@ import org.springframework.stereotype.Service;
 public class TaskFactory {
 
     @Autowired
-    private ApplicationContext context;
+    private GathererTask gatherer;
+    @Autowired
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    /**
+     * Creates a new Gatherer pipeline.
+     * 
+     * @param idAllocator Allocator of the Character IDs the pipeline should gather.
+     * @param fetchThreads Number of threads fetching characters from the Lodestone.
+     * @param parseThreads Number of threads parsing fetched characters.
+     * @return New Gatherer pipeline.
+     */
+    public GatheringPipeline createPipeline(final IdAllocator idAllocator, final int fetchThreads, final int parseThreads) {
+        return new GatheringPipeline(gatherer, idAllocator, concurrencyLimit, fetchThreads, parseThreads);
+    }
 
     /**
-     * Creates a new Gatherer object.
+     * Creates a new dispatcher, gathering each character on its own task of the given executor.
      * 
-     * @return New Gatherer.
+     * @param idSource Source of the Character IDs to gather.
+     * @param executor Executor to gather each character on, which the dispatcher shuts down once the source is exhausted.
+     * @return New dispatcher.
      */
-    public GathererTask createGatherer() {
-        return (GathererTask) context.getBean("gatherer");
+    public VirtualThreadDispatcher createDispatcher(final IdSource idSource, final ExecutorService executor) {
+        return new VirtualThreadDispatcher(gatherer, idSource, concurrencyLimit, executor);
     }
 
 }
@@ -0,0 +1,81 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches each character to its own virtual thread, as an alternative to the {@link GatheringPipeline}.
+ * <p>
+ * Before each character is dispatched, a permit is acquired from the {@link AdaptiveConcurrencyLimit}, and it is released once the
+ * character has been gathered, so the limit alone bounds how many characters are gathered at once. The executor is shut down once the
+ * source is exhausted, so that it terminates when the last character has been gathered. Dispatching stops early if the executor is shut
+ * down, or the dispatching thread is interrupted.
+ * <p>
+ * A character the Lodestone rate limits is parked in a {@link DelayedRetryQueue}, freeing its permit and virtual thread, and is dispatched
+ * again once it has backed off, so the source is only exhausted once every parked character has been gathered.
+ *
+ * @author fahy
+ * @see VirtualThreads
+ */
+public class VirtualThreadDispatcher implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+    private final GathererTask gatherer;
+    private final IdSource idSource;
+    private final DelayedRetryQueue retries = new DelayedRetryQueue();
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ExecutorService executor;
+
+    public VirtualThreadDispatcher(final GathererTask gatherer, final IdSource idSource, final AdaptiveConcurrencyLimit concurrencyLimit,
+                                   final ExecutorService executor) {
+        this.gatherer = gatherer;
+        this.idSource = retries.cursor(idSource);
+        this.concurrencyLimit = concurrencyLimit;
+        this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int id = idSource.nextId();
+            while(id != IdSource.EXHAUSTED && !Thread.currentThread().isInterrupted()) {
+                concurrencyLimit.acquire();
+                try {
+                    executor.execute(gatherTask(id));
+                } catch(RejectedExecutionException e) {
+                    concurrencyLimit.release();
+                    LOG.debug("Stopped dispatching at Character #{} as gathering has been stopped", id);
+                    return;
+                }
+                id = idSource.nextId();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Runnable gatherTask(final int id) {
+        return () -> {
+            GatheringOutcome outcome = GatheringOutcome.FAILED;
+            try {
+                outcome = gatherer.gather(id, retries);
+                if(outcome != GatheringOutcome.DEFERRED) {
+                    idSource.complete(id, outcome);
+                }
+            } catch(RuntimeException e) {
+                LOG.error("Unable to gather Character #" + id + ": " + e.getMessage(), e);
+            } finally {
+                // Settled however gathering ended, as the retry queue is only exhausted once nothing it issued is still unsettled
+                if(outcome != GatheringOutcome.DEFERRED) {
+                    retries.settle(id);
+                }
+                concurrencyLimit.release();
+            }
+        };
+    }
+}
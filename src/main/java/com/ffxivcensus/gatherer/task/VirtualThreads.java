@@ -0,0 +1,61 @@
+package com.ffxivcensus.gatherer.task;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, looked up reflectively so that the gatherer still builds and runs on Java versions without them.
+ *
+ * @author fahy
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Determines whether the running Java version supports virtual threads, and allows them to be used.
+     *
+     * @return true if virtual threads are available.
+     */
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that runs each task on its own new virtual thread.
+     *
+     * @return New executor.
+     * @throws UnsupportedOperationException if the running Java version does not support virtual threads, or does not allow them.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if(!isAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, or previews enabled on Java 19 or 20, but running on Java "
+                                                    + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch(ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Looks up the virtual thread executor factory, and probes it once by creating and closing an executor, as the factory is also
+     * present on Java versions where virtual threads are a preview feature, and there refuses to run unless previews are enabled.
+     *
+     * @return The factory, or null if virtual threads cannot be used.
+     */
+    private static Method findFactory() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        } catch(ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.ffxivcensus.gatherer;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -14,8 +15,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.xml.sax.SAXException;
 
 import com.ffxivcensus.gatherer.config.ApplicationConfig;
-import com.ffxivcensus.gatherer.player.CharacterStatus;
-import com.ffxivcensus.gatherer.player.PlayerBean;
+import com.ffxivcensus.gatherer.player.DeletedCharacterStore;
 import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
 
 /**
@@ -38,6 +38,8 @@ public class GathererControllerIT {
     private GathererController gathererController;
     @Autowired
     private PlayerBeanRepository playerRepository;
+    @Autowired
+    private DeletedCharacterStore deletedStore;
 
     /**
      * Test gathering run of range from 11886902 to 11887010
@@ -61,7 +63,8 @@ public class GathererControllerIT {
         assertNotNull(playerRepository.findOne(11887010));
 
         // Test that gatherer has correctly identified the deleted character
-        assertEquals(CharacterStatus.DELETED, playerRepository.findOne(11886909).getCharacterStatus());
+        assertTrue(deletedStore.isDeleted(11886909));
+        assertNull(playerRepository.findOne(11886909));
 
         // Test that gatherer has not 'overrun'
         assertNull(playerRepository.findOne(11887011));
@@ -98,7 +101,7 @@ public class GathererControllerIT {
         assertNotNull(playerRepository.findOne(1557495));
 
         // Test that gatherer has correctly identified the deleted character
-        assertEquals(CharacterStatus.DELETED, playerRepository.findOne(1558259).getCharacterStatus());
+        assertTrue(deletedStore.isDeleted(1558259));
 
         // Test that gatherer has not 'overrun'
         assertNull(playerRepository.findOne(config.getStartId() - 1));
@@ -114,10 +117,10 @@ public class GathererControllerIT {
         gathererController.run();
 
         // Test that character 50,000,000 was gathered, but didn't exist
-        PlayerBean expectedDeleted = playerRepository.findOne(50000000);
-        assertEquals(CharacterStatus.DELETED, expectedDeleted.getCharacterStatus());
+        assertTrue(deletedStore.isDeleted(50000000));
 
         // Test that character 50,001,000 wasn't gathered (e.g. the gathering stopped)
+        assertFalse(deletedStore.isDeleted(50001000));
         assertNull(playerRepository.findOne(50001000));
     }
 
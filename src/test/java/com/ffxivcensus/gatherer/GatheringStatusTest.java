@@ -0,0 +1,24 @@
+package com.ffxivcensus.gatherer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class GatheringStatusTest {
+
+    @Test
+    public void testNextIdExhaustedAfterFinish() {
+        GatheringStatus status = new GatheringStatus();
+        status.setStartId(100);
+        status.setFinishId(104);
+
+        for(int id = 100; id <= 104; id++) {
+            assertEquals(id, status.nextId());
+        }
+        assertEquals(IdSource.EXHAUSTED, status.nextId());
+        assertEquals(IdSource.EXHAUSTED, status.nextId());
+        assertEquals(104, status.getCurrentId());
+    }
+}
@@ -0,0 +1,77 @@
+package com.ffxivcensus.gatherer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.config.RunMode;
+import com.ffxivcensus.gatherer.failure.FailureLedger;
+import com.ffxivcensus.gatherer.gapfill.GapFillPlanner;
+import com.ffxivcensus.gatherer.lane.LaneScheduler;
+import com.ffxivcensus.gatherer.lane.WorkLane;
+import com.ffxivcensus.gatherer.lease.LeaseCoordinator;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.refresh.RefreshQueue;
+import com.ffxivcensus.gatherer.refresh.RefreshScheduler;
+import com.ffxivcensus.gatherer.task.ChunkedIdAllocator;
+import com.ffxivcensus.gatherer.task.IdAllocator;
+import com.ffxivcensus.gatherer.task.IdSource;
+import com.ffxivcensus.gatherer.task.SparseProbeAllocator;
+
+public class IdAllocatorFactoryTest {
+
+    @Mock
+    private RefreshScheduler mockRefreshScheduler;
+    @Mock
+    private GapFillPlanner mockGapFillPlanner;
+    @Mock
+    private LeaseCoordinator mockLeaseCoordinator;
+    @Mock
+    private IdBlockSummary mockIdBlockSummary;
+    @Mock
+    private FailureLedger mockFailureLedger;
+    private ApplicationConfig config;
+    private IdAllocatorFactory instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        config = new ApplicationConfig();
+        instance = new IdAllocatorFactory(config, mockRefreshScheduler, mockGapFillPlanner, mockLeaseCoordinator, mockIdBlockSummary,
+                                          mockFailureLedger);
+    }
+
+    @Test
+    public void testCreateForEachMode() {
+        RefreshQueue refresh = new RefreshQueue(new int[] {5, 6}, 1.0);
+        config.setRefreshBudget(2);
+        when(mockRefreshScheduler.schedule(1, 100, 2)).thenReturn(refresh);
+
+        assertTrue(instance.create(RunMode.SWEEP, 1, 100, 50, null) instanceof ChunkedIdAllocator);
+        assertTrue(instance.create(RunMode.SPARSE, 1, 100, 50, null) instanceof SparseProbeAllocator);
+        assertSame(refresh, instance.create(RunMode.REFRESH, 1, 100, 50, null));
+    }
+
+    @Test
+    public void testCreateLanesRetryingFromLedger() throws Exception {
+        config.setLaneWeights("frontier=1,retry=1");
+        when(mockFailureLedger.findDue(-1, 1000)).thenReturn(Arrays.asList(7));
+
+        IdAllocator allocator = instance.create(RunMode.LANES, 1, 100, 50, null);
+        assertTrue(allocator instanceof LaneScheduler);
+        IdSource cursor = allocator.newCursor();
+        // The frontier lane starts above the highest valid character, and the retry lane takes its turn from the ledger
+        assertEquals(51, cursor.nextId());
+        assertEquals(7, cursor.nextId());
+        assertEquals(1, ((LaneScheduler) allocator).getIssued(WorkLane.RETRY));
+    }
+}
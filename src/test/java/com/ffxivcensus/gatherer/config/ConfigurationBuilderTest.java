@@ -3,6 +3,7 @@ package com.ffxivcensus.gatherer.config;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.util.List;
 
 import org.apache.commons.cli.MissingOptionException;
 import org.junit.Test;
@@ -50,6 +51,47 @@ public class ConfigurationBuilderTest {
         assertEquals(10000000, config.getAutoStopLowerLimitId());
     }
 
+    /**
+     * Test configuration of database shards from XML
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testXmlShards() throws Exception {
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadXMLConfiguration(new File(this.getClass().getResource("/config/test_sharded_config.xml").toURI()))
+                                                       .getConfiguration();
+
+        assertEquals(2, config.getShards().size());
+        List<ShardConfig> shards = config.getEffectiveShards();
+        assertEquals(0, shards.get(0).getFromId());
+        assertEquals(9999999, shards.get(0).getToId());
+        assertEquals("mysql://testbox:3306", shards.get(0).getDbUrl());
+        assertEquals("ffxivcensus", shards.get(0).getDbName());
+        assertEquals(10000000, shards.get(1).getFromId());
+        assertEquals(Integer.MAX_VALUE, shards.get(1).getToId());
+        assertEquals("mysql://testbox2:3306", shards.get(1).getDbUrl());
+        assertEquals("uname", shards.get(1).getDbUser());
+    }
+
+    /**
+     * Test that a single shard is used when none are configured
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testXmlNoShards() throws Exception {
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadXMLConfiguration(new File(this.getClass().getResource("/config/test_config.xml").toURI()))
+                                                       .getConfiguration();
+
+        List<ShardConfig> shards = config.getEffectiveShards();
+        assertEquals(1, shards.size());
+        assertTrue(shards.get(0).owns(0));
+        assertTrue(shards.get(0).owns(Integer.MAX_VALUE));
+        assertEquals("mysql://testbox:3306", shards.get(0).getDbUrl());
+    }
+
     /**
      * Test configuration from the Command Line
      *
@@ -84,6 +126,141 @@ public class ConfigurationBuilderTest {
         // Test that options have set attributes correctly
         assertEquals(0, config.getStartId());
         assertEquals(Integer.MAX_VALUE, config.getEndId());
+        assertNull(config.getExportFile());
+    }
+
+    /**
+     * Test configuration of a snapshot export from the Command Line
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testValidCLIConfigExport() throws Exception {
+        String[] args = {"-s", "0", "-x", "snapshot.xvs"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertEquals("snapshot.xvs", config.getExportFile());
+        assertFalse(config.isRebuild());
+    }
+
+    @Test
+    public void testValidCLIConfigRebuild() throws Exception {
+        String[] args = {"-s", "0", "-r"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertTrue(config.isRebuild());
+    }
+
+    @Test
+    public void testValidCLIConfigVirtualThreads() throws Exception {
+        String[] args = {"-s", "0", "-v", "-t", "1000"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertTrue(config.isVirtualThreads());
+        assertEquals(1000, config.getThreadLimit());
+        assertEquals(ApplicationConfig.MAX_VIRTUAL_THREADS, config.getMaxThreads());
+    }
+
+    @Test
+    public void testValidCLIConfigRefreshBudget() throws Exception {
+        String[] args = {"-s", "0", "-b", "50000"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertEquals(50000, config.getRefreshBudget());
+    }
+
+    @Test
+    public void testValidCLIConfigLeaseRun() throws Exception {
+        String[] args = {"-s", "0", "-f", "100000", "-l", "census-2017-10"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertEquals("census-2017-10", config.getLeaseRun());
+    }
+
+    @Test
+    public void testValidCLIConfigSparse() throws Exception {
+        String[] args = {"-s", "0", "--sparse"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertTrue(config.isSparseProbing());
+    }
+
+    @Test
+    public void testValidCLIConfigGapFill() throws Exception {
+        String[] args = {"--gap-fill", "-s", "0"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertTrue(config.isGapFill());
+        assertEquals(0, config.getStaleAfterDays());
+    }
+
+    @Test
+    public void testValidCLIConfigGapFillStaleDays() throws Exception {
+        String[] args = {"-s", "0", "--gap-fill", "30"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertTrue(config.isGapFill());
+        assertEquals(30, config.getStaleAfterDays());
+    }
+
+    @Test
+    public void testValidCLIConfigSampleRate() throws Exception {
+        String[] args = {"-s", "0", "-f", "40000000", "-c", "0.02"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertEquals(0.02, config.getSampleRate(), 0);
+    }
+
+    @Test
+    public void testValidCLIConfigLanes() throws Exception {
+        String[] args = {"-s", "0", "-b", "20000", "-w", "frontier=4,refresh=1"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertEquals("frontier=4,refresh=1", config.getLaneWeights());
+        assertEquals(20000, config.getRefreshBudget());
+    }
+
+    @Test
+    public void testValidCLIConfigResume() throws Exception {
+        String[] args = {"-s", "0", "--resume"};
+
+        ApplicationConfig config = ConfigurationBuilder.createBuilder()
+                                                       .loadCommandLineConfiguration(CLIConstants.setupOptions(), args)
+                                                       .getConfiguration();
+
+        assertTrue(config.isResume());
+        assertFalse(config.isSparseProbing());
+        assertEquals(ApplicationConfig.DEFAULT_CHECKPOINT_DIRECTORY, config.getCheckpointDirectory());
     }
 
     /**
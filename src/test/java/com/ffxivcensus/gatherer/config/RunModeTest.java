@@ -0,0 +1,46 @@
+package com.ffxivcensus.gatherer.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class RunModeTest {
+
+    @Test
+    public void testResolveSweepByDefault() {
+        assertEquals(RunMode.SWEEP, RunMode.resolve(new ApplicationConfig()));
+    }
+
+    @Test
+    public void testResolveSingleMode() {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setGapFill(true);
+        assertEquals(RunMode.GAP_FILL, RunMode.resolve(config));
+        assertFalse(RunMode.GAP_FILL.isSweeping());
+    }
+
+    @Test
+    public void testLanesSpendRefreshBudget() {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setRefreshBudget(1000);
+        assertEquals(RunMode.REFRESH, RunMode.resolve(config));
+        config.setLaneWeights("frontier=4,refresh=1");
+        assertEquals(RunMode.LANES, RunMode.resolve(config));
+    }
+
+    @Test
+    public void testRejectsCombinedModes() {
+        ApplicationConfig config = new ApplicationConfig();
+        config.setRebuild(true);
+        config.setLeaseRun("nightly");
+        config.setLaneWeights("frontier=1");
+        try {
+            RunMode.resolve(config);
+            fail("Expected the combined modes to be rejected");
+        } catch(IllegalArgumentException e) {
+            assertEquals("Only one kind of run can be gathered at once, so --rebuild, --lease, --lanes cannot be combined", e.getMessage());
+        }
+    }
+}
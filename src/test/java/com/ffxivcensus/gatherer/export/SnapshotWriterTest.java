@@ -0,0 +1,103 @@
+package com.ffxivcensus.gatherer.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotWriterTest {
+
+    private static final List<SnapshotColumn> COLUMNS = Arrays.asList(new SnapshotColumn("id", ColumnEncoding.ID_DELTA),
+                                                                      new SnapshotColumn("realm", ColumnEncoding.DICTIONARY),
+                                                                      new SnapshotColumn("level_fisher", ColumnEncoding.BITPACKED),
+                                                                      new SnapshotColumn("p30days", ColumnEncoding.BITMAP),
+                                                                      new SnapshotColumn("mounts", ColumnEncoding.STRING_LIST),
+                                                                      new SnapshotColumn("date_active", ColumnEncoding.TIMESTAMP));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = folder.newFile();
+        List<Object[]> rows = rows(1, SnapshotWriter.ROW_GROUP_SIZE + 100);
+        try(SnapshotWriter writer = new SnapshotWriter(file, COLUMNS)) {
+            for(Object[] row : rows) {
+                writer.writeRow(row);
+            }
+        }
+
+        try(SnapshotReader reader = new SnapshotReader(file)) {
+            assertEquals(COLUMNS, reader.getColumns());
+            assertEquals(rows.size(), reader.getRowCount());
+            assertEquals(2, reader.getRowGroupCount());
+            List<Object[]> read = new ArrayList<>();
+            reader.forEachRow(read::add);
+            for(int i = 0; i < rows.size(); i++) {
+                assertArrayEquals(rows.get(i), read.get(i));
+            }
+            assertEquals("Cerberus", reader.readColumn(1, "realm")[1]);
+        }
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        File first = folder.newFile();
+        File second = folder.newFile();
+        File merged = folder.newFile();
+        write(first, rows(1, 10));
+        write(second, rows(100, 5));
+
+        try(SnapshotWriter writer = new SnapshotWriter(merged, COLUMNS);
+            SnapshotReader firstReader = new SnapshotReader(first);
+            SnapshotReader secondReader = new SnapshotReader(second)) {
+            writer.append(firstReader);
+            writer.append(secondReader);
+        }
+
+        try(SnapshotReader reader = new SnapshotReader(merged)) {
+            assertEquals(15, reader.getRowCount());
+            assertEquals(100, reader.readColumn(1, "id")[0]);
+            assertNull(reader.readColumn(1, "realm")[0]);
+        }
+    }
+
+    @Test
+    public void testEncodingFor() {
+        assertEquals(ColumnEncoding.ID_DELTA, SnapshotExporter.encodingFor("id", Types.INTEGER));
+        assertEquals(ColumnEncoding.BITPACKED, SnapshotExporter.encodingFor("level_fisher", Types.INTEGER));
+        assertEquals(ColumnEncoding.BITMAP, SnapshotExporter.encodingFor("p30days", Types.BIT));
+        assertEquals(ColumnEncoding.STRING_LIST, SnapshotExporter.encodingFor("minions", Types.LONGVARCHAR));
+        assertEquals(ColumnEncoding.DICTIONARY, SnapshotExporter.encodingFor("realm", Types.VARCHAR));
+        assertEquals(ColumnEncoding.TIMESTAMP, SnapshotExporter.encodingFor("date_active", Types.DATE));
+    }
+
+    private static void write(final File file, final List<Object[]> rows) throws Exception {
+        try(SnapshotWriter writer = new SnapshotWriter(file, COLUMNS)) {
+            for(Object[] row : rows) {
+                writer.writeRow(row);
+            }
+        }
+    }
+
+    private static List<Object[]> rows(final int firstId, final int count) {
+        String[] realms = {null, "Cerberus", "Moogle", "Lich"};
+        List<Object[]> rows = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            rows.add(new Object[] {firstId + i * 3, realms[i % realms.length], i % 71, i % 3 == 0,
+                                   i % 5 == 0 ? Arrays.asList("Cloud Mallow", "Kongamato") : new ArrayList<String>(),
+                                   i % 7 == 0 ? null : new Date(1500000000000L + i * 86400000L)});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,111 @@
+package com.ffxivcensus.gatherer.failure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.jsoup.HttpStatusException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+public class FailureLedgerTest {
+
+    private static final long MINUTE = 60L * 1000;
+
+    @Mock
+    private FailureRepository mockRepo;
+    private FailureLedger instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        instance = new FailureLedger(mockRepo);
+    }
+
+    @Test
+    public void testClassify() {
+        assertEquals(FailureClass.TIMEOUT, FailureClass.classify(new SocketTimeoutException("Read timed out")));
+        assertEquals(FailureClass.SERVER_ERROR,
+                     FailureClass.classify(new IOException("Unexpected HTTP Status Code: 503",
+                                                           new HttpStatusException("HTTP error fetching URL", 503, "url"))));
+        assertEquals(FailureClass.NETWORK, FailureClass.classify(new IOException("Connection reset")));
+        assertEquals(FailureClass.STORAGE, FailureClass.classify(new DataAccessResourceFailureException("Connection refused")));
+        assertEquals(FailureClass.PARSE, FailureClass.classify(new NullPointerException()));
+    }
+
+    @Test
+    public void testRetriesBackOffUntilGivenUp() {
+        Date failedAt = new Date(0);
+
+        assertEquals(new Date(30 * 1000), FailureClass.TIMEOUT.nextRetry(1, failedAt));
+        assertEquals(new Date(60 * 1000), FailureClass.TIMEOUT.nextRetry(2, failedAt));
+        assertEquals(new Date(5 * MINUTE), FailureClass.SERVER_ERROR.nextRetry(1, failedAt));
+        assertEquals(new Date(12 * 60 * MINUTE), FailureClass.SERVER_ERROR.nextRetry(9, failedAt));
+        assertNull(FailureClass.SERVER_ERROR.nextRetry(10, failedAt));
+        assertNull(FailureClass.PARSE.nextRetry(1, failedAt));
+    }
+
+    @Test
+    public void testRecordNewFailure() {
+        instance.record(7, new SocketTimeoutException("Read timed out"));
+
+        ArgumentCaptor<FailureBean> saved = ArgumentCaptor.forClass(FailureBean.class);
+        verify(mockRepo).save(saved.capture());
+        assertEquals(7, saved.getValue().getId());
+        assertEquals(FailureClass.TIMEOUT, saved.getValue().getErrorClass());
+        assertEquals(1, saved.getValue().getAttempts());
+        assertEquals("SocketTimeoutException: Read timed out", saved.getValue().getLastError());
+        assertTrue(saved.getValue().getNextRetryAt().after(saved.getValue().getFailedAt()));
+        assertEquals(FailureLedger.VERSION, saved.getValue().getGathererVersion());
+    }
+
+    @Test
+    public void testRecordRepeatedFailureWaitingForFix() {
+        FailureBean existing = new FailureBean(7);
+        existing.setErrorClass(FailureClass.TIMEOUT);
+        existing.setAttempts(2);
+        when(mockRepo.findOne(7)).thenReturn(existing);
+
+        instance.record(7, new IllegalStateException("No character name"));
+
+        verify(mockRepo).save(existing);
+        assertEquals(FailureClass.PARSE, existing.getErrorClass());
+        assertEquals(3, existing.getAttempts());
+        // A parse error is only tried again by a different version of the gatherer
+        assertNull(existing.getNextRetryAt());
+    }
+
+    @Test
+    public void testResolveBatch() {
+        instance.resolve(Arrays.asList(3, 7, 12));
+        instance.resolve(Collections.<Integer> emptyList());
+
+        // The whole batch is resolved in one statement, and an empty batch not at all
+        verify(mockRepo).resolveAll(Arrays.asList(3, 7, 12));
+        verify(mockRepo, never()).resolveAll(Collections.<Integer> emptyList());
+        verify(mockRepo, never()).resolve(Mockito.anyInt());
+    }
+
+    @Test
+    public void testResolveBatchSurvivesStorageFailure() {
+        when(mockRepo.resolveAll(Arrays.asList(3, 7))).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        instance.resolve(Arrays.asList(3, 7));
+
+        verify(mockRepo).resolveAll(Arrays.asList(3, 7));
+    }
+}
@@ -0,0 +1,111 @@
+package com.ffxivcensus.gatherer.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+
+public class ChangeFeedWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private ApplicationConfig config;
+    private File directory;
+    private ChangeFeedWriter instance;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder();
+        config = new ApplicationConfig();
+        config.setChangeFeedDirectory(directory.getPath());
+        instance = new ChangeFeedWriter(config);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        config.setChangeFeedDirectory(null);
+
+        instance.open();
+        instance.recordCrawl(null, player(1, CharacterStatus.ACTIVE, 10));
+        instance.close();
+
+        assertFalse(instance.isEnabled());
+        assertEquals(0, instance.getLastSequence());
+    }
+
+    @Test
+    public void testRecordsChanges() throws Exception {
+        PlayerBean stored = player(1, CharacterStatus.ACTIVE, 10);
+
+        instance.open();
+        instance.recordCrawl(null, stored);
+        instance.recordCrawl(stored, player(1, CharacterStatus.ACTIVE, 10));
+        instance.recordCrawl(stored, player(1, CharacterStatus.ACTIVE, 20));
+        instance.recordCrawl(stored, player(1, CharacterStatus.INACTIVE, 10));
+        instance.recordDeleted(1, CharacterStatus.INACTIVE);
+        instance.close();
+
+        List<ChangeRecord> records = new ChangeFeedReader(directory).readAfter(0, 100);
+        assertEquals(4, records.size());
+        assertEquals(ChangeType.NEW, records.get(0).getType());
+        assertEquals("10", records.get(0).getChanges().get("levelFisher"));
+        assertEquals("Moogle", records.get(0).getChanges().get("realm"));
+        assertEquals(ChangeType.UPDATED, records.get(1).getType());
+        assertEquals(Arrays.asList("levelFisher"), Arrays.asList(records.get(1).getChanges().keySet().toArray()));
+        assertEquals("20", records.get(1).getChanges().get("levelFisher"));
+        assertEquals(ChangeType.STATUS_CHANGED, records.get(2).getType());
+        assertEquals(CharacterStatus.INACTIVE, records.get(2).getCurrentStatus());
+        assertEquals(ChangeType.DELETED, records.get(3).getType());
+        assertEquals(4, records.get(3).getSequence());
+    }
+
+    @Test
+    public void testRotatesSegmentsAndRecoversSequence() throws Exception {
+        config.setChangeFeedSegmentSize(1);
+
+        instance.open();
+        instance.recordDeleted(1, CharacterStatus.ACTIVE);
+        instance.recordDeleted(2, CharacterStatus.ACTIVE);
+        instance.close();
+        assertEquals(2, ChangeFeedSegments.listSegments(directory).size());
+
+        // Simulate a crash part-way through writing a record
+        try(FileOutputStream out = new FileOutputStream(ChangeFeedSegments.listSegments(directory).get(1), true)) {
+            out.write(new byte[] {0, 0, 0, 50, 1, 2});
+        }
+
+        instance = new ChangeFeedWriter(config);
+        instance.open();
+        assertEquals(2, instance.getLastSequence());
+        instance.recordDeleted(3, CharacterStatus.ACTIVE);
+        instance.close();
+
+        List<ChangeRecord> records = new ChangeFeedReader(directory).readAfter(1, 100);
+        assertEquals(2, records.size());
+        assertEquals(2, records.get(0).getCharacterId());
+        assertEquals(3, records.get(1).getSequence());
+        assertTrue(new ChangeFeedReader(directory).readAfter(3, 100).isEmpty());
+    }
+
+    private static PlayerBean player(final int id, final CharacterStatus status, final int levelFisher) {
+        PlayerBean player = new PlayerBean();
+        player.setId(id);
+        player.setRealm("Moogle");
+        player.setCharacterStatus(status);
+        player.setLevelFisher(levelFisher);
+        return player;
+    }
+}
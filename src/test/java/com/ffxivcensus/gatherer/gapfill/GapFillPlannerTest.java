@@ -0,0 +1,104 @@
+package com.ffxivcensus.gatherer.gapfill;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import com.ffxivcensus.gatherer.player.DeletedRangeBean;
+import com.ffxivcensus.gatherer.player.DeletedRangeRepository;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class GapFillPlannerTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Mock
+    private PlayerBeanRepository mockPlayerRepo;
+    @Mock
+    private DeletedRangeRepository mockRangeRepo;
+    private GapFillPlanner instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        instance = new GapFillPlanner(mockPlayerRepo, mockRangeRepo);
+
+        long now = System.currentTimeMillis();
+        List<Object[]> stored = Arrays.asList(row(2, now - DAY, 0), row(3, now - DAY, 1), row(4, now - 90 * DAY, 0), row(5, null, 0),
+                                              row(10, now - DAY, 0), row(11, now - DAY, 0), row(12, now - DAY, 0));
+        when(mockPlayerRepo.findGapCandidatesAfter(Mockito.eq(0), Mockito.eq(20), Mockito.any(Pageable.class))).thenReturn(stored);
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(1)).thenReturn(new DeletedRangeBean(0, 1));
+        when(mockRangeRepo.findByRangeFromBetweenOrderByRangeFromAsc(Mockito.eq(1), Mockito.eq(20), Mockito.any(Pageable.class)))
+            .thenReturn(Collections.singletonList(new DeletedRangeBean(6, 8)));
+    }
+
+    @Test
+    public void testPlanIssuesMissingFailedAndStaleIds() throws Exception {
+        GapFillPlan plan = instance.plan(1, 20, 30);
+
+        List<Integer> issued = drain(plan);
+
+        // Character 5 was stored before crawl times were recorded, so is as stale as can be
+        assertEquals(Arrays.asList(3, 4, 5, 9, 13, 14, 15, 16, 17, 18, 19, 20), issued);
+        assertEquals(9, plan.getMissing());
+        assertEquals(1, plan.getFailed());
+        assertEquals(2, plan.getStale());
+        assertEquals(IdSource.EXHAUSTED, plan.newCursor().nextId());
+    }
+
+    @Test
+    public void testPlanWithoutStalenessLeavesOldCrawlsAlone() throws Exception {
+        GapFillPlan plan = instance.plan(1, 20, 0);
+
+        List<Integer> issued = drain(plan);
+
+        assertEquals(Arrays.asList(3, 9, 13, 14, 15, 16, 17, 18, 19, 20), issued);
+        assertEquals(0, plan.getStale());
+    }
+
+    @Test
+    public void testPlanReadsFurtherPagesOfStoredCharacters() throws Exception {
+        List<Object[]> firstPage = new ArrayList<>();
+        for(int id = 1; id <= GapFillPlan.PAGE_SIZE; id++) {
+            firstPage.add(row(id, System.currentTimeMillis(), 0));
+        }
+        int finishId = GapFillPlan.PAGE_SIZE + 3;
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(1)).thenReturn(null);
+        when(mockPlayerRepo.findGapCandidatesAfter(Mockito.eq(0), Mockito.eq(finishId), Mockito.any(Pageable.class)))
+            .thenReturn(firstPage);
+        when(mockPlayerRepo.findGapCandidatesAfter(Mockito.eq(GapFillPlan.PAGE_SIZE), Mockito.eq(finishId),
+                                                   Mockito.any(Pageable.class)))
+            .thenReturn(Collections.singletonList(row(GapFillPlan.PAGE_SIZE + 2, System.currentTimeMillis(), 2)));
+
+        List<Integer> issued = drain(instance.plan(1, finishId, 0));
+
+        assertEquals(Arrays.asList(GapFillPlan.PAGE_SIZE + 1, GapFillPlan.PAGE_SIZE + 2, GapFillPlan.PAGE_SIZE + 3), issued);
+    }
+
+    private static List<Integer> drain(final GapFillPlan plan) throws InterruptedException {
+        IdSource cursor = plan.newCursor();
+        List<Integer> issued = new ArrayList<>();
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            issued.add(id);
+            cursor.complete(id);
+        }
+        return issued;
+    }
+
+    private static Object[] row(final int id, final Long lastCrawledAt, final int failureCount) {
+        return new Object[] {id, lastCrawledAt != null ? new Date(lastCrawledAt) : null, failureCount};
+    }
+}
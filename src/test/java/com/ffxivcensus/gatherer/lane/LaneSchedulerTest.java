@@ -0,0 +1,146 @@
+package com.ffxivcensus.gatherer.lane;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.ffxivcensus.gatherer.failure.FailureLedger;
+import com.ffxivcensus.gatherer.refresh.RefreshQueue;
+import com.ffxivcensus.gatherer.task.ChunkedIdAllocator;
+import com.ffxivcensus.gatherer.task.DelayedRetryQueue;
+import com.ffxivcensus.gatherer.task.GatheringOutcome;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class LaneSchedulerTest {
+
+    @Test
+    public void testLanesShareIdsByWeight() throws Exception {
+        LaneScheduler scheduler = new LaneScheduler();
+        scheduler.addLane(WorkLane.FRONTIER, new ChunkedIdAllocator(1000, 1999), 3);
+        scheduler.addLane(WorkLane.REFRESH, new RefreshQueue(new int[] {5, 6, 7, 8, 9}, 2.5), 1);
+        IdSource cursor = scheduler.newCursor();
+
+        List<Integer> issued = new ArrayList<>();
+        for(int i = 0; i < 16; i++) {
+            int id = cursor.nextId();
+            issued.add(id);
+            cursor.complete(id);
+        }
+        // Three frontier IDs for every refresh
+        assertEquals(12, scheduler.getIssued(WorkLane.FRONTIER));
+        assertEquals(4, scheduler.getIssued(WorkLane.REFRESH));
+        assertEquals(Arrays.asList(1000, 5, 1001, 1002, 1003, 6), issued.subList(0, 6));
+
+        // Once the refresh lane is exhausted, the frontier lane has every fetch
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            issued.add(id);
+            cursor.complete(id);
+        }
+        assertEquals(1005, issued.size());
+        assertEquals(Arrays.asList(1012, 9, 1013), issued.subList(16, 19));
+        assertEquals(Integer.valueOf(1999), issued.get(1004));
+        assertEquals(IdSource.EXHAUSTED, cursor.nextId());
+    }
+
+    @Test
+    public void testFailedIdsAreLeftForTheLedger() throws Exception {
+        FailureLedger ledger = Mockito.mock(FailureLedger.class);
+        LaneScheduler scheduler = new LaneScheduler();
+        RetryQueue retryQueue = new RetryQueue(ledger);
+        scheduler.addLane(WorkLane.FRONTIER, new ChunkedIdAllocator(1, 3), 1);
+        scheduler.addLane(WorkLane.RETRY, retryQueue, 1);
+        IdSource cursor = scheduler.newCursor();
+
+        assertEquals(1, cursor.nextId());
+        assertEquals(2, cursor.nextId());
+        cursor.fail(1);
+        // The failure has been recorded in the ledger to be retried once it is due, not straight away
+        assertEquals(3, cursor.nextId());
+        cursor.complete(3);
+
+        // ID 2 is still being gathered, so the cursor holds off finishing
+        assertEquals(IdSource.PENDING, cursor.nextId());
+        cursor.fail(2);
+        assertEquals(IdSource.EXHAUSTED, cursor.nextId());
+        assertEquals(0, scheduler.getIssued(WorkLane.RETRY));
+        assertEquals(0, retryQueue.getRecovered());
+        assertTrue(scheduler.describeProgress().startsWith("frontier lane issued 3, gathered 1, failed 2"));
+    }
+
+    @Test
+    public void testRetryLaneDrainsDueFailuresFromLedger() throws Exception {
+        FailureLedger ledger = Mockito.mock(FailureLedger.class);
+        when(ledger.findDue(-1, RetryQueue.LEDGER_PAGE_SIZE)).thenReturn(Arrays.asList(4, 9, 12));
+        LaneScheduler scheduler = new LaneScheduler();
+        RetryQueue retryQueue = new RetryQueue(ledger);
+        scheduler.addLane(WorkLane.RETRY, retryQueue, 1);
+        IdSource cursor = scheduler.newCursor();
+
+        assertEquals(4, cursor.nextId());
+        assertEquals(9, cursor.nextId());
+        assertEquals(12, cursor.nextId());
+        cursor.complete(4, GatheringOutcome.STORED);
+        cursor.fail(9);
+        cursor.complete(12, GatheringOutcome.SKIPPED);
+
+        // The ledger has pushed back the retry of the character that failed again, so it is left for later
+        assertEquals(IdSource.EXHAUSTED, cursor.nextId());
+        // A stored character has its failure resolved along with the rest of its batch, so only the skipped character is resolved here
+        verify(ledger, never()).resolve(4);
+        verify(ledger, never()).resolve(9);
+        verify(ledger).resolve(12);
+        assertEquals(2, retryQueue.getRecovered());
+    }
+
+    @Test(timeout = 5000)
+    public void testParkedIdIsGatheredWhileOnlyRetryLaneIsLeft() throws Exception {
+        LaneScheduler scheduler = new LaneScheduler();
+        scheduler.addLane(WorkLane.FRONTIER, new ChunkedIdAllocator(1, 3), 1);
+        scheduler.addLane(WorkLane.RETRY, new RetryQueue(Mockito.mock(FailureLedger.class)), 1);
+        DelayedRetryQueue retries = new DelayedRetryQueue();
+        IdSource cursor = retries.cursor(scheduler.newCursor());
+
+        // ID 1 is rate limited and parked, and ID 3 fails, leaving the retry lane waiting on ID 1
+        assertEquals(1, cursor.nextId());
+        assertTrue(retries.park(1));
+        Set<Integer> gathered = new HashSet<>();
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            retries.settle(id);
+            if(id == 3 && !gathered.contains(3)) {
+                gathered.add(id);
+                cursor.fail(id);
+            } else {
+                gathered.add(id);
+                cursor.complete(id);
+            }
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), gathered);
+        assertEquals(0, scheduler.getIssued(WorkLane.RETRY));
+    }
+
+    @Test
+    public void testParseWeights() {
+        Map<WorkLane, Integer> weights = WorkLane.parseWeights("frontier=4, refresh=1");
+        assertEquals(2, weights.size());
+        assertEquals(Integer.valueOf(4), weights.get(WorkLane.FRONTIER));
+        assertEquals(Integer.valueOf(1), weights.get(WorkLane.REFRESH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWeightsRejectsUnknownLane() {
+        WorkLane.parseWeights("frontier=4,backfill=1");
+    }
+}
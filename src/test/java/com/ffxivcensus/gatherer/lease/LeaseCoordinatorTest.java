@@ -0,0 +1,115 @@
+package com.ffxivcensus.gatherer.lease;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+
+public class LeaseCoordinatorTest {
+
+    private static final String RUN = "test-run";
+
+    @Mock
+    private IdLeaseRepository mockRepo;
+    private LeaseCoordinator instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ApplicationConfig config = new ApplicationConfig();
+        config.setLeaseRun(RUN);
+        instance = new LeaseCoordinator(config, mockRepo);
+        when(mockRepo.findClaimableBlocks(Mockito.eq(RUN), Mockito.anyInt(), Mockito.anyInt(), Mockito.any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void testClaimTakesOverExpiredLeaseFirst() throws Exception {
+        when(mockRepo.findClaimableBlocks(Mockito.eq(RUN), Mockito.eq(0), Mockito.eq(9), Mockito.any(Pageable.class)))
+            .thenReturn(Arrays.asList(3, 5));
+        // Another node takes over block 3 first
+        when(mockRepo.claimLease(Mockito.eq(RUN), Mockito.eq(3), Mockito.anyString(), Mockito.anyLong())).thenReturn(0);
+        when(mockRepo.claimLease(Mockito.eq(RUN), Mockito.eq(5), Mockito.anyString(), Mockito.anyLong())).thenReturn(1);
+
+        assertEquals(Integer.valueOf(5), instance.claim(0, 9));
+        verify(mockRepo, never()).insertLease(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyLong());
+    }
+
+    @Test
+    public void testClaimLeasesNextNewBlock() throws Exception {
+        when(mockRepo.findHighestBlock(RUN, 0, 9)).thenReturn(4);
+        // Another node leases block 5 first
+        when(mockRepo.insertLease(Mockito.eq(RUN), Mockito.eq(5), Mockito.anyString(), Mockito.anyLong()))
+            .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(mockRepo.insertLease(Mockito.eq(RUN), Mockito.eq(6), Mockito.anyString(), Mockito.anyLong())).thenReturn(1);
+
+        assertEquals(Integer.valueOf(6), instance.claim(0, 9));
+    }
+
+    @Test
+    public void testClaimExhaustedOnceEveryBlockComplete() throws Exception {
+        when(mockRepo.findHighestBlock(RUN, 0, 9)).thenReturn(9);
+        when(mockRepo.countLeasedToOthers(Mockito.eq(RUN), Mockito.eq(0), Mockito.eq(9), Mockito.anyString())).thenReturn(0L);
+
+        assertNull(instance.claim(0, 9));
+    }
+
+    @Test
+    public void testClaimWaitingWhileOthersHoldBlocks() throws Exception {
+        when(mockRepo.findHighestBlock(RUN, 0, 9)).thenReturn(9);
+        when(mockRepo.countLeasedToOthers(Mockito.eq(RUN), Mockito.eq(0), Mockito.eq(9), Mockito.anyString())).thenReturn(2L);
+
+        assertEquals(Integer.valueOf(LeaseCoordinator.WAITING), instance.claim(0, 9));
+    }
+
+    @Test
+    public void testHeartbeatAndRelease() throws Exception {
+        when(mockRepo.findHighestBlock(RUN, 0, 9)).thenReturn(null);
+        when(mockRepo.insertLease(Mockito.eq(RUN), Mockito.anyInt(), Mockito.anyString(), Mockito.anyLong())).thenReturn(1);
+        when(mockRepo.completeLease(Mockito.eq(RUN), Mockito.eq(0), Mockito.anyString())).thenReturn(1);
+
+        instance.heartbeat();
+        verify(mockRepo, never()).renewLeases(Mockito.anyString(), Mockito.anyString(), Mockito.anyLong());
+
+        assertEquals(Integer.valueOf(0), instance.claim(0, 9));
+        instance.heartbeat();
+        verify(mockRepo).renewLeases(Mockito.eq(RUN), Mockito.eq(instance.getNodeId()), Mockito.anyLong());
+
+        instance.complete(0);
+        instance.releaseAll();
+        verify(mockRepo, never()).releaseLeases(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testCompleteRetriedAtHeartbeatAfterFailure() throws Exception {
+        when(mockRepo.findHighestBlock(RUN, 0, 9)).thenReturn(null);
+        when(mockRepo.insertLease(Mockito.eq(RUN), Mockito.anyInt(), Mockito.anyString(), Mockito.anyLong())).thenReturn(1);
+        when(mockRepo.completeLease(Mockito.eq(RUN), Mockito.eq(0), Mockito.anyString()))
+            .thenThrow(new DataAccessResourceFailureException("Connection refused")).thenReturn(1);
+
+        assertEquals(Integer.valueOf(0), instance.claim(0, 9));
+        // The failure is not passed on to the thread gathering the block, which stays held until it has been marked
+        instance.complete(0);
+        instance.heartbeat();
+        verify(mockRepo, Mockito.times(2)).completeLease(Mockito.eq(RUN), Mockito.eq(0), Mockito.anyString());
+        verify(mockRepo).renewLeases(Mockito.eq(RUN), Mockito.eq(instance.getNodeId()), Mockito.anyLong());
+
+        instance.releaseAll();
+        verify(mockRepo, never()).releaseLeases(Mockito.anyString(), Mockito.anyString());
+    }
+}
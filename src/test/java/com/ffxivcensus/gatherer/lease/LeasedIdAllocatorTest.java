@@ -0,0 +1,66 @@
+package com.ffxivcensus.gatherer.lease;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class LeasedIdAllocatorTest {
+
+    @Mock
+    private LeaseCoordinator mockCoordinator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testIssuesLeasedBlocksAndCompletesThem() throws Exception {
+        int blockSize = IdBlockSummary.BLOCK_SIZE;
+        // The range starts part way into block 1, and ends part way into block 3
+        int startId = blockSize + blockSize / 2;
+        int finishId = 3 * blockSize + 9;
+        when(mockCoordinator.claim(1, 3)).thenReturn(3, 1, null);
+        LeasedIdAllocator allocator = new LeasedIdAllocator(mockCoordinator, startId, finishId);
+        IdSource cursor = allocator.newCursor();
+
+        for(int id = 3 * blockSize; id <= finishId; id++) {
+            assertEquals(id, cursor.nextId());
+            cursor.complete(id);
+        }
+        verify(mockCoordinator).complete(3);
+        for(int id = startId; id < 2 * blockSize; id++) {
+            assertEquals(id, cursor.nextId());
+            if(id != startId) {
+                cursor.complete(id);
+            }
+        }
+        assertEquals(IdSource.EXHAUSTED, cursor.nextId());
+        verify(mockCoordinator, never()).complete(1);
+
+        cursor.complete(startId);
+        verify(mockCoordinator).complete(1);
+    }
+
+    @Test
+    public void testPendingWhileOtherNodesHoldEveryBlock() throws Exception {
+        when(mockCoordinator.claim(0, 0)).thenReturn(LeaseCoordinator.WAITING);
+        LeasedIdAllocator allocator = new LeasedIdAllocator(mockCoordinator, 0, 9);
+        IdSource cursor = allocator.newCursor();
+
+        // Rather than waiting for the other nodes, the cursor is free to gather anything else it has in the meantime
+        assertEquals(IdSource.PENDING, cursor.nextId());
+        assertEquals(IdSource.PENDING, cursor.nextId());
+        verify(mockCoordinator, times(1)).claim(0, 0);
+    }
+}
@@ -0,0 +1,149 @@
+package com.ffxivcensus.gatherer.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import com.ffxivcensus.gatherer.config.ShardConfig;
+import com.ffxivcensus.gatherer.shard.ShardRouter;
+
+public class DeletedCharacterStoreTest {
+
+    @Mock
+    private DeletedRangeRepository mockRangeRepo;
+    @Mock
+    private PlayerBeanRepository mockPlayerRepo;
+    private DeletedCharacterStore instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mockRangeRepo.findByRangeFromBetween(Mockito.anyInt(), Mockito.anyInt())).thenReturn(Collections.emptyList());
+        instance = new DeletedCharacterStore(mockRangeRepo, mockPlayerRepo, new ShardRouter(Collections.singletonList(new ShardConfig())));
+    }
+
+    @After
+    public void tearDown() {
+        instance = null;
+    }
+
+    @Test
+    public void testIsDeleted() {
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(Mockito.anyInt())).thenReturn(new DeletedRangeBean(10, 20));
+
+        assertTrue(instance.isDeleted(15));
+        assertTrue(instance.isDeleted(20));
+        assertFalse(instance.isDeleted(21));
+    }
+
+    @Test
+    public void testMarkDeletedIsolated() {
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(50)).thenReturn(new DeletedRangeBean(10, 20));
+        ArgumentCaptor<DeletedRangeBean> saved = ArgumentCaptor.forClass(DeletedRangeBean.class);
+
+        instance.markDeleted(50);
+
+        verify(mockRangeRepo).save(saved.capture());
+        assertEquals(50, saved.getValue().getRangeFrom());
+        assertEquals(50, saved.getValue().getRangeTo());
+    }
+
+    @Test
+    public void testMarkDeletedExtendsPreceding() {
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(21)).thenReturn(new DeletedRangeBean(10, 20));
+        ArgumentCaptor<DeletedRangeBean> saved = ArgumentCaptor.forClass(DeletedRangeBean.class);
+
+        instance.markDeleted(21);
+
+        verify(mockRangeRepo).save(saved.capture());
+        assertEquals(10, saved.getValue().getRangeFrom());
+        assertEquals(21, saved.getValue().getRangeTo());
+    }
+
+    @Test
+    public void testMarkDeletedBridgesRanges() {
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(21)).thenReturn(new DeletedRangeBean(10, 20));
+        when(mockRangeRepo.findByRangeFromBetween(22, 22)).thenReturn(Arrays.asList(new DeletedRangeBean(22, 30)));
+        ArgumentCaptor<DeletedRangeBean> saved = ArgumentCaptor.forClass(DeletedRangeBean.class);
+
+        instance.markDeleted(21);
+
+        verify(mockRangeRepo).save(saved.capture());
+        assertEquals(10, saved.getValue().getRangeFrom());
+        assertEquals(30, saved.getValue().getRangeTo());
+        verify(mockRangeRepo).delete(22);
+    }
+
+    @Test
+    public void testMarkDeletedAlreadyCovered() {
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(15)).thenReturn(new DeletedRangeBean(10, 20));
+
+        instance.markDeleted(15);
+
+        verify(mockRangeRepo, never()).save(Mockito.any(DeletedRangeBean.class));
+    }
+
+    @Test
+    public void testAddRangeSplitsAtShardBoundary() {
+        ShardConfig lower = new ShardConfig();
+        lower.setToId(99);
+        ShardConfig upper = new ShardConfig();
+        upper.setFromId(100);
+        instance = new DeletedCharacterStore(mockRangeRepo, mockPlayerRepo, new ShardRouter(Arrays.asList(lower, upper)));
+        ArgumentCaptor<DeletedRangeBean> saved = ArgumentCaptor.forClass(DeletedRangeBean.class);
+
+        instance.addRange(90, 110);
+
+        verify(mockRangeRepo, Mockito.times(2)).save(saved.capture());
+        assertEquals(90, saved.getAllValues().get(0).getRangeFrom());
+        assertEquals(99, saved.getAllValues().get(0).getRangeTo());
+        assertEquals(100, saved.getAllValues().get(1).getRangeFrom());
+        assertEquals(110, saved.getAllValues().get(1).getRangeTo());
+        verify(mockRangeRepo, never()).findByRangeFromBetween(91, 100);
+    }
+
+    @Test
+    public void testTrimAbove() {
+        DeletedRangeBean spanning = new DeletedRangeBean(90, 120);
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(100)).thenReturn(spanning);
+
+        instance.trimAbove(100);
+
+        verify(mockRangeRepo).deleteByRangeFromGreaterThan(100);
+        verify(mockRangeRepo).save(spanning);
+        assertEquals(100, spanning.getRangeTo());
+    }
+
+    @Test
+    public void testMigrateLegacyRows() {
+        when(mockPlayerRepo.findIdsByCharacterStatusAfter(Mockito.eq(CharacterStatus.DELETED), Mockito.eq(-1), Mockito.any(Pageable.class)))
+            .thenReturn(Arrays.asList(5, 6, 7, 9));
+        when(mockPlayerRepo.findIdsByCharacterStatusAfter(Mockito.eq(CharacterStatus.DELETED), Mockito.eq(9), Mockito.any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
+        ArgumentCaptor<DeletedRangeBean> saved = ArgumentCaptor.forClass(DeletedRangeBean.class);
+
+        assertEquals(4, instance.migrateLegacyRows());
+
+        verify(mockRangeRepo, Mockito.times(2)).save(saved.capture());
+        assertEquals(5, saved.getAllValues().get(0).getRangeFrom());
+        assertEquals(7, saved.getAllValues().get(0).getRangeTo());
+        assertEquals(9, saved.getAllValues().get(1).getRangeFrom());
+        verify(mockPlayerRepo).deleteByCharacterStatus(CharacterStatus.DELETED.name());
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.ffxivcensus.gatherer.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+public class IdBlockSummaryTest {
+
+    @Mock
+    private IdBlockRepository mockBlockRepo;
+    @Mock
+    private PlayerBeanRepository mockPlayerRepo;
+    @Mock
+    private DeletedRangeRepository mockRangeRepo;
+    private IdBlockSummary instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mockBlockRepo.findAll()).thenReturn(Collections.emptyList());
+        when(mockPlayerRepo.summariseBlocks(Mockito.anyInt(), Mockito.anyInt())).thenReturn(Collections.emptyList());
+        when(mockRangeRepo.findByRangeFromBetweenOrderByRangeFromAsc(Mockito.anyInt(), Mockito.anyInt(), Mockito.any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
+        instance = new IdBlockSummary(mockBlockRepo, mockPlayerRepo, mockRangeRepo);
+    }
+
+    @After
+    public void tearDown() {
+        instance = null;
+    }
+
+    @Test
+    public void testBlockBoundaries() {
+        assertEquals(0, IdBlockSummary.blockOf(9999));
+        assertEquals(1, IdBlockSummary.blockOf(10000));
+        assertEquals(10000, IdBlockSummary.firstIdOf(1));
+        assertEquals(19999, IdBlockSummary.lastIdOf(1));
+        assertEquals(Integer.MAX_VALUE, IdBlockSummary.lastIdOf(IdBlockSummary.blockOf(Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void testRecordCrawl() {
+        instance.recordCrawl(10005, null, CharacterStatus.ACTIVE);
+        instance.recordCrawl(10007, null, CharacterStatus.DELETED);
+        instance.recordCrawl(10005, CharacterStatus.ACTIVE, CharacterStatus.INACTIVE);
+
+        IdBlockBean block = instance.getBlock(1);
+        assertEquals(0, block.getActiveCount());
+        assertEquals(1, block.getInactiveCount());
+        assertEquals(1, block.getDeletedCount());
+        assertEquals(10005, block.getMaxValidId());
+        assertEquals(10007, block.getMaxCrawledId());
+        assertEquals(10005, instance.getHighestValidId());
+        assertEquals(10007, instance.getHighestCrawledId());
+        assertEquals(0.5, instance.getValidDensity(10000, 19999), 0.0001);
+        assertEquals(-1, instance.getValidDensity(0, 9999), 0.0001);
+    }
+
+    @Test
+    public void testFlushWritesChangedBlocksOnce() {
+        instance.recordCrawl(5, null, CharacterStatus.ACTIVE);
+
+        instance.flush();
+        instance.flush();
+
+        verify(mockBlockRepo, Mockito.times(1)).save(Mockito.<IdBlockBean> anyList());
+    }
+
+    @Test
+    public void testFindBlocksNotCrawledSince() {
+        instance.recordCrawl(25000, null, CharacterStatus.ACTIVE);
+
+        assertEquals(Collections.emptyList(), instance.findBlocksNotCrawledSince(new Date(0)));
+        assertEquals(Arrays.asList(2), instance.findBlocksNotCrawledSince(new Date(System.currentTimeMillis() + 1000)));
+    }
+
+    @Test
+    public void testLoadRebuildsWhenEmpty() {
+        when(mockPlayerRepo.summariseBlocks(Mockito.anyInt(), Mockito.anyInt()))
+            .thenReturn(Arrays.asList(new Object[] {2, "ACTIVE", 10, 20500 }, new Object[] {2, "INACTIVE", 5, 20600 }));
+        when(mockRangeRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(0)).thenReturn(new DeletedRangeBean(0, 14999));
+
+        instance.load();
+
+        assertEquals(10000, instance.getBlock(0).getDeletedCount());
+        assertEquals(5000, instance.getBlock(1).getDeletedCount());
+        assertEquals(10, instance.getBlock(2).getActiveCount());
+        assertEquals(5, instance.getBlock(2).getInactiveCount());
+        assertEquals(20600, instance.getHighestValidId());
+        assertNull(instance.getBlock(3));
+    }
+
+    @Test
+    public void testLoadCatchesUpBlocksAboveStoredSummary() {
+        IdBlockBean stored = new IdBlockBean(1);
+        stored.setActiveCount(3);
+        stored.setMaxValidId(10005);
+        stored.setMaxCrawledId(10005);
+        when(mockBlockRepo.findAll()).thenReturn(Collections.singletonList(stored));
+        // Characters stored above the summary before it was last written
+        when(mockPlayerRepo.summariseBlocks(10000, Integer.MAX_VALUE))
+            .thenReturn(Arrays.asList(new Object[] {1, "ACTIVE", 4, 10020 }, new Object[] {2, "ACTIVE", 2, 20010 }));
+
+        instance.load();
+
+        assertEquals(4, instance.getBlock(1).getActiveCount());
+        assertEquals(2, instance.getBlock(2).getActiveCount());
+        assertEquals(20010, instance.getHighestValidId());
+        verify(mockBlockRepo).save(Mockito.<IdBlockBean> anyList());
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.ffxivcensus.gatherer.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PlayerBeanRowBinderTest {
+
+    @Test
+    public void testColumnNames() {
+        List<String> players = PlayerBeanRowBinder.getColumnNames(PlayerBean.PLAYERS_TABLE);
+        List<String> collectibles = PlayerBeanRowBinder.getColumnNames(PlayerBean.COLLECTIBLES_TABLE);
+
+        assertEquals(Arrays.asList(PlayerBean.PLAYERS_TABLE, PlayerBean.COLLECTIBLES_TABLE), PlayerBeanRowBinder.getTables());
+        assertEquals("id", players.get(0));
+        assertTrue(players.containsAll(Arrays.asList("name", "grand_company", "level_darkknight", "date_active", "is_active",
+                                                     "character_status", "last_crawled_at", "failure_count")));
+        assertEquals("id", collectibles.get(0));
+        assertTrue(collectibles.containsAll(Arrays.asList("p30days", "arr_25_complete", "legacy_player", "minions", "mounts")));
+        assertTrue(!players.contains("mounts") && !collectibles.contains("realm"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTable() {
+        PlayerBeanRowBinder.getColumnNames("tblother");
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        PlayerBean player = new PlayerBean();
+        player.setId(42);
+        player.setRealm("Moogle");
+        player.setCharacterStatus(CharacterStatus.INACTIVE);
+        player.setMounts(Arrays.asList("Company Chocobo", "Ahriman"));
+        player.setLegacyPlayer(true);
+        player.setLastCrawledAt(new Date(1000));
+        List<String> players = PlayerBeanRowBinder.getColumnNames(PlayerBean.PLAYERS_TABLE);
+        List<String> collectibles = PlayerBeanRowBinder.getColumnNames(PlayerBean.COLLECTIBLES_TABLE);
+        PreparedStatement playerStatement = mock(PreparedStatement.class);
+        PreparedStatement collectibleStatement = mock(PreparedStatement.class);
+
+        PlayerBeanRowBinder.bind(playerStatement, PlayerBean.PLAYERS_TABLE, player);
+        PlayerBeanRowBinder.bind(collectibleStatement, PlayerBean.COLLECTIBLES_TABLE, player);
+
+        verify(playerStatement).setInt(1, 42);
+        verify(playerStatement).setString(players.indexOf("realm") + 1, "Moogle");
+        verify(playerStatement).setString(players.indexOf("character_status") + 1, "INACTIVE");
+        verify(playerStatement).setTimestamp(players.indexOf("last_crawled_at") + 1, new Timestamp(1000));
+        verify(playerStatement).setTimestamp(players.indexOf("last_changed_at") + 1, null);
+        verify(collectibleStatement).setInt(1, 42);
+        verify(collectibleStatement).setBoolean(collectibles.indexOf("legacy_player") + 1, true);
+        verify(collectibleStatement).setString(collectibles.indexOf("mounts") + 1, "Company Chocobo,Ahriman");
+        verify(collectibleStatement).setString(collectibles.indexOf("minions") + 1, null);
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        ResultSet results = mock(ResultSet.class);
+        when(results.getInt("id")).thenReturn(42);
+        when(results.getString("name")).thenReturn("Test Character");
+        when(results.getInt("level_fisher")).thenReturn(70);
+        when(results.getString("character_status")).thenReturn("INACTIVE");
+        when(results.getTimestamp("last_changed_at")).thenReturn(new Timestamp(2000));
+        when(results.getBoolean("is_active")).thenReturn(true);
+        when(results.getString("minions")).thenReturn("Wayward Hatchling");
+
+        PlayerBean player = PlayerBeanRowBinder.read(results);
+
+        assertEquals(42, player.getId());
+        assertEquals("Test Character", player.getPlayerName());
+        assertEquals(70, player.getLevelFisher());
+        assertEquals(CharacterStatus.INACTIVE, player.getCharacterStatus());
+        assertEquals(new Date(2000), player.getLastChangedAt());
+        assertNull(player.getLastCrawledAt());
+        assertTrue(player.isActive());
+        assertFalse(player.isLegacyPlayer());
+        assertEquals(Collections.singletonList("Wayward Hatchling"), player.getMinions());
+        assertEquals(Collections.emptyList(), player.getMounts());
+    }
+}
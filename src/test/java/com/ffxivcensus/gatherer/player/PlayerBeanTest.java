@@ -0,0 +1,84 @@
+package com.ffxivcensus.gatherer.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PlayerBeanTest {
+
+    @Test
+    public void testSameContentIgnoresBookkeeping() {
+        PlayerBean stored = player();
+        stored.setLastCrawledAt(new Date(0));
+        stored.setFailureCount(3);
+        PlayerBean gathered = player();
+        gathered.setLastCrawledAt(new Date());
+
+        assertTrue(gathered.hasSameContentAs(stored));
+    }
+
+    @Test
+    public void testSameContentComparesDatesByDay() {
+        long now = System.currentTimeMillis();
+        PlayerBean stored = player();
+        stored.setDateImgLastModified(new Timestamp(now));
+        PlayerBean gathered = player();
+        gathered.setDateImgLastModified(new Date(now));
+
+        assertTrue(gathered.hasSameContentAs(stored));
+    }
+
+    @Test
+    public void testSameContentTreatsMissingListAsEmpty() {
+        PlayerBean stored = player();
+        stored.setMinions(new ArrayList<>());
+        PlayerBean gathered = player();
+        gathered.setMinions(null);
+
+        assertTrue(gathered.hasSameContentAs(stored));
+    }
+
+    @Test
+    public void testChangedContent() {
+        PlayerBean stored = player();
+        PlayerBean gathered = player();
+        gathered.setLevelBluemage(50);
+
+        assertFalse(gathered.hasSameContentAs(stored));
+
+        gathered = player();
+        gathered.setMounts(Arrays.asList("Cloud Mallow", "Kongamato"));
+        assertFalse(gathered.hasSameContentAs(stored));
+    }
+
+    @Test
+    public void testContentChangesInDeclarationOrder() {
+        PlayerBean stored = player();
+        stored.setLastCrawledAt(new Date(0));
+        PlayerBean gathered = player();
+        gathered.setMounts(Arrays.asList("Cloud Mallow", "Kongamato"));
+        gathered.setLevelBluemage(50);
+
+        Map<String, Object> changes = gathered.getContentChanges(stored);
+
+        assertEquals(Arrays.asList("levelBluemage", "mounts"), new ArrayList<>(changes.keySet()));
+        assertEquals(50, changes.get("levelBluemage"));
+    }
+
+    private static PlayerBean player() {
+        PlayerBean player = new PlayerBean();
+        player.setId(2256025);
+        player.setPlayerName("Test Character");
+        player.setLevelBluemage(10);
+        player.setMounts(Arrays.asList("Cloud Mallow"));
+        return player;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ffxivcensus.gatherer.rebuild;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.config.ShardConfig;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+import com.ffxivcensus.gatherer.shard.ShardRouter;
+
+public class StagingTableRebuildTest {
+
+    @Mock
+    private DataSource mockDataSource;
+    @Mock
+    private Connection mockConnection;
+    @Mock
+    private PreparedStatement mockStatement;
+    private StagingTableRebuild instance;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(mockDataSource.getConnection()).thenReturn(mockConnection);
+        when(mockConnection.getAutoCommit()).thenReturn(true);
+        when(mockConnection.prepareStatement(Mockito.anyString())).thenReturn(mockStatement);
+        instance = new StagingTableRebuild(new ApplicationConfig(), mockDataSource,
+                                           new ShardRouter(Collections.singletonList(new ShardConfig())));
+    }
+
+    @Test
+    public void testReplaceInto() {
+        String sql = StagingTableRebuild.replaceInto(PlayerBean.COLLECTIBLES_TABLE);
+
+        assertTrue(sql.startsWith("REPLACE INTO tblplayers_collectibles_staging (id, p30days, "));
+        assertTrue(sql.endsWith("?)"));
+    }
+
+    @Test
+    public void testWritesInBatches() throws Exception {
+        for(int i = 0; i < StagingTableRebuild.BATCH_SIZE - 1; i++) {
+            instance.write(player(i));
+        }
+        verify(mockDataSource, never()).getConnection();
+
+        instance.write(player(StagingTableRebuild.BATCH_SIZE));
+        instance.write(player(StagingTableRebuild.BATCH_SIZE + 1));
+        instance.flush();
+
+        // One batch for each of the two tables, for the full buffer and then the flushed remainder
+        verify(mockConnection, times(2)).prepareStatement(StagingTableRebuild.replaceInto(PlayerBean.PLAYERS_TABLE));
+        verify(mockStatement, times(4)).executeBatch();
+        verify(mockStatement, times(2 * (StagingTableRebuild.BATCH_SIZE + 1))).addBatch();
+        verify(mockConnection, times(2)).commit();
+        verify(mockConnection, times(2)).setAutoCommit(true);
+    }
+
+    @Test
+    public void testFinishRefusesAfterFailedBatch() throws Exception {
+        when(mockStatement.executeBatch()).thenThrow(new SQLException("Lost connection"));
+        instance.write(player(1));
+        try {
+            instance.flush();
+            fail("Expected the batch to fail");
+        } catch(SQLException e) {
+            verify(mockConnection).rollback();
+        }
+
+        try {
+            instance.finish();
+            fail("Expected the swap to be refused");
+        } catch(SQLException e) {
+            assertEquals("1 characters could not be written to the staging tables, so the live tables have been left unchanged",
+                         e.getMessage());
+        }
+        verify(mockConnection, never()).createStatement();
+    }
+
+    private static PlayerBean player(final int id) {
+        PlayerBean player = new PlayerBean();
+        player.setId(id);
+        return player;
+    }
+}
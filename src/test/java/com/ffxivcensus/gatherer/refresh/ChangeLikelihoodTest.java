@@ -0,0 +1,62 @@
+package com.ffxivcensus.gatherer.refresh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+
+public class ChangeLikelihoodTest {
+
+    private static final long NOW = 1_500_000_000_000L;
+
+    @Test
+    public void testRecentlyActiveCharactersAreMoreLikelyToChange() {
+        double recent = estimate(CharacterStatus.ACTIVE, 1, 30, 1, 0);
+        double lapsed = estimate(CharacterStatus.INACTIVE, 200, 30, 1, 0);
+        double dormant = estimate(CharacterStatus.INACTIVE, 2000, 30, 1, 0);
+
+        assertTrue(recent > lapsed);
+        assertTrue(lapsed > dormant);
+    }
+
+    @Test
+    public void testChangeHistoryOutweighsStatus() {
+        // An inactive character found changed on every re-crawl is a better bet than an active one that has never changed
+        double changesOften = estimate(CharacterStatus.INACTIVE, 40, 30, 21, 20);
+        double neverChanges = estimate(CharacterStatus.ACTIVE, 1, 30, 21, 0);
+
+        assertTrue(changesOften > neverChanges);
+    }
+
+    @Test
+    public void testStalerCharactersAreMoreLikelyToHaveChanged() {
+        double justCrawled = estimate(CharacterStatus.ACTIVE, 1, 0, 5, 2);
+        double crawledLastWeek = estimate(CharacterStatus.ACTIVE, 1, 7, 5, 2);
+        double crawledLastYear = estimate(CharacterStatus.ACTIVE, 1, 365, 5, 2);
+        double neverCrawled = ChangeLikelihood.estimate(CharacterStatus.ACTIVE, daysAgo(1), null, 5, 2, NOW);
+
+        assertEquals(0, justCrawled, 0);
+        assertTrue(crawledLastWeek > justCrawled);
+        assertTrue(crawledLastYear > crawledLastWeek);
+        assertEquals(crawledLastYear, neverCrawled, 1e-9);
+        assertTrue(crawledLastYear < 1);
+    }
+
+    @Test
+    public void testDeletedCharactersNeverChange() {
+        assertEquals(0, estimate(CharacterStatus.DELETED, 1, 30, 5, 5), 0);
+    }
+
+    private static double estimate(final CharacterStatus status, final int daysSinceActive, final int daysSinceCrawled,
+                                   final int crawlCount, final int changeCount) {
+        return ChangeLikelihood.estimate(status, daysAgo(daysSinceActive), daysAgo(daysSinceCrawled), crawlCount, changeCount, NOW);
+    }
+
+    private static Date daysAgo(final int days) {
+        return new Date(NOW - days * 24L * 60 * 60 * 1000);
+    }
+}
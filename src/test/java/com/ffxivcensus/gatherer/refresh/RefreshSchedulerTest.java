@@ -0,0 +1,80 @@
+package com.ffxivcensus.gatherer.refresh;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class RefreshSchedulerTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Mock
+    private PlayerBeanRepository mockRepo;
+    private RefreshScheduler instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        instance = new RefreshScheduler(mockRepo);
+    }
+
+    @Test
+    public void testScheduleIssuesMostLikelyFirstWithinBudget() throws Exception {
+        long now = System.currentTimeMillis();
+        List<Object[]> firstPage = Arrays.asList(row(1, CharacterStatus.INACTIVE, now - 1000 * DAY, now - 30 * DAY, 10, 0),
+                                                 row(2, CharacterStatus.ACTIVE, now - DAY, now - 30 * DAY, 10, 8),
+                                                 row(3, CharacterStatus.ACTIVE, now - DAY, now - 30 * DAY, 10, 2));
+        List<Object[]> secondPage = Arrays.asList(row(4, CharacterStatus.ACTIVE, now - 10 * DAY, now - 60 * DAY, 10, 9),
+                                                  row(5, CharacterStatus.INACTIVE, now - 400 * DAY, now - DAY, 10, 0));
+        when(mockRepo.findRefreshCandidatesAfter(Mockito.eq(0), Mockito.eq(100), Mockito.any(Pageable.class))).thenReturn(firstPage);
+        when(mockRepo.findRefreshCandidatesAfter(Mockito.eq(3), Mockito.eq(100), Mockito.any(Pageable.class))).thenReturn(secondPage);
+        when(mockRepo.findRefreshCandidatesAfter(Mockito.eq(5), Mockito.eq(100), Mockito.any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
+
+        RefreshQueue queue = instance.schedule(1, 100, 3);
+
+        assertEquals(3, queue.size());
+        IdSource cursor = queue.newCursor();
+        List<Integer> issued = new ArrayList<>();
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            issued.add(id);
+            cursor.complete(id);
+        }
+        assertEquals(Arrays.asList(4, 2, 3), issued);
+        assertEquals(3, queue.getCompleted());
+        assertEquals(IdSource.EXHAUSTED, queue.newCursor().nextId());
+    }
+
+    @Test
+    public void testScheduleWithNothingStored() throws Exception {
+        when(mockRepo.findRefreshCandidatesAfter(Mockito.anyInt(), Mockito.anyInt(), Mockito.any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
+
+        RefreshQueue queue = instance.schedule(1, 100, 10);
+
+        assertEquals(0, queue.size());
+        assertEquals(0, queue.getExpectedChanges(), 0);
+        assertEquals(IdSource.EXHAUSTED, queue.newCursor().nextId());
+    }
+
+    private static Object[] row(final int id, final CharacterStatus status, final long dateActive, final long lastCrawledAt,
+                                final int crawlCount, final int changeCount) {
+        return new Object[] {id, status, new Date(dateActive), new Date(lastCrawledAt), crawlCount, changeCount};
+    }
+}
@@ -0,0 +1,116 @@
+package com.ffxivcensus.gatherer.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.player.PlayerBean;
+import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class CensusEstimatorTest {
+
+    @Mock
+    private PlayerBeanRepository mockRepo;
+    private CensusEstimator instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        instance = new CensusEstimator(mockRepo);
+        // Characters 1 to 4 live on Ragnarok, 5 and 6 on Moogle, and the rest are not stored
+        when(mockRepo.findAll(Mockito.<Iterable<Integer>> any())).thenAnswer(invocation -> {
+            List<PlayerBean> stored = new ArrayList<>();
+            for(Integer id : invocation.<Iterable<Integer>> getArgument(0)) {
+                if(id <= 6) {
+                    stored.add(player(id, id <= 4 ? "Ragnarok" : "Moogle", id % 2 == 0 ? 50 : 0));
+                }
+            }
+            return stored;
+        });
+    }
+
+    @Test
+    public void testFullSampleIsExact() throws Exception {
+        StratifiedSample sample = gather(new StratifiedSample(1, 10, 1.0, new Random(1)), -1);
+
+        CensusEstimate estimate = instance.estimate(sample);
+
+        assertEquals(10, estimate.getSampled());
+        Map<String, CensusEstimate.Estimate> realms = estimate.getEstimates(CensusEstimator.REALM);
+        assertEquals(4, realms.get("Ragnarok").getTotal(), 0.0001);
+        assertEquals(0, realms.get("Ragnarok").getStandardError(), 0.0001);
+        assertEquals(2, realms.get("Moogle").getTotal(), 0.0001);
+        assertEquals(4, estimate.getEstimates(CensusEstimator.STATUS).get("DELETED").getTotal(), 0.0001);
+        assertEquals(6, estimate.getEstimates(CensusEstimator.STATUS).get("ACTIVE").getTotal(), 0.0001);
+        assertEquals(3, estimate.getEstimates(CensusEstimator.CLASS).get("Gladiator").getTotal(), 0.0001);
+    }
+
+    @Test
+    public void testFailedIdsAreLeftOut() throws Exception {
+        StratifiedSample sample = gather(new StratifiedSample(1, 10, 1.0, new Random(1)), 10);
+
+        CensusEstimate estimate = instance.estimate(sample);
+
+        // Nine of the ten IDs answered, three of them deleted, so a third of the ten are estimated deleted
+        assertEquals(9, estimate.getSampled());
+        CensusEstimate.Estimate deleted = estimate.getEstimates(CensusEstimator.STATUS).get("DELETED");
+        assertEquals(10.0 / 3, deleted.getTotal(), 0.0001);
+        assertTrue(deleted.getStandardError() > 0);
+        assertTrue(deleted.getLower() < 4 && deleted.getUpper() > 4);
+        assertTrue(estimate.describe().get(0).startsWith("Estimated from 9 sampled characters (1 failed)"));
+    }
+
+    @Test
+    public void testStratumWithoutResponsesIsNotCovered() throws Exception {
+        StratifiedSample sample = new StratifiedSample(1, IdBlockSummary.BLOCK_SIZE + 9, 1.0, new Random(1));
+        // The run is cut short before it reaches the second ID block
+        IdSource cursor = sample.newCursor();
+        for(int id = cursor.nextId(); id < IdBlockSummary.BLOCK_SIZE; id = cursor.nextId()) {
+            cursor.complete(id);
+        }
+
+        CensusEstimate estimate = instance.estimate(sample);
+
+        // The estimates stand only for the first block, rather than counting the second as having no characters
+        assertEquals(IdBlockSummary.BLOCK_SIZE - 1, estimate.getPopulation());
+        assertEquals(10, estimate.getUncovered());
+        assertEquals(IdBlockSummary.BLOCK_SIZE - 7, estimate.getEstimates(CensusEstimator.STATUS).get("DELETED").getTotal(), 0.0001);
+        assertEquals(4, estimate.getEstimates(CensusEstimator.REALM).get("Ragnarok").getTotal(), 0.0001);
+        assertTrue(estimate.describe().get(1).startsWith("Not covered: 10 IDs in 1 ID blocks"));
+    }
+
+    private static StratifiedSample gather(final StratifiedSample sample, final int failedId) throws InterruptedException {
+        IdSource cursor = sample.newCursor();
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            if(id == failedId) {
+                cursor.fail(id);
+            } else {
+                cursor.complete(id);
+            }
+        }
+        return sample;
+    }
+
+    private static PlayerBean player(final int id, final String realm, final int levelGladiator) {
+        PlayerBean player = new PlayerBean();
+        player.setId(id);
+        player.setRealm(realm);
+        player.setLevelGladiator(levelGladiator);
+        player.setCharacterStatus(CharacterStatus.ACTIVE);
+        return player;
+    }
+}
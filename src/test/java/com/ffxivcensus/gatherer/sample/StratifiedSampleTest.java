@@ -0,0 +1,63 @@
+package com.ffxivcensus.gatherer.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.ffxivcensus.gatherer.task.IdSource;
+
+public class StratifiedSampleTest {
+
+    @Test
+    public void testSamplesSameFractionOfEachBlock() throws Exception {
+        // The range covers the top half of block 0, all of block 1 and the bottom half of block 2
+        StratifiedSample sample = new StratifiedSample(5000, 24999, 0.01, new Random(42));
+
+        List<StratifiedSample.Stratum> strata = sample.getStrata();
+        assertEquals(3, strata.size());
+        assertEquals(5000, strata.get(0).getPopulation());
+        assertEquals(50, strata.get(0).getIds().length);
+        assertEquals(10000, strata.get(1).getPopulation());
+        assertEquals(100, strata.get(1).getIds().length);
+        assertEquals(50, strata.get(2).getIds().length);
+        assertEquals(200, sample.size());
+
+        // Every sampled ID is issued once, in ascending order, from within its stratum
+        IdSource cursor = sample.newCursor();
+        int previous = -1;
+        for(StratifiedSample.Stratum stratum : strata) {
+            for(int i = 0; i < stratum.getIds().length; i++) {
+                int id = cursor.nextId();
+                assertEquals(stratum.getIds()[i], id);
+                assertTrue(id > previous);
+                assertTrue(id >= stratum.getFirstId() && id <= stratum.getLastId());
+                previous = id;
+            }
+        }
+        assertEquals(IdSource.EXHAUSTED, cursor.nextId());
+    }
+
+    @Test
+    public void testRecordsWhetherEachIdWasGathered() throws Exception {
+        StratifiedSample sample = new StratifiedSample(0, 99, 0.1, new Random(7));
+        IdSource cursor = sample.newCursor();
+        int gathered = cursor.nextId();
+        int failed = cursor.nextId();
+        int unreached = cursor.nextId();
+
+        cursor.complete(gathered);
+        cursor.fail(failed);
+
+        assertTrue(sample.isGathered(gathered));
+        assertTrue(sample.isFailed(failed));
+        assertFalse(sample.isGathered(failed));
+        assertFalse(sample.isGathered(unreached));
+        assertFalse(sample.isFailed(unreached));
+        assertEquals("Sampled 2 of 10 characters (1 failed) across 1 ID blocks", sample.describeProgress());
+    }
+}
@@ -0,0 +1,50 @@
+package com.ffxivcensus.gatherer.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.ffxivcensus.gatherer.config.ShardConfig;
+
+public class ShardRouterTest {
+
+    @Test
+    public void testShardFor() {
+        ShardRouter router = new ShardRouter(Arrays.asList(shard(100, Integer.MAX_VALUE), shard(0, 99)));
+
+        assertEquals(2, router.getShardCount());
+        assertEquals(0, router.shardFor(0));
+        assertEquals(0, router.shardFor(99));
+        assertEquals(1, router.shardFor(100));
+        assertEquals(99, router.lastIdOfShardFor(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShardForUnowned() {
+        new ShardRouter(Collections.singletonList(shard(100, 200))).shardFor(50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingShards() {
+        new ShardRouter(Arrays.asList(shard(0, 100), shard(100, 200)));
+    }
+
+    @Test
+    public void testOnShard() throws Exception {
+        ShardRouter router = new ShardRouter(Arrays.asList(shard(0, 99), shard(100, 199)));
+
+        assertEquals(Integer.valueOf(1), router.onShard(1, router::getCurrentShard));
+        assertNull(router.getCurrentShard());
+    }
+
+    private static ShardConfig shard(final int fromId, final int toId) {
+        ShardConfig shard = new ShardConfig();
+        shard.setFromId(fromId);
+        shard.setToId(toId);
+        return shard;
+    }
+}
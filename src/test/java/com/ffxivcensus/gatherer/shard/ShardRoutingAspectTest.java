@@ -0,0 +1,138 @@
+package com.ffxivcensus.gatherer.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.ffxivcensus.gatherer.config.ShardConfig;
+import com.ffxivcensus.gatherer.player.DeletedRangeBean;
+import com.ffxivcensus.gatherer.player.DeletedRangeRepository;
+
+public class ShardRoutingAspectTest {
+
+    @Mock
+    private DeletedRangeRepository mockRepo;
+    private ShardRouter router;
+    private DeletedRangeRepository instance;
+    private List<Integer> shardsCalled;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ShardConfig lower = new ShardConfig();
+        lower.setToId(99);
+        ShardConfig upper = new ShardConfig();
+        upper.setFromId(100);
+        router = new ShardRouter(Arrays.asList(lower, upper));
+        shardsCalled = new ArrayList<>();
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(mockRepo);
+        factory.addAspect(new ShardRoutingAspect(router));
+        instance = factory.getProxy();
+    }
+
+    @Test
+    public void testRouteById() {
+        when(mockRepo.findOne(150)).then(invocation -> {
+            shardsCalled.add(router.getCurrentShard());
+            return new DeletedRangeBean(150, 150);
+        });
+
+        assertEquals(150, instance.findOne(150).getRangeFrom());
+        assertEquals(Collections.singletonList(1), shardsCalled);
+    }
+
+    @Test
+    public void testRouteByEntity() {
+        when(mockRepo.save(Mockito.any(DeletedRangeBean.class))).then(invocation -> {
+            shardsCalled.add(router.getCurrentShard());
+            return invocation.getArgument(0);
+        });
+
+        instance.save(new DeletedRangeBean(10, 20));
+        assertEquals(Collections.singletonList(0), shardsCalled);
+    }
+
+    @Test
+    public void testFanOutKeepsHighest() {
+        when(mockRepo.findTopByOrderByRangeFromDesc()).then(invocation -> {
+            shardsCalled.add(router.getCurrentShard());
+            return router.getCurrentShard() == 0 ? new DeletedRangeBean(10, 20) : new DeletedRangeBean(120, 130);
+        });
+
+        assertEquals(120, instance.findTopByOrderByRangeFromDesc().getRangeFrom());
+        assertEquals(Arrays.asList(0, 1), shardsCalled);
+    }
+
+    @Test
+    public void testFanOutSumsCounts() {
+        when(mockRepo.count()).then(invocation -> router.getCurrentShard() == 0 ? 3L : 4L);
+
+        assertEquals(7L, instance.count());
+    }
+
+    @Test
+    public void testFanOutTruncatesPage() {
+        when(mockRepo.findByRangeFromBetweenOrderByRangeFromAsc(Mockito.eq(0), Mockito.eq(200), Mockito.any(Pageable.class)))
+            .then(invocation -> router.getCurrentShard() == 0
+                                                              ? Arrays.asList(new DeletedRangeBean(10, 10), new DeletedRangeBean(20, 20))
+                                                              : Arrays.asList(new DeletedRangeBean(110, 110)));
+
+        List<DeletedRangeBean> ranges = instance.findByRangeFromBetweenOrderByRangeFromAsc(0, 200, new PageRequest(0, 2));
+
+        assertEquals(2, ranges.size());
+        assertEquals(10, ranges.get(0).getRangeFrom());
+        assertEquals(20, ranges.get(1).getRangeFrom());
+    }
+
+    @Test
+    public void testRouteByShardKey() {
+        when(mockRepo.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(150)).then(invocation -> {
+            shardsCalled.add(router.getCurrentShard());
+            return new DeletedRangeBean(140, 160);
+        });
+
+        assertEquals(140, instance.findTopByRangeFromLessThanEqualOrderByRangeFromDesc(150).getRangeFrom());
+        assertEquals(Collections.singletonList(1), shardsCalled);
+    }
+
+    @Test
+    public void testRouteCollectionById() {
+        when(mockRepo.findAll(Mockito.<Iterable<Integer>> any())).then(invocation -> {
+            shardsCalled.add(router.getCurrentShard());
+            List<DeletedRangeBean> found = new ArrayList<>();
+            for(Integer id : invocation.<Iterable<Integer>> getArgument(0)) {
+                found.add(new DeletedRangeBean(id, id));
+            }
+            return found;
+        });
+
+        List<DeletedRangeBean> found = new ArrayList<>();
+        instance.findAll(Arrays.asList(10, 150, 20)).forEach(found::add);
+
+        assertEquals(Arrays.asList(0, 1), shardsCalled);
+        assertEquals(3, found.size());
+    }
+
+    @Test
+    public void testFanOutWithoutShardKey() {
+        Mockito.doAnswer(invocation -> shardsCalled.add(router.getCurrentShard())).when(mockRepo).deleteByRangeFromGreaterThan(50);
+
+        instance.deleteByRangeFromGreaterThan(50);
+
+        assertEquals(Arrays.asList(0, 1), shardsCalled);
+    }
+}
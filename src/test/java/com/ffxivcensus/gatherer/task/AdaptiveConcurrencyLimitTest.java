@@ -0,0 +1,92 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private ApplicationConfig config;
+
+    @Before
+    public void setUp() {
+        config = new ApplicationConfig();
+        config.setThreadLimit(32);
+    }
+
+    @Test
+    public void testGrowsToThreadLimitWhileLatencyIsSteady() {
+        AdaptiveConcurrencyLimit instance = new AdaptiveConcurrencyLimit(config);
+        assertEquals(AdaptiveConcurrencyLimit.INITIAL_LIMIT, instance.getLimit());
+
+        for(int i = 0; i < 200; i++) {
+            instance.onFetch(100000000L);
+            instance.onStore(1000000L);
+        }
+
+        assertEquals(32, instance.getLimit());
+    }
+
+    @Test
+    public void testShrinksAsStoresSlowDown() {
+        AdaptiveConcurrencyLimit instance = new AdaptiveConcurrencyLimit(config);
+        for(int i = 0; i < 200; i++) {
+            instance.onFetch(100000000L);
+            instance.onStore(1000000L);
+        }
+
+        // The database falling behind slows every store down, even though the Lodestone is no slower
+        for(int i = 0; i < 20; i++) {
+            instance.onFetch(100000000L);
+            instance.onStore(10000000L);
+        }
+
+        assertTrue(instance.getLimit() < 16);
+    }
+
+    @Test
+    public void testRateLimitingBacksOffOncePerBurst() {
+        AdaptiveConcurrencyLimit instance = new AdaptiveConcurrencyLimit(config);
+        for(int i = 0; i < 200; i++) {
+            instance.onFetch(100000000L);
+        }
+
+        instance.onRateLimited();
+        assertEquals(24, instance.getLimit());
+        // Requests already in flight when the first was rate limited do not cut the limit again
+        instance.onRateLimited();
+        instance.onRateLimited();
+        assertEquals(24, instance.getLimit());
+    }
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        config.setThreadLimit(1);
+        AdaptiveConcurrencyLimit instance = new AdaptiveConcurrencyLimit(config);
+        instance.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                instance.acquire();
+                acquired.countDown();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        instance.release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, instance.getInFlight());
+    }
+}
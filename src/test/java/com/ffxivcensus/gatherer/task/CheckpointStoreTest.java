@@ -0,0 +1,64 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+
+public class CheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File directory;
+    private CheckpointStore instance;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(folder.getRoot(), "checkpoints");
+        ApplicationConfig config = new ApplicationConfig();
+        config.setCheckpointDirectory(directory.getPath());
+        instance = new CheckpointStore(config);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        assertNull(instance.load(1000));
+
+        BitSet completed = new BitSet();
+        completed.set(3);
+        completed.set(200);
+        instance.save(new Checkpoint(1000, 50000, 2500, completed));
+        // A later checkpoint replaces the earlier one
+        instance.save(new Checkpoint(1000, 50000, 3000, completed));
+
+        Checkpoint loaded = instance.load(1000);
+        assertEquals(1000, loaded.getStartId());
+        assertEquals(50000, loaded.getFinishId());
+        assertEquals(3000, loaded.getWatermark());
+        assertEquals(completed, loaded.getCompletedAbove());
+        assertNull(instance.load(2000));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptCheckpoint() throws Exception {
+        BitSet completed = new BitSet();
+        completed.set(7);
+        instance.save(new Checkpoint(1, 100, 10, completed));
+        try(RandomAccessFile file = new RandomAccessFile(new File(directory, "checkpoint-1.bin"), "rw")) {
+            file.seek(12);
+            file.write(0xFF);
+        }
+
+        instance.load(1);
+    }
+}
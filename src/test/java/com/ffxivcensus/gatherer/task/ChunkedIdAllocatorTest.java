@@ -0,0 +1,134 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ChunkedIdAllocatorTest {
+
+    @Test
+    public void testSingleCursorIssuesRangeInOrder() {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(100, 109, 4);
+        ChunkedIdAllocator.Cursor cursor = allocator.newCursor();
+
+        for(int id = 100; id <= 109; id++) {
+            assertEquals(id, cursor.nextId());
+        }
+        assertEquals(IdSource.EXHAUSTED, cursor.nextId());
+    }
+
+    @Test
+    public void testConcurrentCursorsIssueEachIdOnce() throws Exception {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 100000);
+        Set<Integer> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for(int i = 0; i < 8; i++) {
+                ChunkedIdAllocator.Cursor cursor = allocator.newCursor();
+                futures.add(executor.submit(() -> {
+                    boolean unique = true;
+                    for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+                        unique &= issued.add(id);
+                        cursor.complete(id);
+                    }
+                    return unique;
+                }));
+            }
+            for(Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(100000, issued.size());
+        assertEquals(100001, allocator.getCompletedWatermark());
+    }
+
+    @Test
+    public void testIdleCursorStealsTail() {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 8, 8);
+        ChunkedIdAllocator.Cursor slow = allocator.newCursor();
+        ChunkedIdAllocator.Cursor idle = allocator.newCursor();
+
+        // The slow cursor leases the only chunk, leaving the idle cursor to steal the back half of what remains
+        assertEquals(1, slow.nextId());
+        assertEquals(6, idle.nextId());
+        assertEquals(2, slow.nextId());
+        assertEquals(7, idle.nextId());
+        assertEquals(8, idle.nextId());
+        assertEquals(5, idle.nextId());
+        assertEquals(3, slow.nextId());
+        // With a single ID left, it is left to its owner
+        assertEquals(IdSource.EXHAUSTED, idle.nextId());
+        assertEquals(4, slow.nextId());
+        assertEquals(IdSource.EXHAUSTED, slow.nextId());
+    }
+
+    @Test
+    public void testWatermarkIsExact() {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(10, 29, 8);
+        ChunkedIdAllocator.Cursor cursor = allocator.newCursor();
+        for(int i = 0; i < 20; i++) {
+            cursor.nextId();
+        }
+        assertEquals(10, allocator.getCompletedWatermark());
+
+        // Completing out of order only moves the watermark once every lower ID is complete
+        for(int id = 11; id <= 20; id++) {
+            cursor.complete(id);
+        }
+        assertEquals(10, allocator.getCompletedWatermark());
+        cursor.complete(10);
+        assertEquals(21, allocator.getCompletedWatermark());
+        for(int id = 22; id <= 29; id++) {
+            cursor.complete(id);
+        }
+        assertEquals(21, allocator.getCompletedWatermark());
+        cursor.complete(21);
+        assertEquals(30, allocator.getCompletedWatermark());
+    }
+
+    @Test
+    public void testResumeFromCheckpointSkipsGatheredIds() {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(10, 49, 8);
+        ChunkedIdAllocator.Cursor cursor = allocator.newCursor();
+        for(int i = 0; i < 24; i++) {
+            cursor.nextId();
+        }
+        // Everything below 21 is gathered, along with 23 and 30, while the rest of the issued IDs were still in flight
+        for(int id = 10; id <= 20; id++) {
+            cursor.complete(id);
+        }
+        cursor.complete(23);
+        cursor.complete(30);
+
+        Checkpoint checkpoint = allocator.checkpoint();
+        assertEquals(21, checkpoint.getWatermark());
+        assertEquals(2, checkpoint.getCompletedAboveCount());
+        assertEquals(49, checkpoint.getFinishId());
+
+        ChunkedIdAllocator resumed = new ChunkedIdAllocator(10, 49, 8, checkpoint);
+        ChunkedIdAllocator.Cursor resumedCursor = resumed.newCursor();
+        List<Integer> issued = new ArrayList<>();
+        for(int id = resumedCursor.nextId(); id != IdSource.EXHAUSTED; id = resumedCursor.nextId()) {
+            issued.add(id);
+            resumedCursor.complete(id);
+        }
+        assertEquals(40 - 11 - 2, issued.size());
+        assertEquals(Integer.valueOf(21), issued.get(0));
+        assertFalse(issued.contains(23));
+        assertFalse(issued.contains(30));
+        assertEquals(50, resumed.getCompletedWatermark());
+    }
+}
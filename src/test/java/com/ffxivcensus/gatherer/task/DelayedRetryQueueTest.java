@@ -0,0 +1,65 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+
+public class DelayedRetryQueueTest {
+
+    @Mock
+    private IdBlockSummary mockSummary;
+    private DelayedRetryQueue instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mockSummary.getValidDensity(Mockito.anyInt(), Mockito.anyInt())).thenReturn(0.0);
+        instance = new DelayedRetryQueue();
+    }
+
+    @Test(timeout = 5000)
+    public void testParkedProbeIsFetchedAgainWhileAllocatorWaitsOnIt() throws Exception {
+        SparseProbeAllocator allocator = new SparseProbeAllocator(0, 255, mockSummary);
+        IdSource cursor = instance.cursor(allocator.newCursor());
+
+        // The probe that finds a character is rate limited the first time, so is parked once the rest of the range has been issued
+        List<Integer> issued = new ArrayList<>();
+        boolean parked = false;
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            issued.add(id);
+            if(id == 240 && !parked) {
+                parked = instance.park(id);
+                continue;
+            }
+            instance.settle(id);
+            cursor.complete(id, id == 240 ? GatheringOutcome.STORED : GatheringOutcome.DELETED);
+        }
+
+        assertTrue(parked);
+        assertEquals(Integer.valueOf(240), issued.get(SparseProbeAllocator.WINDOW_SIZE / SparseProbeAllocator.PROBE_STRIDE - 1));
+        // Once the parked probe has found its character, the IDs around it are gathered
+        assertTrue(issued.containsAll(Arrays.asList(225, 239, 241, 255)));
+        assertEquals(1, instance.getTotalParked());
+    }
+
+    @Test
+    public void testGivesUpAfterTooManyParks() {
+        for(int i = 0; i < DelayedRetryQueue.MAX_PARKS; i++) {
+            assertTrue(instance.park(7));
+        }
+        assertFalse(instance.park(7));
+    }
+}
@@ -0,0 +1,69 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+import com.ffxivcensus.gatherer.player.PlayerBuilder;
+
+public class FrontierSearchTest {
+
+    @Mock
+    private PlayerBuilder mockBuilder;
+    @Mock
+    private IdBlockSummary mockSummary;
+    private FrontierSearch instance;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        instance = new FrontierSearch(mockBuilder, mockSummary);
+    }
+
+    @Test
+    public void testFindsFrontierWithFewProbes() throws Exception {
+        int frontier = 25_000_000;
+        when(mockSummary.getHighestValidId()).thenReturn(20_000_000);
+        // Only every third ID below the frontier belongs to a character
+        when(mockBuilder.exists(Mockito.anyInt())).thenAnswer(invocation -> {
+            int id = invocation.getArgument(0);
+            return id <= frontier && id % 3 == 0;
+        });
+
+        int endId = instance.findEndId(1, Integer.MAX_VALUE);
+
+        assertTrue(endId >= frontier);
+        assertTrue(endId <= frontier + FrontierSearch.RESOLUTION + FrontierSearch.SAMPLE_OFFSETS[FrontierSearch.SAMPLE_OFFSETS.length - 1]);
+        assertTrue(instance.getProbes() < 500);
+    }
+
+    @Test
+    public void testStepsOverDeletedGaps() throws Exception {
+        int frontier = 1_000_000;
+        when(mockSummary.getHighestValidId()).thenReturn(500_000);
+        // A run of 4,000 deleted characters just below the frontier
+        when(mockBuilder.exists(Mockito.anyInt())).thenAnswer(invocation -> {
+            int id = invocation.getArgument(0);
+            return id <= frontier && (id < frontier - 4_000 || id == frontier);
+        });
+
+        int endId = instance.findEndId(1, Integer.MAX_VALUE);
+
+        assertTrue(endId >= frontier);
+    }
+
+    @Test
+    public void testStopsAtCeiling() throws Exception {
+        when(mockSummary.getHighestValidId()).thenReturn(0);
+        when(mockBuilder.exists(Mockito.anyInt())).thenReturn(true);
+
+        assertEquals(50_000, instance.findEndId(1, 50_000));
+    }
+}
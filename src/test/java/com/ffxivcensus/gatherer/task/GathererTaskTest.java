@@ -2,9 +2,15 @@ package com.ffxivcensus.gatherer.task;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -13,15 +19,35 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import com.ffxivcensus.gatherer.failure.FailureLedger;
+import com.ffxivcensus.gatherer.feed.ChangeFeedWriter;
+import com.ffxivcensus.gatherer.lodestone.RateLimitedException;
 import com.ffxivcensus.gatherer.player.CharacterStatus;
+import com.ffxivcensus.gatherer.player.DeletedCharacterStore;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
 import com.ffxivcensus.gatherer.player.PlayerBean;
 import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
 import com.ffxivcensus.gatherer.player.PlayerBuilder;
+import com.ffxivcensus.gatherer.rebuild.StagingTableRebuild;
 
 public class GathererTaskTest {
     
     @Mock
     private PlayerBeanRepository mockRepo;
+    @Mock
+    private DeletedCharacterStore mockDeletedStore;
+    @Mock
+    private IdBlockSummary mockSummary;
+    @Mock
+    private ChangeFeedWriter mockChangeFeed;
+    @Mock
+    private StagingTableRebuild mockStagingRebuild;
+    @Mock
+    private PlayerBuilder mockBuilder;
+    @Mock
+    private AdaptiveConcurrencyLimit mockLimit;
+    @Mock
+    private FailureLedger mockLedger;
     private GathererTask instance;
     
     @Before
@@ -29,6 +55,12 @@ public class GathererTaskTest {
         MockitoAnnotations.initMocks(this);
         instance = new GathererTask();
         instance.setPlayerRepository(mockRepo);
+        instance.setDeletedStore(mockDeletedStore);
+        instance.setIdBlockSummary(mockSummary);
+        instance.setChangeFeed(mockChangeFeed);
+        instance.setStagingRebuild(mockStagingRebuild);
+        instance.setConcurrencyLimit(mockLimit);
+        instance.setFailureLedger(mockLedger);
         instance.setPlayerBuilder(new PlayerBuilder());
     }
     
@@ -38,23 +70,156 @@ public class GathererTaskTest {
     }
     
     @Test
-    public void runWithSuccess() {
-        when(mockRepo.findOne(Mockito.anyInt())).thenReturn(null);
+    public void runWithSuccess() throws Exception {
+        when(mockDeletedStore.isDeleted(Mockito.anyInt())).thenReturn(false);
         
-        ArgumentCaptor<PlayerBean> argument = ArgumentCaptor.forClass(PlayerBean.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<PlayerBean>> argument = ArgumentCaptor.forClass(Iterable.class);
         
-        instance.setPlayerId(2256025);
-        instance.run();
+        assertEquals(GatheringOutcome.STORED, instance.gather(2256025));
         
         verify(mockRepo).save(argument.capture());
-        assertEquals(2256025, argument.getValue().getId());
-        assertEquals(CharacterStatus.ACTIVE, argument.getValue().getCharacterStatus());
+        PlayerBean saved = argument.getValue().iterator().next();
+        assertEquals(2256025, saved.getId());
+        assertEquals(CharacterStatus.ACTIVE, saved.getCharacterStatus());
+        verify(mockSummary).recordCrawl(2256025, null, CharacterStatus.ACTIVE);
+        verify(mockChangeFeed).recordCrawl(null, saved);
+        verify(mockLimit).onFetch(Mockito.anyLong());
+        verify(mockLimit).onStore(Mockito.anyLong());
+    }
+
+    @Test
+    public void runWithKnownDeleted() {
+        when(mockDeletedStore.isDeleted(2256025)).thenReturn(true);
+
+        assertEquals(GatheringOutcome.SKIPPED, instance.gather(2256025));
+
+        verify(mockRepo, never()).save(Mockito.<Iterable<PlayerBean>> any());
     }
 
     @Test
     public void runWithError() {
-        doThrow(RuntimeException.class).when(mockRepo).findOne(Mockito.anyInt());
-        instance.run();
+        doThrow(RuntimeException.class).when(mockDeletedStore).isDeleted(Mockito.anyInt());
+        assertEquals(GatheringOutcome.FAILED, instance.gather(2256025));
+
+        verify(mockRepo).recordFailure(Mockito.eq(2256025), Mockito.any(Date.class));
+        verify(mockLedger).record(Mockito.eq(2256025), Mockito.any(RuntimeException.class));
+    }
+
+    @Test
+    public void runWithErrorDuringRebuild() throws Exception {
+        PlayerBean stored = new PlayerBean();
+        stored.setId(2256025);
+        stored.setFailureCount(1);
+        when(mockStagingRebuild.isEnabled()).thenReturn(true);
+        when(mockRepo.findAll(Collections.singletonList(2256025))).thenReturn(Collections.singletonList(stored));
+        when(mockBuilder.fetchPage(2256025)).thenThrow(new RuntimeException("Lodestone unavailable"));
+        instance.setPlayerBuilder(mockBuilder);
+
+        assertEquals(GatheringOutcome.FAILED, instance.gather(2256025));
+
+        // The stored character is carried into the staging tables, rather than being updated in place
+        verify(mockStagingRebuild).write(stored);
+        assertEquals(2, stored.getFailureCount());
+        assertNotNull(stored.getLastCrawledAt());
+        verify(mockRepo, never()).recordFailure(Mockito.anyInt(), Mockito.any(Date.class));
+    }
+
+    @Test
+    public void runWithRateLimit() throws Exception {
+        when(mockBuilder.fetchPage(2256025)).thenThrow(new RateLimitedException(2256025, null));
+        instance.setPlayerBuilder(mockBuilder);
+        DelayedRetryQueue retries = new DelayedRetryQueue();
+
+        // A rate limited character is parked to be tried again, rather than being recorded as having failed
+        assertEquals(GatheringOutcome.DEFERRED, instance.gather(2256025, retries));
+        assertEquals(1, retries.getParked());
+        verify(mockRepo, never()).recordFailure(Mockito.anyInt(), Mockito.any(Date.class));
+        verify(mockLedger, never()).record(Mockito.anyInt(), Mockito.any(Exception.class));
+
+        // Without a queue to park it in, it fails
+        assertEquals(GatheringOutcome.FAILED, instance.gather(2256025));
+        verify(mockLedger).record(Mockito.eq(2256025), Mockito.any(RateLimitedException.class));
+    }
+
+    @Test
+    public void runWithInterrupt() throws Exception {
+        when(mockBuilder.fetchPage(2256025)).thenThrow(new InterruptedException());
+        instance.setPlayerBuilder(mockBuilder);
+
+        try {
+            assertEquals(GatheringOutcome.FAILED, instance.gather(2256025));
+            // The interrupt is kept, so that the thread gathering this character stops
+            assertTrue(Thread.currentThread().isInterrupted());
+            verify(mockRepo, never()).findAll(Mockito.<Iterable<Integer>> any());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void persistBatch() throws Exception {
+        PlayerBean unchanged = player(1, CharacterStatus.ACTIVE);
+        PlayerBean stored = player(1, CharacterStatus.ACTIVE);
+        stored.setLastChangedAt(new Date(0));
+        stored.setCrawlCount(3);
+        stored.setChangeCount(1);
+        PlayerBean deleted = player(2, CharacterStatus.DELETED);
+        PlayerBean storedDeleted = player(2, CharacterStatus.INACTIVE);
+        GatheredCharacter failed = new GatheredCharacter(3);
+        failed.setFailure(new RuntimeException("Lodestone unavailable"));
+        when(mockRepo.findAll(Arrays.asList(1, 2, 3))).thenReturn(Arrays.asList(stored, storedDeleted));
+
+        List<GatheringOutcome> outcomes = instance.persist(Arrays.asList(parsed(unchanged), parsed(deleted), failed));
+
+        assertEquals(Arrays.asList(GatheringOutcome.STORED, GatheringOutcome.DELETED, GatheringOutcome.FAILED), outcomes);
+        // Every stored character in the batch is saved together
+        verify(mockRepo).save(Collections.singletonList(unchanged));
+        assertEquals(new Date(0), unchanged.getLastChangedAt());
+        assertEquals(4, unchanged.getCrawlCount());
+        assertEquals(1, unchanged.getChangeCount());
+        verify(mockRepo).delete(2);
+        verify(mockDeletedStore).markDeleted(2);
+        verify(mockChangeFeed).recordDeleted(2, CharacterStatus.INACTIVE);
+        verify(mockRepo).recordFailure(Mockito.eq(3), Mockito.any(Date.class));
+        verify(mockSummary).recordCrawl(1, CharacterStatus.ACTIVE, CharacterStatus.ACTIVE);
+        verify(mockSummary).recordCrawl(2, CharacterStatus.INACTIVE, CharacterStatus.DELETED);
+        // Failures recorded against the gathered characters are resolved together
+        verify(mockLedger).resolve(Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void persistFallsBackWhenBatchFails() throws Exception {
+        PlayerBean good = player(1, CharacterStatus.ACTIVE);
+        PlayerBean bad = player(2, CharacterStatus.ACTIVE);
+        when(mockRepo.save(Mockito.<Iterable<PlayerBean>> any())).thenThrow(new RuntimeException("Batch failed"));
+        when(mockRepo.save(bad)).thenThrow(new RuntimeException("Row failed"));
+
+        List<GatheringOutcome> outcomes = instance.persist(Arrays.asList(parsed(good), parsed(bad)));
+
+        // Only the character that cannot be stored on its own fails
+        assertEquals(Arrays.asList(GatheringOutcome.STORED, GatheringOutcome.FAILED), outcomes);
+        verify(mockRepo).save(good);
+        verify(mockRepo).recordFailure(Mockito.eq(2), Mockito.any(Date.class));
+        ArgumentCaptor<Exception> failure = ArgumentCaptor.forClass(Exception.class);
+        verify(mockLedger).record(Mockito.eq(2), failure.capture());
+        assertEquals("Row failed", failure.getValue().getMessage());
+        verify(mockChangeFeed).recordCrawl(null, good);
+        verify(mockChangeFeed, never()).recordCrawl(null, bad);
+        verify(mockLedger).resolve(Collections.singletonList(1));
+    }
+
+    private static PlayerBean player(final int id, final CharacterStatus status) {
+        PlayerBean player = new PlayerBean();
+        player.setId(id);
+        player.setCharacterStatus(status);
+        return player;
+    }
+
+    private static GatheredCharacter parsed(final PlayerBean player) {
+        GatheredCharacter character = new GatheredCharacter(player.getId());
+        character.setPlayer(player);
+        return character;
     }
 
 }
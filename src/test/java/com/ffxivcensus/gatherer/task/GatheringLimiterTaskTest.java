@@ -10,20 +10,17 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import com.ffxivcensus.gatherer.config.ApplicationConfig;
-import com.ffxivcensus.gatherer.player.CharacterStatus;
-import com.ffxivcensus.gatherer.player.PlayerBean;
-import com.ffxivcensus.gatherer.player.PlayerBeanRepository;
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
 
 public class GatheringLimiterTaskTest {
 
     @Mock
     private ThreadPoolExecutor mockExecutor;
     @Mock
-    private PlayerBeanRepository mockRepository;
+    private IdBlockSummary mockSummary;
     private ApplicationConfig config;
     private GatheringLimiterTask instance;
 
@@ -31,7 +28,7 @@ public class GatheringLimiterTaskTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         config = new ApplicationConfig();
-        instance = new GatheringLimiterTask(config, mockExecutor, mockRepository);
+        instance = new GatheringLimiterTask(config, mockExecutor, mockSummary);
     }
     
     @After
@@ -41,8 +38,8 @@ public class GatheringLimiterTaskTest {
 
     @Test
     public void testNothingGathered() {
-        when(mockRepository.findTopByOrderByIdDesc()).thenReturn(null);
-        when(mockRepository.findTopByCharacterStatusNotOrderByIdDesc(Mockito.any(CharacterStatus.class))).thenReturn(null);
+        when(mockSummary.getHighestCrawledId()).thenReturn(0);
+        when(mockSummary.getHighestValidId()).thenReturn(0);
         
         instance.run();
         
@@ -51,13 +48,8 @@ public class GatheringLimiterTaskTest {
     
     @Test
     public void testContinueCondition() {
-        PlayerBean topId = new PlayerBean();
-        topId.setId(150);
-        PlayerBean topValid = new PlayerBean();
-        topValid.setId(100);
-        
-        when(mockRepository.findTopByOrderByIdDesc()).thenReturn(topId);
-        when(mockRepository.findTopByCharacterStatusNotOrderByIdDesc(Mockito.any(CharacterStatus.class))).thenReturn(topValid);
+        when(mockSummary.getHighestCrawledId()).thenReturn(150);
+        when(mockSummary.getHighestValidId()).thenReturn(100);
         
         instance.run();
         
@@ -66,13 +58,8 @@ public class GatheringLimiterTaskTest {
     
     @Test
     public void testContinueAtMarginCondition() {
-        PlayerBean topId = new PlayerBean();
-        topId.setId(50100);
-        PlayerBean topValid = new PlayerBean();
-        topValid.setId(100);
-        
-        when(mockRepository.findTopByOrderByIdDesc()).thenReturn(topId);
-        when(mockRepository.findTopByCharacterStatusNotOrderByIdDesc(Mockito.any(CharacterStatus.class))).thenReturn(topValid);
+        when(mockSummary.getHighestCrawledId()).thenReturn(50100);
+        when(mockSummary.getHighestValidId()).thenReturn(100);
         
         instance.run();
         
@@ -81,16 +68,11 @@ public class GatheringLimiterTaskTest {
     
     @Test
     public void testContinueWithUnbreachedAutostopLimit() {
-        PlayerBean topId = new PlayerBean();
-        topId.setId(60000);
-        PlayerBean topValid = new PlayerBean();
-        topValid.setId(100);
+        when(mockSummary.getHighestCrawledId()).thenReturn(60000);
+        when(mockSummary.getHighestValidId()).thenReturn(100);
         
         config.setAutoStopLowerLimitId(61000);
         
-        when(mockRepository.findTopByOrderByIdDesc()).thenReturn(topId);
-        when(mockRepository.findTopByCharacterStatusNotOrderByIdDesc(Mockito.any(CharacterStatus.class))).thenReturn(topValid);
-        
         instance.run();
         
         verify(mockExecutor, never()).shutdownNow();
@@ -98,13 +80,8 @@ public class GatheringLimiterTaskTest {
     
     @Test
     public void testStopCondition() {
-        PlayerBean topId = new PlayerBean();
-        topId.setId(50101);
-        PlayerBean topValid = new PlayerBean();
-        topValid.setId(100);
-        
-        when(mockRepository.findTopByOrderByIdDesc()).thenReturn(topId);
-        when(mockRepository.findTopByCharacterStatusNotOrderByIdDesc(Mockito.any(CharacterStatus.class))).thenReturn(topValid);
+        when(mockSummary.getHighestCrawledId()).thenReturn(50101);
+        when(mockSummary.getHighestValidId()).thenReturn(100);
         
         instance.run();
         
@@ -0,0 +1,149 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+import com.ffxivcensus.gatherer.lodestone.RateLimitedException;
+
+public class GatheringPipelineTest {
+
+    @Mock
+    private GathererTask mockGatherer;
+    private AdaptiveConcurrencyLimit limit;
+    private ExecutorService executor;
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        ApplicationConfig config = new ApplicationConfig();
+        config.setThreadLimit(4);
+        limit = new AdaptiveConcurrencyLimit(config);
+        when(mockGatherer.fetch(Mockito.anyInt())).then(invocation -> {
+            int id = invocation.getArgument(0);
+            // Every tenth character is already known to be deleted
+            return id % 10 == 0 ? null : new GatheredCharacter(id);
+        });
+        when(mockGatherer.persist(Mockito.anyList())).then(invocation -> {
+            List<?> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            return Collections.nCopies(batch.size(), GatheringOutcome.STORED);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        if(executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGathersWholeRange() throws Exception {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+        GatheringPipeline instance = new GatheringPipeline(mockGatherer, allocator, limit, 4, 2);
+        executor = Executors.newFixedThreadPool(instance.getThreadCount());
+
+        instance.start(executor);
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        verify(mockGatherer, times(1000)).fetch(Mockito.anyInt());
+        verify(mockGatherer, times(900)).parse(Mockito.any(GatheredCharacter.class));
+        assertEquals(900, instance.getCount(GatheringOutcome.STORED));
+        assertEquals(100, instance.getCount(GatheringOutcome.SKIPPED));
+        // Every character is persisted in batches, and only reported complete once persisted or skipped
+        assertEquals(900, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= GatheringPipeline.BATCH_SIZE));
+        assertEquals(1001, allocator.getCompletedWatermark());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testWriterCarriesOnAfterBatchFails() throws Exception {
+        when(mockGatherer.persist(Mockito.anyList())).then(invocation -> {
+            List<GatheredCharacter> batch = invocation.getArgument(0);
+            if(batch.stream().anyMatch(character -> character.getId() == 501)) {
+                throw new IllegalStateException("Connection reset");
+            }
+            batchSizes.add(batch.size());
+            return Collections.nCopies(batch.size(), GatheringOutcome.STORED);
+        });
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+        GatheringPipeline instance = new GatheringPipeline(mockGatherer, allocator, limit, 4, 2);
+        executor = Executors.newFixedThreadPool(instance.getThreadCount());
+
+        instance.start(executor);
+
+        // The batch that could not be persisted counts as failed, and every other batch is still persisted
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        long failed = instance.getCount(GatheringOutcome.FAILED);
+        assertTrue(failed > 0 && failed <= GatheringPipeline.BATCH_SIZE);
+        assertEquals(900, instance.getCount(GatheringOutcome.STORED) + failed);
+        assertEquals(1001, allocator.getCompletedWatermark());
+    }
+
+    @Test
+    public void testRateLimitedCharactersParkedAndFetchedAgain() throws Exception {
+        Map<Integer, Integer> fetches = new ConcurrentHashMap<>();
+        when(mockGatherer.fetch(Mockito.anyInt())).then(invocation -> {
+            int id = invocation.getArgument(0);
+            GatheredCharacter character = new GatheredCharacter(id);
+            // Every seventh character is rate limited the first twice it is fetched
+            if(id % 7 == 0 && fetches.merge(id, 1, Integer::sum) <= 2) {
+                character.setFailure(new RateLimitedException(id, null));
+            }
+            return character;
+        });
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+        GatheringPipeline instance = new GatheringPipeline(mockGatherer, allocator, limit, 4, 2);
+        executor = Executors.newFixedThreadPool(instance.getThreadCount());
+
+        instance.start(executor);
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        verify(mockGatherer, times(1000 + 142 * 2)).fetch(Mockito.anyInt());
+        assertEquals(142 * 2, instance.getCount(GatheringOutcome.DEFERRED));
+        assertEquals(1000, instance.getCount(GatheringOutcome.STORED));
+        assertEquals(1001, allocator.getCompletedWatermark());
+    }
+
+    @Test
+    public void testWriterFinishesAfterShutdownNow() throws Exception {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, Integer.MAX_VALUE);
+        GatheringPipeline instance = new GatheringPipeline(mockGatherer, allocator, limit, 4, 2);
+        executor = Executors.newFixedThreadPool(instance.getThreadCount());
+        instance.start(executor);
+        verify(mockGatherer, Mockito.timeout(5000).atLeast(100)).persist(Mockito.anyList());
+
+        executor.shutdownNow();
+
+        // An unbounded range only stops when interrupted, and then everything parsed is still persisted
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        long persisted = batchSizes.stream().mapToInt(Integer::intValue).sum();
+        assertEquals(persisted, instance.getCount(GatheringOutcome.STORED));
+        verify(mockGatherer, atLeast(1)).parse(Mockito.any(GatheredCharacter.class));
+        verify(mockGatherer, never()).gather(Mockito.anyInt());
+    }
+}
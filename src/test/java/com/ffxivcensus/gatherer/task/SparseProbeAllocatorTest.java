@@ -0,0 +1,115 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.player.IdBlockSummary;
+
+public class SparseProbeAllocatorTest {
+
+    @Mock
+    private IdBlockSummary mockSummary;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mockSummary.getValidDensity(Mockito.anyInt(), Mockito.anyInt())).thenReturn(-1.0);
+    }
+
+    @Test
+    public void testKnownDeletedBlockIsProbedAndScannedAroundHits() throws Exception {
+        when(mockSummary.getValidDensity(0, IdBlockSummary.BLOCK_SIZE - 1)).thenReturn(0.0);
+        SparseProbeAllocator allocator = new SparseProbeAllocator(0, 255, mockSummary);
+
+        List<Integer> issued = drain(allocator, 64);
+
+        List<Integer> expected = new ArrayList<>();
+        for(int id = 0; id <= 64; id += SparseProbeAllocator.PROBE_STRIDE) {
+            expected.add(id);
+        }
+        // The character found at 64 has the IDs between its neighbouring probes gathered in full
+        for(int id = 49; id <= 79; id++) {
+            if(id != 64) {
+                expected.add(id);
+            }
+        }
+        for(int id = 80; id <= 255; id += SparseProbeAllocator.PROBE_STRIDE) {
+            expected.add(id);
+        }
+        assertEquals(expected, issued);
+        assertEquals(256 - expected.size(), allocator.getSkipped());
+    }
+
+    @Test
+    public void testScanSpreadsAcrossWideCluster() throws Exception {
+        when(mockSummary.getValidDensity(0, IdBlockSummary.BLOCK_SIZE - 1)).thenReturn(0.0);
+        SparseProbeAllocator allocator = new SparseProbeAllocator(0, 255, mockSummary);
+
+        // A cluster far wider than the gaps either side of the probe that finds it
+        List<Integer> issued = drain(allocator, id -> id >= 60 && id <= 110);
+
+        for(int id = 60; id <= 110; id++) {
+            assertTrue("Character #" + id + " was skipped", issued.contains(id));
+        }
+        // The scan stops at the first gap either side of the cluster in which nothing is found
+        assertFalse(issued.contains(32 - 1));
+        assertFalse(issued.contains(128 + 1));
+        assertEquals(issued.size(), new HashSet<>(issued).size());
+    }
+
+    @Test
+    public void testUnknownBlockIsGatheredInFull() throws Exception {
+        SparseProbeAllocator allocator = new SparseProbeAllocator(0, SparseProbeAllocator.WINDOW_SIZE - 1, mockSummary);
+
+        List<Integer> issued = drain(allocator, -1);
+
+        assertEquals(SparseProbeAllocator.WINDOW_SIZE, issued.size());
+        assertEquals(0, allocator.getSkipped());
+    }
+
+    @Test
+    public void testSwitchesToProbingOnceBlockIsFoundDeleted() throws Exception {
+        SparseProbeAllocator allocator = new SparseProbeAllocator(0, 767, mockSummary);
+
+        List<Integer> issued = drain(allocator, -1);
+
+        // The first window is gathered in full, after which the block is known to be almost all deleted
+        int probesPerWindow = SparseProbeAllocator.WINDOW_SIZE / SparseProbeAllocator.PROBE_STRIDE;
+        assertEquals(SparseProbeAllocator.WINDOW_SIZE + 2 * probesPerWindow, issued.size());
+        assertEquals(Integer.valueOf(SparseProbeAllocator.WINDOW_SIZE + SparseProbeAllocator.PROBE_STRIDE),
+                     issued.get(SparseProbeAllocator.WINDOW_SIZE + 1));
+    }
+
+    /**
+     * Gathers every ID the allocator issues in turn, finding a character only at the given ID.
+     */
+    private static List<Integer> drain(final SparseProbeAllocator allocator, final int validId) throws InterruptedException {
+        return drain(allocator, id -> id == validId);
+    }
+
+    /**
+     * Gathers every ID the allocator issues in turn, finding a character at each ID that matches.
+     */
+    private static List<Integer> drain(final SparseProbeAllocator allocator, final IntPredicate valid) throws InterruptedException {
+        IdSource cursor = allocator.newCursor();
+        List<Integer> issued = new ArrayList<>();
+        for(int id = cursor.nextId(); id != IdSource.EXHAUSTED; id = cursor.nextId()) {
+            issued.add(id);
+            cursor.complete(id, valid.test(id) ? GatheringOutcome.STORED : GatheringOutcome.DELETED);
+        }
+        return issued;
+    }
+}
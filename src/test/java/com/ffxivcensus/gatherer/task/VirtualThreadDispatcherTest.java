@@ -0,0 +1,132 @@
+package com.ffxivcensus.gatherer.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.ffxivcensus.gatherer.config.ApplicationConfig;
+
+public class VirtualThreadDispatcherTest {
+
+    @Mock
+    private GathererTask mockGatherer;
+    private AdaptiveConcurrencyLimit limit;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ApplicationConfig config = new ApplicationConfig();
+        config.setThreadLimit(4);
+        limit = new AdaptiveConcurrencyLimit(config);
+        // Virtual threads are not needed to test dispatching, so any executor will do
+        executor = VirtualThreads.isAvailable() ? VirtualThreads.newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool();
+        when(mockGatherer.gather(Mockito.anyInt(), Mockito.any(DelayedRetryQueue.class))).thenReturn(GatheringOutcome.STORED);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDispatchesWholeRange() throws Exception {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+
+        new VirtualThreadDispatcher(mockGatherer, allocator.newCursor(), limit, executor).run();
+
+        // The dispatcher shuts the executor down once every character has been dispatched
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(mockGatherer, times(1000)).gather(Mockito.anyInt(), Mockito.any(DelayedRetryQueue.class));
+        assertEquals(1001, allocator.getCompletedWatermark());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testDeferredCharactersDispatchedAgain() throws Exception {
+        Set<Integer> deferred = ConcurrentHashMap.newKeySet();
+        when(mockGatherer.gather(Mockito.anyInt(), Mockito.any(DelayedRetryQueue.class))).then(invocation -> {
+            int id = invocation.getArgument(0);
+            DelayedRetryQueue retries = invocation.getArgument(1);
+            // Every tenth character is rate limited the first time it is gathered
+            if(id % 10 == 0 && deferred.add(id) && retries.park(id)) {
+                return GatheringOutcome.DEFERRED;
+            }
+            return GatheringOutcome.STORED;
+        });
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+
+        new VirtualThreadDispatcher(mockGatherer, allocator.newCursor(), limit, executor).run();
+
+        // The range is only exhausted once every parked character has been gathered again
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(mockGatherer, times(1100)).gather(Mockito.anyInt(), Mockito.any(DelayedRetryQueue.class));
+        assertEquals(1001, allocator.getCompletedWatermark());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testFinishesWhenGatheringOrCompletingThrows() throws Exception {
+        when(mockGatherer.gather(Mockito.eq(300), Mockito.any(DelayedRetryQueue.class))).thenThrow(new IllegalStateException("Bad page"));
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+        IdSource cursor = allocator.newCursor();
+        IdSource source = new IdSource() {
+            @Override
+            public int nextId() throws InterruptedException {
+                return cursor.nextId();
+            }
+
+            @Override
+            public void complete(final int id, final GatheringOutcome outcome) {
+                if(id == 500) {
+                    throw new IllegalStateException("Connection reset");
+                }
+                cursor.complete(id, outcome);
+            }
+        };
+
+        new VirtualThreadDispatcher(mockGatherer, source, limit, executor).run();
+
+        // Neither failure leaves the character unsettled, so the dispatcher still finishes
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(mockGatherer, times(1000)).gather(Mockito.anyInt(), Mockito.any(DelayedRetryQueue.class));
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testStopsWhenExecutorShutDown() throws Exception {
+        ChunkedIdAllocator allocator = new ChunkedIdAllocator(1, 1000);
+        executor.shutdownNow();
+
+        new VirtualThreadDispatcher(mockGatherer, allocator.newCursor(), limit, executor).run();
+
+        verify(mockGatherer, never()).gather(Mockito.anyInt(), Mockito.any(DelayedRetryQueue.class));
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testVirtualThreadsOnlyWhenSupported() {
+        try {
+            VirtualThreads.newVirtualThreadPerTaskExecutor().shutdown();
+            assertTrue(VirtualThreads.isAvailable());
+        } catch(UnsupportedOperationException e) {
+            assertEquals(false, VirtualThreads.isAvailable());
+        }
+    }
+}